@@ -0,0 +1,95 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * The directories benchmarks create their files in, each file system is named so that benchmarks
+ * can be parameterised by it. The directories are set with system properties: <br/>
+ * benchmark.tmpfs - A directory on a memory backed file system, /dev/shm by default. <br/>
+ * benchmark.disk - A directory on a disk backed file system, /var/tmp by default.
+ */
+final class BenchmarkDirectories {
+
+  static final String TMPFS = "tmpfs";
+  static final String DISK = "disk";
+
+  private BenchmarkDirectories() {
+  }
+
+  /**
+   * Creates a new temporary directory on the named file system.
+   * 
+   * @param fileSystem The name of the file system, {@link #TMPFS} or {@link #DISK}.
+   * @param prefix The prefix of the directory's name.
+   * @return The new directory.
+   * @throws IOException If an error occurs creating the directory.
+   */
+  static Path create(String fileSystem, String prefix) throws IOException {
+    Path root;
+
+    if (TMPFS.equals(fileSystem)) {
+      root = Paths.get(System.getProperty("benchmark.tmpfs", "/dev/shm"));
+    } else if (DISK.equals(fileSystem)) {
+      root = Paths.get(System.getProperty("benchmark.disk", "/var/tmp"));
+    } else {
+      throw new IllegalArgumentException(String.format("Unknown file system '%s'.", fileSystem));
+    }
+
+    return Files.createTempDirectory(root, prefix);
+  }
+
+  /**
+   * Deletes a directory and everything within it, without following symbolic links.
+   * 
+   * @param directory The directory to delete.
+   * @throws IOException If an error occurs deleting the directory.
+   */
+  static void delete(Path directory) throws IOException {
+    if (Files.notExists(directory)) {
+      return;
+    }
+
+    Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+        Files.delete(file);
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+        if (exc != null) {
+          throw exc;
+        }
+
+        Files.delete(dir);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+}
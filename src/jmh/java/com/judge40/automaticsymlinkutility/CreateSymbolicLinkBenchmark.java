@@ -0,0 +1,228 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of each branch of
+ * {@link AutomaticSymlinkUtility#createSymbolicLink(Path, Path, SymlinkOptions, OperationContext)},
+ * on both a memory backed and a disk backed file system. Each trial has its own context, so the
+ * file store is only probed once per trial rather than being measured with each branch. Branches
+ * which change the file system are restored to their starting state before every invocation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CreateSymbolicLinkBenchmark {
+
+  /**
+   * The number of files in the directory moved by {@link #moveDirectory(MoveDirectoryState)}.
+   */
+  private static final int DIRECTORY_FILE_COUNT = 10;
+
+  /**
+   * The state shared by all branches, a directory containing a link path and a target path.
+   */
+  @State(Scope.Thread)
+  public static class PathState {
+
+    @Param({BenchmarkDirectories.TMPFS, BenchmarkDirectories.DISK})
+    public String fileSystem;
+
+    final SymlinkOptions options = new SymlinkOptions();
+    OperationContext context;
+    Path directory;
+    Path link;
+    Path target;
+
+    /**
+     * Creates the context and the directory the link and target are in, then the branch's starting
+     * paths.
+     * 
+     * @throws IOException If an error occurs creating the directory or paths.
+     */
+    @Setup(Level.Trial)
+    public void createDirectory() throws IOException {
+      // The latencies are not reported, as when the utility is run without --timings.
+      context = new OperationContext();
+      context.getOperationStats().setEnabled(false);
+      directory = BenchmarkDirectories.create(fileSystem, "createSymbolicLink");
+      link = directory.resolve("link");
+      target = directory.resolve("target");
+      createPaths();
+    }
+
+    /**
+     * Creates the starting link and target paths of the branch, neither exist by default.
+     * 
+     * @throws IOException If an error occurs creating the paths.
+     */
+    void createPaths() throws IOException {
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteDirectory() throws IOException {
+      context.close();
+      BenchmarkDirectories.delete(directory);
+    }
+
+    SymlinkCreationResult createSymbolicLink() {
+      return AutomaticSymlinkUtility.createSymbolicLink(link, target, options, context);
+    }
+  }
+
+  /**
+   * The link path is already a symbolic link to the target path.
+   */
+  public static class AlreadyLinkState extends PathState {
+
+    @Override
+    void createPaths() throws IOException {
+      Files.createFile(target);
+      Files.createSymbolicLink(link, target);
+    }
+  }
+
+  /**
+   * Both the link path and target path are files.
+   */
+  public static class BothExistState extends PathState {
+
+    @Override
+    void createPaths() throws IOException {
+      Files.createFile(link);
+      Files.createFile(target);
+    }
+  }
+
+  /**
+   * The link path is a file and the target path does not exist.
+   */
+  public static class MoveFileState extends PathState {
+
+    /**
+     * Replaces the link created by the previous invocation with the file it links to.
+     * 
+     * @throws IOException If an error occurs resetting the paths.
+     */
+    @Setup(Level.Invocation)
+    public void resetFile() throws IOException {
+      Files.deleteIfExists(link);
+
+      if (Files.exists(target)) {
+        Files.move(target, link);
+      } else {
+        Files.write(link, new byte[1024]);
+      }
+    }
+  }
+
+  /**
+   * The link path is a directory of files and the target path does not exist.
+   */
+  public static class MoveDirectoryState extends PathState {
+
+    /**
+     * Replaces the link created by the previous invocation with the directory it links to.
+     * 
+     * @throws IOException If an error occurs resetting the paths.
+     */
+    @Setup(Level.Invocation)
+    public void resetDirectory() throws IOException {
+      Files.deleteIfExists(link);
+
+      if (Files.exists(target)) {
+        Files.move(target, link);
+      } else {
+        Files.createDirectory(link);
+
+        for (int i = 0; i < DIRECTORY_FILE_COUNT; i++) {
+          Files.write(link.resolve("file" + i), new byte[1024]);
+        }
+      }
+    }
+  }
+
+  /**
+   * The link path does not exist and the target path is a file.
+   */
+  public static class CreateFromTargetState extends PathState {
+
+    @Override
+    void createPaths() throws IOException {
+      Files.createFile(target);
+    }
+
+    @Setup(Level.Invocation)
+    public void deleteLink() throws IOException {
+      Files.deleteIfExists(link);
+    }
+  }
+
+  @Benchmark
+  public SymlinkCreationResult alreadyLink(AlreadyLinkState state) {
+    return state.createSymbolicLink();
+  }
+
+  @Benchmark
+  public SymlinkCreationResult bothExist(BothExistState state) {
+    return state.createSymbolicLink();
+  }
+
+  @Benchmark
+  public SymlinkCreationResult moveFile(MoveFileState state) {
+    return state.createSymbolicLink();
+  }
+
+  @Benchmark
+  public SymlinkCreationResult moveDirectory(MoveDirectoryState state) {
+    return state.createSymbolicLink();
+  }
+
+  @Benchmark
+  public SymlinkCreationResult createFromTarget(CreateFromTargetState state) {
+    return state.createSymbolicLink();
+  }
+
+  @Benchmark
+  public SymlinkCreationResult neitherExist(PathState state) {
+    return state.createSymbolicLink();
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Generates synthetic symlink definition files which conform to symlinks.xsd. Symlinks are a mix
+ * of ungrouped symlinks and groups of varying size, with context paths on some groups, some
+ * symlinks and some symlinks within groups which also have a context path. Context paths ending in
+ * {@link #MISSING_CONTEXT} are intended to be treated as not existing.
+ */
+final class DefinitionGenerator {
+
+  static final String MISSING_CONTEXT = "missing";
+
+  private static final int MAX_GROUP_SIZE = 50;
+  private static final int UNGROUPED_PERCENT = 25;
+  private static final int GROUP_CONTEXT_PERCENT = 30;
+  private static final int SYMLINK_CONTEXT_PERCENT = 20;
+  private static final int MISSING_CONTEXT_PERCENT = 10;
+
+  private final Random random;
+
+  private int groupCount = 0;
+
+  /**
+   * Constructs a DefinitionGenerator, the same seed always generates the same definitions.
+   * 
+   * @param seed The seed of the random choices.
+   */
+  DefinitionGenerator(long seed) {
+    random = new Random(seed);
+  }
+
+  /**
+   * Writes a definition file containing the given number of symlinks.
+   * 
+   * @param file The file to write.
+   * @param symlinkCount The number of symlinks to define.
+   * @throws IOException If an error occurs writing the file.
+   */
+  void write(Path file, int symlinkCount) throws IOException {
+    try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      write(writer, symlinkCount);
+    }
+  }
+
+  /**
+   * Writes definitions containing the given number of symlinks.
+   * 
+   * @param writer The writer to write the definitions to.
+   * @param symlinkCount The number of symlinks to define.
+   * @throws IOException If an error occurs writing the definitions.
+   */
+  void write(Writer writer, int symlinkCount) throws IOException {
+    writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<symlinks>\n");
+    int remaining = symlinkCount;
+
+    while (remaining > 0) {
+      if (random.nextInt(100) < UNGROUPED_PERCENT) {
+        writeSymlink(writer, "ungrouped", remaining, "  ");
+        remaining--;
+      } else {
+        final int groupSize = Math.min(remaining, 1 + random.nextInt(MAX_GROUP_SIZE));
+        String groupName = "group" + groupCount++;
+        writer.write("  <group name=\"");
+        writer.write(groupName);
+        writer.write('"');
+        writeContextPath(writer, GROUP_CONTEXT_PERCENT);
+        writer.write(">\n");
+
+        for (int i = 0; i < groupSize; i++) {
+          writeSymlink(writer, groupName, remaining - i, "    ");
+        }
+
+        writer.write("  </group>\n");
+        remaining -= groupSize;
+      }
+    }
+
+    writer.write("</symlinks>\n");
+  }
+
+  /**
+   * Writes a single symlink element.
+   * 
+   * @param writer The writer to write the symlink to.
+   * @param directory The directory of the link and target paths.
+   * @param index The index of the symlink, making its paths unique.
+   * @param indent The indentation of the symlink element.
+   * @throws IOException If an error occurs writing the symlink.
+   */
+  private void writeSymlink(Writer writer, String directory, int index, String indent)
+      throws IOException {
+    writer.write(indent);
+    writer.write("<symlink");
+    writeContextPath(writer, SYMLINK_CONTEXT_PERCENT);
+    writer.write(">\n");
+    writer.write(indent);
+    writer.write(String.format("  <linkPath>/home/user/%s/link%d</linkPath>%n", directory, index));
+    writer.write(indent);
+    writer.write(String.format("  <targetPath>/data/%s/target%d</targetPath>%n", directory, index));
+    writer.write(indent);
+    writer.write("</symlink>\n");
+  }
+
+  /**
+   * Writes a contextPath attribute for the given percentage of elements.
+   * 
+   * @param writer The writer to write the attribute to.
+   * @param percent The percentage of elements with a context path.
+   * @throws IOException If an error occurs writing the attribute.
+   */
+  private void writeContextPath(Writer writer, int percent) throws IOException {
+    if (random.nextInt(100) < percent) {
+      boolean missing = random.nextInt(100) < MISSING_CONTEXT_PERCENT;
+      writer.write(" contextPath=\"/opt/application");
+      writer.write(Integer.toString(random.nextInt(100)));
+      writer.write(missing ? "/" + MISSING_CONTEXT : "/installed");
+      writer.write('"');
+    }
+  }
+
+  /**
+   * Writes a definition file for use outside of the benchmarks.
+   * 
+   * @param args The file to write and the number of symlinks to define.
+   * @throws IOException If an error occurs writing the file.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      throw new IllegalArgumentException("Wrong number of arguments, file and count expected.");
+    }
+
+    try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(args[0]))) {
+      new DefinitionGenerator(0).write(writer, Integer.parseInt(args[1]));
+    }
+  }
+}
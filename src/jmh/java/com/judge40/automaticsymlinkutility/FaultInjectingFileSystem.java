@@ -0,0 +1,598 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.AccessMode;
+import java.nio.file.CopyOption;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemException;
+import java.nio.file.LinkOption;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.ProviderMismatchException;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.WatchEvent.Kind;
+import java.nio.file.WatchEvent.Modifier;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.FileAttributeView;
+import java.nio.file.attribute.UserPrincipalLookupService;
+import java.nio.file.spi.FileSystemProvider;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link FileSystem} which wraps another file system and injects latency and errors in to the
+ * operations on chosen paths. Faults are added as rules, each rule matches paths with a glob and
+ * delays every operation on a matching path, then fails it with a probability. <br/>
+ * Errors are thrown as the {@link FileSystemException} the default file system would throw, so
+ * {@link Fault#EIO} can fail any operation and {@link Fault#ENOSPC} only fails operations which
+ * write.
+ */
+final class FaultInjectingFileSystem extends FileSystem {
+
+  /**
+   * The errors which can be injected.
+   */
+  enum Fault {
+    EIO("Input/output error"), ENOSPC("No space left on device");
+
+    private final String reason;
+
+    Fault(String reason) {
+      this.reason = reason;
+    }
+  }
+
+  /**
+   * A fault injected in to the operations on matching paths.
+   */
+  private static final class Rule {
+
+    private final PathMatcher matcher;
+    private final long latency;
+    private final Fault fault;
+    private final double probability;
+
+    private Rule(PathMatcher matcher, long latency, Fault fault, double probability) {
+      this.matcher = matcher;
+      this.latency = latency;
+      this.fault = fault;
+      this.probability = probability;
+    }
+  }
+
+  private final FileSystem delegate;
+  private final Provider provider = new Provider();
+  private final List<Rule> rules = new CopyOnWriteArrayList<>();
+
+  /**
+   * Constructs a FaultInjectingFileSystem wrapping another file system, with no faults.
+   * 
+   * @param delegate The {@link FileSystem} to wrap.
+   */
+  FaultInjectingFileSystem(FileSystem delegate) {
+    this.delegate = delegate;
+  }
+
+  /**
+   * Adds a fault to inject in to the operations on matching paths.
+   * 
+   * @param glob The glob matching the paths of the wrapped file system to inject the fault in to.
+   * @param latency The latency to add to every operation on a matching path.
+   * @param unit The unit of the latency.
+   * @param fault The error to fail operations with, or null to only add latency.
+   * @param probability The probability of an operation failing, between 0 and 1.
+   */
+  void addFault(String glob, long latency, TimeUnit unit, Fault fault, double probability) {
+    rules.add(new Rule(delegate.getPathMatcher("glob:" + glob), unit.toNanos(latency), fault,
+        probability));
+  }
+
+  /**
+   * Removes all faults, operations are then passed straight to the wrapped file system.
+   */
+  void clearFaults() {
+    rules.clear();
+  }
+
+  /**
+   * Injects the faults of every rule matching a path.
+   * 
+   * @param path The path being operated on.
+   * @param write Whether the operation writes to the file system.
+   * @throws FileSystemException If a fault is injected.
+   */
+  private void inject(Path path, boolean write) throws FileSystemException {
+    Path unwrapped = unwrap(path);
+
+    for (Rule rule : rules) {
+      if (rule.matcher.matches(unwrapped)) {
+        if (rule.latency > 0) {
+          LockSupport.parkNanos(rule.latency);
+        }
+
+        if (rule.fault != null && (rule.fault == Fault.EIO || write)
+            && ThreadLocalRandom.current().nextDouble() < rule.probability) {
+          throw new FileSystemException(unwrapped.toString(), null, rule.fault.reason);
+        }
+      }
+    }
+  }
+
+  /**
+   * Wraps a path of the wrapped file system.
+   * 
+   * @param path The path to wrap.
+   * @return The wrapped path, or null if the path is null.
+   */
+  private Path wrap(Path path) {
+    return path == null ? null : new FaultInjectingPath(this, path);
+  }
+
+  /**
+   * Gets the path of the wrapped file system from a wrapped path.
+   * 
+   * @param path The wrapped path.
+   * @return The path of the wrapped file system.
+   * @throws ProviderMismatchException If the path is not from this file system.
+   */
+  private static Path unwrap(Path path) {
+    if (path == null) {
+      return null;
+    }
+
+    if (!(path instanceof FaultInjectingPath)) {
+      throw new ProviderMismatchException();
+    }
+
+    return ((FaultInjectingPath) path).delegate;
+  }
+
+  @Override
+  public FileSystemProvider provider() {
+    return provider;
+  }
+
+  @Override
+  public void close() throws IOException {
+    // The wrapped file system is not owned by this file system, so is left open.
+  }
+
+  @Override
+  public boolean isOpen() {
+    return delegate.isOpen();
+  }
+
+  @Override
+  public boolean isReadOnly() {
+    return delegate.isReadOnly();
+  }
+
+  @Override
+  public String getSeparator() {
+    return delegate.getSeparator();
+  }
+
+  @Override
+  public Iterable<Path> getRootDirectories() {
+    List<Path> roots = new ArrayList<>();
+
+    for (Path root : delegate.getRootDirectories()) {
+      roots.add(wrap(root));
+    }
+
+    return roots;
+  }
+
+  @Override
+  public Iterable<FileStore> getFileStores() {
+    return delegate.getFileStores();
+  }
+
+  @Override
+  public Set<String> supportedFileAttributeViews() {
+    return delegate.supportedFileAttributeViews();
+  }
+
+  @Override
+  public Path getPath(String first, String... more) {
+    return wrap(delegate.getPath(first, more));
+  }
+
+  @Override
+  public PathMatcher getPathMatcher(String syntaxAndPattern) {
+    PathMatcher matcher = delegate.getPathMatcher(syntaxAndPattern);
+    return path -> matcher.matches(unwrap(path));
+  }
+
+  @Override
+  public UserPrincipalLookupService getUserPrincipalLookupService() {
+    return delegate.getUserPrincipalLookupService();
+  }
+
+  @Override
+  public WatchService newWatchService() throws IOException {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * The provider of a {@link FaultInjectingFileSystem}, each operation has the faults of its paths
+   * injected before being passed to the wrapped file system's provider.
+   */
+  private final class Provider extends FileSystemProvider {
+
+    private FileSystemProvider delegateProvider() {
+      return delegate.provider();
+    }
+
+    @Override
+    public String getScheme() {
+      return "faults";
+    }
+
+    @Override
+    public FileSystem newFileSystem(URI uri, Map<String, ?> env) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public FileSystem getFileSystem(URI uri) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Path getPath(URI uri) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public SeekableByteChannel newByteChannel(Path path, Set<? extends OpenOption> options,
+        FileAttribute<?>... attrs) throws IOException {
+      inject(path, isWrite(options));
+      return delegateProvider().newByteChannel(unwrap(path), options, attrs);
+    }
+
+    @Override
+    public FileChannel newFileChannel(Path path, Set<? extends OpenOption> options,
+        FileAttribute<?>... attrs) throws IOException {
+      inject(path, isWrite(options));
+      return delegateProvider().newFileChannel(unwrap(path), options, attrs);
+    }
+
+    private boolean isWrite(Set<? extends OpenOption> options) {
+      return options.contains(StandardOpenOption.WRITE)
+          || options.contains(StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public DirectoryStream<Path> newDirectoryStream(Path dir,
+        DirectoryStream.Filter<? super Path> filter) throws IOException {
+      inject(dir, false);
+      DirectoryStream<Path> entries = delegateProvider().newDirectoryStream(unwrap(dir),
+          entry -> filter.accept(wrap(entry)));
+
+      return new DirectoryStream<Path>() {
+        @Override
+        public Iterator<Path> iterator() {
+          Iterator<Path> iterator = entries.iterator();
+
+          return new Iterator<Path>() {
+            @Override
+            public boolean hasNext() {
+              return iterator.hasNext();
+            }
+
+            @Override
+            public Path next() {
+              return wrap(iterator.next());
+            }
+          };
+        }
+
+        @Override
+        public void close() throws IOException {
+          entries.close();
+        }
+      };
+    }
+
+    @Override
+    public void createDirectory(Path dir, FileAttribute<?>... attrs) throws IOException {
+      inject(dir, true);
+      delegateProvider().createDirectory(unwrap(dir), attrs);
+    }
+
+    @Override
+    public void createSymbolicLink(Path link, Path target, FileAttribute<?>... attrs)
+        throws IOException {
+      inject(link, true);
+      delegateProvider().createSymbolicLink(unwrap(link), unwrap(target), attrs);
+    }
+
+    @Override
+    public void createLink(Path link, Path existing) throws IOException {
+      inject(link, true);
+      delegateProvider().createLink(unwrap(link), unwrap(existing));
+    }
+
+    @Override
+    public void delete(Path path) throws IOException {
+      inject(path, true);
+      delegateProvider().delete(unwrap(path));
+    }
+
+    @Override
+    public Path readSymbolicLink(Path link) throws IOException {
+      inject(link, false);
+      return wrap(delegateProvider().readSymbolicLink(unwrap(link)));
+    }
+
+    @Override
+    public void copy(Path source, Path target, CopyOption... options) throws IOException {
+      inject(source, false);
+      inject(target, true);
+      delegateProvider().copy(unwrap(source), unwrap(target), options);
+    }
+
+    @Override
+    public void move(Path source, Path target, CopyOption... options) throws IOException {
+      inject(source, true);
+      inject(target, true);
+      delegateProvider().move(unwrap(source), unwrap(target), options);
+    }
+
+    @Override
+    public boolean isSameFile(Path path, Path path2) throws IOException {
+      inject(path, false);
+      return delegateProvider().isSameFile(unwrap(path), unwrap(path2));
+    }
+
+    @Override
+    public boolean isHidden(Path path) throws IOException {
+      inject(path, false);
+      return delegateProvider().isHidden(unwrap(path));
+    }
+
+    @Override
+    public FileStore getFileStore(Path path) throws IOException {
+      inject(path, false);
+      return delegateProvider().getFileStore(unwrap(path));
+    }
+
+    @Override
+    public void checkAccess(Path path, AccessMode... modes) throws IOException {
+      inject(path, false);
+      delegateProvider().checkAccess(unwrap(path), modes);
+    }
+
+    @Override
+    public <V extends FileAttributeView> V getFileAttributeView(Path path, Class<V> type,
+        LinkOption... options) {
+      return delegateProvider().getFileAttributeView(unwrap(path), type, options);
+    }
+
+    @Override
+    public <A extends BasicFileAttributes> A readAttributes(Path path, Class<A> type,
+        LinkOption... options) throws IOException {
+      inject(path, false);
+      return delegateProvider().readAttributes(unwrap(path), type, options);
+    }
+
+    @Override
+    public Map<String, Object> readAttributes(Path path, String attributes,
+        LinkOption... options) throws IOException {
+      inject(path, false);
+      return delegateProvider().readAttributes(unwrap(path), attributes, options);
+    }
+
+    @Override
+    public void setAttribute(Path path, String attribute, Object value, LinkOption... options)
+        throws IOException {
+      inject(path, true);
+      delegateProvider().setAttribute(unwrap(path), attribute, value, options);
+    }
+  }
+
+  /**
+   * A path of a {@link FaultInjectingFileSystem}, wrapping a path of the wrapped file system.
+   */
+  private static final class FaultInjectingPath implements Path {
+
+    private final FaultInjectingFileSystem fileSystem;
+    private final Path delegate;
+
+    private FaultInjectingPath(FaultInjectingFileSystem fileSystem, Path delegate) {
+      this.fileSystem = fileSystem;
+      this.delegate = delegate;
+    }
+
+    @Override
+    public FileSystem getFileSystem() {
+      return fileSystem;
+    }
+
+    @Override
+    public boolean isAbsolute() {
+      return delegate.isAbsolute();
+    }
+
+    @Override
+    public Path getRoot() {
+      return fileSystem.wrap(delegate.getRoot());
+    }
+
+    @Override
+    public Path getFileName() {
+      return fileSystem.wrap(delegate.getFileName());
+    }
+
+    @Override
+    public Path getParent() {
+      return fileSystem.wrap(delegate.getParent());
+    }
+
+    @Override
+    public int getNameCount() {
+      return delegate.getNameCount();
+    }
+
+    @Override
+    public Path getName(int index) {
+      return fileSystem.wrap(delegate.getName(index));
+    }
+
+    @Override
+    public Path subpath(int beginIndex, int endIndex) {
+      return fileSystem.wrap(delegate.subpath(beginIndex, endIndex));
+    }
+
+    @Override
+    public boolean startsWith(Path other) {
+      return other instanceof FaultInjectingPath && delegate.startsWith(unwrap(other));
+    }
+
+    @Override
+    public boolean startsWith(String other) {
+      return delegate.startsWith(other);
+    }
+
+    @Override
+    public boolean endsWith(Path other) {
+      return other instanceof FaultInjectingPath && delegate.endsWith(unwrap(other));
+    }
+
+    @Override
+    public boolean endsWith(String other) {
+      return delegate.endsWith(other);
+    }
+
+    @Override
+    public Path normalize() {
+      return fileSystem.wrap(delegate.normalize());
+    }
+
+    @Override
+    public Path resolve(Path other) {
+      return fileSystem.wrap(delegate.resolve(unwrap(other)));
+    }
+
+    @Override
+    public Path resolve(String other) {
+      return fileSystem.wrap(delegate.resolve(other));
+    }
+
+    @Override
+    public Path resolveSibling(Path other) {
+      return fileSystem.wrap(delegate.resolveSibling(unwrap(other)));
+    }
+
+    @Override
+    public Path resolveSibling(String other) {
+      return fileSystem.wrap(delegate.resolveSibling(other));
+    }
+
+    @Override
+    public Path relativize(Path other) {
+      return fileSystem.wrap(delegate.relativize(unwrap(other)));
+    }
+
+    @Override
+    public URI toUri() {
+      return delegate.toUri();
+    }
+
+    @Override
+    public Path toAbsolutePath() {
+      return fileSystem.wrap(delegate.toAbsolutePath());
+    }
+
+    @Override
+    public Path toRealPath(LinkOption... options) throws IOException {
+      fileSystem.inject(this, false);
+      return fileSystem.wrap(delegate.toRealPath(options));
+    }
+
+    @Override
+    public File toFile() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public WatchKey register(WatchService watcher, Kind<?>[] events, Modifier... modifiers) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public WatchKey register(WatchService watcher, Kind<?>... events) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Iterator<Path> iterator() {
+      List<Path> names = new ArrayList<>();
+
+      for (Path name : delegate) {
+        names.add(fileSystem.wrap(name));
+      }
+
+      return names.iterator();
+    }
+
+    @Override
+    public int compareTo(Path other) {
+      return delegate.compareTo(unwrap(other));
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof FaultInjectingPath
+          && fileSystem == ((FaultInjectingPath) other).fileSystem
+          && delegate.equals(((FaultInjectingPath) other).delegate);
+    }
+
+    @Override
+    public int hashCode() {
+      return delegate.hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return delegate.toString();
+    }
+  }
+}
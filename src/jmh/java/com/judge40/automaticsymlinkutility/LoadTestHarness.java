@@ -0,0 +1,193 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import com.judge40.automaticsymlinkutility.FaultInjectingFileSystem.Fault;
+import com.judge40.automaticsymlinkutility.SymlinkCreationResult.Reason;
+import com.judge40.automaticsymlinkutility.SymlinkCreationResult.Status;
+
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An end-to-end load test which runs the full parsing and link creation pipeline of a
+ * {@link SymlinkManager} against a {@link FaultInjectingFileSystem}, under conditions which worsen
+ * from step to step. Each step moves a set of files in to a target directory and links back to
+ * them, with the faults of the step injected in to the target directory, as if it were a slow or
+ * flaky network mount. <br/>
+ * The throughput, latency percentiles and result counts of each step are written as a table to
+ * {@link System#out}.
+ */
+public class LoadTestHarness {
+
+  private static final int DEFAULT_SYMLINK_COUNT = 1000;
+  private static final int GROUP_SIZE = 10;
+  private static final int FILE_SIZE = 4 * 1024;
+  private static final double NANOS_PER_MILLI = 1_000_000;
+
+  /**
+   * The conditions of the file system during a step.
+   */
+  private enum Condition {
+    BASELINE(0, null, 0),
+    LATENCY_100US(100, null, 0),
+    LATENCY_1MS(1000, null, 0),
+    LATENCY_5MS(5000, null, 0),
+    EIO_1_PERCENT(1000, Fault.EIO, 0.01),
+    EIO_10_PERCENT(1000, Fault.EIO, 0.1),
+    ENOSPC_1_PERCENT(1000, Fault.ENOSPC, 0.01),
+    ENOSPC_10_PERCENT(1000, Fault.ENOSPC, 0.1),
+    SLOW_AND_FLAKY(5000, Fault.EIO, 0.1);
+
+    private final long latency;
+    private final Fault fault;
+    private final double probability;
+
+    Condition(long latency, Fault fault, double probability) {
+      this.latency = latency;
+      this.fault = fault;
+      this.probability = probability;
+    }
+  }
+
+  private final FaultInjectingFileSystem fileSystem =
+      new FaultInjectingFileSystem(FileSystems.getDefault());
+  private final SymlinkManager symlinkManager;
+
+  /**
+   * Constructs a LoadTestHarness, the schema is compiled once and used for every step.
+   * 
+   * @throws SAXException If the schema can not be loaded.
+   */
+  private LoadTestHarness() throws SAXException {
+    symlinkManager = new SymlinkManager(fileSystem, new SymlinkOptions());
+  }
+
+  /**
+   * Runs every step of the load test.
+   * 
+   * @param args The number of symlinks to create in each step, optional.
+   * @throws IOException If an error occurs creating the files of a step.
+   * @throws SAXException If an error occurs parsing the definitions.
+   */
+  public static void main(String[] args) throws IOException, SAXException {
+    int symlinkCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SYMLINK_COUNT;
+    LoadTestHarness harness = new LoadTestHarness();
+
+    System.out.printf("%-18s %10s %9s %9s %9s %9s %8s %8s %8s%n", "condition", "links/s",
+        "p50 ms", "p99 ms", "p99.9 ms", "max ms", "created", "failed", "io error");
+
+    for (Condition condition : Condition.values()) {
+      Path directory = BenchmarkDirectories.create(BenchmarkDirectories.TMPFS, "loadTest");
+
+      try {
+        harness.runStep(directory, condition, symlinkCount);
+      } finally {
+        BenchmarkDirectories.delete(directory);
+      }
+    }
+  }
+
+  /**
+   * Runs a single step of the load test and writes its results.
+   * 
+   * @param directory The directory to create the step's files in.
+   * @param condition The {@link Condition} of the file system during the step.
+   * @param symlinkCount The number of symlinks to create.
+   * @throws IOException If an error occurs creating the files.
+   * @throws SAXException If an error occurs parsing the definitions.
+   */
+  private void runStep(Path directory, Condition condition, int symlinkCount)
+      throws IOException, SAXException {
+    Path links = Files.createDirectory(directory.resolve("links"));
+    Path targets = Files.createDirectory(directory.resolve("targets"));
+    byte[] content = new byte[FILE_SIZE];
+    StringBuilder definitions = new StringBuilder("<symlinks>");
+
+    for (int i = 0; i < symlinkCount; i++) {
+      if (i % GROUP_SIZE == 0) {
+        definitions.append(i == 0 ? "" : "</group>").append("<group name=\"group").append(i)
+            .append("\">");
+      }
+
+      Path link = Files.write(links.resolve("file" + i), content);
+      definitions.append("<symlink><linkPath>").append(link).append("</linkPath><targetPath>")
+          .append(targets.resolve("file" + i)).append("</targetPath></symlink>");
+    }
+
+    definitions.append(symlinkCount > 0 ? "</group>" : "").append("</symlinks>");
+
+    fileSystem.clearFaults();
+    fileSystem.addFault(targets + "{,/**}", condition.latency, TimeUnit.MICROSECONDS,
+        condition.fault, condition.probability);
+    symlinkManager.getContext().getFileStoreCache().clear();
+    RecordingResultSink recordingSink = new RecordingResultSink();
+    long startTime = System.nanoTime();
+
+    try (ResultSink resultSink = new AsyncResultSink(recordingSink)) {
+      symlinkManager.apply(new InputSource(new StringReader(definitions.toString())), resultSink);
+    }
+
+    long duration = System.nanoTime() - startTime;
+    LatencyHistogram latencies = recordingSink.latencies;
+    System.out.printf("%-18s %10.1f %9.3f %9.3f %9.3f %9.3f %8d %8d %8d%n",
+        condition.name().toLowerCase(Locale.ROOT),
+        symlinkCount / (duration / (NANOS_PER_MILLI * 1000)),
+        latencies.getPercentile(50) / NANOS_PER_MILLI,
+        latencies.getPercentile(99) / NANOS_PER_MILLI,
+        latencies.getPercentile(99.9) / NANOS_PER_MILLI, latencies.getMax() / NANOS_PER_MILLI,
+        recordingSink.getCount(Status.CREATED), recordingSink.getCount(Status.FAILED),
+        recordingSink.ioErrors);
+  }
+
+  /**
+   * A result sink which records the latency and status of every result.
+   */
+  private static class RecordingResultSink extends NullResultSink {
+
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final Map<Status, Integer> counts = new EnumMap<>(Status.class);
+    private int ioErrors = 0;
+
+    @Override
+    public void result(String groupName, SymlinkCreationResult result) {
+      latencies.record(result.getDuration());
+      counts.merge(result.getStatus(), 1, Integer::sum);
+
+      if (result.getReason() == Reason.IO_ERROR) {
+        ioErrors++;
+      }
+    }
+
+    private int getCount(Status status) {
+      return counts.getOrDefault(status, 0);
+    }
+  }
+}
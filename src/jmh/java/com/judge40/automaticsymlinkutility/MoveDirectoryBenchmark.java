@@ -0,0 +1,215 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import com.judge40.automaticsymlinkutility.TreeGenerator.Shape;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of moving generated directory trees with each of the available move strategies, to
+ * a destination on the same device and on another device. The source is created in the tmpfs
+ * benchmark directory and another device's destination in the disk benchmark directory, see
+ * {@link BenchmarkDirectories}, which may be pointed at a second tmpfs or loop mount. <br/>
+ * As well as the moves per second, the files and megabytes moved per second are reported.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class MoveDirectoryBenchmark {
+
+  private static final double BYTES_PER_MEGABYTE = 1024 * 1024;
+
+  /**
+   * The ways a directory can be moved.
+   */
+  public enum Strategy {
+    /**
+     * The same as {@link AutomaticSymlinkUtility}, a rename when the source and destination are on
+     * the same file store, otherwise a streaming walk.
+     */
+    AUTOMATIC,
+
+    /**
+     * A {@link MoveDirectoryVisitor} driven by {@link Files#walkFileTree(Path,
+     * java.nio.file.FileVisitor)}.
+     */
+    WALK,
+
+    /**
+     * A {@link MoveDirectoryVisitor} driven by {@link StreamingTreeWalker}.
+     */
+    STREAMING_WALK,
+
+    /**
+     * A streaming walk where files are copied and verified in parallel by a
+     * {@link ChecksumVerifier}.
+     */
+    VERIFIED_WALK;
+  }
+
+  /**
+   * A generated tree to move, the destination to move it to and the strategy to move it with.
+   */
+  @State(Scope.Thread)
+  public static class TreeState {
+
+    @Param({"WIDE_FLAT", "DEEP_NARROW", "MIXED", "HUGE"})
+    public String shape;
+
+    @Param({"true", "false"})
+    public boolean sameDevice;
+
+    @Param({"AUTOMATIC", "WALK", "STREAMING_WALK", "VERIFIED_WALK"})
+    public Strategy strategy;
+
+    Path sourceDirectory;
+    Path destinationDirectory;
+    Path source;
+    Path destination;
+    DirectorySize size;
+    OperationContext context;
+
+    /**
+     * Creates the directories the tree is moved between.
+     * 
+     * @throws IOException If an error occurs creating the directories.
+     */
+    @Setup(Level.Trial)
+    public void createDirectories() throws IOException {
+      sourceDirectory = BenchmarkDirectories.create(BenchmarkDirectories.TMPFS, "moveSource");
+      destinationDirectory = sameDevice ? sourceDirectory
+          : BenchmarkDirectories.create(BenchmarkDirectories.DISK, "moveDestination");
+      source = sourceDirectory.resolve("source");
+      destination = destinationDirectory.resolve("destination");
+    }
+
+    /**
+     * Deletes the tree moved by the previous invocation and generates a new one.
+     * 
+     * @throws IOException If an error occurs deleting or generating the tree.
+     */
+    @Setup(Level.Invocation)
+    public void generateTree() throws IOException {
+      BenchmarkDirectories.delete(source);
+      BenchmarkDirectories.delete(destination);
+      TreeGenerator.generate(source, Shape.valueOf(shape));
+      context = new OperationContext();
+      size = DirectorySize.scan(source, context.getFiles());
+    }
+
+    /**
+     * Deletes the directories the tree is moved between.
+     * 
+     * @throws IOException If an error occurs deleting the directories.
+     */
+    @TearDown(Level.Trial)
+    public void deleteDirectories() throws IOException {
+      BenchmarkDirectories.delete(sourceDirectory);
+      BenchmarkDirectories.delete(destinationDirectory);
+    }
+  }
+
+  /**
+   * The files and megabytes moved, reported as rates.
+   */
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  @State(Scope.Thread)
+  public static class MoveCounters {
+
+    public long files;
+    public double megabytes;
+
+    /**
+     * Resets the counters for the iteration.
+     */
+    @Setup(Level.Iteration)
+    public void reset() {
+      files = 0;
+      megabytes = 0;
+    }
+  }
+
+  /**
+   * Moves the generated tree to the destination.
+   * 
+   * @param tree The tree to move.
+   * @param counters The counters of files and megabytes moved.
+   * @throws IOException If an error occurs moving the tree.
+   */
+  @Benchmark
+  public void move(TreeState tree, MoveCounters counters) throws IOException {
+    TimedFiles files = tree.context.getFiles();
+
+    switch (tree.strategy) {
+      case AUTOMATIC:
+        if (tree.context.getFileStoreCache().isRenameSupported(tree.source, tree.destination)) {
+          Files.move(tree.source, tree.destination, StandardCopyOption.ATOMIC_MOVE);
+        } else {
+          StreamingTreeWalker.walk(tree.source,
+              new MoveDirectoryVisitor(tree.source, tree.destination, tree.context), files);
+        }
+        break;
+      case WALK:
+        Files.walkFileTree(tree.source,
+            new MoveDirectoryVisitor(tree.source, tree.destination, tree.context));
+        break;
+      case STREAMING_WALK:
+        StreamingTreeWalker.walk(tree.source,
+            new MoveDirectoryVisitor(tree.source, tree.destination, tree.context), files);
+        break;
+      case VERIFIED_WALK:
+        try (ChecksumVerifier verifier =
+            new ChecksumVerifier(Runtime.getRuntime().availableProcessors(), files)) {
+          MoveDirectoryVisitor moveVisitor = new MoveDirectoryVisitor(tree.source,
+              tree.destination, false, verifier, tree.context);
+          StreamingTreeWalker.walk(tree.source, moveVisitor, files);
+          moveVisitor.awaitVerification();
+        }
+        break;
+      default:
+        throw new IllegalArgumentException(String.format("Unknown strategy '%s'.", tree.strategy));
+    }
+
+    counters.files += tree.size.getFileCount();
+    counters.megabytes += tree.size.getBytes() / BYTES_PER_MEGABYTE;
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+/**
+ * A result sink which discards everything reported to it.
+ */
+class NullResultSink implements ResultSink {
+
+  @Override
+  public void started() {
+  }
+
+  @Override
+  public void groupStarted(String groupName) {
+  }
+
+  @Override
+  public void groupSkipped(String groupName, String contextPath) {
+  }
+
+  @Override
+  public void symlinkStarted(String groupName) {
+  }
+
+  @Override
+  public void symlinkSkipped(String groupName, String contextPath) {
+  }
+
+  @Override
+  public void result(String groupName, SymlinkCreationResult result) {
+  }
+
+  @Override
+  public void groupFinished(String groupName) {
+  }
+
+  @Override
+  public void summary(RunSummary summary) {
+  }
+
+  @Override
+  public void timings(PhaseTimings timings) {
+  }
+
+  @Override
+  public void latencies(FileOperationStats operationStats) {
+  }
+
+  @Override
+  public void finished() {
+  }
+
+  @Override
+  public void close() {
+  }
+}
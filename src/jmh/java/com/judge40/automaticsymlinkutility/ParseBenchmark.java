@@ -0,0 +1,190 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import com.judge40.automaticsymlinkutility.SymlinkCreationResult.Reason;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.validation.SchemaFactory;
+
+/**
+ * Benchmarks of parsing synthetic definition files with {@link SymlinksHandler}, with and without
+ * schema validation. The file system is stubbed out, so only parsing and result handling are
+ * measured. The allocation rate can be measured by running with the gc profiler, -prof gc.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ParseBenchmark {
+
+  /**
+   * A generated definition file.
+   */
+  @State(Scope.Benchmark)
+  public static class DefinitionState {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int symlinkCount;
+
+    Path directory;
+    Path definitionFile;
+
+    /**
+     * Generates the definition file.
+     * 
+     * @throws IOException If an error occurs writing the file.
+     */
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+      directory = BenchmarkDirectories.create(BenchmarkDirectories.DISK, "parse");
+      definitionFile = directory.resolve("symlinks.xml");
+      new DefinitionGenerator(0).write(definitionFile, symlinkCount);
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+      BenchmarkDirectories.delete(directory);
+    }
+  }
+
+  /**
+   * A reader created the same way as {@link AutomaticSymlinkUtility#main(String[])}, optionally
+   * without the schema, and the context shared by the handlers it parses with.
+   */
+  @State(Scope.Thread)
+  public static class ReaderState {
+
+    @Param({"true", "false"})
+    public boolean validate;
+
+    XMLReader xmlReader;
+    OperationContext context;
+
+    /**
+     * Creates the reader and context.
+     * 
+     * @throws ParserConfigurationException If the parser can not be created.
+     * @throws SAXException If the schema can not be loaded or the reader can not be created.
+     */
+    @Setup(Level.Trial)
+    public void createReader() throws ParserConfigurationException, SAXException {
+      context = new OperationContext();
+      SAXParserFactory saxParserFactory = SAXParserFactory.newInstance();
+
+      if (validate) {
+        SchemaFactory schemaFactory =
+            SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+        saxParserFactory.setSchema(schemaFactory
+            .newSchema(ParseBenchmark.class.getClassLoader().getResource("symlinks.xsd")));
+      }
+
+      xmlReader = saxParserFactory.newSAXParser().getXMLReader();
+    }
+
+    @TearDown(Level.Trial)
+    public void closeContext() {
+      context.close();
+    }
+  }
+
+  /**
+   * The number of symlinks parsed, reported as a rate alongside the document rate.
+   */
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  @State(Scope.Thread)
+  public static class SymlinkCounter {
+
+    public long symlinks;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      symlinks = 0;
+    }
+  }
+
+  /**
+   * Parses the definition file with a new handler.
+   * 
+   * @param definition The definition file to parse.
+   * @param reader The reader to parse with.
+   * @param counter The counter of symlinks parsed.
+   * @return The summary of the results, consumed so that parsing is not eliminated.
+   * @throws IOException If an error occurs reading the file.
+   * @throws SAXException If the file is invalid.
+   */
+  @Benchmark
+  public RunSummary parse(DefinitionState definition, ReaderState reader, SymlinkCounter counter)
+      throws IOException, SAXException {
+    SymlinksHandler handler = new StubbedSymlinksHandler(reader.context);
+    reader.xmlReader.setContentHandler(handler);
+    reader.xmlReader.setErrorHandler(handler);
+    reader.xmlReader.parse(definition.definitionFile.toUri().toString());
+    counter.symlinks += definition.symlinkCount;
+    return handler.getSummary();
+  }
+
+  /**
+   * A handler which does not access the file system, context paths ending in
+   * {@link DefinitionGenerator#MISSING_CONTEXT} do not exist and every link already exists.
+   */
+  private static class StubbedSymlinksHandler extends SymlinksHandler {
+
+    private StubbedSymlinksHandler(OperationContext context) {
+      super(new SymlinkOptions(), new NullResultSink(), FileSystems.getDefault(), null, null,
+          context);
+    }
+
+    @Override
+    protected boolean contextExists(Path context) {
+      return !context.endsWith(DefinitionGenerator.MISSING_CONTEXT);
+    }
+
+    @Override
+    protected SymlinkCreationResult createSymbolicLink(Path link, Path target) {
+      return new SymlinkCreationResult(Reason.ALREADY_LINK, link, target);
+    }
+  }
+}
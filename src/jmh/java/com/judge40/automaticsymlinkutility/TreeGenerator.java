@@ -0,0 +1,153 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Generates directory trees of a given {@link Shape}, file contents and sizes are generated from a
+ * fixed seed so the same shape always has the same size.
+ */
+final class TreeGenerator {
+
+  private static final int KIB = 1024;
+  private static final int MIB = 1024 * KIB;
+
+  /**
+   * The shapes of tree which can be generated.
+   */
+  enum Shape {
+    /**
+     * 100,000 files of 1 KiB in a single directory.
+     */
+    WIDE_FLAT,
+
+    /**
+     * A chain of 100 nested directories, each containing 10 files of 4 KiB.
+     */
+    DEEP_NARROW,
+
+    /**
+     * 10 directories of 100 files, with sizes spread logarithmically from 1 byte up to 4 MiB.
+     */
+    MIXED,
+
+    /**
+     * 3 files of 128 MiB.
+     */
+    HUGE;
+  }
+
+  private final byte[] buffer = new byte[MIB];
+  private final Random random = new Random(0);
+
+  private TreeGenerator() {
+    random.nextBytes(buffer);
+  }
+
+  /**
+   * Generates a tree of the given shape.
+   * 
+   * @param root The root directory of the tree, which must not already exist.
+   * @param shape The {@link Shape} of the tree.
+   * @throws IOException If an error occurs creating the tree.
+   */
+  static void generate(Path root, Shape shape) throws IOException {
+    new TreeGenerator().generateTree(root, shape);
+  }
+
+  /**
+   * Generates a tree of the given shape.
+   * 
+   * @param root The root directory of the tree, which must not already exist.
+   * @param shape The {@link Shape} of the tree.
+   * @throws IOException If an error occurs creating the tree.
+   */
+  private void generateTree(Path root, Shape shape) throws IOException {
+    Files.createDirectory(root);
+
+    switch (shape) {
+      case WIDE_FLAT:
+        createFiles(root, 100_000, KIB);
+        break;
+      case DEEP_NARROW: {
+        Path directory = root;
+
+        for (int i = 0; i < 100; i++) {
+          createFiles(directory, 10, 4 * KIB);
+          directory = Files.createDirectory(directory.resolve("directory" + i));
+        }
+        break;
+      }
+      case MIXED:
+        for (int i = 0; i < 10; i++) {
+          Path directory = Files.createDirectory(root.resolve("directory" + i));
+
+          for (int j = 0; j < 100; j++) {
+            // Sizes from 2^0 to 2^22 bytes, each equally likely.
+            createFile(directory.resolve("file" + j), 1 << random.nextInt(23));
+          }
+        }
+        break;
+      case HUGE:
+        createFiles(root, 3, 128 * MIB);
+        break;
+      default:
+        throw new IllegalArgumentException(String.format("Unknown shape '%s'.", shape));
+    }
+  }
+
+  /**
+   * Creates a number of files of the same size within a directory.
+   * 
+   * @param directory The directory to create the files in.
+   * @param count The number of files to create.
+   * @param size The size of each file in bytes.
+   * @throws IOException If an error occurs creating the files.
+   */
+  private void createFiles(Path directory, int count, long size) throws IOException {
+    for (int i = 0; i < count; i++) {
+      createFile(directory.resolve("file" + i), size);
+    }
+  }
+
+  /**
+   * Creates a single file filled with random content.
+   * 
+   * @param file The file to create.
+   * @param size The size of the file in bytes.
+   * @throws IOException If an error occurs creating the file.
+   */
+  private void createFile(Path file, long size) throws IOException {
+    try (OutputStream out = Files.newOutputStream(file)) {
+      long remaining = size;
+
+      while (remaining > 0) {
+        int length = (int) Math.min(remaining, buffer.length);
+        out.write(buffer, random.nextInt(buffer.length - length + 1), length);
+        remaining -= length;
+      }
+    }
+  }
+}
@@ -0,0 +1,222 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * A {@link ResultSink} which queues events and passes them to another sink from a background
+ * writer thread, so that writing output does not hold up the processing of symlinks. Events are
+ * passed on in the order they were reported, closing the sink waits for all queued events to be
+ * written. <br/>
+ * An event which the delegate sink fails to write is logged to {@link System#err} and the writer
+ * carries on with the following events. Events are never dropped, a thread interrupted while
+ * waiting to queue an event still queues it and has its interrupt status restored. <br/>
+ * If the writer fails with an {@link Error} then the remaining events are discarded, so that
+ * producers do not block on a full queue, and the error is rethrown to the thread which next
+ * reports an event or closes the sink.
+ */
+public class AsyncResultSink implements ResultSink {
+
+  /**
+   * The default number of events which can be queued before reporting an event blocks.
+   */
+  public static final int DEFAULT_CAPACITY = 8192;
+
+  private static final Consumer<ResultSink> CLOSE = sink -> {
+  };
+
+  private final ResultSink delegate;
+  private final BlockingQueue<Consumer<ResultSink>> events;
+  private final Thread writer;
+  private final AtomicBoolean failureThrown = new AtomicBoolean();
+  private volatile Error failure;
+
+  /**
+   * Constructs an AsyncResultSink with the sink to pass events to.
+   * 
+   * @param delegate The sink to pass events to.
+   */
+  public AsyncResultSink(ResultSink delegate) {
+    this(delegate, DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Constructs an AsyncResultSink with the sink to pass events to and the number of events which
+   * can be queued.
+   * 
+   * @param delegate The sink to pass events to.
+   * @param capacity The maximum number of events to queue before reporting an event blocks.
+   */
+  public AsyncResultSink(ResultSink delegate, int capacity) {
+    this.delegate = delegate;
+    events = new ArrayBlockingQueue<>(capacity);
+    writer = new Thread(this::write, "result-writer");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  @Override
+  public void started() {
+    queue(ResultSink::started);
+  }
+
+  @Override
+  public void groupStarted(String groupName) {
+    queue(sink -> sink.groupStarted(groupName));
+  }
+
+  @Override
+  public void groupSkipped(String groupName, String contextPath) {
+    queue(sink -> sink.groupSkipped(groupName, contextPath));
+  }
+
+  @Override
+  public void symlinkStarted(String groupName) {
+    queue(sink -> sink.symlinkStarted(groupName));
+  }
+
+  @Override
+  public void symlinkSkipped(String groupName, String contextPath) {
+    queue(sink -> sink.symlinkSkipped(groupName, contextPath));
+  }
+
+  @Override
+  public void result(String groupName, SymlinkCreationResult result) {
+    queue(sink -> sink.result(groupName, result));
+  }
+
+  @Override
+  public void groupFinished(String groupName) {
+    queue(sink -> sink.groupFinished(groupName));
+  }
+
+  @Override
+  public void summary(RunSummary summary) {
+    queue(sink -> sink.summary(summary));
+  }
+
+  @Override
+  public void timings(PhaseTimings timings) {
+    queue(sink -> sink.timings(timings));
+  }
+
+  @Override
+  public void latencies(FileOperationStats operationStats) {
+    queue(sink -> sink.latencies(operationStats));
+  }
+
+  @Override
+  public void finished() {
+    queue(ResultSink::finished);
+  }
+
+  /**
+   * Waits for all queued events to be written and then closes the delegate sink. If the writer
+   * failed, and its error has not already been rethrown, then the error is rethrown once the
+   * delegate is closed.
+   */
+  @Override
+  public void close() {
+    if (writer.isAlive()) {
+      put(CLOSE);
+
+      try {
+        writer.join();
+      } catch (InterruptedException ie) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    delegate.close();
+
+    if (failure != null && failureThrown.compareAndSet(false, true)) {
+      throw failure;
+    }
+  }
+
+  /**
+   * Queues an event, unless the writer has failed in which case its error is rethrown.
+   * 
+   * @param event The event to queue.
+   */
+  private void queue(Consumer<ResultSink> event) {
+    Error writerFailure = failure;
+
+    if (writerFailure != null) {
+      failureThrown.set(true);
+      throw writerFailure;
+    }
+
+    put(event);
+  }
+
+  /**
+   * Puts an event in the queue, waiting for space in the queue if it is full. If the thread is
+   * interrupted while waiting it carries on waiting, so that the event is not lost, and its
+   * interrupt status is restored once the event is queued.
+   * 
+   * @param event The event to queue.
+   */
+  private void put(Consumer<ResultSink> event) {
+    boolean interrupted = false;
+
+    while (true) {
+      try {
+        events.put(event);
+        break;
+      } catch (InterruptedException ie) {
+        interrupted = true;
+      }
+    }
+
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Passes queued events to the delegate sink until the sink is closed, an event which fails is
+   * logged so that the queue keeps being drained. After an error the queue is still drained until
+   * the sink is closed, but the events are discarded.
+   */
+  private void write() {
+    try {
+      for (Consumer<ResultSink> event = events.take(); event != CLOSE; event = events.take()) {
+        if (failure != null) {
+          continue;
+        }
+
+        try {
+          event.accept(delegate);
+        } catch (RuntimeException exception) {
+          System.err.println(String.format("Error writing results: %s", exception));
+        } catch (Error error) {
+          failure = error;
+        }
+      }
+    } catch (InterruptedException ie) {
+      // Nothing more will be written.
+    }
+  }
+}
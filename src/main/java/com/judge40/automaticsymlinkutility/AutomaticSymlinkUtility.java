@@ -19,73 +19,233 @@
 
 package com.judge40.automaticsymlinkutility;
 
+import com.judge40.automaticsymlinkutility.PhaseTimings.Phase;
+import com.judge40.automaticsymlinkutility.SymlinkCreationResult.Reason;
 import com.judge40.automaticsymlinkutility.SymlinkCreationResult.Status;
+import com.judge40.automaticsymlinkutility.SymlinkOptions.OutputFormat;
 
 import org.xml.sax.SAXException;
-import org.xml.sax.XMLReader;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
-import java.net.URISyntaxException;
-import java.net.URL;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystemException;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-
-import javax.xml.XMLConstants;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
-import javax.xml.validation.Schema;
-import javax.xml.validation.SchemaFactory;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A utility for managing Symbolic links automatically based on pre-defined values.
  */
 public class AutomaticSymlinkUtility {
 
+  /**
+   * The possible states of a link and target path, each state has a single action.
+   */
+  private enum LinkState {
+    ALREADY_LINK, BOTH_EXIST, SYMLINKS_NOT_SUPPORTED, MERGE_FILES, MERGE_DIRECTORIES, NOT_MERGEABLE,
+    MOVE_FILE, MOVE_DIRECTORY, UNKNOWN, LINK_TO_TARGET, NEITHER_EXIST;
+  }
+
+  private enum LinkCondition {
+    MISSING, NOT_LINK, MISDIRECTED, DANGLING, LIVE;
+  }
+
+  private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
   /**
    * Parses the symlink definition file and creates symbolic links as needed.
    * 
-   * @param args Should contain the symlinks definition file as args[0].
+   * @param args Should contain the symlinks definition file as the only non-option argument, see
+   *        {@link SymlinkOptions} for the supported options.
    * @throws IOException An IO exception from the parser, possibly from a byte stream or character
    *         stream supplied by the application.
-   * @throws ParserConfigurationException If a parser cannot be created which satisfies the
-   *         requested configuration.
    * @throws SAXException Any SAX exception, possibly wrapping another exception.
-   * @throws URISyntaxException When the symlinks schema can not be loaded.
    */
-  public static void main(String[] args)
-      throws IOException, ParserConfigurationException, SAXException, URISyntaxException {
+  public static void main(String[] args) throws IOException, SAXException {
+    long mainEntryTime = System.currentTimeMillis();
+    SymlinkOptions options = SymlinkOptions.parse(args);
+    List<String> arguments = options.getArguments();
+    OperationContext context = new OperationContext();
+
+    // The JVM's start up can only be timed from the wall clock time the JVM reports it started at.
+    context.getTimings().recordDuration(Phase.JVM_STARTUP, TimeUnit.MILLISECONDS
+        .toNanos(mainEntryTime - ManagementFactory.getRuntimeMXBean().getStartTime()));
+
+    // The file operation latencies are only recorded when they are reported.
+    context.getOperationStats()
+        .setEnabled(options.isTimings() || options.getMetricsFile() != null);
+
+    if (options.getSlowThreshold() >= 0) {
+      context.getSlowOperationLog()
+          .setThreshold(TimeUnit.MILLISECONDS.toNanos(options.getSlowThreshold()));
+    }
+
+    if (options.getReconcileFile() != null && options.getDaemonPort() < 0) {
+      throw new IllegalArgumentException("The reconcile option requires the daemon option.");
+    }
+
+    // A daemon applies many runs, which a single metrics file cannot describe.
+    if (options.getMetricsFile() != null && options.getDaemonPort() >= 0) {
+      throw new IllegalArgumentException("The metrics option is not supported in daemon mode.");
+    }
+
+    // A summary file and the timings describe a single run, which a daemon does not have either.
+    if (options.getSummaryFile() != null && options.getDaemonPort() >= 0) {
+      throw new IllegalArgumentException(
+          "The summary option with a file is not supported in daemon mode.");
+    }
+
+    if (options.isTimings() && options.getDaemonPort() >= 0) {
+      throw new IllegalArgumentException("The timings option is not supported in daemon mode.");
+    }
+
+    // Definition files are given with each request in daemon mode.
+    if (options.getDaemonPort() >= 0) {
+      if (!arguments.isEmpty()) {
+        throw new IllegalArgumentException("Wrong number of arguments, none expected.");
+      }
+
+      runDaemon(options, context);
+      return;
+    }
+
     // Verify args are correct and point to an actual file.
-    if (args.length != 1) {
+    if (arguments.size() != 1) {
       throw new IllegalArgumentException("Wrong number of arguments, one expected.");
     }
 
-    if (Files.notExists(Paths.get(args[0]))) {
+    String definitionFile = arguments.get(0);
+
+    if (Files.notExists(Paths.get(definitionFile))) {
       throw new IllegalArgumentException("The definition file does not exist.");
     }
 
-    // Set the parser to use the symlinks.xsd schema.
-    URL symlinksResource =
-        AutomaticSymlinkUtility.class.getClassLoader().getResource("symlinks.xsd");
-    Path schemaPath = Paths.get(symlinksResource.toURI());
-    SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-    Schema schema = schemaFactory.newSchema(schemaPath.toFile());
+    long startTime = System.nanoTime();
+    PhaseTimings timings = context.getTimings();
+    FileOperationStats operationStats = context.getOperationStats();
+
+    // Results are written asynchronously to a buffered stream.
+    PrintStream out = new PrintStream(new BufferedOutputStream(System.out, OUTPUT_BUFFER_SIZE));
+    PrometheusMetrics metrics = new PrometheusMetrics();
+    ResultSink outputSink = createResultSink(options, out);
+
+    if (options.getMetricsFile() != null) {
+      outputSink = new TeeResultSink(outputSink, metrics);
+    }
 
-    SAXParserFactory saxParserFactory = SAXParserFactory.newInstance();
-    saxParserFactory.setSchema(schema);
+    Throwable failure = null;
 
-    // Get the XMLReader.
-    SAXParser saxParser = saxParserFactory.newSAXParser();
-    XMLReader xmlReader = saxParser.getXMLReader();
+    // The manager compiles the symlinks.xsd schema and parses the definition file with it.
+    try (SymlinkManager symlinkManager =
+        new SymlinkManager(FileSystems.getDefault(), options, context)) {
+      try (ResultSink resultSink = new AsyncResultSink(outputSink)) {
+        RunSummary summary = symlinkManager.apply(Paths.get(definitionFile), resultSink);
 
-    // Set the content and error handlers.
-    SymlinksHandler symlinksHandler = new SymlinksHandler();
-    xmlReader.setContentHandler(symlinksHandler);
-    xmlReader.setErrorHandler(symlinksHandler);
+        if (options.isTimings()) {
+          resultSink.timings(timings);
+          resultSink.latencies(operationStats);
+        }
 
-    // Parse the definition file.
-    xmlReader.parse(args[0]);
+        if (options.getSummaryFile() != null) {
+          writeSummary(summary, options.getSummaryFile());
+        }
+      }
+    } catch (Throwable t) {
+      failure = t;
+      throw t;
+    } finally {
+      // The metrics are complete once the result sink has been closed, they are also written when
+      // the run fails so that the failure can be alerted on.
+      if (options.getMetricsFile() != null) {
+        for (Phase phase : Phase.values()) {
+          metrics.recordPhase(phase.name().toLowerCase(Locale.ROOT), timings.getDuration(phase));
+        }
+
+        metrics.recordPhase("total", System.nanoTime() - startTime);
+        metrics.setOperationStats(operationStats);
+        metrics.setCompleted(failure == null);
+
+        try {
+          metrics.writeTo(options.getMetricsFile());
+        } catch (IOException ioe) {
+          // A failure to write the metrics must not hide the failure of the run.
+          if (failure == null) {
+            throw ioe;
+          }
+
+          failure.addSuppressed(ioe);
+        }
+      }
+    }
+  }
+
+  /**
+   * Runs as a daemon, applying definition files on request until stopped.
+   * 
+   * @param options The options to apply the definition files with.
+   * @param context The context the daemon's file operations are timed and recorded in.
+   * @throws IOException If an error occurs listening for requests.
+   * @throws SAXException If the symlinks schema can not be loaded.
+   */
+  private static void runDaemon(SymlinkOptions options, OperationContext context)
+      throws IOException, SAXException {
+    try (SymlinkManager symlinkManager =
+        new SymlinkManager(FileSystems.getDefault(), options, context);
+        SymlinkDaemon daemon = new SymlinkDaemon(symlinkManager, options.getDaemonPort())) {
+      System.out.printf("Automatic Symlink Utility listening on port %d, with the request token in "
+          + "'%s'.%n", daemon.getPort(), daemon.getTokenFile());
+      System.out.flush();
+
+      if (options.getReconcileFile() != null) {
+        ReconcileSchedule schedule = new ReconcileSchedule(options.getMinReconcileInterval(),
+            options.getMaxReconcileInterval(), TimeUnit.SECONDS);
+        daemon.reconcile(options.getReconcileFile(), schedule, System.out);
+      }
+
+      daemon.run();
+    }
+  }
+
+  /**
+   * Writes the run summary to a file as text.
+   * 
+   * @param summary The {@link RunSummary} to write.
+   * @param summaryFile The file to write the summary to.
+   * @throws IOException If an error occurs writing the file.
+   */
+  private static void writeSummary(RunSummary summary, Path summaryFile) throws IOException {
+    try (PrintStream summaryOut =
+        new PrintStream(Files.newOutputStream(summaryFile), false, StandardCharsets.UTF_8.name());
+        ResultSink summarySink = new TextResultSink(summaryOut)) {
+      summarySink.summary(summary);
+    }
+  }
+
+  /**
+   * Creates the sink to write results to in the format specified by the options.
+   * 
+   * @param options The options specifying the output format.
+   * @param out The stream to write results to.
+   * @return The {@link ResultSink}.
+   */
+  static ResultSink createResultSink(SymlinkOptions options, PrintStream out) {
+    if (options.getFormat() == OutputFormat.JSON) {
+      return new JsonLinesResultSink(out, options.isMessages());
+    }
+
+    return new TextResultSink(out);
   }
 
   /**
@@ -98,52 +258,743 @@ public class AutomaticSymlinkUtility {
    * @return A {@link SymlinkCreationResult} with a status and message based on the actions taken.
    */
   protected static SymlinkCreationResult createSymbolicLink(Path link, Path target) {
-    Status status;
-    String message;
+    return createSymbolicLink(link, target, new SymlinkOptions());
+  }
+
+  /**
+   * Create a symbolic link between the given paths, if the link path is an existing file then it
+   * will be moved to the target path, if the target path does not already exist, and linked back
+   * to. If both paths exist and merging is enabled then the link path's contents will be merged in
+   * to the target path and linked back to when there are no conflicts.
+   * 
+   * @param link The path to create the symbolic link at.
+   * @param target The path to the file to link to.
+   * @param options The options controlling how the link is created.
+   * @return A {@link SymlinkCreationResult} with a status and reason based on the actions taken.
+   * @see OperationContext#getDefault()
+   */
+  protected static SymlinkCreationResult createSymbolicLink(Path link, Path target,
+      SymlinkOptions options) {
+    return createSymbolicLink(link, target, options, OperationContext.getDefault());
+  }
+
+  /**
+   * Create a symbolic link between the given paths, see
+   * {@link #createSymbolicLink(Path, Path, SymlinkOptions)}, timing and recording its file
+   * operations in the given context.
+   * 
+   * @param link The path to create the symbolic link at.
+   * @param target The path to the file to link to.
+   * @param options The options controlling how the link is created.
+   * @param context The context the file operations are timed and recorded in.
+   * @return A {@link SymlinkCreationResult} with a status and reason based on the actions taken.
+   */
+  protected static SymlinkCreationResult createSymbolicLink(Path link, Path target,
+      SymlinkOptions options, OperationContext context) {
+    TimedFiles files = context.getFiles();
+    LinkOperationEvent event = new LinkOperationEvent();
+    event.begin();
+    long startTime = System.nanoTime();
+    PhaseTimings timings = context.getTimings();
+    long bytesMoved = 0;
+    long filesMoved = 0;
+    SymlinkCreationResult result;
 
     try {
-      if (Files.exists(link)) {
-        if (Files.isSymbolicLink(link)) {
-          status = Status.SKIPPED;
-          message = String.format("A link was not created because '%s' is already a symbolic link.",
-              link);
-        } else if (Files.exists(target)) {
-          status = Status.SKIPPED;
-          message = String.format("A link was not created because both '%s' and '%s' exist.", link,
-              target);
-        } else if (Files.isRegularFile(link)) {
-          Files.move(link, target);
-          Files.createSymbolicLink(link, target);
-          status = Status.CREATED;
-          message = String.format("A link was created between '%s' and '%s'.", link, target);
-        } else if (Files.isDirectory(link)) {
-          MoveDirectoryVisitor moveVisitor = new MoveDirectoryVisitor(link, target);
-          Files.walkFileTree(link, moveVisitor);
-          Files.createSymbolicLink(link, target);
-          status = Status.CREATED;
-          message = String.format("A link was created between '%s' and '%s'.", link, target);
-        } else {
-          status = Status.FAILED;
-          message = String.format(
-              "A link was not created because '%s' and '%s' were in an unknown state.", link,
-              target);
+      LinkState state = classify(link, target, options, context);
+      timings.record(Phase.STATE_CLASSIFICATION, startTime);
+
+      switch (state) {
+        case ALREADY_LINK:
+          result = new SymlinkCreationResult(Reason.ALREADY_LINK, link, target);
+          break;
+        case BOTH_EXIST:
+          result = new SymlinkCreationResult(Reason.BOTH_EXIST, link, target);
+          break;
+        case SYMLINKS_NOT_SUPPORTED:
+          result = new SymlinkCreationResult(Reason.SYMLINKS_NOT_SUPPORTED, link, target);
+          break;
+        case MERGE_FILES: {
+          final long moveStartTime = System.nanoTime();
+          boolean contentEquals = FileHasher.contentEquals(link, target, files,
+              context.getVerificationExecutor());
+
+          if (contentEquals) {
+            files.delete(link);
+          }
+
+          timings.record(Phase.MOVE, moveStartTime);
+
+          if (contentEquals) {
+            createLink(link, target, context);
+            result = new SymlinkCreationResult(Reason.MERGED_FILE, link, target);
+          } else {
+            result = new SymlinkCreationResult(Reason.CONTENTS_DIFFER, link, target);
+          }
+          break;
+        }
+        case MERGE_DIRECTORIES: {
+          final long moveStartTime = System.nanoTime();
+          checkAvailableSpace(link, target, true, context);
+          List<Path> conflicts;
+          List<Path> verificationFailures;
+
+          try (ChecksumVerifier verifier = createVerifier(link, target, options, context)) {
+            MoveDirectoryVisitor moveVisitor =
+                new MoveDirectoryVisitor(link, target, true, verifier, context);
+            StreamingTreeWalker.walk(link, moveVisitor, files);
+            moveVisitor.awaitVerification();
+            conflicts = moveVisitor.getConflicts();
+            verificationFailures = moveVisitor.getVerificationFailures();
+            bytesMoved = moveVisitor.getBytesMoved();
+            filesMoved = moveVisitor.getFilesMoved();
+          }
+
+          timings.record(Phase.MOVE, moveStartTime);
+
+          if (!verificationFailures.isEmpty()) {
+            result = new SymlinkCreationResult(Reason.VERIFICATION_FAILED, link, target,
+                verificationFailures);
+          } else if (conflicts.isEmpty()) {
+            createLink(link, target, context);
+            result = new SymlinkCreationResult(Reason.MERGED_DIR, link, target);
+          } else {
+            result = new SymlinkCreationResult(Reason.MERGE_CONFLICT, link, target, conflicts);
+          }
+          break;
+        }
+        case NOT_MERGEABLE:
+          result = new SymlinkCreationResult(Reason.NOT_MERGEABLE, link, target);
+          break;
+        case MOVE_FILE: {
+          final long moveStartTime = System.nanoTime();
+          checkAvailableSpace(link, target, context);
+          List<Path> verificationFailures = Collections.emptyList();
+          filesMoved = 1;
+
+          try (ChecksumVerifier verifier = createVerifier(link, target, options, context)) {
+            bytesMoved = getCopiedBytes(link, target, verifier, context);
+
+            if (verifier != null) {
+              verifier.move(link, target);
+              verificationFailures = verifier.await();
+            } else {
+              files.move(link, target);
+            }
+          }
+
+          timings.record(Phase.MOVE, moveStartTime);
+
+          if (verificationFailures.isEmpty()) {
+            createLink(link, target, context);
+            result = new SymlinkCreationResult(Reason.MOVED_FILE, link, target);
+          } else {
+            result = new SymlinkCreationResult(Reason.VERIFICATION_FAILED, link, target,
+                verificationFailures);
+          }
+          break;
+        }
+        case MOVE_DIRECTORY: {
+          final long moveStartTime = System.nanoTime();
+          checkAvailableSpace(link, target, context);
+          List<Path> verificationFailures = Collections.emptyList();
+
+          // The whole directory is renamed if possible, so there is no need to walk it.
+          if (!renameDirectory(link, target, context)) {
+            try (ChecksumVerifier verifier = createVerifier(link, target, options, context)) {
+              MoveDirectoryVisitor moveVisitor =
+                  new MoveDirectoryVisitor(link, target, false, verifier, context);
+              StreamingTreeWalker.walk(link, moveVisitor, files);
+              moveVisitor.awaitVerification();
+              verificationFailures = moveVisitor.getVerificationFailures();
+              bytesMoved = moveVisitor.getBytesMoved();
+              filesMoved = moveVisitor.getFilesMoved();
+            }
+          }
+
+          timings.record(Phase.MOVE, moveStartTime);
+
+          if (verificationFailures.isEmpty()) {
+            createLink(link, target, context);
+            result = new SymlinkCreationResult(Reason.MOVED_DIR, link, target);
+          } else {
+            result = new SymlinkCreationResult(Reason.VERIFICATION_FAILED, link, target,
+                verificationFailures);
+          }
+          break;
         }
+        case LINK_TO_TARGET:
+          createLink(link, target, context);
+          result = new SymlinkCreationResult(Reason.LINKED, link, target);
+          break;
+        case NEITHER_EXIST:
+          result = new SymlinkCreationResult(Reason.NEITHER_EXIST, link, target);
+          break;
+        case UNKNOWN:
+        default:
+          result = new SymlinkCreationResult(Reason.UNKNOWN_STATE, link, target);
+          break;
+      }
+    } catch (IOException ioe) {
+      result = new SymlinkCreationResult(link, target, ioe);
+    }
+
+    result.setDuration(System.nanoTime() - startTime);
+    result.setBytesMoved(bytesMoved);
+    result.setFilesMoved(filesMoved);
+    event.end();
+
+    if (event.shouldCommit()) {
+      event.link = String.valueOf(link);
+      event.target = String.valueOf(target);
+      event.branch = result.getReason().name();
+      event.outcome = result.getStatus().name();
+      event.bytesMoved = bytesMoved;
+      event.commit();
+    }
+
+    return result;
+  }
+
+  /**
+   * Restore a symbolic link created by {@link #createSymbolicLink(Path, Path, SymlinkOptions)},
+   * if the link path is a symbolic link to the target path then the target is moved back to the
+   * link path. Directories are renamed when both paths are on the same file store, otherwise their
+   * contents are moved and verified in the same way as when linking. <br/>
+   * The target is first moved beside the link and only then renamed over it, if the move fails then
+   * anything already moved is returned to the target and the link is kept.
+   * 
+   * @param link The path of the symbolic link to restore.
+   * @param target The path the link should point to, which is moved back to the link path.
+   * @param options The options controlling how the target is moved.
+   * @param context The context the file operations are timed and recorded in.
+   * @return A {@link SymlinkCreationResult} with a status and reason based on the actions taken.
+   */
+  protected static SymlinkCreationResult restoreSymbolicLink(Path link, Path target,
+      SymlinkOptions options, OperationContext context) {
+    TimedFiles files = context.getFiles();
+    LinkOperationEvent event = new LinkOperationEvent();
+    event.begin();
+    long startTime = System.nanoTime();
+    PhaseTimings timings = context.getTimings();
+    long bytesMoved = 0;
+    long filesMoved = 0;
+    SymlinkCreationResult result;
+
+    try {
+      if (!files.isSymbolicLink(link)) {
+        result = new SymlinkCreationResult(Reason.NOT_LINK, link, target);
+      } else if (!isLinkedTo(link, files.readSymbolicLink(link), target)) {
+        result = new SymlinkCreationResult(Reason.LINK_MISMATCH, link, target);
+      } else if (files.notExists(target, LinkOption.NOFOLLOW_LINKS)) {
+        result = new SymlinkCreationResult(Reason.TARGET_MISSING, link, target);
       } else {
-        if (Files.exists(target)) {
-          Files.createSymbolicLink(link, target);
-          status = Status.CREATED;
-          message = String.format("A link was created between '%s' and '%s'.", link, target);
+        timings.record(Phase.STATE_CLASSIFICATION, startTime);
+        final long moveStartTime = System.nanoTime();
+        boolean directory = files.isDirectory(target, LinkOption.NOFOLLOW_LINKS);
+        checkAvailableSpace(target, link, context);
+        List<Path> verificationFailures = Collections.emptyList();
+
+        // The target is moved beside the link first, so the link is kept until it can be replaced.
+        Path staging = getStagingPath(link, "restore");
+
+        try {
+          if (directory && !renameDirectory(target, staging, context)) {
+            try (ChecksumVerifier verifier = createVerifier(target, staging, options, context)) {
+              MoveDirectoryVisitor moveVisitor =
+                  new MoveDirectoryVisitor(target, staging, false, verifier, context);
+              StreamingTreeWalker.walk(target, moveVisitor, files);
+              moveVisitor.awaitVerification();
+              verificationFailures = moveVisitor.getVerificationFailures();
+              bytesMoved = moveVisitor.getBytesMoved();
+              filesMoved = moveVisitor.getFilesMoved();
+            }
+          } else if (!directory) {
+            filesMoved = 1;
+
+            try (ChecksumVerifier verifier = createVerifier(target, staging, options, context)) {
+              bytesMoved = getCopiedBytes(target, staging, verifier, context);
+
+              if (verifier != null) {
+                verifier.move(target, staging);
+                verificationFailures = verifier.await();
+              } else {
+                files.move(target, staging);
+              }
+            }
+          }
+        } catch (IOException ioe) {
+          unstage(staging, target, ioe, context);
+          throw ioe;
+        }
+
+        if (verificationFailures.isEmpty()) {
+          replaceLink(link, staging, target, directory, context);
+        } else {
+          unstage(staging, target, null, context);
+        }
+
+        timings.record(Phase.MOVE, moveStartTime);
+
+        if (!verificationFailures.isEmpty()) {
+          result = new SymlinkCreationResult(Reason.RESTORE_VERIFICATION_FAILED, link, target,
+              verificationFailures);
+        } else if (directory) {
+          result = new SymlinkCreationResult(Reason.RESTORED_DIR, link, target);
         } else {
-          status = Status.SKIPPED;
-          message = String.format("A link was not created because neither '%s' or '%s' exist.",
-              link, target);
+          result = new SymlinkCreationResult(Reason.RESTORED_FILE, link, target);
         }
       }
     } catch (IOException ioe) {
-      status = Status.FAILED;
-      message = ioe.getLocalizedMessage();
+      result = new SymlinkCreationResult(link, target, ioe);
     }
 
-    return new SymlinkCreationResult(status, message);
+    result.setDuration(System.nanoTime() - startTime);
+    result.setBytesMoved(bytesMoved);
+    result.setFilesMoved(filesMoved);
+    event.end();
+
+    if (event.shouldCommit()) {
+      event.link = String.valueOf(link);
+      event.target = String.valueOf(target);
+      event.branch = result.getReason().name();
+      event.outcome = result.getStatus().name();
+      event.bytesMoved = bytesMoved;
+      event.commit();
+    }
+
+    return result;
+  }
+
+  /**
+   * Check whether a defined symbolic link is stale, either because its target does not exist or
+   * because it points somewhere other than the defined target path. Stale links are removed when
+   * the options enable removal, otherwise they are only reported.
+   * 
+   * @param link The path of the symbolic link to check.
+   * @param target The path the link should point to.
+   * @param options The options controlling whether stale links are removed.
+   * @param context The context the file operations are timed and recorded in.
+   * @return A {@link SymlinkCreationResult} with a status and reason based on the link's state.
+   */
+  protected static SymlinkCreationResult collectStaleLink(Path link, Path target,
+      SymlinkOptions options, OperationContext context) {
+    TimedFiles files = context.getFiles();
+    long startTime = System.nanoTime();
+    SymlinkCreationResult result;
+
+    try {
+      Path actualTarget = files.isSymbolicLink(link) ? files.readSymbolicLink(link) : null;
+
+      switch (inspectLink(link, actualTarget, target, files)) {
+        case MISSING:
+        case NOT_LINK:
+          result = new SymlinkCreationResult(Reason.NO_LINK, link, target);
+          break;
+        case MISDIRECTED:
+          result = new SymlinkCreationResult(Reason.MISDIRECTED_LINK, link, target,
+              Collections.singletonList(actualTarget));
+          break;
+        case DANGLING:
+          result = new SymlinkCreationResult(Reason.DANGLING_LINK, link, target);
+          break;
+        case LIVE:
+        default:
+          result = new SymlinkCreationResult(Reason.LIVE_LINK, link, target);
+          break;
+      }
+
+      if (result.getStatus() == Status.FAILED && options.isRemove()) {
+        files.delete(link);
+        result = new SymlinkCreationResult(Reason.REMOVED_LINK, link, actualTarget);
+      }
+    } catch (IOException ioe) {
+      result = new SymlinkCreationResult(link, target, ioe);
+    }
+
+    result.setDuration(System.nanoTime() - startTime);
+    return result;
+  }
+
+  /**
+   * Audit whether a defined symbolic link still points to the defined target path. A link which
+   * points elsewhere, is missing or has been replaced by a file has drifted. A link which points
+   * elsewhere is repaired when the options enable repairs, by creating a new link beside it and
+   * renaming it over the drifted link so that the link path is never missing, and a missing link
+   * is recreated. A file in place of the link is never replaced, so that its contents are not lost.
+   * 
+   * @param link The path of the symbolic link to audit.
+   * @param target The path the link should point to.
+   * @param options The options controlling whether drifted links are repaired.
+   * @param context The context the file operations are timed and recorded in.
+   * @return A {@link SymlinkCreationResult} with a status and reason based on the link's state.
+   */
+  protected static SymlinkCreationResult auditSymbolicLink(Path link, Path target,
+      SymlinkOptions options, OperationContext context) {
+    TimedFiles files = context.getFiles();
+    long startTime = System.nanoTime();
+    SymlinkCreationResult result;
+
+    try {
+      Path actualTarget = files.isSymbolicLink(link) ? files.readSymbolicLink(link) : null;
+
+      switch (inspectLink(link, actualTarget, target, files)) {
+        case MISSING:
+          if (options.isRepair()) {
+            createLink(link, target, context);
+            result = new SymlinkCreationResult(Reason.RECREATED, link, target);
+          } else {
+            result = new SymlinkCreationResult(Reason.MISSING_LINK, link, target);
+          }
+          break;
+        case NOT_LINK:
+          result = new SymlinkCreationResult(Reason.REPLACED_LINK, link, target);
+          break;
+        case MISDIRECTED:
+          if (options.isRepair()) {
+            // The new link is given a unique name, so a link left by an earlier failed repair can
+            // not prevent it being created.
+            Path repairLink = getStagingPath(link, "repair");
+            createLink(repairLink, target, context);
+
+            try {
+              files.move(repairLink, link, StandardCopyOption.ATOMIC_MOVE,
+                  StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException ioe) {
+              files.delete(repairLink);
+              throw ioe;
+            }
+
+            result = new SymlinkCreationResult(Reason.REPAIRED, link, target,
+                Collections.singletonList(actualTarget));
+          } else {
+            result = new SymlinkCreationResult(Reason.DRIFTED, link, target,
+                Collections.singletonList(actualTarget));
+          }
+          break;
+        case DANGLING:
+        case LIVE:
+        default:
+          result = new SymlinkCreationResult(Reason.IN_SYNC, link, target);
+          break;
+      }
+    } catch (IOException ioe) {
+      result = new SymlinkCreationResult(link, target, ioe);
+    }
+
+    result.setDuration(System.nanoTime() - startTime);
+    return result;
+  }
+
+  /**
+   * Classifies the state of the link and target paths, which determines the action to take.
+   * 
+   * @param link The path to create the symbolic link at.
+   * @param target The path to the file to link to.
+   * @param options The options controlling how the link is created.
+   * @param context The context the file operations are timed and recorded in.
+   * @return The {@link LinkState} of the paths.
+   * @throws IOException If an error occurs reading the paths or their file stores.
+   */
+  private static LinkState classify(Path link, Path target, SymlinkOptions options,
+      OperationContext context) throws IOException {
+    TimedFiles files = context.getFiles();
+    if (files.exists(link)) {
+      if (files.isSymbolicLink(link)) {
+        return LinkState.ALREADY_LINK;
+      } else if (files.exists(target) && !options.isMerge()) {
+        return LinkState.BOTH_EXIST;
+      } else if (!context.getFileStoreCache().getCapabilities(link).isSymbolicLinksSupported()) {
+        return LinkState.SYMLINKS_NOT_SUPPORTED;
+      } else if (files.exists(target)) {
+        // A target which resolves to the link would be merged with itself, deleting its contents.
+        if (files.isSameFile(link, target)) {
+          return LinkState.NOT_MERGEABLE;
+        } else if (files.isRegularFile(link)
+            && files.isRegularFile(target, LinkOption.NOFOLLOW_LINKS)) {
+          return LinkState.MERGE_FILES;
+        } else if (files.isDirectory(link)
+            && files.isDirectory(target, LinkOption.NOFOLLOW_LINKS)) {
+          return LinkState.MERGE_DIRECTORIES;
+        } else {
+          return LinkState.NOT_MERGEABLE;
+        }
+      } else if (files.isRegularFile(link)) {
+        return LinkState.MOVE_FILE;
+      } else if (files.isDirectory(link)) {
+        return LinkState.MOVE_DIRECTORY;
+      } else {
+        return LinkState.UNKNOWN;
+      }
+    } else if (files.exists(target)
+        && !context.getFileStoreCache().getCapabilities(link).isSymbolicLinksSupported()) {
+      return LinkState.SYMLINKS_NOT_SUPPORTED;
+    } else if (files.exists(target)) {
+      return LinkState.LINK_TO_TARGET;
+    } else {
+      return LinkState.NEITHER_EXIST;
+    }
+  }
+
+  /**
+   * Inspects the path a symbolic link is defined at, to find whether the link is missing, is not a
+   * symbolic link, points somewhere other than the defined target path or points to a target which
+   * does or does not exist. This is shared by the checks of stale and drifted links.
+   * 
+   * @param link The path of the symbolic link.
+   * @param actualTarget The target read from the symbolic link, or null if it is not a link.
+   * @param target The path the link should point to.
+   * @param files The file operations to inspect the link with.
+   * @return The {@link LinkCondition} of the link.
+   */
+  private static LinkCondition inspectLink(Path link, Path actualTarget, Path target,
+      TimedFiles files) {
+    if (actualTarget == null) {
+      return files.exists(link, LinkOption.NOFOLLOW_LINKS) ? LinkCondition.NOT_LINK
+          : LinkCondition.MISSING;
+    } else if (!isLinkedTo(link, actualTarget, target)) {
+      return LinkCondition.MISDIRECTED;
+    } else if (files.notExists(link)) {
+      return LinkCondition.DANGLING;
+    } else {
+      return LinkCondition.LIVE;
+    }
+  }
+
+  /**
+   * Checks whether a symbolic link's target is the defined target path, with both resolved against
+   * the link's directory and normalized so that equivalent spellings of the same path match.
+   * 
+   * @param link The path of the symbolic link.
+   * @param actualTarget The target read from the symbolic link.
+   * @param target The path the link should point to.
+   * @return Whether the link points to the defined target path.
+   */
+  private static boolean isLinkedTo(Path link, Path actualTarget, Path target) {
+    return link.resolveSibling(actualTarget).toAbsolutePath().normalize()
+        .equals(link.resolveSibling(target).toAbsolutePath().normalize());
+  }
+
+  /**
+   * Gets a unique hidden path beside the link, for staging a replacement of the link which can then
+   * be renamed over it.
+   * 
+   * @param link The path of the link to be replaced.
+   * @param purpose The purpose of the staging path, which is included in its name.
+   * @return The staging path, which does not exist.
+   */
+  private static Path getStagingPath(Path link, String purpose) {
+    return link.resolveSibling(String.format(".%s.%s-%016x", link.getFileName(), purpose,
+        ThreadLocalRandom.current().nextLong()));
+  }
+
+  /**
+   * Replaces a link being restored with the target moved to the staging path beside it. If the
+   * staging path can not be moved in to place the link is put back and the staged files are
+   * returned to the target path, so that a failed restore leaves the link as it was.
+   * 
+   * @param link The path of the symbolic link to replace.
+   * @param staging The staging path the target was moved to.
+   * @param target The target path the staged files were moved from.
+   * @param directory Whether the staged target is a directory.
+   * @param context The context the file operations are timed and recorded in.
+   * @throws IOException If an error occurs replacing the link.
+   */
+  private static void replaceLink(Path link, Path staging, Path target, boolean directory,
+      OperationContext context) throws IOException {
+    TimedFiles files = context.getFiles();
+    Path linkTarget = directory ? files.readSymbolicLink(link) : null;
+
+    try {
+      // A directory can not be renamed over a link, so the link is removed just before.
+      if (directory) {
+        files.delete(link);
+      }
+
+      files.move(staging, link, StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException ioe) {
+      if (directory && files.notExists(link, LinkOption.NOFOLLOW_LINKS)) {
+        try {
+          files.createSymbolicLink(link, linkTarget);
+        } catch (IOException linkIoe) {
+          ioe.addSuppressed(linkIoe);
+        }
+      }
+
+      unstage(staging, target, ioe, context);
+      throw ioe;
+    }
+  }
+
+  /**
+   * Returns anything moved to the staging path during a failed restore back to the target path,
+   * merging it with the files left at the target path.
+   * 
+   * @param staging The staging path the target was being moved to.
+   * @param target The target path the files were moved from.
+   * @param failure The exception which failed the restore, which any exception returning the files
+   *        is added to, or null if the restore failed verification.
+   * @param context The context the file operations are timed and recorded in.
+   * @throws IOException If the files can not be returned and there was no earlier failure.
+   */
+  private static void unstage(Path staging, Path target, IOException failure,
+      OperationContext context) throws IOException {
+    TimedFiles files = context.getFiles();
+    try {
+      if (files.isDirectory(staging, LinkOption.NOFOLLOW_LINKS)) {
+        StreamingTreeWalker.walk(staging, new MoveDirectoryVisitor(staging, target, true, context),
+            files);
+      } else if (files.exists(staging, LinkOption.NOFOLLOW_LINKS)) {
+        files.move(staging, target);
+      }
+    } catch (IOException ioe) {
+      if (failure == null) {
+        throw ioe;
+      }
+
+      failure.addSuppressed(ioe);
+    }
+  }
+
+  /**
+   * Renames a directory if the source and destination are expected to support it. A rename which
+   * is refused, such as between two mounts of the same file store, moves nothing, so the directory
+   * is left in place for the caller to walk instead.
+   * 
+   * @param source The directory to rename.
+   * @param destination The path to rename the directory to.
+   * @param context The context the file operations are timed and recorded in.
+   * @return Whether the directory was renamed.
+   * @throws IOException If an error occurs finding the file stores.
+   */
+  private static boolean renameDirectory(Path source, Path destination, OperationContext context)
+      throws IOException {
+    if (!context.getFileStoreCache().isRenameSupported(source, destination)) {
+      return false;
+    }
+
+    try {
+      context.getFiles().move(source, destination, StandardCopyOption.ATOMIC_MOVE);
+      return true;
+    } catch (FileSystemException fse) {
+      return false;
+    }
+  }
+
+  /**
+   * Gets the number of bytes copied by moving a file, which is its size unless it is renamed. A
+   * file is always copied when verifying, otherwise only when it can not be renamed.
+   * 
+   * @param source The file to be moved.
+   * @param destination The path the file will be moved to.
+   * @param verifier The verifier the file will be moved with, or null if it is not verified.
+   * @param context The context the file operations are timed and recorded in.
+   * @return The bytes copied.
+   * @throws IOException If an error occurs finding the file stores or the file's size.
+   */
+  private static long getCopiedBytes(Path source, Path destination, ChecksumVerifier verifier,
+      OperationContext context) throws IOException {
+    if (verifier == null && context.getFileStoreCache().isRenameSupported(source, destination)) {
+      return 0;
+    }
+
+    return context.getFiles().size(source);
+  }
+
+  /**
+   * Creates the symbolic link, timing it as the link creation phase.
+   * 
+   * @param link The path to create the symbolic link at.
+   * @param target The path to the file to link to.
+   * @param context The context the file operations are timed and recorded in.
+   * @throws IOException If an error occurs creating the link.
+   */
+  private static void createLink(Path link, Path target, OperationContext context)
+      throws IOException {
+    long startTime = System.nanoTime();
+    context.getFiles().createSymbolicLink(link, target);
+    context.getTimings().record(Phase.LINK_CREATION, startTime);
+  }
+
+  /**
+   * Creates a verifier for moving the link path's contents to the target path, verification is
+   * only needed when the move is between file stores as the files must then be copied. The
+   * verifier shares the context's verification workers with the other links being moved.
+   * 
+   * @param link The path of the file or directory to be moved.
+   * @param target The path the file or directory will be moved to.
+   * @param options The options controlling whether moves are verified.
+   * @param context The context the file operations are timed and recorded in.
+   * @return A {@link ChecksumVerifier} if the move should be verified, otherwise null.
+   * @throws IOException If an error occurs reading the file stores.
+   */
+  private static ChecksumVerifier createVerifier(Path link, Path target, SymlinkOptions options,
+      OperationContext context) throws IOException {
+    if (options.isVerify() && !context.getFileStoreCache().getFileStore(target)
+        .equals(context.getFileStoreCache().getFileStore(link))) {
+      return new ChecksumVerifier(context.getVerificationExecutor(),
+          Runtime.getRuntime().availableProcessors() * 2, context.getFiles());
+    }
+
+    return null;
+  }
+
+  /**
+   * Checks that the target's file store has enough usable space for the contents of the link path
+   * to be moved there. When the link and target are on the same file store the move is a rename
+   * and no space is required, otherwise the size of the link path's contents is totalled before
+   * any moves are started so that a move can not run out of space part way through.
+   * 
+   * @param link The path of the file or directory to be moved.
+   * @param target The path the file or directory will be moved to.
+   * @param context The context the file operations are timed and recorded in.
+   * @throws FileSystemException If the target's file store does not have enough usable space.
+   * @throws IOException If an error occurs reading the file stores or the link path's contents.
+   */
+  protected static void checkAvailableSpace(Path link, Path target, OperationContext context)
+      throws IOException {
+    checkAvailableSpace(link, target, false, context);
+  }
+
+  /**
+   * Checks that the target's file store has enough usable space for the contents of the link path
+   * to be moved there, see {@link #checkAvailableSpace(Path, Path, OperationContext)}. When
+   * merging directories only the files which do not already exist in the target directory are
+   * totalled, as the others are compared rather than copied.
+   * 
+   * @param link The path of the file or directory to be moved.
+   * @param target The path the file or directory will be moved to.
+   * @param merge Whether the link directory is being merged in to the target directory.
+   * @param context The context the file operations are timed and recorded in.
+   * @throws FileSystemException If the target's file store does not have enough usable space.
+   * @throws IOException If an error occurs reading the file stores or the link path's contents.
+   */
+  protected static void checkAvailableSpace(Path link, Path target, boolean merge,
+      OperationContext context) throws IOException {
+    TimedFiles files = context.getFiles();
+    FileStore targetStore = context.getFileStoreCache().getFileStore(target);
+
+    if (!targetStore.equals(context.getFileStoreCache().getFileStore(link))) {
+      long requiredSpace;
+      long fileCount;
+
+      if (files.isDirectory(link, LinkOption.NOFOLLOW_LINKS)) {
+        DirectorySize directorySize = DirectorySize.scan(link, merge ? target : null, files);
+        requiredSpace = directorySize.getBytes();
+        fileCount = directorySize.getFileCount();
+      } else {
+        requiredSpace = files.size(link);
+        fileCount = 1;
+      }
+
+      long usableSpace = targetStore.getUsableSpace();
+
+      if (requiredSpace > usableSpace) {
+        throw new FileSystemException(link.toString(), target.toString(),
+            String.format("%d bytes in %d files are required but only %d bytes are available",
+                requiredSpace, fileCount, usableSpace));
+      }
+    }
   }
 }
@@ -0,0 +1,207 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Moves files by copying them and verifying the copy against the source before the source is
+ * deleted. Verification is performed by a bounded pool of workers so that it is pipelined behind
+ * the copies, a move blocks only when the maximum number of files are already awaiting
+ * verification. <br/>
+ * When a copy does not match its source, or can not be verified, the copy is deleted and the
+ * source is kept and recorded as a failure. <br/>
+ * A verifier may use its own workers or share the workers of an {@link OperationContext} with
+ * other verifiers, closing the verifier waits for its files to be verified.
+ */
+public class ChecksumVerifier implements Closeable {
+
+  private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+  private final TimedFiles files;
+  private final Executor executor;
+  private final ExecutorService ownExecutor;
+  private final int maxPending;
+  private final Semaphore pending;
+
+  private final List<Path> failures = Collections.synchronizedList(new ArrayList<>());
+
+  /**
+   * Constructs a ChecksumVerifier with the number of worker threads to verify with.
+   * 
+   * @param threads The number of worker threads, twice this many files may await verification.
+   * @param files The file operations to copy, read and delete files with.
+   */
+  public ChecksumVerifier(int threads, TimedFiles files) {
+    this.files = files;
+    ownExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+      Thread thread =
+          new Thread(runnable, "checksum-verifier-" + THREAD_COUNT.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor = ownExecutor;
+    maxPending = threads * 2;
+    pending = new Semaphore(maxPending);
+  }
+
+  /**
+   * Constructs a ChecksumVerifier which verifies with shared workers, such as those of an
+   * {@link OperationContext}. The workers are not stopped when the verifier is closed.
+   * 
+   * @param executor The {@link Executor} of the shared workers.
+   * @param maxPending The maximum number of files which may await verification.
+   * @param files The file operations to copy, read and delete files with.
+   */
+  public ChecksumVerifier(Executor executor, int maxPending, TimedFiles files) {
+    this.files = files;
+    this.executor = executor;
+    ownExecutor = null;
+    this.maxPending = maxPending;
+    pending = new Semaphore(maxPending);
+  }
+
+  /**
+   * Copies the source file to the destination and queues the copy for verification. The source
+   * is deleted once the copy has been verified.
+   * 
+   * @param source The file to move.
+   * @param destination The path to move the file to.
+   * @throws IOException If an error occurs copying the file.
+   * @throws InterruptedIOException If interrupted while waiting for a verification worker.
+   */
+  public void move(Path source, Path destination) throws IOException {
+    files.copy(source, destination, StandardCopyOption.COPY_ATTRIBUTES,
+        LinkOption.NOFOLLOW_LINKS);
+
+    try {
+      pending.acquire();
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException(ie.getLocalizedMessage());
+    }
+
+    try {
+      executor.execute(() -> {
+        try {
+          verify(source, destination);
+        } finally {
+          pending.release();
+        }
+      });
+    } catch (RejectedExecutionException ree) {
+      pending.release();
+      files.deleteIfExists(destination);
+      throw new IOException("The copy could not be queued for verification.", ree);
+    }
+  }
+
+  /**
+   * Verifies the copy against its source, deleting the source if they match and the copy if they
+   * do not or if an error occurs verifying them.
+   * 
+   * @param source The source file.
+   * @param copy The copy of the source file.
+   */
+  private void verify(Path source, Path copy) {
+    try {
+      if (files.size(source) == files.size(copy)
+          && MessageDigest.isEqual(FileHasher.digest(source, files),
+              FileHasher.digest(copy, files))) {
+        files.delete(source);
+      } else {
+        files.delete(copy);
+        failures.add(source);
+      }
+    } catch (IOException ioe) {
+      // The source is kept, so a copy which may not match it is not left behind.
+      try {
+        files.deleteIfExists(copy);
+      } catch (IOException deleteIoe) {
+        // The source is still recorded as a failure, which is investigated with the copy.
+      }
+
+      failures.add(source);
+    }
+  }
+
+  /**
+   * Waits for all queued files to be verified.
+   * 
+   * @return The source files which failed verification, empty if all files were verified.
+   * @throws InterruptedIOException If interrupted while waiting.
+   */
+  public List<Path> await() throws InterruptedIOException {
+    try {
+      pending.acquire(maxPending);
+      pending.release(maxPending);
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException(ie.getLocalizedMessage());
+    }
+
+    return getFailures();
+  }
+
+  /**
+   * Gets the source files which have failed verification so far.
+   * 
+   * @return The failed source files.
+   */
+  public List<Path> getFailures() {
+    synchronized (failures) {
+      return new ArrayList<>(failures);
+    }
+  }
+
+  /**
+   * Closes the verifier, waiting for the files still awaiting verification to be verified and
+   * then stopping the verifier's own workers. If interrupted while waiting then the remaining files
+   * are still verified, but the verifier does not wait for them.
+   */
+  @Override
+  public void close() {
+    try {
+      pending.acquire(maxPending);
+      pending.release(maxPending);
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+    }
+
+    if (ownExecutor != null) {
+      ownExecutor.shutdown();
+    }
+  }
+}
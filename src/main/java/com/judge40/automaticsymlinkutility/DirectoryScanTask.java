@@ -0,0 +1,174 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A task which visits the entries of a single directory and forks a new task for each of its
+ * sub-directories, combining their results with its own once they have completed. Symbolic links
+ * are visited as files and are not followed. Scans run on a pool of their own rather than the common
+ * pool, as each task blocks reading its directory.
+ *
+ * @param <T> The type of the result of the scan.
+ */
+abstract class DirectoryScanTask<T> extends RecursiveTask<T> {
+
+  private static final long serialVersionUID = 1L;
+
+  private final transient Path directory;
+  private final transient TimedFiles files;
+
+  /**
+   * Constructs a DirectoryScanTask for the directory.
+   * 
+   * @param directory The directory to scan.
+   * @param files The file operations to read the directory with.
+   */
+  protected DirectoryScanTask(Path directory, TimedFiles files) {
+    this.directory = directory;
+    this.files = files;
+  }
+
+  protected Path getDirectory() {
+    return directory;
+  }
+
+  protected TimedFiles getFiles() {
+    return files;
+  }
+
+  /**
+   * Scans the directory tree on the pool dedicated to directory scans, waiting for the result.
+   * 
+   * @return The result of the scan.
+   */
+  final T invokeScan() {
+    return ScanPoolHolder.SCAN_POOL.invoke(this);
+  }
+
+  @Override
+  protected final T compute() {
+    List<DirectoryScanTask<T>> subTasks = new ArrayList<>();
+    IOException failure = null;
+
+    try (DirectoryStream<Path> entries = files.newDirectoryStream(directory)) {
+      for (Path entry : entries) {
+        BasicFileAttributes attributes;
+
+        try {
+          attributes = files.readAttributes(entry, BasicFileAttributes.class,
+              LinkOption.NOFOLLOW_LINKS);
+        } catch (IOException ioe) {
+          failed(entry, ioe);
+          continue;
+        }
+
+        if (attributes.isDirectory()) {
+          DirectoryScanTask<T> subTask = createSubTask(entry);
+          subTask.fork();
+          subTasks.add(subTask);
+        } else {
+          visitFile(entry, attributes);
+        }
+      }
+    } catch (IOException ioe) {
+      failure = ioe;
+    } catch (DirectoryIteratorException die) {
+      failure = die.getCause();
+    }
+
+    // The sub-directories already forked are completed before this directory's failure is handled,
+    // so that their results are never discarded.
+    for (DirectoryScanTask<T> subTask : subTasks) {
+      combine(subTask.join());
+    }
+
+    if (failure != null) {
+      failed(directory, failure);
+    }
+
+    return getResult();
+  }
+
+  /**
+   * Creates the task to scan a sub-directory.
+   * 
+   * @param subDirectory The sub-directory to scan.
+   * @return The {@link DirectoryScanTask} for the sub-directory.
+   */
+  protected abstract DirectoryScanTask<T> createSubTask(Path subDirectory);
+
+  /**
+   * Visits an entry of the directory which is not a directory.
+   * 
+   * @param file The entry to visit.
+   * @param attributes The entry's attributes, read without following symbolic links.
+   */
+  protected abstract void visitFile(Path file, BasicFileAttributes attributes);
+
+  /**
+   * Handles a failure to read the directory or one of its entries, either by recording the failure
+   * and continuing the scan or by throwing an unchecked exception to abort it.
+   * 
+   * @param path The directory or entry which could not be read.
+   * @param exception The cause of the failure.
+   */
+  protected abstract void failed(Path path, IOException exception);
+
+  /**
+   * Combines the result of a sub-directory's task with this task's result.
+   * 
+   * @param subResult The result of the sub-directory's task.
+   */
+  protected abstract void combine(T subResult);
+
+  /**
+   * Gets the result of this task, once its entries have been visited and its sub-directories'
+   * results have been combined.
+   * 
+   * @return The result of the scan of the directory tree.
+   */
+  protected abstract T getResult();
+
+  /**
+   * Holds the pool directory scans run on, so that it is only created when first used. Its workers
+   * are daemon threads which stop once idle.
+   */
+  private static class ScanPoolHolder {
+    private static final ForkJoinPool SCAN_POOL =
+        new ForkJoinPool(Runtime.getRuntime().availableProcessors(), pool -> {
+          ForkJoinWorkerThread thread =
+              ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+          thread.setName("directory-scanner-" + thread.getPoolIndex());
+          return thread;
+        }, null, false);
+  }
+}
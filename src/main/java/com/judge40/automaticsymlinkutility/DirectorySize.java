@@ -0,0 +1,146 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * The total size and number of files contained within a directory tree. Symbolic links are counted
+ * as files and are not followed.
+ */
+public class DirectorySize {
+
+  private final long bytes;
+  private final long fileCount;
+
+  /**
+   * Constructs a DirectorySize with the total bytes and file count.
+   * 
+   * @param bytes The total size of all files in bytes.
+   * @param fileCount The total number of files.
+   */
+  public DirectorySize(long bytes, long fileCount) {
+    this.bytes = bytes;
+    this.fileCount = fileCount;
+  }
+
+  public long getBytes() {
+    return bytes;
+  }
+
+  public long getFileCount() {
+    return fileCount;
+  }
+
+  /**
+   * Scans the directory tree, with each sub-directory being scanned in parallel.
+   * 
+   * @param directory The directory to scan.
+   * @param files The file operations to read the directory tree with.
+   * @return The {@link DirectorySize} of the directory tree.
+   * @throws IOException If an error occurs reading the directory tree.
+   */
+  public static DirectorySize scan(Path directory, TimedFiles files) throws IOException {
+    return scan(directory, null, files);
+  }
+
+  /**
+   * Scans the directory tree for the files which do not exist at the same relative path within a
+   * destination directory, which are the files a merge in to the destination would need to copy.
+   * Each sub-directory is scanned in parallel.
+   * 
+   * @param directory The directory to scan.
+   * @param destination The destination directory, or null to total all files.
+   * @param files The file operations to read the directory tree with.
+   * @return The {@link DirectorySize} of the files in the directory tree not in the destination.
+   * @throws IOException If an error occurs reading the directory tree.
+   */
+  public static DirectorySize scan(Path directory, Path destination, TimedFiles files)
+      throws IOException {
+    try {
+      return new ScanTask(directory, destination, files).invokeScan();
+    } catch (UncheckedIOException uioe) {
+      throw uioe.getCause();
+    }
+  }
+
+  /**
+   * A task which totals the files of a single directory and forks a new task for each of its
+   * sub-directories. Files which exist in the destination are not totalled, once a directory does
+   * not exist in the destination the files below it are totalled without being checked.
+   */
+  private static class ScanTask extends DirectoryScanTask<DirectorySize> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient Path destination;
+    private long bytes;
+    private long fileCount;
+
+    private ScanTask(Path directory, Path destination, TimedFiles files) {
+      super(directory, files);
+      this.destination = destination;
+    }
+
+    @Override
+    protected DirectoryScanTask<DirectorySize> createSubTask(Path subDirectory) {
+      Path subDestination = null;
+
+      if (destination != null) {
+        subDestination = destination.resolve(subDirectory.getFileName().toString());
+
+        if (getFiles().notExists(subDestination, LinkOption.NOFOLLOW_LINKS)) {
+          subDestination = null;
+        }
+      }
+
+      return new ScanTask(subDirectory, subDestination, getFiles());
+    }
+
+    @Override
+    protected void visitFile(Path file, BasicFileAttributes attributes) {
+      if (destination == null || getFiles().notExists(
+          destination.resolve(file.getFileName().toString()), LinkOption.NOFOLLOW_LINKS)) {
+        bytes += attributes.size();
+        fileCount++;
+      }
+    }
+
+    @Override
+    protected void failed(Path path, IOException exception) {
+      throw new UncheckedIOException(exception);
+    }
+
+    @Override
+    protected void combine(DirectorySize subSize) {
+      bytes += subSize.getBytes();
+      fileCount += subSize.getFileCount();
+    }
+
+    @Override
+    protected DirectorySize getResult() {
+      return new DirectorySize(bytes, fileCount);
+    }
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A utility for hashing and comparing the contents of files.
+ */
+public class FileHasher {
+
+  private static final String ALGORITHM = "SHA-256";
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * Calculates the digest of the file's contents, the file is streamed so that only a small buffer
+   * is held in memory regardless of its size.
+   * 
+   * @param file The file to calculate the digest of.
+   * @param files The file operations to read the file with.
+   * @return The digest of the file's contents.
+   * @throws IOException If an error occurs reading the file.
+   */
+  public static byte[] digest(Path file, TimedFiles files) throws IOException {
+    MessageDigest messageDigest;
+
+    try {
+      messageDigest = MessageDigest.getInstance(ALGORITHM);
+    } catch (NoSuchAlgorithmException nsae) {
+      throw new IllegalStateException(nsae);
+    }
+
+    try (InputStream input = files.newInputStream(file)) {
+      byte[] buffer = new byte[BUFFER_SIZE];
+      int read;
+
+      while ((read = input.read(buffer)) != -1) {
+        messageDigest.update(buffer, 0, read);
+      }
+    }
+
+    return messageDigest.digest();
+  }
+
+  /**
+   * Compares the contents of two files, calculating the digests in parallel on the
+   * {@link OperationContext#getDefault() default context's} verification workers.
+   * 
+   * @param first The first file to compare.
+   * @param second The second file to compare.
+   * @param files The file operations to read the files with.
+   * @return Whether the files have the same contents.
+   * @throws IOException If an error occurs reading either file.
+   * @see #contentEquals(Path, Path, TimedFiles, Executor)
+   */
+  public static boolean contentEquals(Path first, Path second, TimedFiles files)
+      throws IOException {
+    return contentEquals(first, second, files,
+        OperationContext.getDefault().getVerificationExecutor());
+  }
+
+  /**
+   * Compares the contents of two files. The sizes are compared first and only when they match are
+   * the digests of both files calculated, one on the executor in parallel with the other on the
+   * calling thread, and compared. If the executor has not started the first digest by the time the
+   * second is calculated then the calling thread calculates it too, rather than waiting for the
+   * executor.
+   * 
+   * @param first The first file to compare.
+   * @param second The second file to compare.
+   * @param files The file operations to read the files with.
+   * @param executor The executor to calculate the first file's digest with.
+   * @return Whether the files have the same contents.
+   * @throws IOException If an error occurs reading either file.
+   */
+  public static boolean contentEquals(Path first, Path second, TimedFiles files,
+      Executor executor) throws IOException {
+    if (files.size(first) != files.size(second)) {
+      return false;
+    }
+
+    FutureTask<byte[]> firstDigest = new FutureTask<>(() -> digest(first, files));
+
+    try {
+      executor.execute(firstDigest);
+    } catch (RejectedExecutionException ree) {
+      // The digest is calculated on the calling thread instead.
+    }
+
+    try {
+      byte[] secondDigest = digest(second, files);
+      // Running the task does nothing if the executor has already started it.
+      firstDigest.run();
+      return MessageDigest.isEqual(firstDigest.get(), secondDigest);
+    } catch (ExecutionException ee) {
+      if (ee.getCause() instanceof IOException) {
+        throw (IOException) ee.getCause();
+      }
+
+      throw new IllegalStateException(ee.getCause());
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException(ie.getLocalizedMessage());
+    } finally {
+      firstDigest.cancel(true);
+    }
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import java.nio.file.FileStore;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A registry of latency histograms for each file system primitive, kept separately for each file
+ * store. Each {@link OperationContext} has its own registry, which can be cleared between runs.
+ * <br/>
+ * The file store of a path is found through a {@link FileStoreCache}, from the path's closest
+ * cached ancestor without accessing the file system, and is only looked up when none of the path's
+ * ancestors are cached. Operations on paths whose file store can not be found are recorded against
+ * an unknown file store. Recording can be disabled when the latencies are not needed.
+ */
+public class FileOperationStats {
+
+  /**
+   * The file system primitives which are measured.
+   */
+  public enum Primitive {
+    STAT, OPEN_DIRECTORY, READ, CREATE_SYMBOLIC_LINK, MOVE, COPY, CREATE_DIRECTORY, DELETE;
+  }
+
+  /**
+   * The name operations are recorded against when the path's file store is not known.
+   */
+  public static final String UNKNOWN_FILE_STORE = "unknown";
+
+  private final FileStoreCache fileStoreCache;
+  private final ConcurrentMap<String, Map<Primitive, LatencyHistogram>> histograms =
+      new ConcurrentHashMap<>();
+  private volatile boolean enabled = true;
+
+  /**
+   * Constructs a FileOperationStats with no operations recorded.
+   * 
+   * @param fileStoreCache The cache to find the file store of each path operated on with.
+   */
+  public FileOperationStats(FileStoreCache fileStoreCache) {
+    this.fileStoreCache = fileStoreCache;
+  }
+
+  /**
+   * Records the latency of a primitive operation on a path.
+   * 
+   * @param primitive The primitive.
+   * @param path The path operated on.
+   * @param latency The latency in nanoseconds.
+   */
+  public void record(Primitive primitive, Path path, long latency) {
+    if (!enabled) {
+      return;
+    }
+
+    FileStore fileStore = fileStoreCache.findCachedFileStore(path);
+
+    if (fileStore == null) {
+      fileStore = fileStoreCache.findFileStore(path);
+    }
+
+    String fileStoreName = fileStore == null ? UNKNOWN_FILE_STORE : fileStore.toString();
+    histograms.computeIfAbsent(fileStoreName, FileOperationStats::createHistograms).get(primitive)
+        .record(latency);
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Sets whether operations are recorded, operations recorded while enabled are kept when
+   * disabled.
+   * 
+   * @param enabled Whether to record operations.
+   */
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  /**
+   * Gets the histograms of each file store which has had an operation recorded, ordered by file
+   * store name.
+   * 
+   * @return The histograms of each primitive keyed by file store name.
+   */
+  public Map<String, Map<Primitive, LatencyHistogram>> getHistograms() {
+    return Collections.unmodifiableMap(new TreeMap<>(histograms));
+  }
+
+  /**
+   * Discards all recorded operations.
+   */
+  public void clear() {
+    histograms.clear();
+  }
+
+  private static Map<Primitive, LatencyHistogram> createHistograms(String fileStoreName) {
+    Map<Primitive, LatencyHistogram> primitiveHistograms = new EnumMap<>(Primitive.class);
+
+    for (Primitive primitive : Primitive.values()) {
+      primitiveHistograms.put(primitive, new LatencyHistogram());
+    }
+
+    return Collections.unmodifiableMap(primitiveHistograms);
+  }
+}
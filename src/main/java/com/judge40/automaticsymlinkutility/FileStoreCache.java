@@ -0,0 +1,338 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import java.io.IOException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A cache of the file stores paths belong to and of each file store's capabilities. Capabilities
+ * are probed once per file store, by creating and then deleting a temporary file or symbolic link,
+ * and are kept for the lifetime of the cache so that later operations do not need to discover them
+ * by trial and error. An inconclusive probe is not repeated, its capability is assumed for the
+ * lifetime of the cache instead. <br/>
+ * The file store of a path is cached against its closest existing directory, so the cache should
+ * be cleared if file stores are mounted or unmounted during its lifetime. Only the most recently
+ * used directories are kept, so that a long running cache does not grow without bound.
+ */
+public class FileStoreCache {
+
+  private static final String PROBE_PREFIX = ".automaticsymlinkutility-probe-";
+  private static final int MAX_CACHED_DIRECTORIES = 1024;
+
+  // The reason given for EPERM, which is how file systems without symbolic links refuse them.
+  private static final String OPERATION_NOT_PERMITTED = "Operation not permitted";
+
+  private final Map<Path, FileStore> fileStores =
+      Collections.synchronizedMap(new LinkedHashMap<Path, FileStore>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, FileStore> eldest) {
+          return size() > MAX_CACHED_DIRECTORIES;
+        }
+      });
+  private final Map<FileStore, Capabilities> capabilities = new ConcurrentHashMap<>();
+  private final Map<SimpleImmutableEntry<FileStore, FileStore>, Boolean> renameSupport =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Gets the file store of the path, or of its closest existing ancestor if the path does not
+   * exist.
+   * 
+   * @param path The path to get the file store of.
+   * @return The path's {@link FileStore}.
+   * @throws IOException If an error occurs finding the file store.
+   */
+  public FileStore getFileStore(Path path) throws IOException {
+    return getFileStoreOfDirectory(getDirectory(path));
+  }
+
+  /**
+   * Gets the capabilities of the path's file store, probing them if the file store has not been
+   * seen before.
+   * 
+   * @param path The path to get the file store capabilities of.
+   * @return The {@link Capabilities} of the path's file store.
+   * @throws IOException If an error occurs finding the file store.
+   */
+  public Capabilities getCapabilities(Path path) throws IOException {
+    Path directory = getDirectory(path);
+    FileStore fileStore = getFileStoreOfDirectory(directory);
+    Capabilities storeCapabilities = capabilities.get(fileStore);
+
+    if (storeCapabilities == null) {
+      // Symbolic links are assumed to be supported when the probe is inconclusive.
+      Boolean symbolicLinksSupported = probeSymbolicLinks(directory);
+      storeCapabilities = new Capabilities(fileStore.name(), fileStore.type(),
+          symbolicLinksSupported == null || symbolicLinksSupported);
+      capabilities.put(fileStore, storeCapabilities);
+    }
+
+    return storeCapabilities;
+  }
+
+  /**
+   * Checks whether a path can be atomically renamed from the source to the destination, which is
+   * always true within a single file store and is otherwise probed once per pair of file stores.
+   * 
+   * @param source The path to be renamed.
+   * @param destination The path to rename to.
+   * @return Whether the path can be renamed.
+   * @throws IOException If an error occurs finding the file stores.
+   */
+  public boolean isRenameSupported(Path source, Path destination) throws IOException {
+    Path sourceDirectory = getDirectory(source);
+    Path destinationDirectory = getDirectory(destination);
+    FileStore sourceStore = getFileStoreOfDirectory(sourceDirectory);
+    FileStore destinationStore = getFileStoreOfDirectory(destinationDirectory);
+
+    if (sourceStore.equals(destinationStore)) {
+      return true;
+    }
+
+    SimpleImmutableEntry<FileStore, FileStore> storePair =
+        new SimpleImmutableEntry<>(sourceStore, destinationStore);
+    Boolean supported = renameSupport.get(storePair);
+
+    if (supported == null) {
+      // A copy is assumed to be needed when the probe is inconclusive.
+      supported = Boolean.TRUE.equals(probeRename(sourceDirectory, destinationDirectory));
+      renameSupport.put(storePair, supported);
+    }
+
+    return supported;
+  }
+
+  /**
+   * Finds the file store of the path, or of its closest existing ancestor if the path does not
+   * exist, without throwing an exception if it can not be found. The file store is cached in the
+   * same way as by {@link #getFileStore(Path)}, so each directory's file store is only looked up
+   * once.
+   * 
+   * @param path The path to find the file store of.
+   * @return The path's {@link FileStore}, or null if it could not be found.
+   */
+  public FileStore findFileStore(Path path) {
+    try {
+      return getFileStore(path);
+    } catch (IOException ioe) {
+      return null;
+    }
+  }
+
+  /**
+   * Finds the cached file store of the path's closest cached ancestor, starting with the path
+   * itself, without accessing the file system. A mount point below the cached ancestor is not
+   * detected, so the file store found is only suitable where an approximation is acceptable.
+   * 
+   * @param path The path to find the file store of.
+   * @return The {@link FileStore} of the closest cached ancestor, or null if none are cached.
+   */
+  public FileStore findCachedFileStore(Path path) {
+    for (Path ancestor = path.toAbsolutePath(); ancestor != null; ancestor = ancestor.getParent()) {
+      FileStore fileStore = fileStores.get(ancestor);
+
+      if (fileStore != null) {
+        return fileStore;
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Discards all cached file stores and capabilities.
+   */
+  public void clear() {
+    fileStores.clear();
+    capabilities.clear();
+    renameSupport.clear();
+  }
+
+  /**
+   * Gets the file store of an existing directory, from the cache if possible.
+   * 
+   * @param directory The directory to get the file store of.
+   * @return The directory's {@link FileStore}.
+   * @throws IOException If an error occurs finding the file store.
+   */
+  private FileStore getFileStoreOfDirectory(Path directory) throws IOException {
+    FileStore fileStore = fileStores.get(directory);
+
+    if (fileStore == null) {
+      fileStore = Files.getFileStore(directory);
+      fileStores.put(directory, fileStore);
+    }
+
+    return fileStore;
+  }
+
+  /**
+   * Gets the directory a path's file store is cached against, this is the path's closest existing
+   * ancestor, starting with the path itself, or the parent of that ancestor if it is not a
+   * directory. The ancestors are only checked when neither the path nor its parent is cached.
+   * 
+   * @param path The path to get the directory for.
+   * @return The directory.
+   * @throws NoSuchFileException If none of the path's ancestors exist.
+   */
+  private Path getDirectory(Path path) throws NoSuchFileException {
+    Path ancestor = path.toAbsolutePath();
+
+    if (fileStores.containsKey(ancestor)) {
+      return ancestor;
+    }
+
+    // A path in a cached directory is on the directory's file store, unless it is a mount point.
+    Path parent = ancestor.getParent();
+
+    if (parent != null && fileStores.containsKey(parent)
+        && !Files.isDirectory(ancestor, LinkOption.NOFOLLOW_LINKS)) {
+      return parent;
+    }
+
+    while (ancestor != null && Files.notExists(ancestor, LinkOption.NOFOLLOW_LINKS)) {
+      ancestor = ancestor.getParent();
+    }
+
+    if (ancestor == null) {
+      throw new NoSuchFileException(path.toString());
+    }
+
+    if (ancestor.getParent() != null && !Files.isDirectory(ancestor, LinkOption.NOFOLLOW_LINKS)) {
+      ancestor = ancestor.getParent();
+    }
+
+    return ancestor;
+  }
+
+  /**
+   * Probes whether symbolic links can be created in the directory. Only an unsupported operation or
+   * a refusal with EPERM shows that the file store does not support them, other errors may be
+   * specific to the directory or transient.
+   * 
+   * @param directory The directory to probe.
+   * @return Whether symbolic links are supported, or null if the probe was inconclusive.
+   */
+  private static Boolean probeSymbolicLinks(Path directory) {
+    Path probe = directory.resolve(PROBE_PREFIX + System.nanoTime());
+
+    try {
+      Files.createSymbolicLink(probe, probe.getFileName());
+      Files.delete(probe);
+      return true;
+    } catch (UnsupportedOperationException uoe) {
+      return false;
+    } catch (AccessDeniedException ade) {
+      // The directory is not writable, which says nothing about the file store.
+      return null;
+    } catch (FileSystemException fse) {
+      return OPERATION_NOT_PERMITTED.equals(fse.getReason()) ? Boolean.FALSE : null;
+    } catch (IOException ioe) {
+      return null;
+    }
+  }
+
+  /**
+   * Probes whether a file can be atomically moved from the source directory to the destination
+   * directory.
+   * 
+   * @param sourceDirectory The directory to move from.
+   * @param destinationDirectory The directory to move to.
+   * @return Whether an atomic move is supported, or null if the probe was inconclusive.
+   */
+  private static Boolean probeRename(Path sourceDirectory, Path destinationDirectory) {
+    Path probe = null;
+    Path movedProbe = null;
+
+    try {
+      probe = Files.createTempFile(sourceDirectory, PROBE_PREFIX, null);
+      movedProbe = destinationDirectory.resolve(probe.getFileName());
+      Files.move(probe, movedProbe, StandardCopyOption.ATOMIC_MOVE);
+      return true;
+    } catch (AtomicMoveNotSupportedException amnse) {
+      return false;
+    } catch (IOException ioe) {
+      return null;
+    } finally {
+      deleteProbe(probe);
+      deleteProbe(movedProbe);
+    }
+  }
+
+  private static void deleteProbe(Path probe) {
+    if (probe != null) {
+      try {
+        Files.deleteIfExists(probe);
+      } catch (IOException ioe) {
+        // The probe could not be removed, there is nothing more which can be done.
+      }
+    }
+  }
+
+  /**
+   * The capabilities of a file store.
+   */
+  public static class Capabilities {
+
+    private final String name;
+    private final String type;
+    private final boolean symbolicLinksSupported;
+
+    /**
+     * Constructs Capabilities with the file store's name, type and supported features.
+     * 
+     * @param name The name of the file store.
+     * @param type The type of the file store.
+     * @param symbolicLinksSupported Whether symbolic links can be created on the file store.
+     */
+    public Capabilities(String name, String type, boolean symbolicLinksSupported) {
+      this.name = name;
+      this.type = type;
+      this.symbolicLinksSupported = symbolicLinksSupported;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public String getType() {
+      return type;
+    }
+
+    public boolean isSymbolicLinksSupported() {
+      return symbolicLinksSupported;
+    }
+  }
+}
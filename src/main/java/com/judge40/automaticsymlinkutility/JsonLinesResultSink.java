@@ -0,0 +1,308 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import com.judge40.automaticsymlinkutility.FileOperationStats.Primitive;
+import com.judge40.automaticsymlinkutility.PhaseTimings.Phase;
+import com.judge40.automaticsymlinkutility.RunSummary.GroupSummary;
+import com.judge40.automaticsymlinkutility.SymlinkCreationResult.Status;
+
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A {@link ResultSink} which writes each event as a JSON object on its own line, so that the
+ * output can be parsed reliably. Every object has an "event" field naming the event, the other
+ * fields depend on the event. Output is only flushed when processing finishes. <br/>
+ * Results are written as their reason code, link, target and affected paths, their formatted
+ * messages are only written if requested or if a result has no reason code to describe it.
+ */
+public class JsonLinesResultSink implements ResultSink {
+
+  private final PrintStream out;
+  private final boolean includeMessages;
+
+  /**
+   * Constructs a JsonLinesResultSink with the stream to write to, which does not write the
+   * formatted messages of results with a reason code.
+   * 
+   * @param out The stream to write JSON lines to.
+   */
+  public JsonLinesResultSink(PrintStream out) {
+    this(out, false);
+  }
+
+  /**
+   * Constructs a JsonLinesResultSink with the stream to write to and whether to write the formatted
+   * messages of results.
+   * 
+   * @param out The stream to write JSON lines to.
+   * @param includeMessages Whether to write the formatted message of every result.
+   */
+  public JsonLinesResultSink(PrintStream out, boolean includeMessages) {
+    this.out = out;
+    this.includeMessages = includeMessages;
+  }
+
+  @Override
+  public void started() {
+    out.println(new JsonObject("started"));
+  }
+
+  @Override
+  public void groupStarted(String groupName) {
+    out.println(new JsonObject("groupStarted").add("group", groupName));
+  }
+
+  @Override
+  public void groupSkipped(String groupName, String contextPath) {
+    out.println(
+        new JsonObject("groupSkipped").add("group", groupName).add("contextPath", contextPath));
+  }
+
+  @Override
+  public void symlinkStarted(String groupName) {
+    // The start of a symlink is implied by its result.
+  }
+
+  @Override
+  public void symlinkSkipped(String groupName, String contextPath) {
+    out.println(
+        new JsonObject("symlinkSkipped").add("group", groupName).add("contextPath", contextPath));
+  }
+
+  @Override
+  public void result(String groupName, SymlinkCreationResult result) {
+    JsonObject json = new JsonObject("result").add("group", groupName)
+        .add("status", String.valueOf(result.getStatus()))
+        .add("reason", result.getReason() == null ? null : result.getReason().name())
+        .add("link", result.getLink() == null ? null : result.getLink().toString())
+        .add("target", result.getTarget() == null ? null : result.getTarget().toString())
+        .add("paths", result.getPaths()).add("durationNanos", result.getDuration());
+
+    // Results without a reason code, and I/O errors, are only described by their message.
+    if (includeMessages || result.getReason() == null || result.getCause() != null) {
+      json.add("message", result.getMessage());
+    }
+
+    out.println(json);
+  }
+
+  @Override
+  public void groupFinished(String groupName) {
+    out.println(new JsonObject("groupFinished").add("group", groupName));
+  }
+
+  @Override
+  public void summary(RunSummary summary) {
+    for (GroupSummary group : summary.getGroups()) {
+      out.println(addGroupSummary(new JsonObject("groupSummary").add("group", group.getName()),
+          group));
+    }
+
+    out.println(addGroupSummary(new JsonObject("summary"), summary.getTotal()));
+
+    for (SymlinkCreationResult result : summary.getSlowest()) {
+      out.println(new JsonObject("slowOperation")
+          .add("link", result.getLink() == null ? null : result.getLink().toString())
+          .add("reason", result.getReason() == null ? null : result.getReason().name())
+          .add("durationNanos", result.getDuration()));
+    }
+  }
+
+  @Override
+  public void timings(PhaseTimings timings) {
+    for (Phase phase : Phase.values()) {
+      out.println(new JsonObject("timing").add("phase", phase.name())
+          .add("durationNanos", timings.getDuration(phase)).add("count", timings.getCount(phase)));
+    }
+
+    out.flush();
+  }
+
+  @Override
+  public void latencies(FileOperationStats operationStats) {
+    for (Map.Entry<String, Map<Primitive, LatencyHistogram>> fileStore : operationStats
+        .getHistograms().entrySet()) {
+      for (Map.Entry<Primitive, LatencyHistogram> primitive : fileStore.getValue().entrySet()) {
+        LatencyHistogram histogram = primitive.getValue();
+
+        if (histogram.getCount() > 0) {
+          out.println(new JsonObject("latency").add("fileStore", fileStore.getKey())
+              .add("primitive", primitive.getKey().name()).add("count", histogram.getCount())
+              .add("p50Nanos", histogram.getPercentile(50))
+              .add("p99Nanos", histogram.getPercentile(99)).add("maxNanos", histogram.getMax()));
+        }
+      }
+    }
+
+    out.flush();
+  }
+
+  @Override
+  public void finished() {
+    out.println(new JsonObject("finished"));
+    out.flush();
+  }
+
+  @Override
+  public void close() {
+    out.flush();
+  }
+
+  /**
+   * Adds the counts, time and bytes moved of a group summary to a JSON object.
+   * 
+   * @param json The object to add to.
+   * @param group The {@link GroupSummary} to add.
+   * @return The object.
+   */
+  private static JsonObject addGroupSummary(JsonObject json, GroupSummary group) {
+    for (Status status : Status.values()) {
+      json.add(status.name().toLowerCase(Locale.ROOT), group.getCount(status));
+    }
+
+    return json.add("durationNanos", group.getDuration()).add("bytesMoved",
+        group.getBytesMoved());
+  }
+
+  /**
+   * A minimal builder for a single line JSON object with string, numeric and path array values.
+   */
+  static class JsonObject {
+
+    private final StringBuilder json = new StringBuilder("{");
+
+    JsonObject(String event) {
+      add("event", event);
+    }
+
+    /**
+     * Adds a field to the object, null values are written as JSON nulls.
+     * 
+     * @param name The name of the field.
+     * @param value The value of the field.
+     * @return This object.
+     */
+    JsonObject add(String name, String value) {
+      if (json.length() > 1) {
+        json.append(',');
+      }
+
+      appendString(name);
+      json.append(':');
+
+      if (value == null) {
+        json.append("null");
+      } else {
+        appendString(value);
+      }
+
+      return this;
+    }
+
+    /**
+     * Adds a field to the object whose value is an array of paths.
+     * 
+     * @param name The name of the field.
+     * @param paths The paths in the array.
+     * @return This object.
+     */
+    JsonObject add(String name, List<Path> paths) {
+      if (json.length() > 1) {
+        json.append(',');
+      }
+
+      appendString(name);
+      json.append(":[");
+
+      for (int i = 0; i < paths.size(); i++) {
+        if (i > 0) {
+          json.append(',');
+        }
+
+        appendString(paths.get(i).toString());
+      }
+
+      json.append(']');
+      return this;
+    }
+
+    /**
+     * Adds a numeric field to the object.
+     * 
+     * @param name The name of the field.
+     * @param value The value of the field.
+     * @return This object.
+     */
+    JsonObject add(String name, long value) {
+      if (json.length() > 1) {
+        json.append(',');
+      }
+
+      appendString(name);
+      json.append(':').append(value);
+      return this;
+    }
+
+    private void appendString(String value) {
+      json.append('"');
+
+      for (int i = 0; i < value.length(); i++) {
+        char character = value.charAt(i);
+
+        switch (character) {
+          case '"':
+            json.append("\\\"");
+            break;
+          case '\\':
+            json.append("\\\\");
+            break;
+          case '\n':
+            json.append("\\n");
+            break;
+          case '\r':
+            json.append("\\r");
+            break;
+          case '\t':
+            json.append("\\t");
+            break;
+          default:
+            if (character < 0x20) {
+              json.append(String.format("\\u%04x", (int) character));
+            } else {
+              json.append(character);
+            }
+            break;
+        }
+      }
+
+      json.append('"');
+    }
+
+    @Override
+    public String toString() {
+      return json.toString() + "}";
+    }
+  }
+}
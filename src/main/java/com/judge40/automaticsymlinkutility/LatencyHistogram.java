@@ -0,0 +1,136 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies in nanoseconds, with buckets which double in width every 16 buckets so
+ * that any recorded value is reported within about 6% of its true value. Values can be recorded
+ * concurrently.
+ */
+public class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(Long.SIZE * SUB_BUCKET_COUNT);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong sum = new AtomicLong();
+  private final AtomicLong max = new AtomicLong();
+
+  /**
+   * Records a latency, negative latencies are recorded as zero.
+   * 
+   * @param latency The latency in nanoseconds.
+   */
+  public void record(long latency) {
+    long value = Math.max(latency, 0);
+    buckets.incrementAndGet(getBucket(value));
+    count.incrementAndGet();
+    sum.addAndGet(value);
+    max.accumulateAndGet(value, Math::max);
+  }
+
+  public long getCount() {
+    return count.get();
+  }
+
+  /**
+   * Gets the total of all recorded latencies.
+   * 
+   * @return The total latency in nanoseconds.
+   */
+  public long getSum() {
+    return sum.get();
+  }
+
+  /**
+   * Gets the largest recorded latency.
+   * 
+   * @return The maximum latency in nanoseconds.
+   */
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * Gets the latency at a percentile, the value returned is the upper bound of the bucket the
+   * percentile falls in and is never more than the maximum latency.
+   * 
+   * @param percentile The percentile, between 0 and 100.
+   * @return The latency in nanoseconds, or zero if nothing has been recorded.
+   */
+  public long getPercentile(double percentile) {
+    long total = count.get();
+
+    if (total == 0) {
+      return 0;
+    }
+
+    long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+    long seen = 0;
+
+    for (int bucket = 0; bucket < buckets.length(); bucket++) {
+      seen += buckets.get(bucket);
+
+      if (seen >= rank) {
+        return Math.min(getUpperBound(bucket), max.get());
+      }
+    }
+
+    return max.get();
+  }
+
+  /**
+   * Gets the bucket of a value, values below 16 have a bucket each and above that each power of
+   * two is split in to 16 buckets.
+   * 
+   * @param value The non-negative value.
+   * @return The bucket index.
+   */
+  private static int getBucket(long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return (int) value;
+    }
+
+    int magnitude = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+    int shift = magnitude - SUB_BUCKET_BITS;
+    int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+    return (shift + 1) * SUB_BUCKET_COUNT + subBucket;
+  }
+
+  /**
+   * Gets the largest value which falls in a bucket.
+   * 
+   * @param bucket The bucket index.
+   * @return The bucket's upper bound.
+   */
+  private static long getUpperBound(int bucket) {
+    if (bucket < SUB_BUCKET_COUNT) {
+      return bucket;
+    }
+
+    int shift = bucket / SUB_BUCKET_COUNT - 1;
+    long subBucket = bucket % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+    return ((subBucket + 1) << shift) - 1;
+  }
+}
@@ -21,29 +21,99 @@ package com.judge40.automaticsymlinkutility;
 
 import java.io.IOException;
 import java.nio.file.FileVisitResult;
-import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * A file visitor for moving a directory and all of its files and sub-directories to another
- * location.
+ * location. <br/>
+ * When merging, a file which already exists at the destination is compared with it, identical
+ * files are deleted from the source and differing files are left in place and recorded as
+ * conflicts. Directories containing conflicts are not deleted. <br/>
+ * When a {@link ChecksumVerifier} is given, files are copied and verified before their source is
+ * deleted and directories are only deleted once {@link #awaitVerification()} is called.
  */
 public class MoveDirectoryVisitor extends SimpleFileVisitor<Path> {
 
   private final Path source;
   private final Path destination;
+  private final boolean merge;
+  private final ChecksumVerifier verifier;
+  private final OperationContext context;
+  private final TimedFiles files;
+
+  private final List<Path> conflicts = new ArrayList<>();
+  private final Set<Path> retainedDirectories = new HashSet<>();
+  private final List<Path> pendingDirectories = new ArrayList<>();
+
+  private Boolean renameSupported = null;
+  private long bytesMoved = 0;
+  private long filesMoved = 0;
 
   /**
-   * Constructs a MoveDirectoryVisitor with the source path and destination path.
+   * Constructs a MoveDirectoryVisitor with the source path and destination path, which times and
+   * caches file operations in the {@link OperationContext#getDefault() default context}.
    * 
    * @param source The path of the directory to be moved.
    * @param destination The path the directory will be moved to.
    */
   public MoveDirectoryVisitor(Path source, Path destination) {
+    this(source, destination, OperationContext.getDefault());
+  }
+
+  /**
+   * Constructs a MoveDirectoryVisitor with the source path, destination path and the context to
+   * time and cache file operations in.
+   * 
+   * @param source The path of the directory to be moved.
+   * @param destination The path the directory will be moved to.
+   * @param context The context to time and cache file operations in.
+   */
+  public MoveDirectoryVisitor(Path source, Path destination, OperationContext context) {
+    this(source, destination, false, context);
+  }
+
+  /**
+   * Constructs a MoveDirectoryVisitor with the source path, destination path and whether existing
+   * destination files should be merged.
+   * 
+   * @param source The path of the directory to be moved.
+   * @param destination The path the directory will be moved to.
+   * @param merge Whether to merge files which already exist at the destination.
+   * @param context The context to time and cache file operations in.
+   */
+  public MoveDirectoryVisitor(Path source, Path destination, boolean merge,
+      OperationContext context) {
+    this(source, destination, merge, null, context);
+  }
+
+  /**
+   * Constructs a MoveDirectoryVisitor with the source path, destination path, whether existing
+   * destination files should be merged and the verifier to move files with.
+   * 
+   * @param source The path of the directory to be moved.
+   * @param destination The path the directory will be moved to.
+   * @param merge Whether to merge files which already exist at the destination.
+   * @param verifier The verifier to copy and verify regular files with, or null to move files
+   *        without verification.
+   * @param context The context to time and cache file operations in.
+   */
+  public MoveDirectoryVisitor(Path source, Path destination, boolean merge,
+      ChecksumVerifier verifier, OperationContext context) {
     this.source = source;
     this.destination = destination;
+    this.merge = merge;
+    this.verifier = verifier;
+    this.context = context;
+    files = context.getFiles();
   }
 
   /**
@@ -56,37 +126,118 @@ public class MoveDirectoryVisitor extends SimpleFileVisitor<Path> {
    */
   @Override
   public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-    Path directoryDestination = destination.resolve(source.relativize(dir));
+    MoveOperationEvent event = new MoveOperationEvent();
+    event.begin();
+    String branch = null;
 
-    if (Files.notExists(directoryDestination)) {
-      Files.createDirectory(directoryDestination);
-    }
+    try {
+      Path directoryDestination = destination.resolve(source.relativize(dir));
+
+      if (files.notExists(directoryDestination)) {
+        files.createDirectory(directoryDestination);
+        branch = "created";
+      } else {
+        branch = "exists";
+      }
 
-    return FileVisitResult.CONTINUE;
+      return FileVisitResult.CONTINUE;
+    } finally {
+      commitEvent(event, "preVisitDirectory", dir, branch);
+    }
   }
 
   /**
-   * Moves the file to the destination directory.
+   * Moves the file to the destination directory. If the file already exists at the destination
+   * and merging is enabled then the file is deleted when both have the same contents, otherwise it
+   * is recorded as a conflict.
    * 
    * @param file The file to move.
-   * @param attrs Not used.
+   * @param attrs The attributes of the file, may be null if the file's size is to be read.
    * @return {@link FileVisitResult#CONTINUE}.
-   * @throws IOException If an error occurs trying to move the file.
+   * @throws IOException If an error occurs trying to move, compare or delete the file.
    */
   @Override
   public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+    MoveOperationEvent event = new MoveOperationEvent();
+    event.begin();
+    String branch = null;
+
+    try {
+      branch = moveFile(file, attrs);
+      return FileVisitResult.CONTINUE;
+    } finally {
+      commitEvent(event, "visitFile", file, branch);
+    }
+  }
+
+  /**
+   * Moves, merges or skips the file depending on whether it exists at the destination.
+   * 
+   * @param file The file to move.
+   * @param attrs The attributes of the file, may be null.
+   * @return The branch taken, for recording in a {@link MoveOperationEvent}.
+   * @throws IOException If an error occurs trying to move, compare or delete the file.
+   */
+  private String moveFile(Path file, BasicFileAttributes attrs) throws IOException {
     Path relativeSource = source.relativize(file);
     Path fileDestination = destination.resolve(relativeSource);
+    String branch;
 
-    if (Files.notExists(fileDestination)) {
-      Files.move(file, fileDestination);
+    if (files.notExists(fileDestination)) {
+      if (verifier != null && files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS)) {
+        bytesMoved += getSize(file, attrs);
+        verifier.move(file, fileDestination);
+        branch = "verifying";
+      } else if (isRenameSupported()) {
+        files.move(file, fileDestination);
+        branch = "moved";
+      } else {
+        // Copy directly rather than have every move attempt a rename which is known to fail.
+        bytesMoved += getSize(file, attrs);
+        files.copy(file, fileDestination, StandardCopyOption.COPY_ATTRIBUTES,
+            LinkOption.NOFOLLOW_LINKS);
+        files.delete(file);
+        branch = "copied";
+      }
+
+      filesMoved++;
+    } else if (merge) {
+      // A destination which resolves to the file itself is a conflict, not a duplicate to delete.
+      if (!files.isSymbolicLink(file)
+          && files.isRegularFile(fileDestination, LinkOption.NOFOLLOW_LINKS)
+          && !files.isSameFile(file, fileDestination)
+          && FileHasher.contentEquals(file, fileDestination, files,
+              context.getVerificationExecutor())) {
+        files.delete(file);
+        branch = "merged";
+      } else {
+        conflicts.add(file);
+        retainParentDirectories(file);
+        branch = "conflict";
+      }
+    } else {
+      branch = "exists";
     }
 
-    return FileVisitResult.CONTINUE;
+    return branch;
+  }
+
+  /**
+   * Gets the size of a file from its attributes, or from the file system if it was visited without
+   * attributes.
+   * 
+   * @param file The file to get the size of.
+   * @param attrs The attributes of the file, may be null.
+   * @return The size of the file in bytes.
+   * @throws IOException If an error occurs reading the file's size.
+   */
+  private long getSize(Path file, BasicFileAttributes attrs) throws IOException {
+    return attrs == null ? files.size(file) : attrs.size();
   }
 
   /**
-   * Deletes the directory once all of its children have been moved.
+   * Deletes the directory once all of its children have been moved, unless it contains conflicts.
+   * When verifying, the deletion is deferred until verification is complete.
    * 
    * @param dir The directory to delete.
    * @param exc Any exception thrown processing the directory's children.
@@ -96,11 +247,138 @@ public class MoveDirectoryVisitor extends SimpleFileVisitor<Path> {
    */
   @Override
   public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
-    if (exc != null) {
-      throw exc;
+    MoveOperationEvent event = new MoveOperationEvent();
+    event.begin();
+    String branch = null;
+
+    try {
+      if (exc != null) {
+        throw exc;
+      }
+
+      if (verifier != null) {
+        pendingDirectories.add(dir);
+        branch = "deferred";
+      } else if (!retainedDirectories.contains(dir)) {
+        files.delete(dir);
+        branch = "deleted";
+      } else {
+        branch = "retained";
+      }
+
+      return FileVisitResult.CONTINUE;
+    } finally {
+      commitEvent(event, "postVisitDirectory", dir, branch);
     }
+  }
 
-    Files.delete(dir);
-    return FileVisitResult.CONTINUE;
+  /**
+   * Commits a {@link MoveOperationEvent} if it is enabled and its duration exceeds any threshold.
+   * 
+   * @param event The event to commit.
+   * @param callback The name of the visitor callback.
+   * @param path The path visited.
+   * @param branch The branch taken, or null if the callback failed before completing.
+   */
+  private static void commitEvent(MoveOperationEvent event, String callback, Path path,
+      String branch) {
+    event.end();
+
+    if (event.shouldCommit()) {
+      event.callback = callback;
+      event.path = path.toString();
+      event.branch = branch;
+      event.outcome = branch == null ? "failed" : "completed";
+      event.commit();
+    }
+  }
+
+  /**
+   * Waits for all copied files to be verified and then deletes the directories which no longer
+   * contain any files. Directories containing files which failed verification are not deleted.
+   * 
+   * @throws IOException If an error occurs deleting a directory or while waiting.
+   */
+  public void awaitVerification() throws IOException {
+    if (verifier != null) {
+      for (Path failure : verifier.await()) {
+        retainParentDirectories(failure);
+      }
+
+      for (Path dir : pendingDirectories) {
+        if (!retainedDirectories.contains(dir)) {
+          files.delete(dir);
+        }
+      }
+
+      pendingDirectories.clear();
+    }
+  }
+
+  /**
+   * Checks whether files can be renamed from the source to the destination, using the
+   * context's {@link FileStoreCache} the first time it is needed.
+   * 
+   * @return Whether files can be renamed.
+   * @throws IOException If an error occurs finding the file stores.
+   */
+  private boolean isRenameSupported() throws IOException {
+    if (renameSupported == null) {
+      renameSupported = context.getFileStoreCache().isRenameSupported(source, destination);
+    }
+
+    return renameSupported;
+  }
+
+  /**
+   * Retains all of the file's parent directories, within the source, so that the file is not
+   * deleted.
+   * 
+   * @param file The file to retain the parent directories of.
+   */
+  private void retainParentDirectories(Path file) {
+    for (Path parent = file.getParent(); parent != null && parent.startsWith(source);
+        parent = parent.getParent()) {
+      retainedDirectories.add(parent);
+    }
+  }
+
+  /**
+   * Gets the source files which could not be merged because a file with different contents already
+   * existed at the destination.
+   * 
+   * @return The conflicting source files, empty if there were no conflicts.
+   */
+  public List<Path> getConflicts() {
+    return Collections.unmodifiableList(conflicts);
+  }
+
+  /**
+   * Gets the number of bytes in the files copied to the destination, including files which are
+   * still being verified. Files which are renamed are not counted.
+   * 
+   * @return The bytes moved.
+   */
+  public long getBytesMoved() {
+    return bytesMoved;
+  }
+
+  /**
+   * Gets the number of files moved to the destination, including files which are still being
+   * verified.
+   * 
+   * @return The files moved.
+   */
+  public long getFilesMoved() {
+    return filesMoved;
+  }
+
+  /**
+   * Gets the source files which were kept because their copy did not match when verified.
+   * 
+   * @return The source files which failed verification, empty if there were no failures.
+   */
+  public List<Path> getVerificationFailures() {
+    return verifier != null ? verifier.getFailures() : Collections.emptyList();
   }
 }
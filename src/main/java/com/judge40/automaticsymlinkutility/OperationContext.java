@@ -0,0 +1,180 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import java.io.Closeable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The instrumentation and caches used while managing symbolic links, which are the phase timings,
+ * the file operation latencies, the slow operation log and the file store cache, along with the
+ * workers which verify copied files. <br/>
+ * Each {@link SymlinkManager} has its own context, so that managers embedded in the same
+ * application, or runs of the utility in the same JVM, do not share timings, latencies or cached
+ * file stores. The methods and constructors which are not given a context share a
+ * {@link #getDefault() default context} instead. A context may be shared between threads. Closing a
+ * context stops its verification workers once the files queued for verification have been
+ * verified.
+ */
+public class OperationContext implements Closeable {
+
+  private static final long VERIFICATION_KEEP_ALIVE_SECONDS = 60;
+  private static final AtomicInteger VERIFICATION_THREAD_COUNT = new AtomicInteger();
+
+  private final PhaseTimings timings;
+  private final FileOperationStats operationStats;
+  private final SlowOperationLog slowOperationLog;
+  private final FileStoreCache fileStoreCache;
+  private final TimedFiles files;
+  private ExecutorService verificationExecutor;
+
+  /**
+   * Constructs an OperationContext with new, empty, timings, latencies and file store cache and a
+   * disabled slow operation log.
+   */
+  public OperationContext() {
+    this(new FileStoreCache());
+  }
+
+  private OperationContext(FileStoreCache fileStoreCache) {
+    this(new PhaseTimings(), new FileOperationStats(fileStoreCache), new SlowOperationLog(),
+        fileStoreCache);
+  }
+
+  /**
+   * Constructs an OperationContext with the given timings, latencies, slow operation log and file
+   * store cache.
+   * 
+   * @param timings The timings to record each phase in.
+   * @param operationStats The statistics to record the latency of each file operation in.
+   * @param slowOperationLog The log to log slow file operations to.
+   * @param fileStoreCache The cache of file stores and their capabilities.
+   */
+  public OperationContext(PhaseTimings timings, FileOperationStats operationStats,
+      SlowOperationLog slowOperationLog, FileStoreCache fileStoreCache) {
+    this.timings = timings;
+    this.operationStats = operationStats;
+    this.slowOperationLog = slowOperationLog;
+    this.fileStoreCache = fileStoreCache;
+    files = new TimedFiles(operationStats, slowOperationLog);
+  }
+
+  /**
+   * Gets the context shared by the methods and constructors which are not given a context, so that
+   * its file store cache is kept between calls. It is created when first needed and lives as long
+   * as the JVM, its verification workers stop once idle, so it does not need to be closed and
+   * closing it has no effect.
+   * 
+   * @return The default {@link OperationContext}.
+   */
+  public static OperationContext getDefault() {
+    return DefaultContextHolder.DEFAULT_CONTEXT;
+  }
+
+  public PhaseTimings getTimings() {
+    return timings;
+  }
+
+  public FileOperationStats getOperationStats() {
+    return operationStats;
+  }
+
+  public SlowOperationLog getSlowOperationLog() {
+    return slowOperationLog;
+  }
+
+  public FileStoreCache getFileStoreCache() {
+    return fileStoreCache;
+  }
+
+  /**
+   * Gets the file operations which record their latency in this context.
+   * 
+   * @return The {@link TimedFiles}.
+   */
+  public TimedFiles getFiles() {
+    return files;
+  }
+
+  /**
+   * Gets the workers shared by every {@link ChecksumVerifier} of the context, which are started
+   * when first needed, one per processor, and stopped again once idle.
+   * 
+   * @return The {@link ExecutorService} to verify copied files with.
+   */
+  public synchronized ExecutorService getVerificationExecutor() {
+    if (verificationExecutor == null) {
+      int threads = Runtime.getRuntime().availableProcessors();
+      ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+          VERIFICATION_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+          runnable -> {
+            Thread thread = new Thread(runnable,
+                "checksum-verifier-" + VERIFICATION_THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+          });
+      executor.allowCoreThreadTimeOut(true);
+      verificationExecutor = executor;
+    }
+
+    return verificationExecutor;
+  }
+
+  /**
+   * Closes the context, waiting for the files queued for verification to be verified and then
+   * stopping the verification workers. If interrupted while waiting then the remaining files are
+   * still verified, but the context does not wait for them.
+   */
+  @Override
+  public void close() {
+    if (this == getDefault()) {
+      return;
+    }
+
+    ExecutorService executor;
+
+    synchronized (this) {
+      executor = verificationExecutor;
+    }
+
+    if (executor != null) {
+      executor.shutdown();
+
+      try {
+        while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+          // Wait for the files still being verified.
+        }
+      } catch (InterruptedException ie) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Holds the default context, so that it is only created when first used.
+   */
+  private static class DefaultContextHolder {
+    private static final OperationContext DEFAULT_CONTEXT = new OperationContext();
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A registry of the total time spent, and the number of times, in each phase of managing symbolic
+ * links. Each {@link OperationContext} has its own registry, which can be read at any time and
+ * cleared between runs. <br/>
+ * Phases may be nested, parsing includes the time of every phase which happens while the
+ * definition is parsed. The JVM's start up is the time from the JVM starting to the utility's main
+ * method being entered, so it is only recorded when run from the command line.
+ */
+public class PhaseTimings {
+
+  /**
+   * The phases which are timed.
+   */
+  public enum Phase {
+    JVM_STARTUP, SCHEMA_LOADING, PARSER_CONSTRUCTION, PARSING, CONTEXT_EVALUATION,
+    STATE_CLASSIFICATION, MOVE, LINK_CREATION;
+  }
+
+  private final Map<Phase, LongAdder> durations = new EnumMap<>(Phase.class);
+  private final Map<Phase, LongAdder> counts = new EnumMap<>(Phase.class);
+
+  /**
+   * Constructs a PhaseTimings with no phases recorded.
+   */
+  public PhaseTimings() {
+    for (Phase phase : Phase.values()) {
+      durations.put(phase, new LongAdder());
+      counts.put(phase, new LongAdder());
+    }
+  }
+
+  /**
+   * Records a phase which started at the given time and has just ended.
+   * 
+   * @param phase The phase to record.
+   * @param startTime The {@link System#nanoTime()} the phase started at.
+   */
+  public void record(Phase phase, long startTime) {
+    durations.get(phase).add(System.nanoTime() - startTime);
+    counts.get(phase).increment();
+  }
+
+  /**
+   * Records a phase which took the given time, for a phase which could not be timed from a
+   * {@link System#nanoTime()}, such as the start up of the JVM.
+   * 
+   * @param phase The phase to record.
+   * @param duration The duration of the phase in nanoseconds.
+   */
+  public void recordDuration(Phase phase, long duration) {
+    durations.get(phase).add(duration);
+    counts.get(phase).increment();
+  }
+
+  /**
+   * Gets the total time spent in a phase.
+   * 
+   * @param phase The phase.
+   * @return The total duration in nanoseconds.
+   */
+  public long getDuration(Phase phase) {
+    return durations.get(phase).sum();
+  }
+
+  /**
+   * Gets the number of times a phase has been recorded.
+   * 
+   * @param phase The phase.
+   * @return The number of times the phase was recorded.
+   */
+  public long getCount(Phase phase) {
+    return counts.get(phase).sum();
+  }
+
+  /**
+   * Resets all phases to zero.
+   */
+  public void clear() {
+    for (Phase phase : Phase.values()) {
+      durations.get(phase).reset();
+      counts.get(phase).reset();
+    }
+  }
+}
@@ -0,0 +1,329 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import com.judge40.automaticsymlinkutility.FileOperationStats.Primitive;
+import com.judge40.automaticsymlinkutility.SymlinkCreationResult.Status;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link ResultSink} which collects metrics about a run and writes them in the Prometheus text
+ * exposition format, for use with the node exporter's textfile collector. <br/>
+ * The metrics are the count of results by status, a histogram of operation latency, the bytes and
+ * files moved, the duration of each phase of the run and whether the run completed.
+ */
+public class PrometheusMetrics implements ResultSink {
+
+  private static final String PREFIX = "automatic_symlink_utility_";
+
+  /**
+   * The upper bounds of the operation latency histogram buckets, in seconds.
+   */
+  private static final double[] LATENCY_BUCKETS =
+      {0.001, 0.005, 0.01, 0.05, 0.1, 0.5, 1, 5, 10, 30, 60};
+
+  private final Map<Status, Long> results = new EnumMap<>(Status.class);
+  private final long[] latencyBucketCounts = new long[LATENCY_BUCKETS.length];
+  private final Map<String, Long> phases = new LinkedHashMap<>();
+  private FileOperationStats operationStats = null;
+  private long latencyCount;
+  private long latencySum;
+  private long bytesMoved;
+  private long filesMoved;
+  private boolean completed = true;
+
+  /**
+   * Constructs a PrometheusMetrics with all metrics at zero.
+   */
+  public PrometheusMetrics() {
+    for (Status status : Status.values()) {
+      results.put(status, 0L);
+    }
+  }
+
+  @Override
+  public void started() {
+    // Only results are measured.
+  }
+
+  @Override
+  public void groupStarted(String groupName) {
+    // Only results are measured.
+  }
+
+  @Override
+  public void groupSkipped(String groupName, String contextPath) {
+    // Only results are measured.
+  }
+
+  @Override
+  public void symlinkStarted(String groupName) {
+    // Only results are measured.
+  }
+
+  @Override
+  public void symlinkSkipped(String groupName, String contextPath) {
+    // Only results are measured.
+  }
+
+  /**
+   * Counts the result and adds its duration and the bytes and files it moved.
+   * 
+   * @param groupName Not used.
+   * @param result The {@link SymlinkCreationResult}.
+   */
+  @Override
+  public void result(String groupName, SymlinkCreationResult result) {
+    results.merge(result.getStatus(), 1L, Long::sum);
+
+    long duration = result.getDuration();
+    double seconds = duration / (double) TimeUnit.SECONDS.toNanos(1);
+
+    for (int i = 0; i < LATENCY_BUCKETS.length; i++) {
+      if (seconds <= LATENCY_BUCKETS[i]) {
+        latencyBucketCounts[i]++;
+      }
+    }
+
+    latencyCount++;
+    latencySum += duration;
+    bytesMoved += result.getBytesMoved();
+    filesMoved += result.getFilesMoved();
+  }
+
+  @Override
+  public void groupFinished(String groupName) {
+    // Only results are measured.
+  }
+
+  @Override
+  public void summary(RunSummary summary) {
+    // Only results are measured.
+  }
+
+  @Override
+  public void timings(PhaseTimings timings) {
+    // Phases are recorded separately.
+  }
+
+  @Override
+  public void latencies(FileOperationStats operationStats) {
+    // File operations are recorded separately.
+  }
+
+  @Override
+  public void finished() {
+    // Only results are measured.
+  }
+
+  @Override
+  public void close() {
+    // Nothing to release, metrics are written separately.
+  }
+
+  /**
+   * Records the duration of a phase of the run, recording a phase again replaces its duration.
+   * 
+   * @param phase The name of the phase.
+   * @param duration The duration in nanoseconds.
+   */
+  public void recordPhase(String phase, long duration) {
+    phases.put(phase, duration);
+  }
+
+  /**
+   * Sets the file operation latencies to include in the metrics.
+   * 
+   * @param operationStats The {@link FileOperationStats}, or null to exclude them.
+   */
+  public void setOperationStats(FileOperationStats operationStats) {
+    this.operationStats = operationStats;
+  }
+
+  /**
+   * Sets whether the run completed, a run which was aborted by an error is written as incomplete so
+   * that it can be alerted on.
+   * 
+   * @param completed Whether the run completed.
+   */
+  public void setCompleted(boolean completed) {
+    this.completed = completed;
+  }
+
+  /**
+   * Writes the metrics to a file, the metrics are written to a temporary file in the same
+   * directory which then replaces the file so that a collector never reads a partial file. The
+   * temporary file is made readable by all users, as the file it replaces would have been, so that
+   * a collector running as another user can read it.
+   * 
+   * @param file The file to write the metrics to.
+   * @throws IOException If an error occurs writing the file.
+   */
+  public void writeTo(Path file) throws IOException {
+    Path directory = file.toAbsolutePath().getParent();
+    Path temporaryFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+
+    try {
+      if (Files.getFileStore(temporaryFile).supportsFileAttributeView(
+          PosixFileAttributeView.class)) {
+        Files.setPosixFilePermissions(temporaryFile, PosixFilePermissions.fromString("rw-r--r--"));
+      }
+
+      try (Writer writer = Files.newBufferedWriter(temporaryFile, StandardCharsets.UTF_8)) {
+        write(writer);
+      }
+
+      try {
+        Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException amnse) {
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temporaryFile);
+    }
+  }
+
+  /**
+   * Writes the metrics in the Prometheus text exposition format.
+   * 
+   * @param writer The writer to write the metrics to.
+   * @throws IOException If an error occurs writing the metrics.
+   */
+  public void write(Writer writer) throws IOException {
+    writeHeader(writer, "results_total", "counter", "The number of symlink results by status.");
+
+    for (Map.Entry<Status, Long> result : results.entrySet()) {
+      writer.write(String.format("%sresults_total{status=\"%s\"} %d\n", PREFIX,
+          result.getKey().name().toLowerCase(Locale.ROOT), result.getValue()));
+    }
+
+    writeHeader(writer, "operation_duration_seconds", "histogram",
+        "The time taken to manage each symlink.");
+
+    for (int i = 0; i < LATENCY_BUCKETS.length; i++) {
+      writer.write(String.format("%soperation_duration_seconds_bucket{le=\"%s\"} %d\n", PREFIX,
+          LATENCY_BUCKETS[i], latencyBucketCounts[i]));
+    }
+
+    writer.write(String.format("%soperation_duration_seconds_bucket{le=\"+Inf\"} %d\n", PREFIX,
+        latencyCount));
+    writer.write(String.format("%soperation_duration_seconds_sum %s\n", PREFIX,
+        toSeconds(latencySum)));
+    writer.write(String.format("%soperation_duration_seconds_count %d\n", PREFIX, latencyCount));
+
+    writeHeader(writer, "moved_bytes_total", "counter",
+        "The number of bytes copied from link paths to target paths, renames are not counted.");
+    writer.write(String.format("%smoved_bytes_total %d\n", PREFIX, bytesMoved));
+
+    writeHeader(writer, "moved_files_total", "counter",
+        "The number of files moved from link paths to target paths.");
+    writer.write(String.format("%smoved_files_total %d\n", PREFIX, filesMoved));
+
+    writeHeader(writer, "phase_duration_seconds", "gauge", "The time taken by each phase.");
+
+    for (Map.Entry<String, Long> phase : phases.entrySet()) {
+      writer.write(String.format("%sphase_duration_seconds{phase=\"%s\"} %s\n", PREFIX,
+          phase.getKey(), toSeconds(phase.getValue())));
+    }
+
+    writeHeader(writer, "run_completed", "gauge",
+        "Whether the run completed, 0 if it was aborted by an error.");
+    writer.write(String.format("%srun_completed %d\n", PREFIX, completed ? 1 : 0));
+
+    if (operationStats != null) {
+      writeOperationStats(writer);
+    }
+  }
+
+  /**
+   * Writes a summary of the latency of each file system primitive, for each file store, with the
+   * median, 99th percentile and maximum latency. Primitives which were not used are not written.
+   * 
+   * @param writer The writer to write the metrics to.
+   * @throws IOException If an error occurs writing the metrics.
+   */
+  private void writeOperationStats(Writer writer) throws IOException {
+    writeHeader(writer, "filesystem_operation_seconds", "summary",
+        "The latency of each file system primitive by file store.");
+    StringBuilder maximums = new StringBuilder();
+
+    for (Map.Entry<String, Map<Primitive, LatencyHistogram>> fileStore : operationStats
+        .getHistograms().entrySet()) {
+      for (Map.Entry<Primitive, LatencyHistogram> primitive : fileStore.getValue().entrySet()) {
+        LatencyHistogram histogram = primitive.getValue();
+
+        if (histogram.getCount() > 0) {
+          String labels = String.format("file_store=\"%s\",primitive=\"%s\"",
+              escapeLabelValue(fileStore.getKey()),
+              primitive.getKey().name().toLowerCase(Locale.ROOT));
+          writer.write(String.format("%sfilesystem_operation_seconds{%s,quantile=\"0.5\"} %s\n",
+              PREFIX, labels, toSeconds(histogram.getPercentile(50))));
+          writer.write(String.format("%sfilesystem_operation_seconds{%s,quantile=\"0.99\"} %s\n",
+              PREFIX, labels, toSeconds(histogram.getPercentile(99))));
+          writer.write(String.format("%sfilesystem_operation_seconds_sum{%s} %s\n", PREFIX, labels,
+              toSeconds(histogram.getSum())));
+          writer.write(String.format("%sfilesystem_operation_seconds_count{%s} %d\n", PREFIX,
+              labels, histogram.getCount()));
+          maximums.append(String.format("%sfilesystem_operation_max_seconds{%s} %s\n", PREFIX,
+              labels, toSeconds(histogram.getMax())));
+        }
+      }
+    }
+
+    writeHeader(writer, "filesystem_operation_max_seconds", "gauge",
+        "The maximum latency of each file system primitive by file store.");
+    writer.write(maximums.toString());
+  }
+
+  /**
+   * Escapes a label value's backslashes, double quotes and line feeds.
+   * 
+   * @param value The label value.
+   * @return The escaped label value.
+   */
+  private static String escapeLabelValue(String value) {
+    return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+
+  private static void writeHeader(Writer writer, String name, String type, String help)
+      throws IOException {
+    writer.write(String.format("# HELP %s%s %s\n", PREFIX, name, help));
+    writer.write(String.format("# TYPE %s%s %s\n", PREFIX, name, type));
+  }
+
+  private static String toSeconds(long nanos) {
+    return String.valueOf(nanos / (double) TimeUnit.SECONDS.toNanos(1));
+  }
+}
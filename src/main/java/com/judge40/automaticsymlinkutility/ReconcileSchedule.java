@@ -0,0 +1,123 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import com.judge40.automaticsymlinkutility.RunSummary.GroupSummary;
+import com.judge40.automaticsymlinkutility.SymlinkCreationResult.Status;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An adaptive schedule for rerunning a definition file. The interval doubles after each run which
+ * only skipped symlinks, up to the maximum, and returns to the minimum after a run which created
+ * links or had failures. Each delay is jittered so that machines sharing storage spread their runs
+ * out.
+ */
+public class ReconcileSchedule {
+
+  /**
+   * The fraction of the interval each delay may vary by, in either direction.
+   */
+  static final double JITTER = 0.2;
+
+  private final long minInterval;
+  private final long maxInterval;
+  private final Random random;
+
+  private long interval;
+
+  /**
+   * Constructs a ReconcileSchedule with the minimum and maximum interval between runs, starting
+   * at the minimum.
+   * 
+   * @param minInterval The minimum interval.
+   * @param maxInterval The maximum interval.
+   * @param unit The unit of the intervals.
+   * @throws IllegalArgumentException If the minimum is not positive or exceeds the maximum.
+   */
+  public ReconcileSchedule(long minInterval, long maxInterval, TimeUnit unit) {
+    this(minInterval, maxInterval, unit, new Random());
+  }
+
+  /**
+   * Constructs a ReconcileSchedule with the minimum and maximum interval between runs and the
+   * source of the jitter.
+   * 
+   * @param minInterval The minimum interval.
+   * @param maxInterval The maximum interval.
+   * @param unit The unit of the intervals.
+   * @param random The {@link Random} to jitter delays with.
+   * @throws IllegalArgumentException If the minimum is not positive or exceeds the maximum.
+   */
+  ReconcileSchedule(long minInterval, long maxInterval, TimeUnit unit, Random random) {
+    if (minInterval <= 0 || minInterval > maxInterval) {
+      throw new IllegalArgumentException(String.format(
+          "The minimum interval %d must be positive and no more than the maximum interval %d.",
+          minInterval, maxInterval));
+    }
+
+    this.minInterval = unit.toMillis(minInterval);
+    this.maxInterval = unit.toMillis(maxInterval);
+    this.random = random;
+    interval = this.minInterval;
+  }
+
+  /**
+   * Gets the current interval, before jitter is applied.
+   * 
+   * @return The interval in milliseconds.
+   */
+  public long getInterval() {
+    return interval;
+  }
+
+  /**
+   * Gets the delay until the next run, the current interval with jitter applied.
+   * 
+   * @return The delay in milliseconds.
+   */
+  public long nextDelay() {
+    double jitter = 1 - JITTER + 2 * JITTER * random.nextDouble();
+    return Math.round(interval * jitter);
+  }
+
+  /**
+   * Adapts the interval to the results of a completed run.
+   * 
+   * @param summary The {@link RunSummary} of the run.
+   */
+  public void recordRun(RunSummary summary) {
+    GroupSummary total = summary.getTotal();
+
+    if (total.getCount(Status.CREATED) > 0 || total.getCount(Status.FAILED) > 0) {
+      interval = minInterval;
+    } else {
+      interval = Math.min(maxInterval, interval * 2);
+    }
+  }
+
+  /**
+   * Adapts the interval to a run which could not be completed, such as an invalid definition file.
+   */
+  public void recordFailure() {
+    interval = minInterval;
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import java.io.Closeable;
+
+/**
+ * A destination for the progress and results of managing symbolic links. Events are reported in
+ * the order the definition is processed, a group name of null means the symlink is not within a
+ * group.
+ */
+public interface ResultSink extends Closeable {
+
+  /**
+   * Notify that processing of the definition has started.
+   */
+  void started();
+
+  /**
+   * Notify that a group's symlinks are being managed.
+   * 
+   * @param groupName The name of the group.
+   */
+  void groupStarted(String groupName);
+
+  /**
+   * Notify that a group has been skipped because its context did not exist.
+   * 
+   * @param groupName The name of the group.
+   * @param contextPath The group's context path.
+   */
+  void groupSkipped(String groupName, String contextPath);
+
+  /**
+   * Notify that a symlink's definition has started.
+   * 
+   * @param groupName The name of the symlink's group.
+   */
+  void symlinkStarted(String groupName);
+
+  /**
+   * Notify that a symlink has been skipped because its context did not exist.
+   * 
+   * @param groupName The name of the symlink's group.
+   * @param contextPath The symlink's context path.
+   */
+  void symlinkSkipped(String groupName, String contextPath);
+
+  /**
+   * Notify of the result of managing a symlink.
+   * 
+   * @param groupName The name of the symlink's group.
+   * @param result The {@link SymlinkCreationResult}.
+   */
+  void result(String groupName, SymlinkCreationResult result);
+
+  /**
+   * Notify that a group has finished, whether or not it was skipped.
+   * 
+   * @param groupName The name of the group.
+   */
+  void groupFinished(String groupName);
+
+  /**
+   * Notify of the summary of the run's results.
+   * 
+   * @param summary The {@link RunSummary}.
+   */
+  void summary(RunSummary summary);
+
+  /**
+   * Notify of the time spent in each phase of the run.
+   * 
+   * @param timings The {@link PhaseTimings}.
+   */
+  void timings(PhaseTimings timings);
+
+  /**
+   * Notify of the latencies of the file system operations, for each file store.
+   * 
+   * @param operationStats The {@link FileOperationStats}.
+   */
+  void latencies(FileOperationStats operationStats);
+
+  /**
+   * Notify that processing of the definition has finished.
+   */
+  void finished();
+
+  /**
+   * Flushes any buffered output, the underlying stream is not closed.
+   */
+  @Override
+  void close();
+}
@@ -0,0 +1,206 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import com.judge40.automaticsymlinkutility.SymlinkCreationResult.Status;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * A summary of a run, with the count of each result status, the wall time and the bytes moved for
+ * each group as well as the slowest individual operations. Symlinks which are not within a group
+ * are summarised together under a group name of null, their time is the total time of their
+ * operations.
+ */
+public class RunSummary {
+
+  /**
+   * The default number of slowest operations to keep.
+   */
+  public static final int DEFAULT_SLOWEST_COUNT = 5;
+
+  private static final Comparator<SymlinkCreationResult> DURATION_ORDER =
+      Comparator.comparingLong(SymlinkCreationResult::getDuration);
+
+  private final int slowestCount;
+  private final Map<String, GroupSummary> groups = new LinkedHashMap<>();
+  private final GroupSummary total = new GroupSummary(null);
+  private final PriorityQueue<SymlinkCreationResult> slowest;
+  private long startTime;
+
+  /**
+   * Constructs a RunSummary which keeps the default number of slowest operations.
+   */
+  public RunSummary() {
+    this(DEFAULT_SLOWEST_COUNT);
+  }
+
+  /**
+   * Constructs a RunSummary with the number of slowest operations to keep.
+   * 
+   * @param slowestCount The number of slowest operations to keep.
+   */
+  public RunSummary(int slowestCount) {
+    this.slowestCount = slowestCount;
+    slowest = new PriorityQueue<>(slowestCount + 1, DURATION_ORDER);
+  }
+
+  /**
+   * Records the start of the run.
+   */
+  public void started() {
+    startTime = System.nanoTime();
+  }
+
+  /**
+   * Records the start of a group.
+   * 
+   * @param groupName The name of the group.
+   */
+  public void groupStarted(String groupName) {
+    GroupSummary group = getGroup(groupName);
+    group.startTime = System.nanoTime();
+  }
+
+  /**
+   * Records the result of a symlink, keeping it if it is one of the slowest operations.
+   * 
+   * @param groupName The name of the symlink's group, or null if it is not within a group.
+   * @param result The {@link SymlinkCreationResult}.
+   */
+  public void record(String groupName, SymlinkCreationResult result) {
+    GroupSummary group = getGroup(groupName);
+    group.add(result);
+    total.add(result);
+
+    if (groupName == null) {
+      group.duration += result.getDuration();
+    }
+
+    slowest.add(result);
+
+    if (slowest.size() > slowestCount) {
+      slowest.poll();
+    }
+  }
+
+  /**
+   * Records the end of a group.
+   * 
+   * @param groupName The name of the group.
+   */
+  public void groupFinished(String groupName) {
+    GroupSummary group = getGroup(groupName);
+    group.duration += System.nanoTime() - group.startTime;
+  }
+
+  /**
+   * Records the end of the run.
+   */
+  public void finished() {
+    total.duration = System.nanoTime() - startTime;
+  }
+
+  /**
+   * Gets the summary of each group, in the order they were started.
+   * 
+   * @return The group summaries.
+   */
+  public List<GroupSummary> getGroups() {
+    return Collections.unmodifiableList(new ArrayList<>(groups.values()));
+  }
+
+  /**
+   * Gets the summary of the whole run, the duration is the wall time of the run.
+   * 
+   * @return The total summary.
+   */
+  public GroupSummary getTotal() {
+    return total;
+  }
+
+  /**
+   * Gets the slowest operations, slowest first.
+   * 
+   * @return The slowest results.
+   */
+  public List<SymlinkCreationResult> getSlowest() {
+    List<SymlinkCreationResult> results = new ArrayList<>(slowest);
+    results.sort(DURATION_ORDER.reversed());
+    return results;
+  }
+
+  private GroupSummary getGroup(String groupName) {
+    return groups.computeIfAbsent(groupName, GroupSummary::new);
+  }
+
+  /**
+   * The summary of a group, or the whole run, with the count of each result status.
+   */
+  public static class GroupSummary {
+
+    private final String name;
+    private final Map<Status, Integer> counts = new EnumMap<>(Status.class);
+    private long bytesMoved;
+    private long startTime;
+    private long duration;
+
+    private GroupSummary(String name) {
+      this.name = name;
+
+      for (Status status : Status.values()) {
+        counts.put(status, 0);
+      }
+    }
+
+    private void add(SymlinkCreationResult result) {
+      counts.merge(result.getStatus(), 1, Integer::sum);
+      bytesMoved += result.getBytesMoved();
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public int getCount(Status status) {
+      return counts.get(status);
+    }
+
+    public long getBytesMoved() {
+      return bytesMoved;
+    }
+
+    /**
+     * Gets the wall time of the group.
+     * 
+     * @return The duration in nanoseconds.
+     */
+    public long getDuration() {
+      return duration;
+    }
+  }
+}
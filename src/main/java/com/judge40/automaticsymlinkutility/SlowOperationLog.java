@@ -0,0 +1,86 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A log of file system operations which take longer than a threshold, each entry has the
+ * operation, the full path, the duration and the thread which performed it. Each
+ * {@link OperationContext} has its own log, which is disabled until a threshold is set and writes
+ * to {@link System#err} by default.
+ */
+public class SlowOperationLog {
+
+  private volatile long threshold = Long.MAX_VALUE;
+  private volatile PrintStream out = System.err;
+
+  /**
+   * Constructs a SlowOperationLog which is disabled.
+   */
+  public SlowOperationLog() {
+  }
+
+  /**
+   * Logs the operation if its duration exceeds the threshold.
+   * 
+   * @param operation The name of the operation.
+   * @param path The path operated on.
+   * @param duration The duration in nanoseconds.
+   */
+  public void record(String operation, Path path, long duration) {
+    if (duration > threshold) {
+      out.println(String.format(Locale.ROOT,
+          "Slow operation: %s of '%s' took %.3f ms on thread '%s'.", operation,
+          path.toAbsolutePath(), duration / (double) TimeUnit.MILLISECONDS.toNanos(1),
+          Thread.currentThread().getName()));
+    }
+  }
+
+  /**
+   * Gets the threshold operations must exceed to be logged.
+   * 
+   * @return The threshold in nanoseconds, {@link Long#MAX_VALUE} when disabled.
+   */
+  public long getThreshold() {
+    return threshold;
+  }
+
+  /**
+   * Sets the threshold operations must exceed to be logged.
+   * 
+   * @param threshold The threshold in nanoseconds, {@link Long#MAX_VALUE} to disable the log.
+   */
+  public void setThreshold(long threshold) {
+    this.threshold = threshold;
+  }
+
+  /**
+   * Sets the stream slow operations are written to.
+   * 
+   * @param out The stream to write to.
+   */
+  public void setOut(PrintStream out) {
+    this.out = out;
+  }
+}
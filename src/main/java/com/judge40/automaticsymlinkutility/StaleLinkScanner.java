@@ -0,0 +1,155 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import com.judge40.automaticsymlinkutility.SymlinkCreationResult.Reason;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Finds the symbolic links within a directory tree whose targets do not exist, optionally removing
+ * them. Symbolic links are not followed, so the scan never leaves the directory tree.
+ */
+public final class StaleLinkScanner {
+
+  private StaleLinkScanner() {
+  }
+
+  /**
+   * Scans the directory tree for stale links, with each sub-directory being scanned in parallel.
+   * 
+   * @param root The directory to scan.
+   * @param excluded The links to ignore, as absolute normalized paths, such as those which have
+   *        already been checked against their defined targets.
+   * @param remove Whether to remove the stale links found.
+   * @param files The file operations to read the directory tree and links with.
+   * @return A {@link SymlinkCreationResult} for each stale link found, a failure to remove a link
+   *         is reported as the link's result and a failure to read a directory within the tree is
+   *         reported as the directory's result.
+   * @throws IOException If an error occurs reading the root directory.
+   */
+  public static List<SymlinkCreationResult> scan(Path root, Set<Path> excluded, boolean remove,
+      TimedFiles files) throws IOException {
+    try {
+      return new ScanTask(root, excluded, remove, true, files).invokeScan();
+    } catch (UncheckedIOException uioe) {
+      throw uioe.getCause();
+    }
+  }
+
+  /**
+   * Checks a single symbolic link, removing it if it is stale and removal is enabled.
+   * 
+   * @param link The symbolic link to check.
+   * @param remove Whether to remove the link if it is stale.
+   * @param files The file operations to read and remove the link with.
+   * @return The {@link SymlinkCreationResult}, or null if the link's target exists.
+   */
+  private static SymlinkCreationResult checkLink(Path link, boolean remove, TimedFiles files) {
+    long startTime = System.nanoTime();
+    SymlinkCreationResult result = null;
+    Path target = null;
+
+    try {
+      if (files.notExists(link)) {
+        target = files.readSymbolicLink(link);
+
+        if (remove) {
+          files.delete(link);
+          result = new SymlinkCreationResult(Reason.REMOVED_LINK, link, target);
+        } else {
+          result = new SymlinkCreationResult(Reason.DANGLING_LINK, link, target);
+        }
+      }
+    } catch (IOException ioe) {
+      result = new SymlinkCreationResult(link, target, ioe);
+    }
+
+    if (result != null) {
+      result.setDuration(System.nanoTime() - startTime);
+    }
+
+    return result;
+  }
+
+  /**
+   * A task which checks the symbolic links of a single directory and forks a new task for each of
+   * its sub-directories. A directory or entry which cannot be read is reported as a failed result
+   * and the scan continues, other than for the root which fails the scan.
+   */
+  private static class ScanTask extends DirectoryScanTask<List<SymlinkCreationResult>> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient Set<Path> excluded;
+    private final boolean remove;
+    private final boolean root;
+    private final List<SymlinkCreationResult> results = new ArrayList<>();
+
+    private ScanTask(Path directory, Set<Path> excluded, boolean remove, boolean root,
+        TimedFiles files) {
+      super(directory, files);
+      this.excluded = excluded;
+      this.remove = remove;
+      this.root = root;
+    }
+
+    @Override
+    protected DirectoryScanTask<List<SymlinkCreationResult>> createSubTask(Path subDirectory) {
+      return new ScanTask(subDirectory, excluded, remove, false, getFiles());
+    }
+
+    @Override
+    protected void visitFile(Path file, BasicFileAttributes attributes) {
+      if (attributes.isSymbolicLink() && !excluded.contains(file.toAbsolutePath().normalize())) {
+        SymlinkCreationResult result = checkLink(file, remove, getFiles());
+
+        if (result != null) {
+          results.add(result);
+        }
+      }
+    }
+
+    @Override
+    protected void failed(Path path, IOException exception) {
+      if (root && path.equals(getDirectory())) {
+        throw new UncheckedIOException(exception);
+      }
+
+      results.add(new SymlinkCreationResult(path, null, exception));
+    }
+
+    @Override
+    protected void combine(List<SymlinkCreationResult> subResults) {
+      results.addAll(subResults);
+    }
+
+    @Override
+    protected List<SymlinkCreationResult> getResult() {
+      return results;
+    }
+  }
+}
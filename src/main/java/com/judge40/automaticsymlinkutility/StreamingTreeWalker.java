@@ -0,0 +1,325 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.FileVisitor;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A file tree walker which produces the entries of a tree in to a bounded queue from a background
+ * thread, so that consumers can pull entries at their own pace while the tree is still being read.
+ * Memory use is limited to the queue's capacity plus one open directory stream per level of depth,
+ * regardless of how many entries each directory holds. <br/>
+ * Entries are produced depth-first in the same order as
+ * {@link Files#walkFileTree(Path, FileVisitor)}, symbolic links are not followed. A walker may be
+ * consumed by multiple threads, in which case the order entries are processed in is not
+ * guaranteed.
+ */
+public class StreamingTreeWalker implements Closeable {
+
+  /**
+   * The default number of entries which can be queued before the producer blocks.
+   */
+  public static final int DEFAULT_CAPACITY = 1024;
+
+  private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+  private final Path root;
+  private final TimedFiles files;
+  private final BlockingQueue<Entry> queue;
+  private final Thread producer;
+
+  private volatile boolean closed = false;
+
+  /**
+   * Constructs a StreamingTreeWalker with the root of the tree and the capacity of the queue.
+   * 
+   * @param root The root of the tree to walk.
+   * @param capacity The maximum number of entries to queue before the producer blocks.
+   * @param files The file operations to read the tree with.
+   */
+  public StreamingTreeWalker(Path root, int capacity, TimedFiles files) {
+    this.root = root;
+    this.files = files;
+    queue = new ArrayBlockingQueue<>(capacity);
+    producer = new Thread(this::produce, "tree-walker-" + THREAD_COUNT.incrementAndGet());
+    producer.setDaemon(true);
+  }
+
+  /**
+   * Starts producing entries in the background.
+   * 
+   * @return This walker.
+   */
+  public StreamingTreeWalker start() {
+    producer.start();
+    return this;
+  }
+
+  /**
+   * Takes the next entry, waiting for one to be produced if necessary.
+   * 
+   * @return The next entry, which will be of type {@link Entry.Type#END} once the walk is
+   *         complete.
+   * @throws InterruptedIOException If interrupted while waiting for an entry.
+   */
+  public Entry take() throws InterruptedIOException {
+    try {
+      Entry entry = queue.take();
+
+      // Put the end back so that all consumers see it.
+      if (entry.getType() == Entry.Type.END) {
+        queue.offer(entry);
+      }
+
+      return entry;
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException(ie.getLocalizedMessage());
+    }
+  }
+
+  /**
+   * Stops producing entries and discards any which are queued.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    producer.interrupt();
+    queue.clear();
+  }
+
+  /**
+   * Walks the tree depth-first, keeping a stack of the open directory streams, and queues an entry
+   * for each directory start, file, directory end and failure.
+   */
+  private void produce() {
+    Deque<DirectoryStream<Path>> streams = new ArrayDeque<>();
+    Deque<Iterator<Path>> iterators = new ArrayDeque<>();
+    Deque<Path> directories = new ArrayDeque<>();
+
+    try {
+      Path next = root;
+
+      while (!closed) {
+        if (next != null) {
+          BasicFileAttributes attributes;
+
+          try {
+            attributes = files.readAttributes(next, BasicFileAttributes.class,
+                LinkOption.NOFOLLOW_LINKS);
+          } catch (IOException ioe) {
+            put(new Entry(Entry.Type.FAILED, next, null, ioe));
+            attributes = null;
+          }
+
+          if (attributes != null && attributes.isDirectory()) {
+            try {
+              DirectoryStream<Path> stream = files.newDirectoryStream(next);
+              put(new Entry(Entry.Type.DIRECTORY_START, next, attributes, null));
+              streams.push(stream);
+              iterators.push(stream.iterator());
+              directories.push(next);
+            } catch (IOException ioe) {
+              put(new Entry(Entry.Type.FAILED, next, attributes, ioe));
+            }
+          } else if (attributes != null) {
+            put(new Entry(Entry.Type.FILE, next, attributes, null));
+          }
+        }
+
+        if (iterators.isEmpty()) {
+          break;
+        }
+
+        // Move to the next entry of the current directory, ending the directory when exhausted.
+        IOException iterationException = null;
+
+        try {
+          next = iterators.peek().hasNext() ? iterators.peek().next() : null;
+        } catch (DirectoryIteratorException die) {
+          iterationException = die.getCause();
+          next = null;
+        }
+
+        if (next == null) {
+          iterators.pop();
+          closeQuietly(streams.pop());
+          put(new Entry(Entry.Type.DIRECTORY_END, directories.pop(), null, iterationException));
+        }
+      }
+
+      put(new Entry(Entry.Type.END, null, null, null));
+    } catch (InterruptedException ie) {
+      // Closed by the consumer, nothing further to produce.
+    } finally {
+      for (DirectoryStream<Path> stream : streams) {
+        closeQuietly(stream);
+      }
+    }
+  }
+
+  private void put(Entry entry) throws InterruptedException {
+    queue.put(entry);
+  }
+
+  private static void closeQuietly(DirectoryStream<Path> stream) {
+    try {
+      stream.close();
+    } catch (IOException ioe) {
+      // The stream has already been fully read so the failure to close it is not significant.
+    }
+  }
+
+  /**
+   * Walks the tree with a streaming walker and invokes the visitor for each entry on the calling
+   * thread, in the same way as {@link Files#walkFileTree(Path, FileVisitor)}.
+   * 
+   * @param root The root of the tree to walk.
+   * @param visitor The visitor to invoke for each entry.
+   * @param files The file operations to read the tree with.
+   * @throws IOException If thrown by the visitor.
+   */
+  public static void walk(Path root, FileVisitor<? super Path> visitor, TimedFiles files)
+      throws IOException {
+    walk(root, visitor, DEFAULT_CAPACITY, files);
+  }
+
+  /**
+   * Walks the tree with a streaming walker and invokes the visitor for each entry on the calling
+   * thread, in the same way as {@link Files#walkFileTree(Path, FileVisitor)}.
+   * 
+   * @param root The root of the tree to walk.
+   * @param visitor The visitor to invoke for each entry.
+   * @param capacity The maximum number of entries to queue ahead of the visitor.
+   * @param files The file operations to read the tree with.
+   * @throws IOException If thrown by the visitor.
+   */
+  public static void walk(Path root, FileVisitor<? super Path> visitor, int capacity,
+      TimedFiles files) throws IOException {
+    try (StreamingTreeWalker walker = new StreamingTreeWalker(root, capacity, files).start()) {
+      // The directory whose remaining entries are being skipped and whether it should still be
+      // ended once reached.
+      Path skipDirectory = null;
+      boolean endSkipDirectory = false;
+
+      for (Entry entry = walker.take(); entry.getType() != Entry.Type.END;
+          entry = walker.take()) {
+        Path path = entry.getPath();
+
+        if (skipDirectory != null) {
+          if (entry.getType() != Entry.Type.DIRECTORY_END || !path.equals(skipDirectory)) {
+            continue;
+          }
+
+          skipDirectory = null;
+
+          if (!endSkipDirectory) {
+            continue;
+          }
+        }
+
+        FileVisitResult result;
+
+        switch (entry.getType()) {
+          case DIRECTORY_START:
+            result = visitor.preVisitDirectory(path, entry.getAttributes());
+
+            if (result == FileVisitResult.SKIP_SUBTREE) {
+              skipDirectory = path;
+              endSkipDirectory = false;
+            }
+            break;
+          case FILE:
+            result = visitor.visitFile(path, entry.getAttributes());
+            break;
+          case FAILED:
+            result = visitor.visitFileFailed(path, entry.getException());
+            break;
+          default:
+            result = visitor.postVisitDirectory(path, entry.getException());
+            break;
+        }
+
+        if (result == FileVisitResult.TERMINATE) {
+          break;
+        } else if (result == FileVisitResult.SKIP_SIBLINGS && !path.equals(root)) {
+          skipDirectory = path.getParent();
+          endSkipDirectory = true;
+        }
+      }
+    }
+  }
+
+  /**
+   * An entry produced by the walker.
+   */
+  public static class Entry {
+
+    /**
+     * The type of entry, corresponding to the {@link FileVisitor} methods.
+     */
+    public enum Type {
+      DIRECTORY_START, FILE, DIRECTORY_END, FAILED, END;
+    }
+
+    private final Type type;
+    private final Path path;
+    private final BasicFileAttributes attributes;
+    private final IOException exception;
+
+    private Entry(Type type, Path path, BasicFileAttributes attributes, IOException exception) {
+      this.type = type;
+      this.path = path;
+      this.attributes = attributes;
+      this.exception = exception;
+    }
+
+    public Type getType() {
+      return type;
+    }
+
+    public Path getPath() {
+      return path;
+    }
+
+    public BasicFileAttributes getAttributes() {
+      return attributes;
+    }
+
+    public IOException getException() {
+      return exception;
+    }
+  }
+}
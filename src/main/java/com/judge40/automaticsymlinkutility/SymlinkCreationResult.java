@@ -19,14 +19,23 @@
 
 package com.judge40.automaticsymlinkutility;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * An object representing the result of trying to create a symbolic link, the result includes the
- * result status and a message with more details about the result. <br/>
+ * result status, the reason for the status and a message with more details about the result. <br/>
  * Three status are possible: <br/>
- * CREATED - When a symbolic link is created. <br/>
- * FAILED - When an error occurred trying to create the symbolic link. <br/>
+ * CREATED - When a symbolic link is created, restored in restore mode, removed in gc mode or
+ * repaired in audit mode. <br/>
+ * FAILED - When an error occurred trying to create the symbolic link, or a stale or drifted link
+ * was found in gc or audit mode. <br/>
  * SKIPPED - When the symbolic link creation was skipped because of the state of the link and target
- * paths.
+ * paths. <br/>
+ * The message is only formatted when it is first requested, so results are cheap to create when
+ * only the status and reason are used.
  */
 public class SymlinkCreationResult {
 
@@ -34,19 +43,234 @@ public class SymlinkCreationResult {
     CREATED, FAILED, SKIPPED;
   }
 
-  private Status status;
+  /**
+   * The reasons a result can have, each reason has a fixed status and a message template where the
+   * arguments are the link path, the target path, the number of affected paths, the affected paths
+   * and the first affected path.
+   */
+  public enum Reason {
+    LINKED(Status.CREATED, "A link was created between '%1$s' and '%2$s'."),
+    MOVED_FILE(Status.CREATED, "A link was created between '%1$s' and '%2$s'."),
+    MOVED_DIR(Status.CREATED, "A link was created between '%1$s' and '%2$s'."),
+    MERGED_FILE(Status.CREATED,
+        "A link was created between '%1$s' and '%2$s' after merging their contents."),
+    MERGED_DIR(Status.CREATED,
+        "A link was created between '%1$s' and '%2$s' after merging their contents."),
+    ALREADY_LINK(Status.SKIPPED,
+        "A link was not created because '%1$s' is already a symbolic link."),
+    BOTH_EXIST(Status.SKIPPED, "A link was not created because both '%1$s' and '%2$s' exist."),
+    NEITHER_EXIST(Status.SKIPPED,
+        "A link was not created because neither '%1$s' or '%2$s' exist."),
+    SYMLINKS_NOT_SUPPORTED(Status.FAILED,
+        "A link was not created because the file store of '%1$s' does not support symbolic "
+            + "links."),
+    CONTENTS_DIFFER(Status.FAILED,
+        "A link was not created because '%1$s' and '%2$s' have different contents."),
+    MERGE_CONFLICT(Status.FAILED,
+        "A link was not created because %3$d files in '%1$s' conflict with '%2$s': %4$s"),
+    NOT_MERGEABLE(Status.FAILED,
+        "A link was not created because '%1$s' and '%2$s' can not be merged."),
+    VERIFICATION_FAILED(Status.FAILED,
+        "A link was not created because %3$d files in '%1$s' failed verification when copied to "
+            + "'%2$s': %4$s"),
+    UNKNOWN_STATE(Status.FAILED,
+        "A link was not created because '%1$s' and '%2$s' were in an unknown state."),
+    RESTORED_FILE(Status.CREATED,
+        "The link '%1$s' was restored by moving '%2$s' back in its place."),
+    RESTORED_DIR(Status.CREATED,
+        "The link '%1$s' was restored by moving '%2$s' back in its place."),
+    NOT_LINK(Status.SKIPPED, "A link was not restored because '%1$s' is not a symbolic link."),
+    LINK_MISMATCH(Status.SKIPPED,
+        "A link was not restored because '%1$s' does not link to '%2$s'."),
+    TARGET_MISSING(Status.SKIPPED,
+        "A link was not restored because its target '%2$s' does not exist."),
+    RESTORE_VERIFICATION_FAILED(Status.FAILED,
+        "A link was not restored because %3$d files in '%2$s' failed verification when copied "
+            + "beside '%1$s': %4$s"),
+    LIVE_LINK(Status.SKIPPED, "The link '%1$s' to '%2$s' is not stale."),
+    NO_LINK(Status.SKIPPED, "There is no symbolic link at '%1$s' to check."),
+    DANGLING_LINK(Status.FAILED,
+        "The link '%1$s' is stale because its target '%2$s' does not exist."),
+    MISDIRECTED_LINK(Status.FAILED,
+        "The link '%1$s' is stale because it points to '%5$s' rather than '%2$s'."),
+    REMOVED_LINK(Status.CREATED, "The stale link '%1$s' to '%2$s' was removed."),
+    IN_SYNC(Status.SKIPPED, "The link '%1$s' points to '%2$s' as defined."),
+    DRIFTED(Status.FAILED, "The link '%1$s' has drifted, it points to '%5$s' rather than '%2$s'."),
+    REPAIRED(Status.CREATED, "The drifted link '%1$s' was repointed from '%5$s' to '%2$s'."),
+    MISSING_LINK(Status.FAILED, "The link '%1$s' has drifted, it is missing rather than pointing "
+        + "to '%2$s'."),
+    REPLACED_LINK(Status.FAILED, "The link '%1$s' has drifted, it has been replaced by a file "
+        + "rather than pointing to '%2$s'."),
+    RECREATED(Status.CREATED, "The missing link '%1$s' to '%2$s' was recreated."),
+    IO_ERROR(Status.FAILED, null);
+
+    private final Status status;
+    private final String template;
+
+    private Reason(Status status, String template) {
+      this.status = status;
+      this.template = template;
+    }
+
+    public Status getStatus() {
+      return status;
+    }
+  }
+
+  private final Status status;
+  private final Reason reason;
+  private final Path link;
+  private final Path target;
+  private final List<Path> paths;
+  private final IOException cause;
   private String message;
+  private long duration;
+  private long bytesMoved;
+  private long filesMoved;
 
+  /**
+   * Constructs a SymlinkCreationResult with a status and pre-formatted message, the result will
+   * not have a reason.
+   * 
+   * @param status The status of the result.
+   * @param message The message with details of the result.
+   */
   public SymlinkCreationResult(Status status, String message) {
     this.status = status;
     this.message = message;
+    reason = null;
+    link = null;
+    target = null;
+    paths = Collections.emptyList();
+    cause = null;
+  }
+
+  /**
+   * Constructs a SymlinkCreationResult with a reason and the paths it applies to.
+   * 
+   * @param reason The reason for the result.
+   * @param link The path of the link.
+   * @param target The path of the target.
+   */
+  public SymlinkCreationResult(Reason reason, Path link, Path target) {
+    this(reason, link, target, Collections.emptyList(), null);
+  }
+
+  /**
+   * Constructs a SymlinkCreationResult with a reason, the paths it applies to and the files
+   * affected, such as conflicting files or files which failed verification.
+   * 
+   * @param reason The reason for the result.
+   * @param link The path of the link.
+   * @param target The path of the target.
+   * @param paths The files affected.
+   */
+  public SymlinkCreationResult(Reason reason, Path link, Path target, List<Path> paths) {
+    this(reason, link, target, paths, null);
+  }
+
+  /**
+   * Constructs a SymlinkCreationResult for an error which occurred creating the link.
+   * 
+   * @param link The path of the link.
+   * @param target The path of the target.
+   * @param cause The error which occurred.
+   */
+  public SymlinkCreationResult(Path link, Path target, IOException cause) {
+    this(Reason.IO_ERROR, link, target, Collections.emptyList(), cause);
+  }
+
+  private SymlinkCreationResult(Reason reason, Path link, Path target, List<Path> paths,
+      IOException cause) {
+    this.status = reason.getStatus();
+    this.reason = reason;
+    this.link = link;
+    this.target = target;
+    this.paths = paths;
+    this.cause = cause;
   }
 
   public Status getStatus() {
     return status;
   }
 
+  public Reason getReason() {
+    return reason;
+  }
+
+  public Path getLink() {
+    return link;
+  }
+
+  public Path getTarget() {
+    return target;
+  }
+
+  public List<Path> getPaths() {
+    return Collections.unmodifiableList(paths);
+  }
+
+  public IOException getCause() {
+    return cause;
+  }
+
+  /**
+   * Gets the message with details of the result, formatting it from the reason if it has not been
+   * formatted yet.
+   * 
+   * @return The result message.
+   */
   public String getMessage() {
+    if (message == null && reason != null) {
+      if (cause != null) {
+        message = cause.getLocalizedMessage();
+      } else {
+        message = String.format(reason.template, link, target, paths.size(), paths,
+            paths.isEmpty() ? null : paths.get(0));
+      }
+    }
+
     return message;
   }
+
+  /**
+   * Gets the time taken to produce the result.
+   * 
+   * @return The duration in nanoseconds.
+   */
+  public long getDuration() {
+    return duration;
+  }
+
+  public void setDuration(long duration) {
+    this.duration = duration;
+  }
+
+  /**
+   * Gets the number of bytes moved to the target, which are the bytes copied to the target's file
+   * store. A file or directory which is renamed does not move any bytes.
+   * 
+   * @return The bytes moved.
+   */
+  public long getBytesMoved() {
+    return bytesMoved;
+  }
+
+  public void setBytesMoved(long bytesMoved) {
+    this.bytesMoved = bytesMoved;
+  }
+
+  /**
+   * Gets the number of files moved to the target, a directory which is renamed in a single
+   * operation does not move any files.
+   * 
+   * @return The files moved.
+   */
+  public long getFilesMoved() {
+    return filesMoved;
+  }
+
+  public void setFilesMoved(long filesMoved) {
+    this.filesMoved = filesMoved;
+  }
 }
@@ -0,0 +1,366 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import com.judge40.automaticsymlinkutility.JsonLinesResultSink.JsonObject;
+import com.judge40.automaticsymlinkutility.SymlinkOptions.OutputFormat;
+
+import org.xml.sax.SAXException;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A resident server which applies definition files on request, keeping the JVM, compiled schema
+ * and caches warm between requests. The daemon only listens on the loopback address. <br/>
+ * Requests are authenticated with a random token, written to a token file which only the user
+ * running the daemon can read. The token file is deleted when the daemon is closed. <br/>
+ * Each connection sends the token on the first line, then a single request line with tab
+ * separated fields, and receives the results in the manager's output format before the connection
+ * is closed: <br/>
+ * apply&lt;tab&gt;&lt;definition file&gt; - Apply a whole definition file. <br/>
+ * apply&lt;tab&gt;&lt;definition file&gt;&lt;tab&gt;&lt;group&gt; - Apply a single group of a
+ * definition file. <br/>
+ * stop - Stop the daemon. <br/>
+ * A client which does not send its request within the request timeout is disconnected, and a
+ * connection which fails is logged to {@link System#err} without stopping the daemon. <br/>
+ * A definition file may also be rerun on a {@link ReconcileSchedule}, with the results written to
+ * a stream. Requests and reconcile runs are handled one at a time, so definitions applied
+ * concurrently can not conflict.
+ */
+public class SymlinkDaemon implements Closeable {
+
+  private static final String APPLY_COMMAND = "apply";
+  private static final String STOP_COMMAND = "stop";
+  private static final String FIELD_SEPARATOR = "\t";
+  private static final int DEFAULT_REQUEST_TIMEOUT = 10_000;
+  private static final String TOKEN_FILE_PREFIX = "automatic-symlink-utility-";
+  private static final String TOKEN_FILE_SUFFIX = ".token";
+  private static final int TOKEN_BYTES = 32;
+
+  private final SymlinkManager symlinkManager;
+  private final ServerSocketChannel serverChannel;
+  private final Path tokenFile;
+  private final byte[] token;
+  private final Object applyLock = new Object();
+  private int requestTimeout = DEFAULT_REQUEST_TIMEOUT;
+  private final ScheduledThreadPoolExecutor reconciler = createReconciler();
+
+  /**
+   * Constructs a SymlinkDaemon which applies definitions with a manager, listening on a loopback
+   * port and writing its token file to the user's home directory.
+   * 
+   * @param symlinkManager The {@link SymlinkManager} to apply definitions with.
+   * @param port The port to listen on, or 0 for any free port.
+   * @throws IOException If the port can not be listened on or the token file can not be written.
+   */
+  public SymlinkDaemon(SymlinkManager symlinkManager, int port) throws IOException {
+    this(symlinkManager, port, Paths.get(System.getProperty("user.home")));
+  }
+
+  /**
+   * Constructs a SymlinkDaemon which applies definitions with a manager, listening on a loopback
+   * port and writing its token file to a directory.
+   * 
+   * @param symlinkManager The {@link SymlinkManager} to apply definitions with.
+   * @param port The port to listen on, or 0 for any free port.
+   * @param tokenDirectory The directory to write the token file to.
+   * @throws IOException If the port can not be listened on or the token file can not be written.
+   */
+  public SymlinkDaemon(SymlinkManager symlinkManager, int port, Path tokenDirectory)
+      throws IOException {
+    this.symlinkManager = symlinkManager;
+    serverChannel = ServerSocketChannel.open();
+
+    try {
+      serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+      tokenFile = tokenDirectory.resolve(TOKEN_FILE_PREFIX + getPort() + TOKEN_FILE_SUFFIX);
+      token = createToken(tokenFile);
+    } catch (IOException ioe) {
+      serverChannel.close();
+      throw ioe;
+    }
+  }
+
+  /**
+   * Creates the executor which reconcile runs are scheduled on. Its thread is not a daemon thread,
+   * so the JVM can not exit part way through a run, and runs which are waiting to start are
+   * discarded when it is shut down.
+   * 
+   * @return The reconcile executor.
+   */
+  private static ScheduledThreadPoolExecutor createReconciler() {
+    ScheduledThreadPoolExecutor reconciler =
+        new ScheduledThreadPoolExecutor(1, runnable -> new Thread(runnable, "reconciler"));
+    reconciler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    return reconciler;
+  }
+
+  /**
+   * Creates a random token and writes it to a token file which only the owner can read and write,
+   * replacing any token file left by a daemon which was not closed.
+   * 
+   * @param tokenFile The token file to write.
+   * @return The token, as the bytes of its hexadecimal form.
+   * @throws IOException If an error occurs writing the token file.
+   */
+  private static byte[] createToken(Path tokenFile) throws IOException {
+    byte[] randomBytes = new byte[TOKEN_BYTES];
+    new SecureRandom().nextBytes(randomBytes);
+    StringBuilder hex = new StringBuilder();
+
+    for (byte randomByte : randomBytes) {
+      hex.append(String.format("%02x", randomByte));
+    }
+
+    byte[] tokenBytes = hex.toString().getBytes(StandardCharsets.UTF_8);
+    Files.deleteIfExists(tokenFile);
+
+    if (Files.getFileStore(tokenFile.getParent())
+        .supportsFileAttributeView(PosixFileAttributeView.class)) {
+      Files.createFile(tokenFile,
+          PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+    } else {
+      Files.createFile(tokenFile);
+    }
+
+    Files.write(tokenFile, tokenBytes);
+    return tokenBytes;
+  }
+
+  /**
+   * Gets the port the daemon is listening on.
+   * 
+   * @return The port.
+   * @throws IOException If the daemon has been closed.
+   */
+  public int getPort() throws IOException {
+    return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+  }
+
+  /**
+   * Gets the file containing the token which requests must be authenticated with.
+   * 
+   * @return The token file.
+   */
+  public Path getTokenFile() {
+    return tokenFile;
+  }
+
+  /**
+   * Sets the time a client has to send its request before it is disconnected.
+   * 
+   * @param requestTimeout The timeout in milliseconds.
+   */
+  void setRequestTimeout(int requestTimeout) {
+    this.requestTimeout = requestTimeout;
+  }
+
+  /**
+   * Handles requests until a stop request is received or the daemon is closed. An error on a
+   * single connection is logged and does not stop the daemon.
+   * 
+   * @throws IOException If an error occurs accepting a connection.
+   */
+  public void run() throws IOException {
+    while (serverChannel.isOpen()) {
+      SocketChannel acceptedChannel;
+
+      try {
+        acceptedChannel = serverChannel.accept();
+      } catch (ClosedChannelException cce) {
+        // The daemon was closed while waiting for a connection.
+        break;
+      }
+
+      try (SocketChannel channel = acceptedChannel) {
+        handle(channel);
+      } catch (IOException | RuntimeException exception) {
+        System.err.println(String.format("Error handling a request: %s", exception));
+      }
+    }
+  }
+
+  /**
+   * Starts rerunning a definition file on a schedule, until the daemon is closed. The first run
+   * is after a jittered minimum interval.
+   * 
+   * @param definitionFile The definition file to rerun.
+   * @param schedule The {@link ReconcileSchedule} to rerun the definition file on.
+   * @param out The stream to write the results of each run to.
+   */
+  public void reconcile(Path definitionFile, ReconcileSchedule schedule, PrintStream out) {
+    reconciler.schedule(() -> reconcileRun(definitionFile, schedule, out), schedule.nextDelay(),
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Runs a definition file once, then schedules the next run from the adapted interval.
+   * 
+   * @param definitionFile The definition file to run.
+   * @param schedule The {@link ReconcileSchedule} to adapt.
+   * @param out The stream to write the results to.
+   */
+  private void reconcileRun(Path definitionFile, ReconcileSchedule schedule, PrintStream out) {
+    try {
+      RunSummary summary;
+
+      synchronized (applyLock) {
+        ResultSink resultSink =
+            AutomaticSymlinkUtility.createResultSink(symlinkManager.getOptions(), out);
+        summary = symlinkManager.apply(definitionFile, resultSink);
+      }
+
+      schedule.recordRun(summary);
+    } catch (IOException | SAXException | RuntimeException exception) {
+      reportError(out, exception.getMessage());
+      schedule.recordFailure();
+    }
+
+    out.flush();
+
+    try {
+      reconcile(definitionFile, schedule, out);
+    } catch (RejectedExecutionException ree) {
+      // The daemon was closed during the run, so no more runs are scheduled.
+    }
+  }
+
+  /**
+   * Reads the token and request from a connection, handles the request if the token matches and
+   * writes the response.
+   * 
+   * @param channel The connection.
+   * @throws IOException If an error occurs reading the request, including the client not sending
+   *         it within the request timeout, or writing the response.
+   */
+  private void handle(SocketChannel channel) throws IOException {
+    channel.socket().setSoTimeout(requestTimeout);
+    BufferedReader in = new BufferedReader(
+        new InputStreamReader(channel.socket().getInputStream(), StandardCharsets.UTF_8));
+    PrintStream out = new PrintStream(new BufferedOutputStream(channel.socket().getOutputStream()),
+        false, StandardCharsets.UTF_8.name());
+    String requestToken = in.readLine();
+
+    if (requestToken == null
+        || !MessageDigest.isEqual(token, requestToken.getBytes(StandardCharsets.UTF_8))) {
+      reportError(out, "The request was not authenticated.");
+      out.flush();
+      return;
+    }
+
+    String request = in.readLine();
+
+    try {
+      handleRequest(request == null ? "" : request, out);
+    } catch (IOException | SAXException | RuntimeException exception) {
+      reportError(out, exception.getMessage());
+    }
+
+    out.flush();
+  }
+
+  /**
+   * Handles a single request.
+   * 
+   * @param request The request line.
+   * @param out The stream to write the response to.
+   * @throws IOException If an error occurs reading the definition file.
+   * @throws SAXException If the definition file is not valid.
+   * @throws IllegalArgumentException If the request is not recognised.
+   */
+  private void handleRequest(String request, PrintStream out) throws IOException, SAXException {
+    String[] fields = request.split(FIELD_SEPARATOR, -1);
+
+    if (fields.length == 1 && fields[0].equals(STOP_COMMAND)) {
+      close();
+    } else if ((fields.length == 2 || fields.length == 3) && fields[0].equals(APPLY_COMMAND)) {
+      String groupName = fields.length == 3 ? fields[2] : null;
+      ResultSink resultSink =
+          AutomaticSymlinkUtility.createResultSink(symlinkManager.getOptions(), out);
+
+      synchronized (applyLock) {
+        symlinkManager.apply(symlinkManager.getFileSystem().getPath(fields[1]), groupName,
+            resultSink);
+      }
+    } else {
+      throw new IllegalArgumentException(String.format("Unknown request '%s'.", request));
+    }
+  }
+
+  /**
+   * Writes an error in the manager's output format.
+   * 
+   * @param out The stream to write the error to.
+   * @param message The error message.
+   */
+  private void reportError(PrintStream out, String message) {
+    if (symlinkManager.getOptions().getFormat() == OutputFormat.JSON) {
+      out.println(new JsonObject("error").add("message", message));
+    } else {
+      out.println("Error: " + message);
+    }
+  }
+
+  /**
+   * Stops listening for requests and reconciling and deletes the token file. A request or run in
+   * progress is completed before this returns, runs which have not started are discarded.
+   * 
+   * @throws IOException If an error occurs closing the port or deleting the token file.
+   */
+  @Override
+  public void close() throws IOException {
+    reconciler.shutdown();
+    serverChannel.close();
+
+    try {
+      while (!reconciler.awaitTermination(1, TimeUnit.MINUTES)) {
+        // Keep waiting, a run can not be interrupted part way through moving files.
+      }
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+    }
+
+    // Wait for any request being applied by another thread.
+    synchronized (applyLock) {
+      Files.deleteIfExists(tokenFile);
+    }
+  }
+}
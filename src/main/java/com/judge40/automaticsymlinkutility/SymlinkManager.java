@@ -0,0 +1,379 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import com.judge40.automaticsymlinkutility.PhaseTimings.Phase;
+
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+
+/**
+ * Manages symbolic links within a file system, for use when embedding the utility in another
+ * application. The symlinks schema is compiled once when the manager is constructed and reused by
+ * every definition applied, so a single manager should be kept for the life of the application.
+ * <br/>
+ * A manager may be shared between threads, each definition applied is parsed with its own parser.
+ * When the options' parallelism is greater than one the manager keeps a pool of that many daemon
+ * threads, shared by every definition applied, to process the symlinks within each group.
+ * <br/>
+ * The manager's phase timings and file operation statistics are kept in its
+ * {@link OperationContext}, so managers do not share them. A manager should be closed once it is
+ * no longer needed, which waits for any symlinks still being processed and then stops its threads
+ * and closes its context, after which it can not be used.
+ */
+public class SymlinkManager implements Closeable {
+
+  private final FileSystem fileSystem;
+  private final SymlinkOptions options;
+  private final SAXParserFactory saxParserFactory;
+  private final ExecutorService executor;
+  private final OperationContext context;
+  private volatile boolean closed;
+
+  /**
+   * Constructs a SymlinkManager for the default file system with the default options.
+   * 
+   * @throws SAXException If the symlinks schema can not be loaded.
+   */
+  public SymlinkManager() throws SAXException {
+    this(FileSystems.getDefault(), new SymlinkOptions());
+  }
+
+  /**
+   * Constructs a SymlinkManager for a file system with the options to create symbolic links with.
+   * 
+   * @param fileSystem The {@link FileSystem} the links, targets and definition files are in.
+   * @param options The options controlling how the symbolic links are created.
+   * @throws SAXException If the symlinks schema can not be loaded.
+   */
+  public SymlinkManager(FileSystem fileSystem, SymlinkOptions options) throws SAXException {
+    this(fileSystem, options, new OperationContext());
+  }
+
+  /**
+   * Constructs a SymlinkManager for a file system with the options to create symbolic links with
+   * and the context to time and record its file operations in.
+   * 
+   * @param fileSystem The {@link FileSystem} the links, targets and definition files are in.
+   * @param options The options controlling how the symbolic links are created.
+   * @param context The {@link OperationContext} the manager's phases and file operations are
+   *        timed and recorded in, which is closed with the manager.
+   * @throws SAXException If the symlinks schema can not be loaded.
+   */
+  public SymlinkManager(FileSystem fileSystem, SymlinkOptions options, OperationContext context)
+      throws SAXException {
+    this.fileSystem = fileSystem;
+    this.options = options;
+    this.context = context;
+
+    long startTime = System.nanoTime();
+    SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+    Schema schema = schemaFactory
+        .newSchema(SymlinkManager.class.getClassLoader().getResource("symlinks.xsd"));
+    saxParserFactory = SAXParserFactory.newInstance();
+    saxParserFactory.setSchema(schema);
+    context.getTimings().record(Phase.SCHEMA_LOADING, startTime);
+
+    if (options.getParallelism() > 1) {
+      AtomicInteger threadCount = new AtomicInteger();
+      executor = Executors.newFixedThreadPool(options.getParallelism(), runnable -> {
+        Thread thread = new Thread(runnable, "symlink-worker-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+    } else {
+      executor = null;
+    }
+  }
+
+  public FileSystem getFileSystem() {
+    return fileSystem;
+  }
+
+  public SymlinkOptions getOptions() {
+    return options;
+  }
+
+  public OperationContext getContext() {
+    return context;
+  }
+
+  /**
+   * Creates a symbolic link between the given paths, moving or merging an existing link path in to
+   * the target path as described by {@link AutomaticSymlinkUtility}.
+   * 
+   * @param link The path to create the symbolic link at.
+   * @param target The path to the file to link to.
+   * @return The {@link SymlinkCreationResult}.
+   */
+  public SymlinkCreationResult createSymbolicLink(String link, String target) {
+    return createSymbolicLink(fileSystem.getPath(link), fileSystem.getPath(target));
+  }
+
+  /**
+   * Creates a symbolic link between the given paths, moving or merging an existing link path in to
+   * the target path as described by {@link AutomaticSymlinkUtility}.
+   * 
+   * @param link The path to create the symbolic link at.
+   * @param target The path to the file to link to.
+   * @return The {@link SymlinkCreationResult}.
+   * @throws IllegalArgumentException If either path is not from the manager's file system.
+   */
+  public SymlinkCreationResult createSymbolicLink(Path link, Path target) {
+    if (!link.getFileSystem().equals(fileSystem) || !target.getFileSystem().equals(fileSystem)) {
+      throw new IllegalArgumentException("The paths are not from the manager's file system.");
+    }
+
+    checkOpen();
+    return AutomaticSymlinkUtility.createSymbolicLink(link, target, options, context);
+  }
+
+  /**
+   * Applies a symlinks definition file, creating the defined symbolic links.
+   * 
+   * @param definitionFile The definition file to apply.
+   * @return The result of each symbolic link which was not skipped, in definition order.
+   * @throws IOException If an error occurs reading the definition file.
+   * @throws SAXException If the definition file is not valid.
+   */
+  public List<SymlinkCreationResult> apply(Path definitionFile) throws IOException, SAXException {
+    CollectingResultSink resultSink = new CollectingResultSink();
+    apply(definitionFile, resultSink);
+    return resultSink.getResults();
+  }
+
+  /**
+   * Applies a symlinks definition file, creating the defined symbolic links and reporting progress
+   * and results to a sink. The sink is not closed.
+   * 
+   * @param definitionFile The definition file to apply.
+   * @param resultSink The sink to report progress and results to.
+   * @return The {@link RunSummary} of the results.
+   * @throws IOException If an error occurs reading the definition file.
+   * @throws SAXException If the definition file is not valid.
+   */
+  public RunSummary apply(Path definitionFile, ResultSink resultSink)
+      throws IOException, SAXException {
+    return apply(definitionFile, null, resultSink);
+  }
+
+  /**
+   * Applies a single group of a symlinks definition file, creating the group's symbolic links and
+   * reporting progress and results to a sink. The sink is not closed.
+   * 
+   * @param definitionFile The definition file to apply.
+   * @param groupName The name of the group to apply, or null to apply the whole file.
+   * @param resultSink The sink to report progress and results to.
+   * @return The {@link RunSummary} of the results.
+   * @throws IOException If an error occurs reading the definition file.
+   * @throws SAXException If the definition file is not valid.
+   */
+  public RunSummary apply(Path definitionFile, String groupName, ResultSink resultSink)
+      throws IOException, SAXException {
+    checkOpen();
+
+    try (InputStream definitions = Files.newInputStream(definitionFile)) {
+      InputSource inputSource = new InputSource(definitions);
+      inputSource.setSystemId(definitionFile.toUri().toString());
+      return apply(inputSource, groupName, resultSink);
+    }
+  }
+
+  /**
+   * Applies symlink definitions, creating the defined symbolic links and reporting progress and
+   * results to a sink. The sink is not closed.
+   * 
+   * @param definitions The symlink definitions to apply.
+   * @param resultSink The sink to report progress and results to.
+   * @return The {@link RunSummary} of the results.
+   * @throws IOException If an error occurs reading the definitions.
+   * @throws SAXException If the definitions are not valid.
+   */
+  public RunSummary apply(InputSource definitions, ResultSink resultSink)
+      throws IOException, SAXException {
+    return apply(definitions, null, resultSink);
+  }
+
+  /**
+   * Applies a single group of symlink definitions, creating the group's symbolic links and
+   * reporting progress and results to a sink. The sink is not closed.
+   * 
+   * @param definitions The symlink definitions to apply.
+   * @param groupName The name of the group to apply, or null to apply all of the definitions.
+   * @param resultSink The sink to report progress and results to.
+   * @return The {@link RunSummary} of the results.
+   * @throws IOException If an error occurs reading the definitions.
+   * @throws SAXException If the definitions are not valid.
+   */
+  public RunSummary apply(InputSource definitions, String groupName, ResultSink resultSink)
+      throws IOException, SAXException {
+    checkOpen();
+    PhaseTimings timings = context.getTimings();
+    long startTime = System.nanoTime();
+    XMLReader xmlReader = newXmlReader();
+    timings.record(Phase.PARSER_CONSTRUCTION, startTime);
+
+    SymlinksHandler symlinksHandler =
+        new SymlinksHandler(options, resultSink, fileSystem, groupName, executor, context);
+    xmlReader.setContentHandler(symlinksHandler);
+    xmlReader.setErrorHandler(symlinksHandler);
+
+    long parseStartTime = System.nanoTime();
+    xmlReader.parse(definitions);
+    timings.record(Phase.PARSING, parseStartTime);
+    return symlinksHandler.getSummary();
+  }
+
+  /**
+   * Closes the manager, waiting for any symlinks still being processed and then stopping the
+   * manager's threads and closing its context. If interrupted while waiting then the threads are
+   * interrupted.
+   */
+  @Override
+  public void close() {
+    closed = true;
+
+    if (executor != null) {
+      executor.shutdown();
+
+      try {
+        while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+          // Wait for the symlinks still being processed by other threads.
+        }
+      } catch (InterruptedException ie) {
+        executor.shutdownNow();
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    context.close();
+  }
+
+  /**
+   * Checks that the manager has not been closed.
+   * 
+   * @throws IllegalStateException If the manager has been closed.
+   */
+  private void checkOpen() {
+    if (closed) {
+      throw new IllegalStateException("The manager has been closed.");
+    }
+  }
+
+  /**
+   * Creates a new reader which validates against the symlinks schema, the parser factory is not
+   * thread safe so readers are created one at a time.
+   * 
+   * @return The {@link XMLReader}.
+   * @throws SAXException If the reader can not be created.
+   */
+  private XMLReader newXmlReader() throws SAXException {
+    synchronized (saxParserFactory) {
+      try {
+        return saxParserFactory.newSAXParser().getXMLReader();
+      } catch (ParserConfigurationException pce) {
+        throw new SAXException(pce);
+      }
+    }
+  }
+
+  /**
+   * A result sink which collects the results reported to it.
+   */
+  private static class CollectingResultSink implements ResultSink {
+
+    private final List<SymlinkCreationResult> results = new ArrayList<>();
+
+    private List<SymlinkCreationResult> getResults() {
+      return Collections.unmodifiableList(results);
+    }
+
+    @Override
+    public void started() {
+    }
+
+    @Override
+    public void groupStarted(String groupName) {
+    }
+
+    @Override
+    public void groupSkipped(String groupName, String contextPath) {
+    }
+
+    @Override
+    public void symlinkStarted(String groupName) {
+    }
+
+    @Override
+    public void symlinkSkipped(String groupName, String contextPath) {
+    }
+
+    @Override
+    public void result(String groupName, SymlinkCreationResult result) {
+      results.add(result);
+    }
+
+    @Override
+    public void groupFinished(String groupName) {
+    }
+
+    @Override
+    public void summary(RunSummary summary) {
+    }
+
+    @Override
+    public void timings(PhaseTimings timings) {
+    }
+
+    @Override
+    public void latencies(FileOperationStats operationStats) {
+    }
+
+    @Override
+    public void finished() {
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
@@ -0,0 +1,456 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The options controlling how symbolic links are managed, along with any non-option arguments.
+ * <br/>
+ * The following options are supported: <br/>
+ * --mode=&lt;apply|restore|gc|audit&gt; - Whether to create the defined links, the default, to
+ * restore them by removing each link which points to its declared target and moving the target's
+ * contents back to the link path, to find stale links whose targets do not exist or which point
+ * somewhere other than their declared target, or to audit which links have drifted from their
+ * declared target. <br/>
+ * --gc-root=&lt;directory&gt; - In gc mode, also find links whose targets do not exist anywhere
+ * within the directory, may be given more than once. <br/>
+ * --remove - In gc mode, remove the stale links found rather than only reporting them. <br/>
+ * --repair - In audit mode, repoint the drifted links found to their declared targets rather than
+ * only reporting them. <br/>
+ * --parallel=&lt;threads&gt; - The number of symlinks within a group to process concurrently, 1 by
+ * default. Links processed concurrently must not overlap. <br/>
+ * --merge - When both the link and target exist, merge the link's contents in to the target.
+ * Files with identical contents are removed from the link path and any differing files are
+ * reported as conflicts. <br/>
+ * --verify - When files are moved between file stores, copy them and verify the copies' checksums
+ * before the sources are deleted. <br/>
+ * --format=&lt;text|json&gt; - The format to output results in, human-readable text by default or
+ * one JSON object per line. <br/>
+ * --messages - In json format, include the formatted message of each result as well as its reason
+ * and paths. <br/>
+ * --summary[=&lt;file&gt;] - Output a summary of the run's results per group, to the given file or
+ * after the results. <br/>
+ * --metrics-file=&lt;file&gt; - Write metrics about the run to a file in the Prometheus text
+ * exposition format. <br/>
+ * --timings - Output the time spent in each phase of the run and the latencies of file system
+ * operations after the results. <br/>
+ * --slow-threshold=&lt;milliseconds&gt; - Log file system operations which take longer than the
+ * threshold to standard error. <br/>
+ * --daemon=&lt;port&gt; - Stay resident and apply definition files on request, listening on the
+ * given loopback port, or any free port when 0, see {@link SymlinkDaemon}. <br/>
+ * --reconcile=&lt;file&gt; - When running as a daemon, rerun a definition file on an adaptive
+ * schedule, see {@link ReconcileSchedule}. <br/>
+ * --reconcile-interval=&lt;min&gt;:&lt;max&gt; - The minimum and maximum seconds between
+ * reconcile runs, 60:3600 by default.
+ */
+public class SymlinkOptions {
+
+  /**
+   * The formats results can be output in.
+   */
+  public enum OutputFormat {
+    TEXT, JSON;
+  }
+
+  /**
+   * The modes the defined symlinks can be processed in.
+   */
+  public enum Mode {
+    APPLY, RESTORE, GC, AUDIT;
+  }
+
+  private static final String OPTION_PREFIX = "--";
+  private static final String MODE_OPTION = "--mode";
+  private static final String PARALLEL_OPTION = "--parallel";
+  private static final String GC_ROOT_OPTION = "--gc-root";
+  private static final String REMOVE_OPTION = "--remove";
+  private static final String REPAIR_OPTION = "--repair";
+  private static final String MERGE_OPTION = "--merge";
+  private static final String VERIFY_OPTION = "--verify";
+  private static final String FORMAT_OPTION = "--format";
+  private static final String MESSAGES_OPTION = "--messages";
+  private static final String SUMMARY_OPTION = "--summary";
+  private static final String METRICS_FILE_OPTION = "--metrics-file";
+  private static final String TIMINGS_OPTION = "--timings";
+  private static final String SLOW_THRESHOLD_OPTION = "--slow-threshold";
+  private static final String DAEMON_OPTION = "--daemon";
+  private static final int MAX_PORT = 65535;
+  private static final String RECONCILE_OPTION = "--reconcile";
+  private static final String RECONCILE_INTERVAL_OPTION = "--reconcile-interval";
+  private static final long DEFAULT_MIN_RECONCILE_INTERVAL = 60;
+  private static final long DEFAULT_MAX_RECONCILE_INTERVAL = 3600;
+
+  private Mode mode = Mode.APPLY;
+  private int parallelism = 1;
+  private final List<Path> gcRoots = new ArrayList<>();
+  private boolean remove = false;
+  private boolean repair = false;
+  private boolean merge = false;
+  private boolean verify = false;
+  private OutputFormat format = OutputFormat.TEXT;
+  private boolean messages = false;
+  private boolean summary = false;
+  private Path summaryFile = null;
+  private Path metricsFile = null;
+  private boolean timings = false;
+  private long slowThreshold = -1;
+  private int daemonPort = -1;
+  private Path reconcileFile = null;
+  private long minReconcileInterval = DEFAULT_MIN_RECONCILE_INTERVAL;
+  private long maxReconcileInterval = DEFAULT_MAX_RECONCILE_INTERVAL;
+  private final List<String> arguments = new ArrayList<>();
+
+  /**
+   * Parses the command line arguments, arguments starting with "--" are treated as options and all
+   * others are kept as non-option arguments.
+   * 
+   * @param args The command line arguments.
+   * @return The {@link SymlinkOptions} parsed from the arguments.
+   * @throws IllegalArgumentException If an option is not recognised.
+   */
+  public static SymlinkOptions parse(String[] args) {
+    SymlinkOptions options = new SymlinkOptions();
+
+    for (String arg : args) {
+      if (arg.startsWith(OPTION_PREFIX)) {
+        options.parseOption(arg);
+      } else {
+        options.arguments.add(arg);
+      }
+    }
+
+    return options;
+  }
+
+  /**
+   * Parses a single option and applies it.
+   * 
+   * @param option The option to parse.
+   * @throws IllegalArgumentException If the option is not recognised.
+   */
+  private void parseOption(String option) {
+    int separatorIndex = option.indexOf('=');
+    String name = separatorIndex == -1 ? option : option.substring(0, separatorIndex);
+    String value = separatorIndex == -1 ? null : option.substring(separatorIndex + 1);
+
+    if (name.equals(MODE_OPTION) && value != null) {
+      try {
+        mode = Mode.valueOf(value.toUpperCase(Locale.ROOT));
+      } catch (IllegalArgumentException iae) {
+        throw new IllegalArgumentException(
+            String.format("Unknown value '%s' for option '%s'.", value, name), iae);
+      }
+    } else if (name.equals(PARALLEL_OPTION) && value != null) {
+      try {
+        parallelism = Integer.parseInt(value);
+      } catch (NumberFormatException nfe) {
+        parallelism = 0;
+      }
+
+      if (parallelism < 1) {
+        throw new IllegalArgumentException(
+            String.format("Unknown value '%s' for option '%s'.", value, name));
+      }
+    } else if (name.equals(GC_ROOT_OPTION) && value != null) {
+      gcRoots.add(Paths.get(value));
+    } else if (name.equals(REMOVE_OPTION) && value == null) {
+      remove = true;
+    } else if (name.equals(REPAIR_OPTION) && value == null) {
+      repair = true;
+    } else if (name.equals(MERGE_OPTION) && value == null) {
+      merge = true;
+    } else if (name.equals(VERIFY_OPTION) && value == null) {
+      verify = true;
+    } else if (name.equals(FORMAT_OPTION) && value != null) {
+      try {
+        format = OutputFormat.valueOf(value.toUpperCase(Locale.ROOT));
+      } catch (IllegalArgumentException iae) {
+        throw new IllegalArgumentException(
+            String.format("Unknown value '%s' for option '%s'.", value, name), iae);
+      }
+    } else if (name.equals(MESSAGES_OPTION) && value == null) {
+      messages = true;
+    } else if (name.equals(SUMMARY_OPTION)) {
+      summary = true;
+      summaryFile = value == null ? null : Paths.get(value);
+    } else if (name.equals(METRICS_FILE_OPTION) && value != null) {
+      metricsFile = Paths.get(value);
+    } else if (name.equals(TIMINGS_OPTION) && value == null) {
+      timings = true;
+    } else if (name.equals(SLOW_THRESHOLD_OPTION) && value != null) {
+      try {
+        slowThreshold = Long.parseLong(value);
+      } catch (NumberFormatException nfe) {
+        slowThreshold = -1;
+      }
+
+      if (slowThreshold < 0) {
+        throw new IllegalArgumentException(
+            String.format("Unknown value '%s' for option '%s'.", value, name));
+      }
+    } else if (name.equals(DAEMON_OPTION) && value != null) {
+      try {
+        daemonPort = Integer.parseInt(value);
+      } catch (NumberFormatException nfe) {
+        daemonPort = -1;
+      }
+
+      if (daemonPort < 0 || daemonPort > MAX_PORT) {
+        throw new IllegalArgumentException(
+            String.format("Unknown value '%s' for option '%s'.", value, name));
+      }
+    } else if (name.equals(RECONCILE_OPTION) && value != null) {
+      reconcileFile = Paths.get(value);
+    } else if (name.equals(RECONCILE_INTERVAL_OPTION) && value != null) {
+      parseReconcileInterval(name, value);
+    } else {
+      throw new IllegalArgumentException(String.format("Unknown option '%s'.", option));
+    }
+  }
+
+  /**
+   * Parses the minimum and maximum reconcile intervals from a value of the form min:max.
+   * 
+   * @param name The name of the option.
+   * @param value The value of the option.
+   * @throws IllegalArgumentException If the value is not two positive intervals, min first.
+   */
+  private void parseReconcileInterval(String name, String value) {
+    String[] intervals = value.split(":", -1);
+    long min = -1;
+    long max = -1;
+
+    if (intervals.length == 2) {
+      try {
+        min = Long.parseLong(intervals[0]);
+        max = Long.parseLong(intervals[1]);
+      } catch (NumberFormatException nfe) {
+        min = -1;
+      }
+    }
+
+    if (min <= 0 || min > max) {
+      throw new IllegalArgumentException(
+          String.format("Unknown value '%s' for option '%s'.", value, name));
+    }
+
+    minReconcileInterval = min;
+    maxReconcileInterval = max;
+  }
+
+  public Mode getMode() {
+    return mode;
+  }
+
+  public void setMode(Mode mode) {
+    this.mode = mode;
+  }
+
+  /**
+   * Gets the number of symlinks within a group to process concurrently.
+   * 
+   * @return The number of threads, 1 if symlinks are processed one at a time.
+   */
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  public void setParallelism(int parallelism) {
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Gets the directories to search for links whose targets do not exist in gc mode.
+   * 
+   * @return The gc roots, empty if only the defined links are checked.
+   */
+  public List<Path> getGcRoots() {
+    return Collections.unmodifiableList(gcRoots);
+  }
+
+  public void addGcRoot(Path gcRoot) {
+    gcRoots.add(gcRoot);
+  }
+
+  public boolean isRemove() {
+    return remove;
+  }
+
+  public void setRemove(boolean remove) {
+    this.remove = remove;
+  }
+
+  public boolean isRepair() {
+    return repair;
+  }
+
+  public void setRepair(boolean repair) {
+    this.repair = repair;
+  }
+
+  public boolean isMerge() {
+    return merge;
+  }
+
+  public void setMerge(boolean merge) {
+    this.merge = merge;
+  }
+
+  public boolean isVerify() {
+    return verify;
+  }
+
+  public void setVerify(boolean verify) {
+    this.verify = verify;
+  }
+
+  public OutputFormat getFormat() {
+    return format;
+  }
+
+  public void setFormat(OutputFormat format) {
+    this.format = format;
+  }
+
+  public boolean isMessages() {
+    return messages;
+  }
+
+  public void setMessages(boolean messages) {
+    this.messages = messages;
+  }
+
+  public boolean isSummary() {
+    return summary;
+  }
+
+  public void setSummary(boolean summary) {
+    this.summary = summary;
+  }
+
+  /**
+   * Gets the file to write the summary to.
+   * 
+   * @return The summary file, or null if the summary is output after the results.
+   */
+  public Path getSummaryFile() {
+    return summaryFile;
+  }
+
+  public void setSummaryFile(Path summaryFile) {
+    this.summaryFile = summaryFile;
+  }
+
+  /**
+   * Gets the file to write Prometheus metrics to.
+   * 
+   * @return The metrics file, or null if metrics are not written.
+   */
+  public Path getMetricsFile() {
+    return metricsFile;
+  }
+
+  public void setMetricsFile(Path metricsFile) {
+    this.metricsFile = metricsFile;
+  }
+
+  public boolean isTimings() {
+    return timings;
+  }
+
+  public void setTimings(boolean timings) {
+    this.timings = timings;
+  }
+
+  /**
+   * Gets the threshold file system operations must exceed to be logged as slow.
+   * 
+   * @return The threshold in milliseconds, or -1 if slow operations are not logged.
+   */
+  public long getSlowThreshold() {
+    return slowThreshold;
+  }
+
+  public void setSlowThreshold(long slowThreshold) {
+    this.slowThreshold = slowThreshold;
+  }
+
+  /**
+   * Gets the loopback port to listen for requests on when running as a daemon.
+   * 
+   * @return The port, 0 for any free port, or -1 if not running as a daemon.
+   */
+  public int getDaemonPort() {
+    return daemonPort;
+  }
+
+  public void setDaemonPort(int daemonPort) {
+    this.daemonPort = daemonPort;
+  }
+
+  /**
+   * Gets the definition file to rerun on a schedule when running as a daemon.
+   * 
+   * @return The reconcile file, or null if no definition file is rerun.
+   */
+  public Path getReconcileFile() {
+    return reconcileFile;
+  }
+
+  public void setReconcileFile(Path reconcileFile) {
+    this.reconcileFile = reconcileFile;
+  }
+
+  /**
+   * Gets the minimum interval between reconcile runs.
+   * 
+   * @return The minimum interval in seconds.
+   */
+  public long getMinReconcileInterval() {
+    return minReconcileInterval;
+  }
+
+  public void setMinReconcileInterval(long minReconcileInterval) {
+    this.minReconcileInterval = minReconcileInterval;
+  }
+
+  /**
+   * Gets the maximum interval between reconcile runs.
+   * 
+   * @return The maximum interval in seconds.
+   */
+  public long getMaxReconcileInterval() {
+    return maxReconcileInterval;
+  }
+
+  public void setMaxReconcileInterval(long maxReconcileInterval) {
+    this.maxReconcileInterval = maxReconcileInterval;
+  }
+
+  public List<String> getArguments() {
+    return Collections.unmodifiableList(arguments);
+  }
+}
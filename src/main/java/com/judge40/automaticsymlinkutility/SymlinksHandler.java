@@ -19,17 +19,36 @@
 
 package com.judge40.automaticsymlinkutility;
 
+import com.judge40.automaticsymlinkutility.PhaseTimings.Phase;
+import com.judge40.automaticsymlinkutility.SymlinkOptions.Mode;
+
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
 import org.xml.sax.helpers.DefaultHandler;
 
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
- * A SAX event handler which reads symlink definition files and creates the defined links.
+ * A SAX event handler which reads symlink definition files and creates, restores, audits or checks
+ * for stale versions of the defined links. In gc mode each gc root is then scanned for stale links
+ * and reported as a group named after the root. <br/>
+ * When given an {@link Executor} the symlinks within each group are processed concurrently, their
+ * results are still reported in definition order and each group is completed before the next one
+ * is started. Earlier symlinks are also completed before a context path is checked, as they may
+ * create it.
  */
 public class SymlinksHandler extends DefaultHandler {
 
@@ -37,23 +56,133 @@ public class SymlinksHandler extends DefaultHandler {
   private static final String SYMLINK_ELEMENT = "symlink";
   private static final String LINK_PATH_ELEMENT = "linkPath";
   private static final String TARGET_PATH_ELEMENT = "targetPath";
+  private static final int MAX_PENDING_REPORTS = 1024;
 
   private boolean skipElements = false;
   private boolean resetSkipAfterLink = false;
+  private boolean filtered = false;
 
   private boolean captureCharacters = false;
   private StringBuilder characters = null;
 
+  private final SymlinkOptions options;
+  private final ResultSink resultSink;
+  private final FileSystem fileSystem;
+  private final String groupFilter;
+  private final Executor executor;
+  private final OperationContext operationContext;
+  private final RunSummary summary = new RunSummary();
+  private final Deque<CompletableFuture<Runnable>> pendingReports = new ArrayDeque<>();
+  private final Set<Path> declaredLinks = new HashSet<>();
+
   private String groupName = null;
   private Path link = null;
   private Path target = null;
 
+  /**
+   * Constructs a SymlinksHandler with the default options.
+   */
+  public SymlinksHandler() {
+    this(new SymlinkOptions());
+  }
+
+  /**
+   * Constructs a SymlinksHandler with the options to create the symbolic links with, results are
+   * written to {@link System#out}.
+   * 
+   * @param options The options controlling how the symbolic links are created.
+   */
+  public SymlinksHandler(SymlinkOptions options) {
+    this(options, new TextResultSink(System.out));
+  }
+
+  /**
+   * Constructs a SymlinksHandler with the options to create the symbolic links with and the sink
+   * to report results to.
+   * 
+   * @param options The options controlling how the symbolic links are created.
+   * @param resultSink The sink to report progress and results to.
+   */
+  public SymlinksHandler(SymlinkOptions options, ResultSink resultSink) {
+    this(options, resultSink, FileSystems.getDefault());
+  }
+
+  /**
+   * Constructs a SymlinksHandler with the options to create the symbolic links with, the sink to
+   * report results to and the file system the defined paths are in.
+   * 
+   * @param options The options controlling how the symbolic links are created.
+   * @param resultSink The sink to report progress and results to.
+   * @param fileSystem The {@link FileSystem} to get the link, target and context paths from.
+   */
+  public SymlinksHandler(SymlinkOptions options, ResultSink resultSink, FileSystem fileSystem) {
+    this(options, resultSink, fileSystem, null);
+  }
+
+  /**
+   * Constructs a SymlinksHandler with the options to create the symbolic links with, the sink to
+   * report results to, the file system the defined paths are in and the only group to process.
+   * Groups with other names and symlinks outside of groups are silently ignored.
+   * 
+   * @param options The options controlling how the symbolic links are created.
+   * @param resultSink The sink to report progress and results to.
+   * @param fileSystem The {@link FileSystem} to get the link, target and context paths from.
+   * @param groupFilter The name of the only group to process, or null to process everything.
+   */
+  public SymlinksHandler(SymlinkOptions options, ResultSink resultSink, FileSystem fileSystem,
+      String groupFilter) {
+    this(options, resultSink, fileSystem, groupFilter, null);
+  }
+
+  /**
+   * Constructs a SymlinksHandler with the options to create the symbolic links with, the sink to
+   * report results to, the file system the defined paths are in, the only group to process and the
+   * executor to process symlinks concurrently with.
+   * 
+   * @param options The options controlling how the symbolic links are created.
+   * @param resultSink The sink to report progress and results to.
+   * @param fileSystem The {@link FileSystem} to get the link, target and context paths from.
+   * @param groupFilter The name of the only group to process, or null to process everything.
+   * @param executor The {@link Executor} to process symlinks with, or null to process them one at
+   *        a time as they are read.
+   * @see OperationContext#getDefault()
+   */
+  public SymlinksHandler(SymlinkOptions options, ResultSink resultSink, FileSystem fileSystem,
+      String groupFilter, Executor executor) {
+    this(options, resultSink, fileSystem, groupFilter, executor, OperationContext.getDefault());
+  }
+
+  /**
+   * Constructs a SymlinksHandler with the options to create the symbolic links with, the sink to
+   * report results to, the file system the defined paths are in, the only group to process, the
+   * executor to process symlinks concurrently with and the context to time file operations in.
+   * 
+   * @param options The options controlling how the symbolic links are created.
+   * @param resultSink The sink to report progress and results to.
+   * @param fileSystem The {@link FileSystem} to get the link, target and context paths from.
+   * @param groupFilter The name of the only group to process, or null to process everything.
+   * @param executor The {@link Executor} to process symlinks with, or null to process them one at
+   *        a time as they are read.
+   * @param operationContext The {@link OperationContext} the file operations are timed and
+   *        recorded in.
+   */
+  public SymlinksHandler(SymlinkOptions options, ResultSink resultSink, FileSystem fileSystem,
+      String groupFilter, Executor executor, OperationContext operationContext) {
+    this.options = options;
+    this.resultSink = resultSink;
+    this.fileSystem = fileSystem;
+    this.groupFilter = groupFilter;
+    this.executor = executor;
+    this.operationContext = operationContext;
+  }
+
   /**
    * Notify that the document has begun.
    */
   @Override
   public void startDocument() {
-    System.out.println("Automatic Symlink Utility started...");
+    summary.started();
+    resultSink.started();
   }
 
   /**
@@ -70,36 +199,60 @@ public class SymlinksHandler extends DefaultHandler {
       Attributes attributes) {
     if (!skipElements) {
       if (qualifiedName.equals(GROUP_ELEMENT) || qualifiedName.equals(SYMLINK_ELEMENT)) {
+        // Groups and symlinks outside of the group filter are skipped without being reported.
+        if (groupFilter != null && isFilteredOut(qualifiedName, attributes)) {
+          skipElements = true;
+          resetSkipAfterLink = qualifiedName.equals(SYMLINK_ELEMENT);
+          filtered = true;
+          return;
+        }
+
         String contextPath = attributes.getValue("contextPath");
 
+        // Symlinks still being processed may create the context path, so are completed first.
+        if (qualifiedName.equals(GROUP_ELEMENT) || contextPath != null) {
+          drainReports(true);
+        }
+
         // If the context path is specified and does not exist then set the group or link to be
         // skipped.
         if (contextPath != null) {
-          Path context = Paths.get(contextPath);
+          ContextCheckEvent event = new ContextCheckEvent();
+          event.begin();
+          long startTime = System.nanoTime();
+          Path context = fileSystem.getPath(contextPath);
 
-          skipElements = Files.notExists(context);
-          resetSkipAfterLink = skipElements && qualifiedName.equals(SYMLINK_ELEMENT);
-        }
+          skipElements = !contextExists(context);
+          operationContext.getTimings().record(Phase.CONTEXT_EVALUATION, startTime);
+          event.end();
 
-        // Output a message indicating whether a group is being skipped or not and when symlinks are
-        // being skipped.
-        if (groupName == null) {
-          System.out.println();
+          if (event.shouldCommit()) {
+            event.element = qualifiedName;
+            event.contextPath = contextPath;
+            event.exists = !skipElements;
+            event.commit();
+          }
+
+          resetSkipAfterLink = skipElements && qualifiedName.equals(SYMLINK_ELEMENT);
         }
 
+        // Report whether a group is being skipped or not and when symlinks are being skipped.
         if (qualifiedName.equals(GROUP_ELEMENT)) {
           groupName = attributes.getValue("name");
+          summary.groupStarted(groupName);
 
           if (skipElements) {
-            System.out.println(
-                String.format("Skipping the '%s' group because its context '%s' did not exist.",
-                    groupName, contextPath));
+            resultSink.groupSkipped(groupName, contextPath);
           } else {
-            System.out.println(String.format("Managing symlinks for '%s' group...", groupName));
+            resultSink.groupStarted(groupName);
+          }
+        } else {
+          final String symlinkGroupName = groupName;
+          report(() -> resultSink.symlinkStarted(symlinkGroupName));
+
+          if (skipElements) {
+            report(() -> resultSink.symlinkSkipped(symlinkGroupName, contextPath));
           }
-        } else if (skipElements) {
-          System.out.println(String
-              .format("Skipping a symlink because its context '%s' did not exist.", contextPath));
         }
       } else {
         // Characters only need capturing for linkPath and targetPath elements.
@@ -142,17 +295,17 @@ public class SymlinksHandler extends DefaultHandler {
     // reset the skip flags based on whether a whole group or single symlink is being skipped.
     if (!skipElements) {
       if (qualifiedName.equals(LINK_PATH_ELEMENT)) {
-        link = Paths.get(characters.toString());
+        link = fileSystem.getPath(characters.toString());
       } else if (qualifiedName.equals(TARGET_PATH_ELEMENT)) {
-        target = Paths.get(characters.toString());
+        target = fileSystem.getPath(characters.toString());
       } else if (qualifiedName.equals(SYMLINK_ELEMENT)) {
-        SymlinkCreationResult result = AutomaticSymlinkUtility.createSymbolicLink(link, target);
-        System.out.println(result.getMessage());
+        processSymlink(groupName, link, target);
         link = null;
         target = null;
       }
     } else if (qualifiedName.equals(SYMLINK_ELEMENT)) {
       skipElements = !resetSkipAfterLink;
+      filtered = filtered && skipElements;
       resetSkipAfterLink = false;
     } else if (qualifiedName.equals(GROUP_ELEMENT)) {
       skipElements = false;
@@ -160,19 +313,186 @@ public class SymlinksHandler extends DefaultHandler {
 
     // Reset group name and characters.
     if (qualifiedName.equals(GROUP_ELEMENT)) {
-      System.out.println(String.format("Group '%s' finished.", groupName));
+      if (!filtered) {
+        drainReports(true);
+        summary.groupFinished(groupName);
+        resultSink.groupFinished(groupName);
+      }
+
+      filtered = false;
       groupName = null;
     }
     characters = null;
   }
 
   /**
-   * Notify that the end of the document has been reached.
+   * Notify that the end of the document has been reached, the run summary is reported first if it
+   * is to be output with the results.
    */
   @Override
   public void endDocument() {
-    System.out.println();
-    System.out.println("Automatic Symlink Utility finished.");
+    drainReports(true);
+
+    if (options.getMode() == Mode.GC) {
+      scanGcRoots();
+    }
+
+    summary.finished();
+
+    if (options.isSummary() && options.getSummaryFile() == null) {
+      resultSink.summary(summary);
+    }
+
+    resultSink.finished();
+  }
+
+  /**
+   * Processes a symlink and reports its result, when processing concurrently the symlink is
+   * submitted to the executor and its result is reported once all earlier reports have been made.
+   * 
+   * @param symlinkGroupName The name of the symlink's group, or null if it is not in a group.
+   * @param symlinkLink The path of the link.
+   * @param symlinkTarget The path of the target.
+   */
+  private void processSymlink(String symlinkGroupName, Path symlinkLink, Path symlinkTarget) {
+    // Defined links have been checked against their targets, so are not checked again by gc roots.
+    if (options.getMode() == Mode.GC && !options.getGcRoots().isEmpty()) {
+      declaredLinks.add(symlinkLink.toAbsolutePath().normalize());
+    }
+
+    if (executor == null) {
+      SymlinkCreationResult result = createSymbolicLink(symlinkLink, symlinkTarget);
+      summary.record(symlinkGroupName, result);
+      resultSink.result(symlinkGroupName, result);
+    } else {
+      pendingReports.add(CompletableFuture.supplyAsync(() -> {
+        SymlinkCreationResult result = createSymbolicLink(symlinkLink, symlinkTarget);
+        return () -> {
+          summary.record(symlinkGroupName, result);
+          resultSink.result(symlinkGroupName, result);
+        };
+      }, executor));
+      drainReports(false);
+    }
+  }
+
+  /**
+   * Scans each gc root for stale links which were not defined, reporting each root as a group. A
+   * root which can not be read is reported as a failed result.
+   */
+  private void scanGcRoots() {
+    for (Path gcRoot : options.getGcRoots()) {
+      Path root = fileSystem.getPath(gcRoot.toString());
+      String rootName = root.toString();
+      summary.groupStarted(rootName);
+      resultSink.groupStarted(rootName);
+      List<SymlinkCreationResult> results;
+
+      try {
+        results = StaleLinkScanner.scan(root, declaredLinks, options.isRemove(),
+            operationContext.getFiles());
+      } catch (IOException ioe) {
+        results = Collections.singletonList(new SymlinkCreationResult(root, null, ioe));
+      }
+
+      for (SymlinkCreationResult result : results) {
+        summary.record(rootName, result);
+        resultSink.result(rootName, result);
+      }
+
+      summary.groupFinished(rootName);
+      resultSink.groupFinished(rootName);
+    }
+  }
+
+  /**
+   * Makes a report immediately, unless earlier reports are still pending in which case it is made
+   * after them.
+   * 
+   * @param report The report to make.
+   */
+  private void report(Runnable report) {
+    if (pendingReports.isEmpty()) {
+      report.run();
+    } else {
+      pendingReports.add(CompletableFuture.completedFuture(report));
+    }
+  }
+
+  /**
+   * Makes pending reports in the order they were added. Reports are made until one is found which
+   * is not complete, unless all reports are required or too many are pending.
+   * 
+   * @param all Whether to wait for and make all of the pending reports.
+   */
+  private void drainReports(boolean all) {
+    while (!pendingReports.isEmpty() && (all || pendingReports.size() > MAX_PENDING_REPORTS
+        || pendingReports.peek().isDone())) {
+      pendingReports.poll().join().run();
+    }
+  }
+
+  /**
+   * Checks whether a group or symlink is outside of the group filter, symlinks are only inside the
+   * filter when they are within the filtered group.
+   * 
+   * @param qualifiedName The qualified name of the element.
+   * @param attributes The element's attributes.
+   * @return Whether the element should be skipped.
+   */
+  private boolean isFilteredOut(String qualifiedName, Attributes attributes) {
+    if (qualifiedName.equals(GROUP_ELEMENT)) {
+      return !groupFilter.equals(attributes.getValue("name"));
+    }
+
+    return groupName == null;
+  }
+
+  /**
+   * Checks whether a context path exists, the elements it applies to are skipped when it does not.
+   * 
+   * @param context The context path to check.
+   * @return Whether the context path exists, paths which can not be checked are treated as
+   *         existing.
+   */
+  protected boolean contextExists(Path context) {
+    return !Files.notExists(context);
+  }
+
+  /**
+   * Creates, restores, checks or audits a symbolic link depending on the mode of the handler's
+   * options. When processing concurrently this is called by the executor's threads.
+   * 
+   * @param link The path of the link.
+   * @param target The path of the target.
+   * @return The {@link SymlinkCreationResult}.
+   */
+  protected SymlinkCreationResult createSymbolicLink(Path link, Path target) {
+    switch (options.getMode()) {
+      case RESTORE:
+        return AutomaticSymlinkUtility.restoreSymbolicLink(link, target, options,
+            operationContext);
+      case GC:
+        return AutomaticSymlinkUtility.collectStaleLink(link, target, options,
+            operationContext);
+      case AUDIT:
+        return AutomaticSymlinkUtility.auditSymbolicLink(link, target, options,
+            operationContext);
+      case APPLY:
+      default:
+        return AutomaticSymlinkUtility.createSymbolicLink(link, target, options,
+            operationContext);
+    }
+  }
+
+  /**
+   * Gets the summary of the results, which is complete once the end of the document has been
+   * reached.
+   * 
+   * @return The {@link RunSummary}.
+   */
+  public RunSummary getSummary() {
+    return summary;
   }
 
   @Override
@@ -0,0 +1,101 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A {@link ResultSink} which passes every event to each of a number of sinks, in the order the
+ * sinks were given.
+ */
+public class TeeResultSink implements ResultSink {
+
+  private final List<ResultSink> sinks;
+
+  /**
+   * Constructs a TeeResultSink with the sinks to pass events to.
+   * 
+   * @param sinks The sinks to pass events to.
+   */
+  public TeeResultSink(ResultSink... sinks) {
+    this.sinks = Arrays.asList(sinks);
+  }
+
+  @Override
+  public void started() {
+    sinks.forEach(ResultSink::started);
+  }
+
+  @Override
+  public void groupStarted(String groupName) {
+    sinks.forEach(sink -> sink.groupStarted(groupName));
+  }
+
+  @Override
+  public void groupSkipped(String groupName, String contextPath) {
+    sinks.forEach(sink -> sink.groupSkipped(groupName, contextPath));
+  }
+
+  @Override
+  public void symlinkStarted(String groupName) {
+    sinks.forEach(sink -> sink.symlinkStarted(groupName));
+  }
+
+  @Override
+  public void symlinkSkipped(String groupName, String contextPath) {
+    sinks.forEach(sink -> sink.symlinkSkipped(groupName, contextPath));
+  }
+
+  @Override
+  public void result(String groupName, SymlinkCreationResult result) {
+    sinks.forEach(sink -> sink.result(groupName, result));
+  }
+
+  @Override
+  public void groupFinished(String groupName) {
+    sinks.forEach(sink -> sink.groupFinished(groupName));
+  }
+
+  @Override
+  public void summary(RunSummary summary) {
+    sinks.forEach(sink -> sink.summary(summary));
+  }
+
+  @Override
+  public void timings(PhaseTimings timings) {
+    sinks.forEach(sink -> sink.timings(timings));
+  }
+
+  @Override
+  public void latencies(FileOperationStats operationStats) {
+    sinks.forEach(sink -> sink.latencies(operationStats));
+  }
+
+  @Override
+  public void finished() {
+    sinks.forEach(ResultSink::finished);
+  }
+
+  @Override
+  public void close() {
+    sinks.forEach(ResultSink::close);
+  }
+}
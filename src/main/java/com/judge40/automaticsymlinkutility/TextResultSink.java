@@ -0,0 +1,189 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import com.judge40.automaticsymlinkutility.FileOperationStats.Primitive;
+import com.judge40.automaticsymlinkutility.PhaseTimings.Phase;
+import com.judge40.automaticsymlinkutility.RunSummary.GroupSummary;
+import com.judge40.automaticsymlinkutility.SymlinkCreationResult.Status;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link ResultSink} which writes human-readable messages, with each top level group or symlink
+ * separated by a blank line. Output is only flushed when processing finishes, so the stream should
+ * be buffered to avoid a write for every message.
+ */
+public class TextResultSink implements ResultSink {
+
+  private final PrintStream out;
+
+  /**
+   * Constructs a TextResultSink with the stream to write to.
+   * 
+   * @param out The stream to write messages to.
+   */
+  public TextResultSink(PrintStream out) {
+    this.out = out;
+  }
+
+  @Override
+  public void started() {
+    out.println("Automatic Symlink Utility started...");
+  }
+
+  @Override
+  public void groupStarted(String groupName) {
+    out.println();
+    out.println(String.format("Managing symlinks for '%s' group...", groupName));
+  }
+
+  @Override
+  public void groupSkipped(String groupName, String contextPath) {
+    out.println();
+    out.println(String.format("Skipping the '%s' group because its context '%s' did not exist.",
+        groupName, contextPath));
+  }
+
+  @Override
+  public void symlinkStarted(String groupName) {
+    if (groupName == null) {
+      out.println();
+    }
+  }
+
+  @Override
+  public void symlinkSkipped(String groupName, String contextPath) {
+    out.println(
+        String.format("Skipping a symlink because its context '%s' did not exist.", contextPath));
+  }
+
+  @Override
+  public void result(String groupName, SymlinkCreationResult result) {
+    out.println(result.getMessage());
+  }
+
+  @Override
+  public void groupFinished(String groupName) {
+    out.println(String.format("Group '%s' finished.", groupName));
+  }
+
+  @Override
+  public void summary(RunSummary summary) {
+    out.println();
+    out.println("Summary:");
+
+    for (GroupSummary group : summary.getGroups()) {
+      String name = group.getName() == null ? "Ungrouped symlinks"
+          : String.format("Group '%s'", group.getName());
+      out.println(String.format("%s: %s", name, formatGroupSummary(group)));
+    }
+
+    out.println(String.format("Total: %s", formatGroupSummary(summary.getTotal())));
+
+    List<SymlinkCreationResult> slowest = summary.getSlowest();
+
+    if (!slowest.isEmpty()) {
+      out.println("Slowest operations:");
+
+      for (SymlinkCreationResult result : slowest) {
+        out.println(String.format("  %d ms: '%s' (%s)",
+            TimeUnit.NANOSECONDS.toMillis(result.getDuration()), result.getLink(),
+            result.getReason() == null ? result.getStatus() : result.getReason()));
+      }
+    }
+  }
+
+  @Override
+  public void timings(PhaseTimings timings) {
+    out.println();
+    out.println("Timings:");
+
+    for (Phase phase : Phase.values()) {
+      out.println(String.format("%s: %d ms over %d times", phase,
+          TimeUnit.NANOSECONDS.toMillis(timings.getDuration(phase)), timings.getCount(phase)));
+    }
+
+    out.flush();
+  }
+
+  @Override
+  public void latencies(FileOperationStats operationStats) {
+    out.println();
+    out.println("File system latencies:");
+
+    for (Map.Entry<String, Map<Primitive, LatencyHistogram>> fileStore : operationStats
+        .getHistograms().entrySet()) {
+      out.println(String.format("File store '%s':", fileStore.getKey()));
+
+      for (Map.Entry<Primitive, LatencyHistogram> primitive : fileStore.getValue().entrySet()) {
+        LatencyHistogram histogram = primitive.getValue();
+
+        if (histogram.getCount() > 0) {
+          out.println(String.format("  %s: %d operations, p50 %s, p99 %s, max %s",
+              primitive.getKey(), histogram.getCount(), formatLatency(histogram.getPercentile(50)),
+              formatLatency(histogram.getPercentile(99)), formatLatency(histogram.getMax())));
+        }
+      }
+    }
+
+    out.flush();
+  }
+
+  @Override
+  public void finished() {
+    out.println();
+    out.println("Automatic Symlink Utility finished.");
+    out.flush();
+  }
+
+  @Override
+  public void close() {
+    out.flush();
+  }
+
+  /**
+   * Formats a latency in milliseconds with microsecond precision.
+   * 
+   * @param latency The latency in nanoseconds.
+   * @return The formatted latency.
+   */
+  private static String formatLatency(long latency) {
+    return String.format(Locale.ROOT, "%.3f ms",
+        latency / (double) TimeUnit.MILLISECONDS.toNanos(1));
+  }
+
+  /**
+   * Formats the counts, time and bytes moved of a group summary.
+   * 
+   * @param group The {@link GroupSummary} to format.
+   * @return The formatted summary.
+   */
+  private static String formatGroupSummary(GroupSummary group) {
+    return String.format("%d created, %d skipped, %d failed in %d ms, %d bytes moved.",
+        group.getCount(Status.CREATED), group.getCount(Status.SKIPPED),
+        group.getCount(Status.FAILED), TimeUnit.NANOSECONDS.toMillis(group.getDuration()),
+        group.getBytesMoved());
+  }
+}
@@ -0,0 +1,388 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import com.judge40.automaticsymlinkutility.FileOperationStats.Primitive;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.CopyOption;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Wrappers for the {@link Files} operations used to manage symbolic links which record the latency
+ * of each operation in a {@link FileOperationStats} and log slow operations to a
+ * {@link SlowOperationLog}.
+ */
+public class TimedFiles {
+
+  private final FileOperationStats operationStats;
+  private final SlowOperationLog slowOperationLog;
+
+  /**
+   * Constructs a TimedFiles which records to the given statistics and log.
+   * 
+   * @param operationStats The statistics to record the latency of each operation in.
+   * @param slowOperationLog The log to log slow operations to.
+   */
+  public TimedFiles(FileOperationStats operationStats, SlowOperationLog slowOperationLog) {
+    this.operationStats = operationStats;
+    this.slowOperationLog = slowOperationLog;
+  }
+
+  /**
+   * Times {@link Files#exists(Path, LinkOption...)}.
+   * 
+   * @param path The path to check.
+   * @param options The options indicating how symbolic links are handled.
+   * @return Whether the path exists.
+   */
+  public boolean exists(Path path, LinkOption... options) {
+    long startTime = System.nanoTime();
+
+    try {
+      return Files.exists(path, options);
+    } finally {
+      record(Primitive.STAT, "exists", path, startTime);
+    }
+  }
+
+  /**
+   * Times {@link Files#notExists(Path, LinkOption...)}.
+   * 
+   * @param path The path to check.
+   * @param options The options indicating how symbolic links are handled.
+   * @return Whether the path does not exist.
+   */
+  public boolean notExists(Path path, LinkOption... options) {
+    long startTime = System.nanoTime();
+
+    try {
+      return Files.notExists(path, options);
+    } finally {
+      record(Primitive.STAT, "notExists", path, startTime);
+    }
+  }
+
+  /**
+   * Times {@link Files#isSymbolicLink(Path)}.
+   * 
+   * @param path The path to check.
+   * @return Whether the path is a symbolic link.
+   */
+  public boolean isSymbolicLink(Path path) {
+    long startTime = System.nanoTime();
+
+    try {
+      return Files.isSymbolicLink(path);
+    } finally {
+      record(Primitive.STAT, "isSymbolicLink", path, startTime);
+    }
+  }
+
+  /**
+   * Times {@link Files#readSymbolicLink(Path)}.
+   * 
+   * @param link The symbolic link to read.
+   * @return The target of the symbolic link, as it was given when the link was created.
+   * @throws IOException If an error occurs reading the link.
+   */
+  public Path readSymbolicLink(Path link) throws IOException {
+    long startTime = System.nanoTime();
+
+    try {
+      return Files.readSymbolicLink(link);
+    } finally {
+      record(Primitive.STAT, "readSymbolicLink", link, startTime);
+    }
+  }
+
+  /**
+   * Times {@link Files#isSameFile(Path, Path)}.
+   * 
+   * @param path The path to check.
+   * @param otherPath The other path to check.
+   * @return Whether both paths locate the same file.
+   * @throws IOException If an error occurs reading either path.
+   */
+  public boolean isSameFile(Path path, Path otherPath) throws IOException {
+    long startTime = System.nanoTime();
+
+    try {
+      return Files.isSameFile(path, otherPath);
+    } finally {
+      record(Primitive.STAT, "isSameFile", path, startTime);
+    }
+  }
+
+  /**
+   * Times {@link Files#isRegularFile(Path, LinkOption...)}.
+   * 
+   * @param path The path to check.
+   * @param options The options indicating how symbolic links are handled.
+   * @return Whether the path is a regular file.
+   */
+  public boolean isRegularFile(Path path, LinkOption... options) {
+    long startTime = System.nanoTime();
+
+    try {
+      return Files.isRegularFile(path, options);
+    } finally {
+      record(Primitive.STAT, "isRegularFile", path, startTime);
+    }
+  }
+
+  /**
+   * Times {@link Files#isDirectory(Path, LinkOption...)}.
+   * 
+   * @param path The path to check.
+   * @param options The options indicating how symbolic links are handled.
+   * @return Whether the path is a directory.
+   */
+  public boolean isDirectory(Path path, LinkOption... options) {
+    long startTime = System.nanoTime();
+
+    try {
+      return Files.isDirectory(path, options);
+    } finally {
+      record(Primitive.STAT, "isDirectory", path, startTime);
+    }
+  }
+
+  /**
+   * Times {@link Files#size(Path)}.
+   * 
+   * @param path The path to get the size of.
+   * @return The size in bytes.
+   * @throws IOException If an error occurs reading the size.
+   */
+  public long size(Path path) throws IOException {
+    long startTime = System.nanoTime();
+
+    try {
+      return Files.size(path);
+    } finally {
+      record(Primitive.STAT, "size", path, startTime);
+    }
+  }
+
+  /**
+   * Times {@link Files#readAttributes(Path, Class, LinkOption...)}.
+   * 
+   * @param <A> The type of the attributes.
+   * @param path The path to read the attributes of.
+   * @param type The class of the attributes to read.
+   * @param options The options indicating how symbolic links are handled.
+   * @return The attributes.
+   * @throws IOException If an error occurs reading the attributes.
+   */
+  public <A extends BasicFileAttributes> A readAttributes(Path path, Class<A> type,
+      LinkOption... options) throws IOException {
+    long startTime = System.nanoTime();
+
+    try {
+      return Files.readAttributes(path, type, options);
+    } finally {
+      record(Primitive.STAT, "readAttributes", path, startTime);
+    }
+  }
+
+  /**
+   * Times {@link Files#newDirectoryStream(Path)}, only opening the directory is timed as its
+   * entries are read as the stream is iterated.
+   * 
+   * @param dir The directory to open.
+   * @return The {@link DirectoryStream} of the directory's entries.
+   * @throws IOException If an error occurs opening the directory.
+   */
+  public DirectoryStream<Path> newDirectoryStream(Path dir) throws IOException {
+    long startTime = System.nanoTime();
+
+    try {
+      return Files.newDirectoryStream(dir);
+    } finally {
+      record(Primitive.OPEN_DIRECTORY, "newDirectoryStream", dir, startTime);
+    }
+  }
+
+  /**
+   * Times reading a file through {@link Files#newInputStream(Path, java.nio.file.OpenOption...)},
+   * the latency is recorded when the stream is closed and covers opening, reading and closing the
+   * file. A failure to open the file is recorded immediately.
+   * 
+   * @param path The file to read.
+   * @return The {@link InputStream} to read the file with.
+   * @throws IOException If an error occurs opening the file.
+   */
+  public InputStream newInputStream(Path path) throws IOException {
+    final long startTime = System.nanoTime();
+    InputStream input;
+
+    try {
+      input = Files.newInputStream(path);
+    } catch (IOException ioe) {
+      record(Primitive.READ, "read", path, startTime);
+      throw ioe;
+    }
+
+    return new FilterInputStream(input) {
+      private boolean closed;
+
+      @Override
+      public void close() throws IOException {
+        try {
+          super.close();
+        } finally {
+          if (!closed) {
+            closed = true;
+            record(Primitive.READ, "read", path, startTime);
+          }
+        }
+      }
+    };
+  }
+
+  /**
+   * Times {@link Files#createSymbolicLink(Path, Path, java.nio.file.attribute.FileAttribute...)}.
+   * 
+   * @param link The path of the symbolic link to create.
+   * @param target The target of the symbolic link.
+   * @return The path to the symbolic link.
+   * @throws IOException If an error occurs creating the link.
+   */
+  public Path createSymbolicLink(Path link, Path target) throws IOException {
+    long startTime = System.nanoTime();
+
+    try {
+      return Files.createSymbolicLink(link, target);
+    } finally {
+      record(Primitive.CREATE_SYMBOLIC_LINK, "createSymbolicLink", link, startTime);
+    }
+  }
+
+  /**
+   * Times {@link Files#move(Path, Path, CopyOption...)}, the latency is recorded against the
+   * source.
+   * 
+   * @param source The path to move.
+   * @param target The path to move to.
+   * @param options The options specifying how the move is performed.
+   * @return The path to the target.
+   * @throws IOException If an error occurs moving the path.
+   */
+  public Path move(Path source, Path target, CopyOption... options) throws IOException {
+    long startTime = System.nanoTime();
+
+    try {
+      return Files.move(source, target, options);
+    } finally {
+      record(Primitive.MOVE, "move", source, startTime);
+    }
+  }
+
+  /**
+   * Times {@link Files#copy(Path, Path, CopyOption...)}, the latency is recorded against the
+   * target.
+   * 
+   * @param source The path to copy.
+   * @param target The path to copy to.
+   * @param options The options specifying how the copy is performed.
+   * @return The path to the target.
+   * @throws IOException If an error occurs copying the path.
+   */
+  public Path copy(Path source, Path target, CopyOption... options) throws IOException {
+    long startTime = System.nanoTime();
+
+    try {
+      return Files.copy(source, target, options);
+    } finally {
+      record(Primitive.COPY, "copy", target, startTime);
+    }
+  }
+
+  /**
+   * Times {@link Files#createDirectory(Path, java.nio.file.attribute.FileAttribute...)}.
+   * 
+   * @param dir The directory to create.
+   * @return The directory.
+   * @throws IOException If an error occurs creating the directory.
+   */
+  public Path createDirectory(Path dir) throws IOException {
+    long startTime = System.nanoTime();
+
+    try {
+      return Files.createDirectory(dir);
+    } finally {
+      record(Primitive.CREATE_DIRECTORY, "createDirectory", dir, startTime);
+    }
+  }
+
+  /**
+   * Times {@link Files#delete(Path)}.
+   * 
+   * @param path The path to delete.
+   * @throws IOException If an error occurs deleting the path.
+   */
+  public void delete(Path path) throws IOException {
+    long startTime = System.nanoTime();
+
+    try {
+      Files.delete(path);
+    } finally {
+      record(Primitive.DELETE, "delete", path, startTime);
+    }
+  }
+
+  /**
+   * Times {@link Files#deleteIfExists(Path)}.
+   * 
+   * @param path The path to delete.
+   * @return Whether the path was deleted.
+   * @throws IOException If an error occurs deleting the path.
+   */
+  public boolean deleteIfExists(Path path) throws IOException {
+    long startTime = System.nanoTime();
+
+    try {
+      return Files.deleteIfExists(path);
+    } finally {
+      record(Primitive.DELETE, "deleteIfExists", path, startTime);
+    }
+  }
+
+  /**
+   * Records the latency of an operation and logs it if it was slow.
+   * 
+   * @param primitive The primitive the operation is recorded as.
+   * @param operation The name of the operation.
+   * @param path The path operated on.
+   * @param startTime The {@link System#nanoTime()} the operation started at.
+   */
+  private void record(Primitive primitive, String operation, Path path, long startTime) {
+    long duration = System.nanoTime() - startTime;
+    operationStats.record(primitive, path, duration);
+    slowOperationLog.record(operation, path, duration);
+  }
+}
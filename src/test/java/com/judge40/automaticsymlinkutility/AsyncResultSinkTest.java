@@ -0,0 +1,221 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import com.judge40.automaticsymlinkutility.SymlinkCreationResult.Status;
+
+import mockit.Expectations;
+import mockit.FullVerificationsInOrder;
+import mockit.Mocked;
+import mockit.Verifications;
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * The unit tests for {@link AsyncResultSink}.
+ */
+public class AsyncResultSinkTest {
+
+  /**
+   * Test that all events are passed to the delegate in order before it is closed.
+   * 
+   * @param delegate The mocked delegate sink.
+   */
+  @Test
+  public void testClose_eventsQueued_delegateCalledInOrder(@Mocked ResultSink delegate) {
+    // Set up test data.
+    SymlinkCreationResult result = new SymlinkCreationResult(Status.CREATED, "Link created.");
+
+    // Call the method under test.
+    AsyncResultSink sink = new AsyncResultSink(delegate, 2);
+    sink.started();
+    sink.groupStarted("group1");
+    sink.symlinkStarted("group1");
+    sink.result("group1", result);
+    sink.groupFinished("group1");
+    sink.finished();
+    sink.close();
+
+    // Verify expectations.
+    new FullVerificationsInOrder() {
+      {
+        delegate.started();
+        delegate.groupStarted("group1");
+        delegate.symlinkStarted("group1");
+        delegate.result("group1", result);
+        delegate.groupFinished("group1");
+        delegate.finished();
+        delegate.close();
+      }
+    };
+  }
+
+  /**
+   * Test that the events after one which the delegate fails to write are still passed on, without
+   * producers blocking on the full queue.
+   * 
+   * @param delegate The mocked delegate sink.
+   */
+  @Test
+  public void testClose_delegateThrows_laterEventsWritten(@Mocked ResultSink delegate) {
+    // Set up test data.
+    SymlinkCreationResult linkResult = new SymlinkCreationResult(Status.CREATED, "Link created.");
+
+    new Expectations() {
+      {
+        delegate.result("group1", linkResult);
+        result = new IllegalStateException("Stream closed.");
+      }
+    };
+
+    // Call the method under test.
+    AsyncResultSink sink = new AsyncResultSink(delegate, 1);
+
+    for (int i = 0; i < 10; i++) {
+      sink.result("group1", linkResult);
+    }
+
+    sink.finished();
+    sink.close();
+
+    // Verify expectations.
+    new Verifications() {
+      {
+        delegate.result("group1", linkResult);
+        times = 10;
+        delegate.finished();
+        delegate.close();
+      }
+    };
+  }
+
+  /**
+   * Test that an event reported by an interrupted thread is still written and the thread's
+   * interrupt status is kept.
+   * 
+   * @param delegate The mocked delegate sink.
+   */
+  @Test
+  public void testStarted_interrupted_eventWrittenAndInterruptKept(@Mocked ResultSink delegate) {
+    // Call the method under test.
+    AsyncResultSink sink = new AsyncResultSink(delegate, 1);
+    Thread.currentThread().interrupt();
+    sink.started();
+    boolean interrupted = Thread.interrupted();
+    sink.close();
+
+    // Perform assertions.
+    Assert.assertThat("The interrupt status was not kept.", interrupted, CoreMatchers.is(true));
+
+    // Verify expectations.
+    new Verifications() {
+      {
+        delegate.started();
+      }
+    };
+  }
+
+  /**
+   * Test that an error in the writer is rethrown by the next call, and that producers do not block
+   * on the full queue once the writer has failed.
+   * 
+   * @param delegate The mocked delegate sink.
+   */
+  @Test
+  public void testResult_delegateError_errorRethrown(@Mocked ResultSink delegate) {
+    // Set up test data.
+    SymlinkCreationResult linkResult = new SymlinkCreationResult(Status.CREATED, "Link created.");
+    OutOfMemoryError error = new OutOfMemoryError("Expected error.");
+
+    new Expectations() {
+      {
+        delegate.result("group1", linkResult);
+        result = error;
+      }
+    };
+
+    // Call the method under test.
+    AsyncResultSink sink = new AsyncResultSink(delegate, 1);
+    Error thrown = null;
+
+    try {
+      while (true) {
+        sink.result("group1", linkResult);
+      }
+    } catch (OutOfMemoryError oome) {
+      thrown = oome;
+    }
+
+    sink.close();
+
+    // Perform assertions.
+    Assert.assertThat("The writer's error was expected to be rethrown.", thrown,
+        CoreMatchers.sameInstance(error));
+
+    // Verify expectations.
+    new Verifications() {
+      {
+        delegate.result("group1", linkResult);
+        times = 1;
+        delegate.close();
+      }
+    };
+  }
+
+  /**
+   * Test that an error in the writer which has not been rethrown is rethrown by closing the sink,
+   * once the delegate has been closed.
+   * 
+   * @param delegate The mocked delegate sink.
+   */
+  @Test
+  public void testClose_delegateError_errorRethrown(@Mocked ResultSink delegate) {
+    // Set up test data.
+    OutOfMemoryError error = new OutOfMemoryError("Expected error.");
+
+    new Expectations() {
+      {
+        delegate.finished();
+        result = error;
+      }
+    };
+
+    // Call the method under test.
+    AsyncResultSink sink = new AsyncResultSink(delegate, 1);
+    sink.finished();
+
+    try {
+      sink.close();
+      Assert.fail("An OutOfMemoryError was expected.");
+    } catch (OutOfMemoryError oome) {
+      // Perform assertions.
+      Assert.assertThat("The writer's error was expected to be rethrown.", oome,
+          CoreMatchers.sameInstance(error));
+    }
+
+    // Verify expectations.
+    new Verifications() {
+      {
+        delegate.close();
+      }
+    };
+  }
+}
@@ -19,8 +19,13 @@
 
 package com.judge40.automaticsymlinkutility;
 
+import com.judge40.automaticsymlinkutility.PhaseTimings.Phase;
+import com.judge40.automaticsymlinkutility.SymlinkCreationResult.Reason;
 import com.judge40.automaticsymlinkutility.SymlinkCreationResult.Status;
 
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import mockit.Expectations;
 import mockit.Mocked;
 import mockit.Tested;
@@ -28,14 +33,24 @@ import mockit.Verifications;
 import org.hamcrest.CoreMatchers;
 import org.junit.Assert;
 import org.junit.Test;
+import org.xml.sax.SAXException;
 
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.CopyOption;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystemException;
 import java.nio.file.Files;
 import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
 
 /**
  * The unit tests for {@link AutomaticSymlinkUtility}.
@@ -46,6 +61,8 @@ public class AutomaticSymlinkUtilityTest {
   @Tested
   private AutomaticSymlinkUtility symlinkUtility;
 
+  private final OperationContext context = new OperationContext();
+
   /**
    * Test that an IllegalArgumentException is thrown when no arguments are given.
    */
@@ -91,7 +108,8 @@ public class AutomaticSymlinkUtilityTest {
 
     new Verifications() {
       {
-        AutomaticSymlinkUtility.createSymbolicLink(Paths.get("linkPath"), Paths.get("targetPath"));
+        AutomaticSymlinkUtility.createSymbolicLink(Paths.get("linkPath"), Paths.get("targetPath"),
+            (SymlinkOptions) any, (OperationContext) any);
       }
     };
   }
@@ -453,6 +471,50 @@ public class AutomaticSymlinkUtilityTest {
         Files.isRegularFile(targetFile, LinkOption.NOFOLLOW_LINKS), CoreMatchers.is(true));
   }
 
+  /**
+   * Test that the link directory's contents are walked, and the link created, when renaming the
+   * directory is refused even though it is expected to be supported.
+   */
+  @Test
+  public void testCreateSymbolicLink_linkIsDirectoryRenameRefused_walkedAndCreated()
+      throws IOException {
+    // Set up test data.
+    Path testDirectory = Files.createTempDirectory(
+        "testCreateSymbolicLink_linkIsDirectoryRenameRefused_walkedAndCreated");
+    testDirectory.toFile().deleteOnExit();
+
+    Path link = Files.createTempDirectory(testDirectory, "linkDirectory");
+    link.toFile().deleteOnExit();
+    Path linkFile = Files.createTempFile(link, "linkFile", null);
+    linkFile.toFile().deleteOnExit();
+
+    Path target = testDirectory.resolve("targetNotExists");
+    Path targetFile = target.resolve(link.relativize(linkFile));
+
+    // Record expectations.
+    new Expectations(Files.class) {
+      {
+        Files.move(link, target, StandardCopyOption.ATOMIC_MOVE);
+        result = new AtomicMoveNotSupportedException(link.toString(), target.toString(),
+            "Invalid cross-device link");
+      }
+    };
+
+    // Call the method under test.
+    SymlinkCreationResult result = AutomaticSymlinkUtility.createSymbolicLink(link, target);
+    target.toFile().deleteOnExit();
+    targetFile.toFile().deleteOnExit();
+
+    // Perform assertions.
+    Assert.assertThat("The result's status did not match the expected value.", result.getStatus(),
+        CoreMatchers.is(Status.CREATED));
+
+    Assert.assertThat("The link path was expected to be a symbolic link.",
+        Files.isSymbolicLink(link), CoreMatchers.is(true));
+    Assert.assertThat("The target file path was expected to be a file.",
+        Files.isRegularFile(targetFile, LinkOption.NOFOLLOW_LINKS), CoreMatchers.is(true));
+  }
+
   /**
    * Test that the link is skipped when the link path is a directory and the target path is a file.
    */
@@ -784,4 +846,1449 @@ public class AutomaticSymlinkUtilityTest {
     Assert.assertThat("The result's message did not match the expected value.", result.getMessage(),
         CoreMatchers.is(expectedMessage));
   }
+
+  /**
+   * Test that no exception is thrown when the link and target are on the same file store, even if
+   * there is no usable space.
+   */
+  @Test
+  public void testCheckAvailableSpace_sameFileStore_noException(@Mocked FileStore fileStore)
+      throws IOException {
+    // Set up test data.
+    Path testDirectory =
+        Files.createTempDirectory("testCheckAvailableSpace_sameFileStore_noException");
+    testDirectory.toFile().deleteOnExit();
+
+    Path link = Files.write(testDirectory.resolve("link"), new byte[10]);
+    link.toFile().deleteOnExit();
+
+    Path target = testDirectory.resolve("notExists");
+
+    // Record expectations.
+    new Expectations(Files.class) {
+      {
+        Files.getFileStore((Path) any);
+        result = fileStore;
+
+        fileStore.getUsableSpace();
+        result = 0L;
+        minTimes = 0;
+      }
+    };
+
+    // Call the method under test.
+    AutomaticSymlinkUtility.checkAvailableSpace(link, target, context);
+  }
+
+  /**
+   * Test that no exception is thrown when the link and target are on different file stores and
+   * there is enough usable space.
+   */
+  @Test
+  public void testCheckAvailableSpace_differentFileStoreEnoughSpace_noException(
+      @Mocked FileStore linkStore, @Mocked FileStore targetStore) throws IOException {
+    // Set up test data.
+    Path testDirectory = Files
+        .createTempDirectory("testCheckAvailableSpace_differentFileStoreEnoughSpace_noException");
+    testDirectory.toFile().deleteOnExit();
+
+    Path link = Files.createTempDirectory(testDirectory, "link");
+    link.toFile().deleteOnExit();
+    Path linkFile = Files.write(link.resolve("linkFile"), new byte[10]);
+    linkFile.toFile().deleteOnExit();
+
+    Path target = testDirectory.resolve("notExists");
+
+    // Record expectations.
+    new Expectations(Files.class) {
+      {
+        Files.getFileStore(testDirectory.toAbsolutePath());
+        result = targetStore;
+
+        Files.getFileStore(link);
+        result = linkStore;
+
+        targetStore.getUsableSpace();
+        result = 10L;
+      }
+    };
+
+    // Call the method under test.
+    AutomaticSymlinkUtility.checkAvailableSpace(link, target, context);
+  }
+
+  /**
+   * Test that the files already in the target directory are not counted when merging, so there is
+   * enough usable space for the files which will be copied.
+   */
+  @Test
+  public void testCheckAvailableSpace_mergeFileInTarget_noException(@Mocked FileStore linkStore,
+      @Mocked FileStore targetStore) throws IOException {
+    // Set up test data.
+    Path testDirectory =
+        Files.createTempDirectory("testCheckAvailableSpace_mergeFileInTarget_noException");
+    testDirectory.toFile().deleteOnExit();
+
+    Path link = Files.createTempDirectory(testDirectory, "link");
+    link.toFile().deleteOnExit();
+    Path linkFile = Files.write(link.resolve("linkFile"), new byte[10]);
+    linkFile.toFile().deleteOnExit();
+    Path mergedFile = Files.write(link.resolve("mergedFile"), new byte[10]);
+    mergedFile.toFile().deleteOnExit();
+
+    Path target = Files.createTempDirectory(testDirectory, "target");
+    target.toFile().deleteOnExit();
+    Path targetFile = Files.write(target.resolve("mergedFile"), new byte[10]);
+    targetFile.toFile().deleteOnExit();
+
+    // Record expectations.
+    new Expectations(Files.class) {
+      {
+        Files.getFileStore(target);
+        result = targetStore;
+
+        Files.getFileStore(link);
+        result = linkStore;
+
+        targetStore.getUsableSpace();
+        result = 10L;
+      }
+    };
+
+    // Call the method under test.
+    AutomaticSymlinkUtility.checkAvailableSpace(link, target, true, context);
+  }
+
+  /**
+   * Test that an exception is thrown when the link and target are on different file stores and
+   * there is not enough usable space.
+   */
+  @Test
+  public void testCheckAvailableSpace_differentFileStoreNotEnoughSpace_exception(
+      @Mocked FileStore linkStore, @Mocked FileStore targetStore) throws IOException {
+    // Set up test data.
+    Path testDirectory = Files
+        .createTempDirectory("testCheckAvailableSpace_differentFileStoreNotEnoughSpace_exception");
+    testDirectory.toFile().deleteOnExit();
+
+    Path link = Files.createTempDirectory(testDirectory, "link");
+    link.toFile().deleteOnExit();
+    Path linkFile = Files.write(link.resolve("linkFile"), new byte[10]);
+    linkFile.toFile().deleteOnExit();
+
+    Path target = testDirectory.resolve("notExists");
+
+    // Record expectations.
+    new Expectations(Files.class) {
+      {
+        Files.getFileStore(testDirectory.toAbsolutePath());
+        result = targetStore;
+
+        Files.getFileStore(link);
+        result = linkStore;
+
+        targetStore.getUsableSpace();
+        result = 9L;
+      }
+    };
+
+    // Call the method under test.
+    try {
+      AutomaticSymlinkUtility.checkAvailableSpace(link, target, context);
+      Assert.fail("An exception was expected.");
+    } catch (FileSystemException fse) {
+      // Perform assertions.
+      Assert.assertThat("The exception's reason did not match the expected value.",
+          fse.getReason(),
+          CoreMatchers.is("10 bytes in 1 files are required but only 9 bytes are available"));
+    }
+
+    Assert.assertThat("The link file path was expected to be a file.",
+        Files.isRegularFile(linkFile, LinkOption.NOFOLLOW_LINKS), CoreMatchers.is(true));
+  }
+
+  /**
+   * Test that the link creation fails and the link is not moved when the target's file store does
+   * not have enough usable space.
+   */
+  @Test
+  public void testCreateSymbolicLink_notEnoughSpace_failed() throws IOException {
+    // Set up test data.
+    Path testDirectory = Files.createTempDirectory("testCreateSymbolicLink_notEnoughSpace_failed");
+    testDirectory.toFile().deleteOnExit();
+
+    Path link = Files.createTempFile(testDirectory, "link", null);
+    link.toFile().deleteOnExit();
+
+    Path target = testDirectory.resolve("notExists");
+
+    // Record expectations.
+    new Expectations(AutomaticSymlinkUtility.class) {
+      {
+        AutomaticSymlinkUtility.checkAvailableSpace(link, target, context);
+        result = new FileSystemException(link.toString(), target.toString(), "Expected reason");
+      }
+    };
+
+    // Call the method under test.
+    SymlinkCreationResult result =
+        AutomaticSymlinkUtility.createSymbolicLink(link, target, new SymlinkOptions(), context);
+
+    // Perform assertions.
+    Assert.assertThat("The result's status did not match the expected value.", result.getStatus(),
+        CoreMatchers.is(Status.FAILED));
+
+    String expectedMessage = String.format("%s -> %s: Expected reason", link, target);
+    Assert.assertThat("The result's message did not match the expected value.", result.getMessage(),
+        CoreMatchers.is(expectedMessage));
+
+    Assert.assertThat("The link path was expected to be a file.",
+        Files.isRegularFile(link, LinkOption.NOFOLLOW_LINKS), CoreMatchers.is(true));
+    Assert.assertThat("The target path was expected to not exist.", Files.exists(target),
+        CoreMatchers.is(false));
+  }
+
+  /**
+   * Test that an IllegalArgumentException is thrown when an unknown option is given.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testMain_unknownOption_exception() throws Exception {
+    // Call the method under test.
+    AutomaticSymlinkUtility.main(new String[] {"--unknown", "definition.xml"});
+  }
+
+  /**
+   * Test that an IllegalArgumentException is thrown when a metrics file is given in daemon mode.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testMain_metricsFileDaemon_exception() throws Exception {
+    // Call the method under test.
+    AutomaticSymlinkUtility.main(new String[] {"--daemon=0", "--metrics-file=metrics.prom"});
+  }
+
+  /**
+   * Test that an IllegalArgumentException is thrown when a summary file is given in daemon mode.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testMain_summaryFileDaemon_exception() throws Exception {
+    // Call the method under test.
+    AutomaticSymlinkUtility.main(new String[] {"--daemon=0", "--summary=summary.txt"});
+  }
+
+  /**
+   * Test that an IllegalArgumentException is thrown when timings are requested in daemon mode.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testMain_timingsDaemon_exception() throws Exception {
+    // Call the method under test.
+    AutomaticSymlinkUtility.main(new String[] {"--daemon=0", "--timings"});
+  }
+
+  /**
+   * Test that the run's failure is thrown, with the failure to write the metrics suppressed, when
+   * both the run and writing the metrics fail.
+   */
+  @Test
+  public void testMain_metricsFileNotWritableRunFails_runFailureThrown() throws Exception {
+    // Set up test data.
+    Path testDirectory =
+        Files.createTempDirectory("testMain_metricsFileNotWritableRunFails_runFailureThrown");
+    testDirectory.toFile().deleteOnExit();
+
+    Path definitionFile = Files.write(testDirectory.resolve("symlinks.xml"),
+        "<symlinks>".getBytes(StandardCharsets.UTF_8));
+    definitionFile.toFile().deleteOnExit();
+    Path metricsFile = testDirectory.resolve("notExists").resolve("metrics.prom");
+
+    // Call the method under test.
+    try {
+      AutomaticSymlinkUtility.main(
+          new String[] {"--metrics-file=" + metricsFile, definitionFile.toString()});
+      Assert.fail("A SAXException was expected.");
+    } catch (SAXException saxe) {
+      // Perform assertions.
+      Assert.assertThat("The number of suppressed exceptions did not match the expected value.",
+          saxe.getSuppressed().length, CoreMatchers.is(1));
+      Assert.assertThat("The suppressed exception was expected to be an IOException.",
+          saxe.getSuppressed()[0], CoreMatchers.instanceOf(IOException.class));
+    }
+  }
+
+  /**
+   * Test that the metrics are written, with the run marked as incomplete, when the run fails.
+   */
+  @Test
+  public void testMain_metricsFileRunFails_metricsWritten() throws Exception {
+    // Set up test data.
+    Path testDirectory = Files.createTempDirectory("testMain_metricsFileRunFails_metricsWritten");
+    testDirectory.toFile().deleteOnExit();
+
+    Path definitionFile = Files.write(testDirectory.resolve("symlinks.xml"),
+        "<symlinks>".getBytes(StandardCharsets.UTF_8));
+    definitionFile.toFile().deleteOnExit();
+    Path metricsFile = testDirectory.resolve("metrics.prom");
+    metricsFile.toFile().deleteOnExit();
+
+    // Call the method under test.
+    try {
+      AutomaticSymlinkUtility.main(
+          new String[] {"--metrics-file=" + metricsFile, definitionFile.toString()});
+      Assert.fail("A SAXException was expected.");
+    } catch (SAXException saxe) {
+      // Expected exception.
+    }
+
+    // Perform assertions.
+    String contents = new String(Files.readAllBytes(metricsFile), StandardCharsets.UTF_8);
+    Assert.assertThat("The metrics file did not match the expected value.", contents,
+        CoreMatchers.containsString("automatic_symlink_utility_run_completed 0\n"));
+    Assert.assertThat("The JVM start up was expected to be timed.", contents,
+        CoreMatchers.containsString("phase_duration_seconds{phase=\"jvm_startup\"}"));
+  }
+
+  /**
+   * Test that the link is created when merging and the link path and target path are files with
+   * the same contents.
+   */
+  @Test
+  public void testCreateSymbolicLink_mergeLinkIsFileTargetIsSameFile_created() throws IOException {
+    // Set up test data.
+    Path testDirectory =
+        Files.createTempDirectory("testCreateSymbolicLink_mergeLinkIsFileTargetIsSameFile_created");
+    testDirectory.toFile().deleteOnExit();
+
+    Path link = Files.write(testDirectory.resolve("link"), new byte[] {1, 2, 3});
+    link.toFile().deleteOnExit();
+
+    Path target = Files.write(testDirectory.resolve("target"), new byte[] {1, 2, 3});
+    target.toFile().deleteOnExit();
+
+    SymlinkOptions options = new SymlinkOptions();
+    options.setMerge(true);
+
+    // Call the method under test.
+    SymlinkCreationResult result =
+        AutomaticSymlinkUtility.createSymbolicLink(link, target, options,
+            context);
+
+    // Perform assertions.
+    Assert.assertThat("The result's status did not match the expected value.", result.getStatus(),
+        CoreMatchers.is(Status.CREATED));
+
+    String expectedMessage = String.format(
+        "A link was created between '%s' and '%s' after merging their contents.", link, target);
+    Assert.assertThat("The result's message did not match the expected value.", result.getMessage(),
+        CoreMatchers.is(expectedMessage));
+
+    Assert.assertThat("The link path was expected to be a symbolic link.",
+        Files.isSymbolicLink(link), CoreMatchers.is(true));
+    Assert.assertThat("The link path did not point to the expected file.",
+        Files.readSymbolicLink(link), CoreMatchers.is(target));
+  }
+
+  /**
+   * Test that the link creation fails when merging and the link path and target path are files with
+   * different contents.
+   */
+  @Test
+  public void testCreateSymbolicLink_mergeLinkIsFileTargetIsDifferentFile_failed()
+      throws IOException {
+    // Set up test data.
+    Path testDirectory = Files
+        .createTempDirectory("testCreateSymbolicLink_mergeLinkIsFileTargetIsDifferentFile_failed");
+    testDirectory.toFile().deleteOnExit();
+
+    Path link = Files.write(testDirectory.resolve("link"), new byte[] {1, 2, 3});
+    link.toFile().deleteOnExit();
+
+    Path target = Files.write(testDirectory.resolve("target"), new byte[] {3, 2, 1});
+    target.toFile().deleteOnExit();
+
+    SymlinkOptions options = new SymlinkOptions();
+    options.setMerge(true);
+
+    // Call the method under test.
+    SymlinkCreationResult result =
+        AutomaticSymlinkUtility.createSymbolicLink(link, target, options,
+            context);
+
+    // Perform assertions.
+    Assert.assertThat("The result's status did not match the expected value.", result.getStatus(),
+        CoreMatchers.is(Status.FAILED));
+
+    String expectedMessage = String.format(
+        "A link was not created because '%s' and '%s' have different contents.", link, target);
+    Assert.assertThat("The result's message did not match the expected value.", result.getMessage(),
+        CoreMatchers.is(expectedMessage));
+
+    Assert.assertThat("The link path was expected to be a file.",
+        Files.isRegularFile(link, LinkOption.NOFOLLOW_LINKS), CoreMatchers.is(true));
+  }
+
+  /**
+   * Test that the link is created when merging and the link path and target path are directories
+   * with no conflicting files.
+   */
+  @Test
+  public void testCreateSymbolicLink_mergeLinkIsDirectoryTargetIsDirectory_created()
+      throws IOException {
+    // Set up test data.
+    Path testDirectory = Files.createTempDirectory(
+        "testCreateSymbolicLink_mergeLinkIsDirectoryTargetIsDirectory_created");
+    testDirectory.toFile().deleteOnExit();
+
+    Path link = Files.createDirectory(testDirectory.resolve("link"));
+    link.toFile().deleteOnExit();
+    Path linkDuplicateFile = Files.write(link.resolve("duplicate"), new byte[] {1, 2, 3});
+    linkDuplicateFile.toFile().deleteOnExit();
+    Path linkNewFile = Files.write(link.resolve("new"), new byte[] {4, 5, 6});
+    linkNewFile.toFile().deleteOnExit();
+
+    Path target = Files.createDirectory(testDirectory.resolve("target"));
+    target.toFile().deleteOnExit();
+    Path targetDuplicateFile = Files.write(target.resolve("duplicate"), new byte[] {1, 2, 3});
+    targetDuplicateFile.toFile().deleteOnExit();
+    Path targetNewFile = target.resolve("new");
+
+    SymlinkOptions options = new SymlinkOptions();
+    options.setMerge(true);
+
+    // Call the method under test.
+    SymlinkCreationResult result =
+        AutomaticSymlinkUtility.createSymbolicLink(link, target, options,
+            context);
+    targetNewFile.toFile().deleteOnExit();
+
+    // Perform assertions.
+    Assert.assertThat("The result's status did not match the expected value.", result.getStatus(),
+        CoreMatchers.is(Status.CREATED));
+
+    Assert.assertThat("The link path was expected to be a symbolic link.",
+        Files.isSymbolicLink(link), CoreMatchers.is(true));
+    Assert.assertThat("The target new file path was expected to be a file.",
+        Files.isRegularFile(targetNewFile, LinkOption.NOFOLLOW_LINKS), CoreMatchers.is(true));
+  }
+
+  /**
+   * Test that the link creation fails and conflicting files are kept when merging and the link
+   * path and target path are directories with conflicting files.
+   */
+  @Test
+  public void testCreateSymbolicLink_mergeLinkIsDirectoryTargetIsConflictingDirectory_failed()
+      throws IOException {
+    // Set up test data.
+    Path testDirectory = Files.createTempDirectory(
+        "testCreateSymbolicLink_mergeLinkIsDirectoryTargetIsConflictingDirectory_failed");
+    testDirectory.toFile().deleteOnExit();
+
+    Path link = Files.createDirectory(testDirectory.resolve("link"));
+    link.toFile().deleteOnExit();
+    Path linkConflictFile = Files.write(link.resolve("conflict"), new byte[] {1, 2, 3});
+    linkConflictFile.toFile().deleteOnExit();
+
+    Path target = Files.createDirectory(testDirectory.resolve("target"));
+    target.toFile().deleteOnExit();
+    Path targetConflictFile = Files.write(target.resolve("conflict"), new byte[] {3, 2, 1});
+    targetConflictFile.toFile().deleteOnExit();
+
+    SymlinkOptions options = new SymlinkOptions();
+    options.setMerge(true);
+
+    // Call the method under test.
+    SymlinkCreationResult result =
+        AutomaticSymlinkUtility.createSymbolicLink(link, target, options,
+            context);
+
+    // Perform assertions.
+    Assert.assertThat("The result's status did not match the expected value.", result.getStatus(),
+        CoreMatchers.is(Status.FAILED));
+
+    String expectedMessage =
+        String.format("A link was not created because 1 files in '%s' conflict with '%s': [%s]",
+            link, target, linkConflictFile);
+    Assert.assertThat("The result's message did not match the expected value.", result.getMessage(),
+        CoreMatchers.is(expectedMessage));
+
+    Assert.assertThat("The link path was expected to be a directory.",
+        Files.isDirectory(link, LinkOption.NOFOLLOW_LINKS), CoreMatchers.is(true));
+    Assert.assertThat("The link conflict file path was expected to be a file.",
+        Files.isRegularFile(linkConflictFile, LinkOption.NOFOLLOW_LINKS), CoreMatchers.is(true));
+  }
+
+  /**
+   * Test that the link file is kept when merging and the target path is a symbolic link to the link
+   * path.
+   */
+  @Test
+  public void testCreateSymbolicLink_mergeTargetLinksToLinkFile_notMergeable() throws IOException {
+    // Set up test data.
+    Path testDirectory = Files
+        .createTempDirectory("testCreateSymbolicLink_mergeTargetLinksToLinkFile_notMergeable");
+    testDirectory.toFile().deleteOnExit();
+
+    Path link = Files.write(testDirectory.resolve("link"), new byte[] {1, 2, 3});
+    link.toFile().deleteOnExit();
+
+    Path target = Files.createSymbolicLink(testDirectory.resolve("target"), link);
+    target.toFile().deleteOnExit();
+
+    SymlinkOptions options = new SymlinkOptions();
+    options.setMerge(true);
+
+    // Call the method under test.
+    SymlinkCreationResult result =
+        AutomaticSymlinkUtility.createSymbolicLink(link, target, options, context);
+
+    // Perform assertions.
+    Assert.assertThat("The result's reason did not match the expected value.", result.getReason(),
+        CoreMatchers.is(Reason.NOT_MERGEABLE));
+    Assert.assertThat("The link path's contents did not match the expected value.",
+        Files.readAllBytes(link), CoreMatchers.is(new byte[] {1, 2, 3}));
+  }
+
+  /**
+   * Test that the link directory's files are kept when merging and the target path is a symbolic
+   * link to the link path.
+   */
+  @Test
+  public void testCreateSymbolicLink_mergeTargetLinksToLinkDirectory_notMergeable()
+      throws IOException {
+    // Set up test data.
+    Path testDirectory = Files
+        .createTempDirectory("testCreateSymbolicLink_mergeTargetLinksToLinkDirectory_notMergeable");
+    testDirectory.toFile().deleteOnExit();
+
+    Path link = Files.createDirectory(testDirectory.resolve("link"));
+    link.toFile().deleteOnExit();
+    Path linkFile = Files.write(link.resolve("file"), new byte[] {1, 2, 3});
+    linkFile.toFile().deleteOnExit();
+
+    Path target = Files.createSymbolicLink(testDirectory.resolve("target"), link);
+    target.toFile().deleteOnExit();
+
+    SymlinkOptions options = new SymlinkOptions();
+    options.setMerge(true);
+
+    // Call the method under test.
+    SymlinkCreationResult result =
+        AutomaticSymlinkUtility.createSymbolicLink(link, target, options, context);
+
+    // Perform assertions.
+    Assert.assertThat("The result's reason did not match the expected value.", result.getReason(),
+        CoreMatchers.is(Reason.NOT_MERGEABLE));
+    Assert.assertThat("The link file path was expected to be a file.",
+        Files.isRegularFile(linkFile, LinkOption.NOFOLLOW_LINKS), CoreMatchers.is(true));
+  }
+
+  /**
+   * Test that the link directory is copied, verified and linked when verifying and the link and
+   * target are on different file stores.
+   */
+  @Test
+  public void testCreateSymbolicLink_verifyDifferentFileStore_created(@Mocked FileStore linkStore,
+      @Mocked FileStore targetStore) throws IOException {
+    // Set up test data.
+    Path testDirectory =
+        Files.createTempDirectory("testCreateSymbolicLink_verifyDifferentFileStore_created");
+    testDirectory.toFile().deleteOnExit();
+
+    Path link = Files.createDirectory(testDirectory.resolve("link"));
+    link.toFile().deleteOnExit();
+    Path linkFile = Files.write(link.resolve("file"), new byte[] {1, 2, 3});
+    linkFile.toFile().deleteOnExit();
+
+    Path target = testDirectory.resolve("target");
+    final Path targetFile = target.resolve("file");
+
+    SymlinkOptions options = new SymlinkOptions();
+    options.setVerify(true);
+
+    // Record expectations.
+    FileStoreCache fileStoreCache = context.getFileStoreCache();
+
+    new Expectations(Files.class, ChecksumVerifier.class, fileStoreCache) {
+      {
+        Files.getFileStore(testDirectory.toAbsolutePath());
+        result = targetStore;
+
+        Files.getFileStore(link);
+        result = linkStore;
+
+        targetStore.getUsableSpace();
+        result = Long.MAX_VALUE;
+
+        fileStoreCache.isRenameSupported(link, target);
+        result = false;
+      }
+    };
+
+    // Call the method under test.
+    SymlinkCreationResult result =
+        AutomaticSymlinkUtility.createSymbolicLink(link, target, options,
+            context);
+    target.toFile().deleteOnExit();
+    targetFile.toFile().deleteOnExit();
+
+    // Perform assertions.
+    Assert.assertThat("The result's status did not match the expected value.", result.getStatus(),
+        CoreMatchers.is(Status.CREATED));
+
+    Assert.assertThat("The link path was expected to be a symbolic link.",
+        Files.isSymbolicLink(link), CoreMatchers.is(true));
+    Assert.assertThat("The target file path was expected to be a file.",
+        Files.isRegularFile(targetFile, LinkOption.NOFOLLOW_LINKS), CoreMatchers.is(true));
+    Assert.assertThat("The bytes moved did not match the expected value.",
+        result.getBytesMoved(), CoreMatchers.is(3L));
+    Assert.assertThat("The files moved did not match the expected value.",
+        result.getFilesMoved(), CoreMatchers.is(1L));
+
+    // Verify expectations.
+    new Verifications() {
+      {
+        ChecksumVerifier verifier = new ChecksumVerifier((Executor) any, anyInt, (TimedFiles) any);
+        verifier.move(linkFile, targetFile);
+      }
+    };
+  }
+
+  /**
+   * Test that the link creation fails before the link file is moved when the link's file store
+   * does not support symbolic links.
+   */
+  @Test
+  public void testCreateSymbolicLink_symbolicLinksNotSupported_failedNotMoved()
+      throws IOException {
+    // Set up test data.
+    Path testDirectory = Files
+        .createTempDirectory("testCreateSymbolicLink_symbolicLinksNotSupported_failedNotMoved");
+    testDirectory.toFile().deleteOnExit();
+
+    Path link = Files.createTempFile(testDirectory, "link", null);
+    link.toFile().deleteOnExit();
+
+    Path target = testDirectory.resolve("notExists");
+
+    // Record expectations.
+    FileStoreCache fileStoreCache = context.getFileStoreCache();
+
+    new Expectations(fileStoreCache) {
+      {
+        fileStoreCache.getCapabilities(link);
+        result = new FileStoreCache.Capabilities("name", "type", false);
+      }
+    };
+
+    // Call the method under test.
+    SymlinkCreationResult result =
+        AutomaticSymlinkUtility.createSymbolicLink(link, target, new SymlinkOptions(), context);
+
+    // Perform assertions.
+    Assert.assertThat("The result's status did not match the expected value.", result.getStatus(),
+        CoreMatchers.is(Status.FAILED));
+
+    String expectedMessage = String.format(
+        "A link was not created because the file store of '%s' does not support symbolic links.",
+        link);
+    Assert.assertThat("The result's message did not match the expected value.", result.getMessage(),
+        CoreMatchers.is(expectedMessage));
+
+    Assert.assertThat("The link path was expected to be a file.",
+        Files.isRegularFile(link, LinkOption.NOFOLLOW_LINKS), CoreMatchers.is(true));
+    Assert.assertThat("The target path was expected to not exist.", Files.exists(target),
+        CoreMatchers.is(false));
+  }
+
+  /**
+   * Test that the link directory is renamed without being walked when the link and target are on
+   * the same file store.
+   */
+  @Test
+  public void testCreateSymbolicLink_linkIsDirectorySameFileStore_renamed() throws IOException {
+    // Set up test data.
+    Path testDirectory =
+        Files.createTempDirectory("testCreateSymbolicLink_linkIsDirectorySameFileStore_renamed");
+    testDirectory.toFile().deleteOnExit();
+
+    Path link = Files.createDirectory(testDirectory.resolve("link"));
+    link.toFile().deleteOnExit();
+    Path linkFile = Files.write(link.resolve("file"), new byte[] {1, 2, 3});
+    linkFile.toFile().deleteOnExit();
+
+    Path target = testDirectory.resolve("target");
+    final Path targetFile = target.resolve("file");
+
+    new Expectations(StreamingTreeWalker.class) {};
+
+    // Call the method under test.
+    SymlinkCreationResult result = AutomaticSymlinkUtility.createSymbolicLink(link, target);
+    target.toFile().deleteOnExit();
+    targetFile.toFile().deleteOnExit();
+
+    // Perform assertions.
+    Assert.assertThat("The result's status did not match the expected value.", result.getStatus(),
+        CoreMatchers.is(Status.CREATED));
+    Assert.assertThat("The target file path was expected to be a file.",
+        Files.isRegularFile(targetFile, LinkOption.NOFOLLOW_LINKS), CoreMatchers.is(true));
+
+    // Verify expectations.
+    new Verifications() {
+      {
+        StreamingTreeWalker.walk((Path) any, (MoveDirectoryVisitor) any, (TimedFiles) any);
+        times = 0;
+      }
+    };
+  }
+
+  /**
+   * Test that a link operation event is recorded with the branch and outcome when flight recording
+   * is enabled.
+   */
+  @Test
+  public void testCreateSymbolicLink_flightRecording_eventRecorded() throws IOException {
+    // Set up test data.
+    Path testDirectory =
+        Files.createTempDirectory("testCreateSymbolicLink_flightRecording_eventRecorded");
+    testDirectory.toFile().deleteOnExit();
+
+    Path link = testDirectory.resolve("linkNotExists");
+    Path target = testDirectory.resolve("targetNotExists");
+    Path recordingFile = testDirectory.resolve("recording.jfr");
+
+    // Call the method under test.
+    try (Recording recording = new Recording()) {
+      recording.enable(LinkOperationEvent.class).withoutThreshold();
+      recording.start();
+      AutomaticSymlinkUtility.createSymbolicLink(link, target);
+      recording.stop();
+      recording.dump(recordingFile);
+    }
+
+    recordingFile.toFile().deleteOnExit();
+
+    // Perform assertions.
+    List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+    Assert.assertThat("The number of events did not match the expected value.", events.size(),
+        CoreMatchers.is(1));
+
+    RecordedEvent event = events.get(0);
+    Assert.assertThat("The event's link did not match the expected value.",
+        event.getString("link"), CoreMatchers.is(link.toString()));
+    Assert.assertThat("The event's branch did not match the expected value.",
+        event.getString("branch"), CoreMatchers.is("NEITHER_EXIST"));
+    Assert.assertThat("The event's outcome did not match the expected value.",
+        event.getString("outcome"), CoreMatchers.is("SKIPPED"));
+  }
+
+  /**
+   * Test that the classification, move and link creation phases are timed when a file is moved.
+   */
+  @Test
+  public void testCreateSymbolicLink_linkIsFileTargetNotExists_phasesTimed() throws IOException {
+    // Set up test data.
+    Path testDirectory =
+        Files.createTempDirectory("testCreateSymbolicLink_linkIsFileTargetNotExists_phasesTimed");
+    testDirectory.toFile().deleteOnExit();
+
+    Path link = Files.createTempFile(testDirectory, "linkFile", null);
+    link.toFile().deleteOnExit();
+
+    Path target = testDirectory.resolve("targetNotExists");
+
+    PhaseTimings timings = context.getTimings();
+
+    // Call the method under test.
+    AutomaticSymlinkUtility.createSymbolicLink(link, target, new SymlinkOptions(), context);
+    target.toFile().deleteOnExit();
+
+    // Perform assertions.
+    Assert.assertThat("The state classification count did not match the expected value.",
+        timings.getCount(Phase.STATE_CLASSIFICATION), CoreMatchers.is(1L));
+    Assert.assertThat("The move count did not match the expected value.",
+        timings.getCount(Phase.MOVE), CoreMatchers.is(1L));
+    Assert.assertThat("The link creation count did not match the expected value.",
+        timings.getCount(Phase.LINK_CREATION), CoreMatchers.is(1L));
+  }
+
+  /**
+   * Test that a file which is renamed to the target is counted as moved without any bytes, in the
+   * same way as a renamed directory.
+   */
+  @Test
+  public void testCreateSymbolicLink_linkFileRenamed_noBytesMoved() throws IOException {
+    // Set up test data.
+    Path testDirectory =
+        Files.createTempDirectory("testCreateSymbolicLink_linkFileRenamed_noBytesMoved");
+    testDirectory.toFile().deleteOnExit();
+
+    Path link = Files.write(testDirectory.resolve("link"), new byte[] {1, 2, 3});
+    link.toFile().deleteOnExit();
+    Path target = testDirectory.resolve("target");
+
+    // Call the method under test.
+    SymlinkCreationResult result =
+        AutomaticSymlinkUtility.createSymbolicLink(link, target, new SymlinkOptions(), context);
+    target.toFile().deleteOnExit();
+
+    // Perform assertions.
+    Assert.assertThat("The result's reason did not match the expected value.", result.getReason(),
+        CoreMatchers.is(Reason.MOVED_FILE));
+    Assert.assertThat("The bytes moved did not match the expected value.",
+        result.getBytesMoved(), CoreMatchers.is(0L));
+    Assert.assertThat("The files moved did not match the expected value.",
+        result.getFilesMoved(), CoreMatchers.is(1L));
+  }
+
+  /**
+   * Test that the link is removed and the target file moved back when restoring a file link.
+   */
+  @Test
+  public void testRestoreSymbolicLink_linkToFile_restored() throws IOException {
+    // Set up test data.
+    Path testDirectory =
+        Files.createTempDirectory("testRestoreSymbolicLink_linkToFile_restored");
+    testDirectory.toFile().deleteOnExit();
+
+    Path target = Files.write(testDirectory.resolve("target"), new byte[] {1, 2, 3});
+    target.toFile().deleteOnExit();
+    Path link = Files.createSymbolicLink(testDirectory.resolve("link"), target);
+    link.toFile().deleteOnExit();
+
+    // Call the method under test.
+    SymlinkCreationResult result =
+        AutomaticSymlinkUtility.restoreSymbolicLink(link, target, new SymlinkOptions(), context);
+
+    // Perform assertions.
+    Assert.assertThat("The result's reason did not match the expected value.", result.getReason(),
+        CoreMatchers.is(Reason.RESTORED_FILE));
+    Assert.assertThat("The link path was expected to be a file.",
+        Files.isRegularFile(link, LinkOption.NOFOLLOW_LINKS), CoreMatchers.is(true));
+    Assert.assertThat("The link path's contents did not match the expected value.",
+        Files.readAllBytes(link), CoreMatchers.is(new byte[] {1, 2, 3}));
+    Assert.assertThat("The target path was not expected to exist.",
+        Files.notExists(target, LinkOption.NOFOLLOW_LINKS), CoreMatchers.is(true));
+  }
+
+  /**
+   * Test that a link written with a relative, unnormalized, path to the target is restored.
+   */
+  @Test
+  public void testRestoreSymbolicLink_relativeLinkToFile_restored() throws IOException {
+    // Set up test data.
+    Path testDirectory =
+        Files.createTempDirectory("testRestoreSymbolicLink_relativeLinkToFile_restored");
+    testDirectory.toFile().deleteOnExit();
+
+    Path data = Files.createDirectory(testDirectory.resolve("data"));
+    data.toFile().deleteOnExit();
+    Path target = Files.write(data.resolve("target"), new byte[] {1, 2, 3});
+    target.toFile().deleteOnExit();
+    Path linkDirectory = Files.createDirectory(testDirectory.resolve("links"));
+    linkDirectory.toFile().deleteOnExit();
+    Path link = Files.createSymbolicLink(linkDirectory.resolve("link"),
+        Paths.get("..", "data", ".", "target"));
+    link.toFile().deleteOnExit();
+
+    // Call the method under test.
+    SymlinkCreationResult result =
+        AutomaticSymlinkUtility.restoreSymbolicLink(link, target, new SymlinkOptions(), context);
+
+    // Perform assertions.
+    Assert.assertThat("The result's reason did not match the expected value.", result.getReason(),
+        CoreMatchers.is(Reason.RESTORED_FILE));
+    Assert.assertThat("The link path was expected to be a file.",
+        Files.isRegularFile(link, LinkOption.NOFOLLOW_LINKS), CoreMatchers.is(true));
+    Assert.assertThat("The link path's contents did not match the expected value.",
+        Files.readAllBytes(link), CoreMatchers.is(new byte[] {1, 2, 3}));
+    Assert.assertThat("The target path was not expected to exist.",
+        Files.notExists(target, LinkOption.NOFOLLOW_LINKS), CoreMatchers.is(true));
+  }
+
+  /**
+   * Test that a directory moved by creating a link is moved back by restoring it.
+   */
+  @Test
+  public void testRestoreSymbolicLink_linkToDirectory_restored() throws IOException {
+    // Set up test data.
+    Path testDirectory =
+        Files.createTempDirectory("testRestoreSymbolicLink_linkToDirectory_restored");
+    testDirectory.toFile().deleteOnExit();
+
+    Path link = Files.createDirectory(testDirectory.resolve("link"));
+    link.toFile().deleteOnExit();
+    Path linkFile = Files.write(link.resolve("file"), new byte[] {1, 2, 3});
+    linkFile.toFile().deleteOnExit();
+
+    Path target = testDirectory.resolve("target");
+    target.toFile().deleteOnExit();
+    AutomaticSymlinkUtility.createSymbolicLink(link, target);
+
+    // Call the method under test.
+    SymlinkCreationResult result =
+        AutomaticSymlinkUtility.restoreSymbolicLink(link, target, new SymlinkOptions(), context);
+
+    // Perform assertions.
+    Assert.assertThat("The result's reason did not match the expected value.", result.getReason(),
+        CoreMatchers.is(Reason.RESTORED_DIR));
+    Assert.assertThat("The link path was expected to be a directory.",
+        Files.isDirectory(link, LinkOption.NOFOLLOW_LINKS), CoreMatchers.is(true));
+    Assert.assertThat("The link file path was expected to be a file.",
+        Files.isRegularFile(linkFile, LinkOption.NOFOLLOW_LINKS), CoreMatchers.is(true));
+    Assert.assertThat("The target path was not expected to exist.",
+        Files.notExists(target, LinkOption.NOFOLLOW_LINKS), CoreMatchers.is(true));
+  }
+
+  /**
+   * Test that the link and target are kept when moving the target back fails.
+   */
+  @Test
+  public void testRestoreSymbolicLink_moveFails_linkKept() throws IOException {
+    // Set up test data.
+    Path testDirectory = Files.createTempDirectory("testRestoreSymbolicLink_moveFails_linkKept");
+    testDirectory.toFile().deleteOnExit();
+
+    Path target = Files.write(testDirectory.resolve("target"), new byte[] {1, 2, 3});
+    target.toFile().deleteOnExit();
+    Path link = Files.createSymbolicLink(testDirectory.resolve("link"), target);
+    link.toFile().deleteOnExit();
+
+    // Record expectations.
+    new Expectations(Files.class) {
+      {
+        Files.move(withEqual(target), withInstanceOf(Path.class));
+        result = new IOException("Expected exception.");
+      }
+    };
+
+    // Call the method under test.
+    SymlinkCreationResult result =
+        AutomaticSymlinkUtility.restoreSymbolicLink(link, target, new SymlinkOptions(), context);
+
+    // Perform assertions.
+    Assert.assertThat("The result's status did not match the expected value.", result.getStatus(),
+        CoreMatchers.is(Status.FAILED));
+    Assert.assertThat("The link path's target did not match the expected value.",
+        Files.readSymbolicLink(link), CoreMatchers.is(target));
+    Assert.assertThat("The target path's contents did not match the expected value.",
+        Files.readAllBytes(target), CoreMatchers.is(new byte[] {1, 2, 3}));
+    Assert.assertThat("The number of files in the directory did not match the expected value.",
+        testDirectory.toFile().list().length, CoreMatchers.is(2));
+  }
+
+  /**
+   * Test that the link is put back and the moved files are returned to the target when a directory
+   * can not be moved in to the link's place.
+   */
+  @Test
+  public void testRestoreSymbolicLink_replaceLinkFails_linkRecreated() throws IOException {
+    // Set up test data.
+    Path testDirectory =
+        Files.createTempDirectory("testRestoreSymbolicLink_replaceLinkFails_linkRecreated");
+    testDirectory.toFile().deleteOnExit();
+
+    Path target = Files.createDirectory(testDirectory.resolve("target"));
+    target.toFile().deleteOnExit();
+    Path targetFile = Files.write(target.resolve("file"), new byte[] {1, 2, 3});
+    targetFile.toFile().deleteOnExit();
+    Path link = Files.createSymbolicLink(testDirectory.resolve("link"), target);
+    link.toFile().deleteOnExit();
+
+    // Record expectations.
+    new Expectations(Files.class) {
+      {
+        Files.move(withInstanceOf(Path.class), withEqual(link), (CopyOption[]) any);
+        result = new IOException("Expected exception.");
+      }
+    };
+
+    // Call the method under test.
+    SymlinkCreationResult result =
+        AutomaticSymlinkUtility.restoreSymbolicLink(link, target, new SymlinkOptions(), context);
+
+    // Perform assertions.
+    Assert.assertThat("The result's status did not match the expected value.", result.getStatus(),
+        CoreMatchers.is(Status.FAILED));
+    Assert.assertThat("The link path's target did not match the expected value.",
+        Files.readSymbolicLink(link), CoreMatchers.is(target));
+    Assert.assertThat("The target file path's contents did not match the expected value.",
+        Files.readAllBytes(targetFile), CoreMatchers.is(new byte[] {1, 2, 3}));
+    Assert.assertThat("The number of files in the directory did not match the expected value.",
+        testDirectory.toFile().list().length, CoreMatchers.is(2));
+  }
+
+  /**
+   * Test that the link is kept and the moved files are returned to the target when a directory
+   * fails verification.
+   */
+  @Test
+  public void testRestoreSymbolicLink_verificationFails_linkKept(@Mocked FileStore linkStore,
+      @Mocked FileStore targetStore) throws IOException {
+    // Set up test data.
+    Path testDirectory =
+        Files.createTempDirectory("testRestoreSymbolicLink_verificationFails_linkKept");
+    testDirectory.toFile().deleteOnExit();
+
+    Path target = Files.createDirectory(testDirectory.resolve("target"));
+    target.toFile().deleteOnExit();
+    Path targetFile = Files.write(target.resolve("file"), new byte[] {1, 2, 3});
+    targetFile.toFile().deleteOnExit();
+    Path link = Files.createSymbolicLink(testDirectory.resolve("link"), target);
+    link.toFile().deleteOnExit();
+
+    SymlinkOptions options = new SymlinkOptions();
+    options.setVerify(true);
+
+    // Record expectations.
+    FileStoreCache fileStoreCache = context.getFileStoreCache();
+
+    new Expectations(fileStoreCache, FileHasher.class) {
+      {
+        fileStoreCache.getFileStore(target);
+        result = targetStore;
+
+        fileStoreCache.getFileStore(withNotEqual(target));
+        result = linkStore;
+
+        linkStore.getUsableSpace();
+        result = Long.MAX_VALUE;
+
+        fileStoreCache.isRenameSupported(target, withInstanceOf(Path.class));
+        result = false;
+
+        FileHasher.digest(withInstanceOf(Path.class), (TimedFiles) any);
+        result = new byte[] {1};
+        result = new byte[] {2};
+      }
+    };
+
+    // Call the method under test.
+    SymlinkCreationResult result =
+        AutomaticSymlinkUtility.restoreSymbolicLink(link, target, options, context);
+
+    // Perform assertions.
+    Assert.assertThat("The result's reason did not match the expected value.", result.getReason(),
+        CoreMatchers.is(Reason.RESTORE_VERIFICATION_FAILED));
+    Assert.assertThat("The link path's target did not match the expected value.",
+        Files.readSymbolicLink(link), CoreMatchers.is(target));
+    Assert.assertThat("The target file path was expected to be a file.",
+        Files.isRegularFile(targetFile, LinkOption.NOFOLLOW_LINKS), CoreMatchers.is(true));
+    Assert.assertThat("The number of files in the directory did not match the expected value.",
+        testDirectory.toFile().list().length, CoreMatchers.is(2));
+  }
+
+  /**
+   * Test that restoring is skipped when the link path is not a symbolic link.
+   */
+  @Test
+  public void testRestoreSymbolicLink_linkIsFile_skipped() throws IOException {
+    // Set up test data.
+    Path testDirectory = Files.createTempDirectory("testRestoreSymbolicLink_linkIsFile_skipped");
+    testDirectory.toFile().deleteOnExit();
+
+    Path link = Files.createTempFile(testDirectory, "linkFile", null);
+    link.toFile().deleteOnExit();
+    Path target = Files.createTempFile(testDirectory, "targetFile", null);
+    target.toFile().deleteOnExit();
+
+    // Call the method under test.
+    SymlinkCreationResult result =
+        AutomaticSymlinkUtility.restoreSymbolicLink(link, target, new SymlinkOptions(), context);
+
+    // Perform assertions.
+    Assert.assertThat("The result's reason did not match the expected value.", result.getReason(),
+        CoreMatchers.is(Reason.NOT_LINK));
+    Assert.assertThat("The target path was expected to be a file.",
+        Files.isRegularFile(target, LinkOption.NOFOLLOW_LINKS), CoreMatchers.is(true));
+  }
+
+  /**
+   * Test that restoring is skipped when the link points somewhere other than the target path.
+   */
+  @Test
+  public void testRestoreSymbolicLink_linkToOtherPath_skipped() throws IOException {
+    // Set up test data.
+    Path testDirectory =
+        Files.createTempDirectory("testRestoreSymbolicLink_linkToOtherPath_skipped");
+    testDirectory.toFile().deleteOnExit();
+
+    Path other = Files.createTempFile(testDirectory, "otherFile", null);
+    other.toFile().deleteOnExit();
+    Path target = Files.createTempFile(testDirectory, "targetFile", null);
+    target.toFile().deleteOnExit();
+    Path link = Files.createSymbolicLink(testDirectory.resolve("link"), other);
+    link.toFile().deleteOnExit();
+
+    // Call the method under test.
+    SymlinkCreationResult result =
+        AutomaticSymlinkUtility.restoreSymbolicLink(link, target, new SymlinkOptions(), context);
+
+    // Perform assertions.
+    Assert.assertThat("The result's reason did not match the expected value.", result.getReason(),
+        CoreMatchers.is(Reason.LINK_MISMATCH));
+    Assert.assertThat("The link path was expected to be a symbolic link.",
+        Files.isSymbolicLink(link), CoreMatchers.is(true));
+  }
+
+  /**
+   * Test that restoring is skipped, and the link kept, when the target path does not exist.
+   */
+  @Test
+  public void testRestoreSymbolicLink_targetNotExists_skipped() throws IOException {
+    // Set up test data.
+    Path testDirectory =
+        Files.createTempDirectory("testRestoreSymbolicLink_targetNotExists_skipped");
+    testDirectory.toFile().deleteOnExit();
+
+    Path target = testDirectory.resolve("targetNotExists");
+    Path link = Files.createSymbolicLink(testDirectory.resolve("link"), target);
+    link.toFile().deleteOnExit();
+
+    // Call the method under test.
+    SymlinkCreationResult result =
+        AutomaticSymlinkUtility.restoreSymbolicLink(link, target, new SymlinkOptions(), context);
+
+    // Perform assertions.
+    Assert.assertThat("The result's reason did not match the expected value.", result.getReason(),
+        CoreMatchers.is(Reason.TARGET_MISSING));
+    Assert.assertThat("The link path was expected to be a symbolic link.",
+        Files.isSymbolicLink(link), CoreMatchers.is(true));
+  }
+
+  /**
+   * Test that a link pointing somewhere other than its defined target is reported as stale and
+   * kept when removal is not enabled.
+   */
+  @Test
+  public void testCollectStaleLink_linkToOtherPath_reported() throws IOException {
+    // Set up test data.
+    Path testDirectory =
+        Files.createTempDirectory("testCollectStaleLink_linkToOtherPath_reported");
+    testDirectory.toFile().deleteOnExit();
+
+    Path other = Files.createTempFile(testDirectory, "otherFile", null);
+    other.toFile().deleteOnExit();
+    Path target = testDirectory.resolve("target");
+    Path link = Files.createSymbolicLink(testDirectory.resolve("link"), other);
+    link.toFile().deleteOnExit();
+
+    // Call the method under test.
+    SymlinkCreationResult result =
+        AutomaticSymlinkUtility.collectStaleLink(link, target, new SymlinkOptions(), context);
+
+    // Perform assertions.
+    Assert.assertThat("The result's reason did not match the expected value.", result.getReason(),
+        CoreMatchers.is(Reason.MISDIRECTED_LINK));
+    Assert.assertThat("The result's paths did not match the expected value.", result.getPaths(),
+        CoreMatchers.is(Collections.singletonList(other)));
+    Assert.assertThat("The link path was expected to be a symbolic link.",
+        Files.isSymbolicLink(link), CoreMatchers.is(true));
+  }
+
+  /**
+   * Test that a link whose target does not exist is removed when removal is enabled.
+   */
+  @Test
+  public void testCollectStaleLink_targetNotExistsRemove_removed() throws IOException {
+    // Set up test data.
+    Path testDirectory =
+        Files.createTempDirectory("testCollectStaleLink_targetNotExistsRemove_removed");
+    testDirectory.toFile().deleteOnExit();
+
+    Path target = testDirectory.resolve("targetNotExists");
+    Path link = Files.createSymbolicLink(testDirectory.resolve("link"), target);
+    link.toFile().deleteOnExit();
+
+    SymlinkOptions options = new SymlinkOptions();
+    options.setRemove(true);
+
+    // Call the method under test.
+    SymlinkCreationResult result =
+        AutomaticSymlinkUtility.collectStaleLink(link, target, options, context);
+
+    // Perform assertions.
+    Assert.assertThat("The result's reason did not match the expected value.", result.getReason(),
+        CoreMatchers.is(Reason.REMOVED_LINK));
+    Assert.assertThat("The link path was not expected to exist.",
+        Files.notExists(link, LinkOption.NOFOLLOW_LINKS), CoreMatchers.is(true));
+  }
+
+  /**
+   * Test that a link to its existing defined target is not stale.
+   */
+  @Test
+  public void testCollectStaleLink_linkToTarget_skipped() throws IOException {
+    // Set up test data.
+    Path testDirectory = Files.createTempDirectory("testCollectStaleLink_linkToTarget_skipped");
+    testDirectory.toFile().deleteOnExit();
+
+    Path target = Files.createTempFile(testDirectory, "targetFile", null);
+    target.toFile().deleteOnExit();
+    Path link = Files.createSymbolicLink(testDirectory.resolve("link"), target);
+    link.toFile().deleteOnExit();
+
+    SymlinkOptions options = new SymlinkOptions();
+    options.setRemove(true);
+
+    // Call the method under test.
+    SymlinkCreationResult result =
+        AutomaticSymlinkUtility.collectStaleLink(link, target, options, context);
+
+    // Perform assertions.
+    Assert.assertThat("The result's reason did not match the expected value.", result.getReason(),
+        CoreMatchers.is(Reason.LIVE_LINK));
+    Assert.assertThat("The link path was expected to be a symbolic link.",
+        Files.isSymbolicLink(link), CoreMatchers.is(true));
+  }
+
+  /**
+   * Test that a link whose relative target resolves to its defined target is not stale.
+   */
+  @Test
+  public void testCollectStaleLink_relativeLinkToTarget_skipped() throws IOException {
+    // Set up test data.
+    Path testDirectory =
+        Files.createTempDirectory("testCollectStaleLink_relativeLinkToTarget_skipped");
+    testDirectory.toFile().deleteOnExit();
+
+    Path target = Files.createTempFile(testDirectory, "targetFile", null);
+    target.toFile().deleteOnExit();
+    Path link = Files.createSymbolicLink(testDirectory.resolve("link"),
+        Paths.get(".", "..", testDirectory.getFileName().toString(),
+            target.getFileName().toString()));
+    link.toFile().deleteOnExit();
+
+    SymlinkOptions options = new SymlinkOptions();
+    options.setRemove(true);
+
+    // Call the method under test.
+    SymlinkCreationResult result =
+        AutomaticSymlinkUtility.collectStaleLink(link, target, options, context);
+
+    // Perform assertions.
+    Assert.assertThat("The result's reason did not match the expected value.", result.getReason(),
+        CoreMatchers.is(Reason.LIVE_LINK));
+    Assert.assertThat("The link path was expected to be a symbolic link.",
+        Files.isSymbolicLink(link), CoreMatchers.is(true));
+  }
+
+  /**
+   * Test that a link pointing somewhere other than its defined target is reported as drifted and
+   * kept when repairs are not enabled.
+   */
+  @Test
+  public void testAuditSymbolicLink_linkToOtherPath_drifted() throws IOException {
+    // Set up test data.
+    Path testDirectory =
+        Files.createTempDirectory("testAuditSymbolicLink_linkToOtherPath_drifted");
+    testDirectory.toFile().deleteOnExit();
+
+    Path other = testDirectory.resolve("other");
+    Path target = testDirectory.resolve("target");
+    Path link = Files.createSymbolicLink(testDirectory.resolve("link"), other);
+    link.toFile().deleteOnExit();
+
+    // Call the method under test.
+    SymlinkCreationResult result =
+        AutomaticSymlinkUtility.auditSymbolicLink(link, target, new SymlinkOptions(), context);
+
+    // Perform assertions.
+    Assert.assertThat("The result's reason did not match the expected value.", result.getReason(),
+        CoreMatchers.is(Reason.DRIFTED));
+    Assert.assertThat("The result's paths did not match the expected value.", result.getPaths(),
+        CoreMatchers.is(Collections.singletonList(other)));
+    Assert.assertThat("The link path did not point to the expected file.",
+        Files.readSymbolicLink(link), CoreMatchers.is(other));
+  }
+
+  /**
+   * Test that a drifted link is repointed to its defined target when repairs are enabled.
+   */
+  @Test
+  public void testAuditSymbolicLink_linkToOtherPathRepair_repaired() throws IOException {
+    // Set up test data.
+    Path testDirectory =
+        Files.createTempDirectory("testAuditSymbolicLink_linkToOtherPathRepair_repaired");
+    testDirectory.toFile().deleteOnExit();
+
+    Path other = testDirectory.resolve("other");
+    Path target = testDirectory.resolve("target");
+    Path link = Files.createSymbolicLink(testDirectory.resolve("link"), other);
+    link.toFile().deleteOnExit();
+
+    SymlinkOptions options = new SymlinkOptions();
+    options.setRepair(true);
+
+    // Call the method under test.
+    SymlinkCreationResult result =
+        AutomaticSymlinkUtility.auditSymbolicLink(link, target, options, context);
+
+    // Perform assertions.
+    Assert.assertThat("The result's reason did not match the expected value.", result.getReason(),
+        CoreMatchers.is(Reason.REPAIRED));
+    Assert.assertThat("The link path did not point to the expected file.",
+        Files.readSymbolicLink(link), CoreMatchers.is(target));
+
+    try (Stream<Path> entries = Files.list(testDirectory)) {
+      Assert.assertThat("The number of entries did not match the expected value.",
+          entries.count(), CoreMatchers.is(1L));
+    }
+  }
+
+  /**
+   * Test that a link to its defined target is in sync, whether or not the target exists.
+   */
+  @Test
+  public void testAuditSymbolicLink_linkToTarget_inSync() throws IOException {
+    // Set up test data.
+    Path testDirectory = Files.createTempDirectory("testAuditSymbolicLink_linkToTarget_inSync");
+    testDirectory.toFile().deleteOnExit();
+
+    Path target = testDirectory.resolve("target");
+    Path link = Files.createSymbolicLink(testDirectory.resolve("link"), target);
+    link.toFile().deleteOnExit();
+
+    // Call the method under test.
+    SymlinkCreationResult result =
+        AutomaticSymlinkUtility.auditSymbolicLink(link, target, new SymlinkOptions(), context);
+
+    // Perform assertions.
+    Assert.assertThat("The result's reason did not match the expected value.", result.getReason(),
+        CoreMatchers.is(Reason.IN_SYNC));
+  }
+
+  /**
+   * Test that a relative link to its defined target is in sync.
+   */
+  @Test
+  public void testAuditSymbolicLink_relativeLinkToTarget_inSync() throws IOException {
+    // Set up test data.
+    Path testDirectory =
+        Files.createTempDirectory("testAuditSymbolicLink_relativeLinkToTarget_inSync");
+    testDirectory.toFile().deleteOnExit();
+
+    Path target = testDirectory.resolve("target");
+    Path link = Files.createSymbolicLink(testDirectory.resolve("link"), Paths.get("target"));
+    link.toFile().deleteOnExit();
+
+    // Call the method under test.
+    SymlinkCreationResult result =
+        AutomaticSymlinkUtility.auditSymbolicLink(link, target, new SymlinkOptions(), context);
+
+    // Perform assertions.
+    Assert.assertThat("The result's reason did not match the expected value.", result.getReason(),
+        CoreMatchers.is(Reason.IN_SYNC));
+  }
+
+  /**
+   * Test that a missing link has drifted.
+   */
+  @Test
+  public void testAuditSymbolicLink_linkMissing_drifted() throws IOException {
+    // Set up test data.
+    Path testDirectory = Files.createTempDirectory("testAuditSymbolicLink_linkMissing_drifted");
+    testDirectory.toFile().deleteOnExit();
+
+    Path target = testDirectory.resolve("target");
+    Path link = testDirectory.resolve("link");
+
+    // Call the method under test.
+    SymlinkCreationResult result =
+        AutomaticSymlinkUtility.auditSymbolicLink(link, target, new SymlinkOptions(), context);
+
+    // Perform assertions.
+    Assert.assertThat("The result's reason did not match the expected value.", result.getReason(),
+        CoreMatchers.is(Reason.MISSING_LINK));
+    Assert.assertThat("The result's status did not match the expected value.", result.getStatus(),
+        CoreMatchers.is(Status.FAILED));
+    Assert.assertThat("The link path was not expected to exist.",
+        Files.exists(link, LinkOption.NOFOLLOW_LINKS), CoreMatchers.is(false));
+  }
+
+  /**
+   * Test that a missing link is recreated when repairs are enabled.
+   */
+  @Test
+  public void testAuditSymbolicLink_linkMissingRepair_recreated() throws IOException {
+    // Set up test data.
+    Path testDirectory =
+        Files.createTempDirectory("testAuditSymbolicLink_linkMissingRepair_recreated");
+    testDirectory.toFile().deleteOnExit();
+
+    Path target = testDirectory.resolve("target");
+    Path link = testDirectory.resolve("link");
+
+    SymlinkOptions options = new SymlinkOptions();
+    options.setRepair(true);
+
+    // Call the method under test.
+    SymlinkCreationResult result =
+        AutomaticSymlinkUtility.auditSymbolicLink(link, target, options, context);
+    link.toFile().deleteOnExit();
+
+    // Perform assertions.
+    Assert.assertThat("The result's reason did not match the expected value.", result.getReason(),
+        CoreMatchers.is(Reason.RECREATED));
+    Assert.assertThat("The link path did not point to the expected file.",
+        Files.readSymbolicLink(link), CoreMatchers.is(target));
+  }
+
+  /**
+   * Test that a file in place of the link has drifted, and is kept even when repairs are enabled.
+   */
+  @Test
+  public void testAuditSymbolicLink_fileInPlaceRepair_driftedAndKept() throws IOException {
+    // Set up test data.
+    Path testDirectory =
+        Files.createTempDirectory("testAuditSymbolicLink_fileInPlaceRepair_driftedAndKept");
+    testDirectory.toFile().deleteOnExit();
+
+    Path target = testDirectory.resolve("target");
+    Path link = Files.write(testDirectory.resolve("link"), new byte[] {1, 2, 3});
+    link.toFile().deleteOnExit();
+
+    SymlinkOptions options = new SymlinkOptions();
+    options.setRepair(true);
+
+    // Call the method under test.
+    SymlinkCreationResult result =
+        AutomaticSymlinkUtility.auditSymbolicLink(link, target, options, context);
+
+    // Perform assertions.
+    Assert.assertThat("The result's reason did not match the expected value.", result.getReason(),
+        CoreMatchers.is(Reason.REPLACED_LINK));
+    Assert.assertThat("The result's status did not match the expected value.", result.getStatus(),
+        CoreMatchers.is(Status.FAILED));
+    Assert.assertThat("The file's contents did not match the expected value.",
+        Files.readAllBytes(link), CoreMatchers.is(new byte[] {1, 2, 3}));
+  }
+
+  /**
+   * Test that a drifted link is repaired when a file left by an earlier repair is beside it.
+   */
+  @Test
+  public void testAuditSymbolicLink_repairLeftoverExists_repaired() throws IOException {
+    // Set up test data.
+    Path testDirectory =
+        Files.createTempDirectory("testAuditSymbolicLink_repairLeftoverExists_repaired");
+    testDirectory.toFile().deleteOnExit();
+
+    Path other = testDirectory.resolve("other");
+    Path link = Files.createSymbolicLink(testDirectory.resolve("link"), other);
+    link.toFile().deleteOnExit();
+    Path leftover = Files.createSymbolicLink(testDirectory.resolve(".link.repair"), other);
+    leftover.toFile().deleteOnExit();
+    Path target = testDirectory.resolve("target");
+
+    SymlinkOptions options = new SymlinkOptions();
+    options.setRepair(true);
+
+    // Call the method under test.
+    SymlinkCreationResult result =
+        AutomaticSymlinkUtility.auditSymbolicLink(link, target, options, context);
+
+    // Perform assertions.
+    Assert.assertThat("The result's reason did not match the expected value.", result.getReason(),
+        CoreMatchers.is(Reason.REPAIRED));
+    Assert.assertThat("The link path did not point to the expected file.",
+        Files.readSymbolicLink(link), CoreMatchers.is(target));
+  }
 }
@@ -0,0 +1,240 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import mockit.Expectations;
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Stream;
+
+/**
+ * The unit tests for {@link ChecksumVerifier}.
+ */
+public class ChecksumVerifierTest {
+
+  private final TimedFiles files = new OperationContext().getFiles();
+
+  /**
+   * Test that the source is deleted when the copy is verified.
+   */
+  @Test
+  public void testMove_copyVerified_sourceDeleted() throws IOException {
+    // Set up test data.
+    Path testDirectory = Files.createTempDirectory("testMove_copyVerified_sourceDeleted");
+    testDirectory.toFile().deleteOnExit();
+
+    Path source = Files.write(testDirectory.resolve("source"), new byte[] {1, 2, 3});
+    source.toFile().deleteOnExit();
+
+    Path destination = testDirectory.resolve("destination");
+
+    // Call the method under test.
+    List<Path> failures;
+
+    try (ChecksumVerifier verifier = new ChecksumVerifier(1, files)) {
+      verifier.move(source, destination);
+      failures = verifier.await();
+    }
+
+    destination.toFile().deleteOnExit();
+
+    // Perform assertions.
+    Assert.assertThat("No failures were expected.", failures.isEmpty(), CoreMatchers.is(true));
+
+    Assert.assertThat("The source path was not expected to exist.", Files.exists(source),
+        CoreMatchers.is(false));
+    Assert.assertThat("The destination path was expected to be a file.",
+        Files.isRegularFile(destination, LinkOption.NOFOLLOW_LINKS), CoreMatchers.is(true));
+    Assert.assertThat("The destination path's contents did not match the expected value.",
+        Files.readAllBytes(destination), CoreMatchers.is(new byte[] {1, 2, 3}));
+  }
+
+  /**
+   * Test that the copy is deleted and the source kept when the copy does not match.
+   */
+  @Test
+  public void testMove_copyNotVerified_copyDeletedSourceKept() throws IOException {
+    // Set up test data.
+    Path testDirectory =
+        Files.createTempDirectory("testMove_copyNotVerified_copyDeletedSourceKept");
+    testDirectory.toFile().deleteOnExit();
+
+    Path source = Files.write(testDirectory.resolve("source"), new byte[] {1, 2, 3});
+    source.toFile().deleteOnExit();
+
+    Path destination = testDirectory.resolve("destination");
+
+    // Record expectations.
+    new Expectations(FileHasher.class) {
+      {
+        FileHasher.digest(source, files);
+        result = new byte[] {1};
+
+        FileHasher.digest(destination, files);
+        result = new byte[] {2};
+      }
+    };
+
+    // Call the method under test.
+    List<Path> failures;
+
+    try (ChecksumVerifier verifier = new ChecksumVerifier(1, files)) {
+      verifier.move(source, destination);
+      failures = verifier.await();
+    }
+
+    // Perform assertions.
+    Assert.assertThat("The failures did not match the expected value.", failures,
+        CoreMatchers.is(Collections.singletonList(source)));
+
+    Assert.assertThat("The source path was expected to be a file.",
+        Files.isRegularFile(source, LinkOption.NOFOLLOW_LINKS), CoreMatchers.is(true));
+    Assert.assertThat("The destination path was not expected to exist.",
+        Files.exists(destination), CoreMatchers.is(false));
+  }
+
+  /**
+   * Test that all files are verified when more files are moved than there are workers.
+   */
+  @Test
+  public void testAwait_multipleFiles_allVerified() throws IOException {
+    // Set up test data.
+    Path testDirectory = Files.createTempDirectory("testAwait_multipleFiles_allVerified");
+    testDirectory.toFile().deleteOnExit();
+
+    Path sourceDirectory = Files.createDirectory(testDirectory.resolve("source"));
+    sourceDirectory.toFile().deleteOnExit();
+    Path destinationDirectory = Files.createDirectory(testDirectory.resolve("destination"));
+    destinationDirectory.toFile().deleteOnExit();
+
+    // Call the method under test.
+    List<Path> failures;
+
+    try (ChecksumVerifier verifier = new ChecksumVerifier(2, files)) {
+      for (int i = 0; i < 20; i++) {
+        Path source = Files.write(sourceDirectory.resolve("file" + i), new byte[] {(byte) i});
+        source.toFile().deleteOnExit();
+
+        Path destination = destinationDirectory.resolve("file" + i);
+        destination.toFile().deleteOnExit();
+
+        verifier.move(source, destination);
+      }
+
+      failures = verifier.await();
+    }
+
+    // Perform assertions.
+    Assert.assertThat("No failures were expected.", failures.isEmpty(), CoreMatchers.is(true));
+
+    try (Stream<Path> sources = Files.list(sourceDirectory)) {
+      Assert.assertThat("All source files were expected to be deleted.", sources.count(),
+          CoreMatchers.is(0L));
+    }
+
+    try (Stream<Path> destinations = Files.list(destinationDirectory)) {
+      Assert.assertThat("All destination files were expected to exist.", destinations.count(),
+          CoreMatchers.is(20L));
+    }
+  }
+
+  /**
+   * Test that the copy is deleted and the source kept when an error occurs verifying the copy.
+   */
+  @Test
+  public void testMove_verificationError_copyDeleted() throws IOException {
+    // Set up test data.
+    Path testDirectory = Files.createTempDirectory("testMove_verificationError_copyDeleted");
+    testDirectory.toFile().deleteOnExit();
+
+    Path source = Files.write(testDirectory.resolve("source"), new byte[] {1, 2, 3});
+    source.toFile().deleteOnExit();
+
+    Path destination = testDirectory.resolve("destination");
+    destination.toFile().deleteOnExit();
+
+    // Record expectations.
+    new Expectations(FileHasher.class) {
+      {
+        FileHasher.digest(source, files);
+        result = new IOException("Expected exception");
+      }
+    };
+
+    // Call the method under test.
+    List<Path> failures;
+
+    try (ChecksumVerifier verifier = new ChecksumVerifier(1, files)) {
+      verifier.move(source, destination);
+      failures = verifier.await();
+    }
+
+    // Perform assertions.
+    Assert.assertThat("The failures did not match the expected value.", failures,
+        CoreMatchers.is(Collections.singletonList(source)));
+
+    Assert.assertThat("The source path was expected to be a file.",
+        Files.isRegularFile(source, LinkOption.NOFOLLOW_LINKS), CoreMatchers.is(true));
+    Assert.assertThat("The destination path was not expected to exist.",
+        Files.exists(destination), CoreMatchers.is(false));
+  }
+
+  /**
+   * Test that closing a verifier which shares workers waits for its files to be verified, without
+   * stopping the shared workers.
+   */
+  @Test
+  public void testClose_sharedWorkers_verifiedAndWorkersKept() throws IOException {
+    // Set up test data.
+    Path testDirectory =
+        Files.createTempDirectory("testClose_sharedWorkers_verifiedAndWorkersKept");
+    testDirectory.toFile().deleteOnExit();
+
+    Path source = Files.write(testDirectory.resolve("source"), new byte[] {1, 2, 3});
+    source.toFile().deleteOnExit();
+
+    Path destination = testDirectory.resolve("destination");
+    destination.toFile().deleteOnExit();
+
+    try (OperationContext context = new OperationContext()) {
+      ExecutorService executor = context.getVerificationExecutor();
+
+      // Call the method under test.
+      try (ChecksumVerifier verifier = new ChecksumVerifier(executor, 1, context.getFiles())) {
+        verifier.move(source, destination);
+      }
+
+      // Perform assertions.
+      Assert.assertThat("The source path was not expected to exist.", Files.exists(source),
+          CoreMatchers.is(false));
+      Assert.assertThat("The shared workers were not expected to be stopped.",
+          executor.isShutdown(), CoreMatchers.is(false));
+    }
+  }
+}
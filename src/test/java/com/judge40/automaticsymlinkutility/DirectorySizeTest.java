@@ -0,0 +1,164 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+/**
+ * The unit tests for {@link DirectorySize}.
+ */
+public class DirectorySizeTest {
+
+  private final TimedFiles files = new OperationContext().getFiles();
+
+  /**
+   * Test that zero bytes and files are returned when the directory is empty.
+   */
+  @Test
+  public void testScan_emptyDirectory_zero() throws IOException {
+    // Set up test data.
+    Path testDirectory = Files.createTempDirectory("testScan_emptyDirectory_zero");
+    testDirectory.toFile().deleteOnExit();
+
+    // Call the method under test.
+    DirectorySize size = DirectorySize.scan(testDirectory, files);
+
+    // Perform assertions.
+    Assert.assertThat("The bytes did not match the expected value.", size.getBytes(),
+        CoreMatchers.is(0L));
+    Assert.assertThat("The file count did not match the expected value.", size.getFileCount(),
+        CoreMatchers.is(0L));
+  }
+
+  /**
+   * Test that the files of all sub-directories are totalled when the directory is nested.
+   */
+  @Test
+  public void testScan_nestedDirectories_totalled() throws IOException {
+    // Set up test data.
+    Path testDirectory = Files.createTempDirectory("testScan_nestedDirectories_totalled");
+    testDirectory.toFile().deleteOnExit();
+
+    Path file = Files.write(testDirectory.resolve("file"), new byte[10]);
+    file.toFile().deleteOnExit();
+
+    Path subDirectory = Files.createTempDirectory(testDirectory, "subDirectory");
+    subDirectory.toFile().deleteOnExit();
+    Path subFile = Files.write(subDirectory.resolve("subFile"), new byte[20]);
+    subFile.toFile().deleteOnExit();
+
+    Path subSubDirectory = Files.createTempDirectory(subDirectory, "subSubDirectory");
+    subSubDirectory.toFile().deleteOnExit();
+    Path subSubFile = Files.write(subSubDirectory.resolve("subSubFile"), new byte[30]);
+    subSubFile.toFile().deleteOnExit();
+
+    // Call the method under test.
+    DirectorySize size = DirectorySize.scan(testDirectory, files);
+
+    // Perform assertions.
+    Assert.assertThat("The bytes did not match the expected value.", size.getBytes(),
+        CoreMatchers.is(60L));
+    Assert.assertThat("The file count did not match the expected value.", size.getFileCount(),
+        CoreMatchers.is(3L));
+  }
+
+  /**
+   * Test that symbolic links are counted as files and not followed.
+   */
+  @Test
+  public void testScan_symbolicLink_notFollowed() throws IOException {
+    // Set up test data.
+    Path testDirectory = Files.createTempDirectory("testScan_symbolicLink_notFollowed");
+    testDirectory.toFile().deleteOnExit();
+
+    Path linkedDirectory = Files.createTempDirectory("linkedDirectory");
+    linkedDirectory.toFile().deleteOnExit();
+    Path linkedFile = Files.write(linkedDirectory.resolve("linkedFile"), new byte[100]);
+    linkedFile.toFile().deleteOnExit();
+
+    Path link = Files.createSymbolicLink(testDirectory.resolve("link"), linkedDirectory);
+    link.toFile().deleteOnExit();
+
+    // Call the method under test.
+    DirectorySize size = DirectorySize.scan(testDirectory, files);
+
+    // Perform assertions.
+    Assert.assertThat("The file count did not match the expected value.", size.getFileCount(),
+        CoreMatchers.is(1L));
+    Assert.assertThat("The bytes were not expected to include the linked file.",
+        size.getBytes() < 100L, CoreMatchers.is(true));
+  }
+
+  /**
+   * Test that an exception is thrown when the directory does not exist.
+   */
+  @Test(expected = NoSuchFileException.class)
+  public void testScan_notExists_exception() throws IOException {
+    // Set up test data.
+    Path testDirectory = Files.createTempDirectory("testScan_notExists_exception");
+    testDirectory.toFile().deleteOnExit();
+
+    // Call the method under test.
+    DirectorySize.scan(testDirectory.resolve("notExists"), files);
+  }
+
+  /**
+   * Test that only the files which do not exist in the destination are totalled when a destination
+   * is given, including those within sub-directories which do not exist in the destination.
+   */
+  @Test
+  public void testScan_destination_missingFilesTotalled() throws IOException {
+    // Set up test data.
+    Path testDirectory = Files.createTempDirectory("testScan_destination_missingFilesTotalled");
+    testDirectory.toFile().deleteOnExit();
+
+    Path source = Files.createDirectory(testDirectory.resolve("source"));
+    source.toFile().deleteOnExit();
+    Path existingFile = Files.write(source.resolve("existingFile"), new byte[10]);
+    existingFile.toFile().deleteOnExit();
+    Path missingFile = Files.write(source.resolve("missingFile"), new byte[20]);
+    missingFile.toFile().deleteOnExit();
+    Path subDirectory = Files.createDirectory(source.resolve("subDirectory"));
+    subDirectory.toFile().deleteOnExit();
+    Path subFile = Files.write(subDirectory.resolve("subFile"), new byte[30]);
+    subFile.toFile().deleteOnExit();
+
+    Path destination = Files.createDirectory(testDirectory.resolve("destination"));
+    destination.toFile().deleteOnExit();
+    Path destinationFile = Files.write(destination.resolve("existingFile"), new byte[10]);
+    destinationFile.toFile().deleteOnExit();
+
+    // Call the method under test.
+    DirectorySize size = DirectorySize.scan(source, destination, files);
+
+    // Perform assertions.
+    Assert.assertThat("The bytes did not match the expected value.", size.getBytes(),
+        CoreMatchers.is(50L));
+    Assert.assertThat("The file count did not match the expected value.", size.getFileCount(),
+        CoreMatchers.is(2L));
+  }
+}
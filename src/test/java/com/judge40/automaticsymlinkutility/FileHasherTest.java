@@ -0,0 +1,164 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Base64;
+
+/**
+ * The unit tests for {@link FileHasher}.
+ */
+public class FileHasherTest {
+
+  private final TimedFiles files = new OperationContext().getFiles();
+
+  /**
+   * Test that the SHA-256 digest of the file's contents is returned.
+   */
+  @Test
+  public void testDigest_file_sha256() throws IOException {
+    // Set up test data.
+    Path file = Files.createTempFile("testDigest_file_sha256", null);
+    file.toFile().deleteOnExit();
+    Files.write(file, "abc".getBytes(StandardCharsets.UTF_8));
+
+    // Call the method under test.
+    byte[] digest = FileHasher.digest(file, files);
+
+    // Perform assertions.
+    Assert.assertThat("The digest did not match the expected value.",
+        Base64.getEncoder().encodeToString(digest),
+        CoreMatchers.is("ungWv48Bz+pBQUDeXa4iI7ADYaOWF3qctBD/YfIAFa0="));
+  }
+
+  /**
+   * Test that true is returned when the files have the same contents.
+   */
+  @Test
+  public void testContentEquals_sameContents_true() throws IOException {
+    // Set up test data.
+    Path first = Files.createTempFile("testContentEquals_sameContents_true", null);
+    first.toFile().deleteOnExit();
+    Files.write(first, "contents".getBytes(StandardCharsets.UTF_8));
+
+    Path second = Files.createTempFile("testContentEquals_sameContents_true", null);
+    second.toFile().deleteOnExit();
+    Files.write(second, "contents".getBytes(StandardCharsets.UTF_8));
+
+    // Call the method under test.
+    boolean contentEquals = FileHasher.contentEquals(first, second, files);
+
+    // Perform assertions.
+    Assert.assertThat("The files were expected to have the same contents.", contentEquals,
+        CoreMatchers.is(true));
+  }
+
+  /**
+   * Test that the files are compared on the calling thread when the executor does not run the
+   * digest it is given, so that the comparison never waits for a busy executor.
+   */
+  @Test
+  public void testContentEquals_executorNotRunning_comparedOnCallingThread() throws IOException {
+    // Set up test data.
+    Path first =
+        Files.createTempFile("testContentEquals_executorNotRunning_comparedOnCallingThread", null);
+    first.toFile().deleteOnExit();
+    Files.write(first, "contents".getBytes(StandardCharsets.UTF_8));
+
+    Path second =
+        Files.createTempFile("testContentEquals_executorNotRunning_comparedOnCallingThread", null);
+    second.toFile().deleteOnExit();
+    Files.write(second, "contents".getBytes(StandardCharsets.UTF_8));
+
+    // Call the method under test.
+    boolean contentEquals = FileHasher.contentEquals(first, second, files, runnable -> {
+      // The digest is queued behind other work and never started.
+    });
+
+    // Perform assertions.
+    Assert.assertThat("The files were expected to have the same contents.", contentEquals,
+        CoreMatchers.is(true));
+  }
+
+  /**
+   * Test that false is returned when the files have the same size but different contents.
+   */
+  @Test
+  public void testContentEquals_sameSizeDifferentContents_false() throws IOException {
+    // Set up test data.
+    Path first = Files.createTempFile("testContentEquals_sameSizeDifferentContents_false", null);
+    first.toFile().deleteOnExit();
+    Files.write(first, "contents1".getBytes(StandardCharsets.UTF_8));
+
+    Path second = Files.createTempFile("testContentEquals_sameSizeDifferentContents_false", null);
+    second.toFile().deleteOnExit();
+    Files.write(second, "contents2".getBytes(StandardCharsets.UTF_8));
+
+    // Call the method under test.
+    boolean contentEquals = FileHasher.contentEquals(first, second, files);
+
+    // Perform assertions.
+    Assert.assertThat("The files were expected to have different contents.", contentEquals,
+        CoreMatchers.is(false));
+  }
+
+  /**
+   * Test that false is returned, without reading either file, when the files have different sizes.
+   */
+  @Test
+  public void testContentEquals_differentSizes_false() throws IOException {
+    // Set up test data.
+    Path first = Files.createTempFile("testContentEquals_differentSizes_false", null);
+    first.toFile().deleteOnExit();
+    Files.write(first, "contents".getBytes(StandardCharsets.UTF_8));
+
+    Path second = Files.createTempFile("testContentEquals_differentSizes_false", null);
+    second.toFile().deleteOnExit();
+    Files.write(second, "longer contents".getBytes(StandardCharsets.UTF_8));
+
+    // Call the method under test.
+    boolean contentEquals = FileHasher.contentEquals(first, second, files);
+
+    // Perform assertions.
+    Assert.assertThat("The files were expected to have different contents.", contentEquals,
+        CoreMatchers.is(false));
+  }
+
+  /**
+   * Test that an exception is thrown when a file does not exist.
+   */
+  @Test(expected = NoSuchFileException.class)
+  public void testContentEquals_notExists_exception() throws IOException {
+    // Set up test data.
+    Path first = Files.createTempFile("testContentEquals_notExists_exception", null);
+    first.toFile().deleteOnExit();
+
+    // Call the method under test.
+    FileHasher.contentEquals(first, first.resolveSibling("notExists"), files);
+  }
+}
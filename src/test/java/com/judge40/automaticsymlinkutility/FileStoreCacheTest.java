@@ -0,0 +1,447 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import com.judge40.automaticsymlinkutility.FileStoreCache.Capabilities;
+
+import mockit.Deencapsulation;
+import mockit.Expectations;
+import mockit.Mocked;
+import mockit.Verifications;
+import org.hamcrest.CoreMatchers;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.CopyOption;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * The unit tests for {@link FileStoreCache}.
+ */
+public class FileStoreCacheTest {
+
+  private final FileStoreCache cache = new FileStoreCache();
+
+  @After
+  public void tearDown() {
+    cache.clear();
+  }
+
+  /**
+   * Test that the file store is only looked up once when paths in the same directory are requested
+   * multiple times.
+   */
+  @Test
+  public void testGetFileStore_sameDirectory_lookedUpOnce() throws IOException {
+    // Set up test data.
+    Path testDirectory = Files.createTempDirectory("testGetFileStore_sameDirectory_lookedUpOnce");
+    testDirectory.toFile().deleteOnExit();
+
+    Path file = Files.createFile(testDirectory.resolve("file"));
+    file.toFile().deleteOnExit();
+
+    new Expectations(Files.class) {};
+
+    // Call the method under test.
+    FileStore directoryStore = cache.getFileStore(testDirectory);
+    FileStore fileStore = cache.getFileStore(file);
+    FileStore notExistsStore = cache.getFileStore(testDirectory.resolve("notExists"));
+
+    // Perform assertions.
+    Assert.assertThat("The file store did not match the expected value.", directoryStore,
+        CoreMatchers.is(Files.getFileStore(testDirectory)));
+    Assert.assertThat("The file's file store did not match the directory's.", fileStore,
+        CoreMatchers.sameInstance(directoryStore));
+    Assert.assertThat("The non-existent path's file store did not match the directory's.",
+        notExistsStore, CoreMatchers.sameInstance(directoryStore));
+
+    // Verify expectations.
+    new Verifications() {
+      {
+        Files.getFileStore(testDirectory.toAbsolutePath());
+        times = 2;
+      }
+    };
+  }
+
+  /**
+   * Test that symbolic links are supported when the probe link can be created.
+   */
+  @Test
+  public void testGetCapabilities_probeCreated_symbolicLinksSupported() throws IOException {
+    // Set up test data.
+    Path testDirectory =
+        Files.createTempDirectory("testGetCapabilities_probeCreated_symbolicLinksSupported");
+    testDirectory.toFile().deleteOnExit();
+
+    // Call the method under test.
+    Capabilities capabilities = cache.getCapabilities(testDirectory.resolve("link"));
+
+    // Perform assertions.
+    Assert.assertThat("Symbolic links were expected to be supported.",
+        capabilities.isSymbolicLinksSupported(), CoreMatchers.is(true));
+    Assert.assertThat("The type did not match the expected value.", capabilities.getType(),
+        CoreMatchers.is(Files.getFileStore(testDirectory).type()));
+
+    try (Stream<Path> entries = Files.list(testDirectory)) {
+      Assert.assertThat("The probe link was expected to be deleted.", entries.count(),
+          CoreMatchers.is(0L));
+    }
+  }
+
+  /**
+   * Test that symbolic links are not supported, and the capabilities are only probed once, when
+   * the probe link can not be created.
+   */
+  @Test
+  public void testGetCapabilities_probeFailed_symbolicLinksNotSupportedAndCached()
+      throws IOException {
+    // Set up test data.
+    Path testDirectory = Files
+        .createTempDirectory("testGetCapabilities_probeFailed_symbolicLinksNotSupportedAndCached");
+    testDirectory.toFile().deleteOnExit();
+
+    // Record expectations.
+    new Expectations(Files.class) {
+      {
+        Files.createSymbolicLink((Path) any, (Path) any);
+        result = new FileSystemException("link", null, "Operation not permitted");
+      }
+    };
+
+    // Call the method under test.
+    Capabilities capabilities = cache.getCapabilities(testDirectory.resolve("link1"));
+    Capabilities cachedCapabilities = cache.getCapabilities(testDirectory.resolve("link2"));
+
+    // Perform assertions.
+    Assert.assertThat("Symbolic links were not expected to be supported.",
+        capabilities.isSymbolicLinksSupported(), CoreMatchers.is(false));
+    Assert.assertThat("The capabilities were expected to be cached.", cachedCapabilities,
+        CoreMatchers.sameInstance(capabilities));
+
+    // Verify expectations.
+    new Verifications() {
+      {
+        Files.createSymbolicLink((Path) any, (Path) any);
+        times = 1;
+      }
+    };
+  }
+
+  /**
+   * Test that symbolic links are assumed to be supported, and the capabilities are only probed
+   * once, when the probe link fails for a reason which may be specific to the directory.
+   */
+  @Test
+  public void testGetCapabilities_probeInconclusive_symbolicLinksSupportedAndCached()
+      throws IOException {
+    // Set up test data.
+    Path testDirectory = Files.createTempDirectory(
+        "testGetCapabilities_probeInconclusive_symbolicLinksSupportedAndCached");
+    testDirectory.toFile().deleteOnExit();
+
+    // Record expectations.
+    new Expectations(Files.class) {
+      {
+        Files.createSymbolicLink((Path) any, (Path) any);
+        result = new FileSystemException("link", null, "Read-only file system");
+      }
+    };
+
+    // Call the method under test.
+    Capabilities capabilities = cache.getCapabilities(testDirectory.resolve("link1"));
+    Capabilities cachedCapabilities = cache.getCapabilities(testDirectory.resolve("link2"));
+
+    // Perform assertions.
+    Assert.assertThat("Symbolic links were expected to be assumed supported.",
+        capabilities.isSymbolicLinksSupported(), CoreMatchers.is(true));
+    Assert.assertThat("The capabilities were expected to be cached.", cachedCapabilities,
+        CoreMatchers.sameInstance(capabilities));
+
+    // Verify expectations.
+    new Verifications() {
+      {
+        Files.createSymbolicLink((Path) any, (Path) any);
+        times = 1;
+      }
+    };
+  }
+
+  /**
+   * Test that the ancestors of a path are not checked when the path's directory is cached.
+   */
+  @Test
+  public void testGetFileStore_directoryCached_ancestorsNotChecked() throws IOException {
+    // Set up test data.
+    Path testDirectory =
+        Files.createTempDirectory("testGetFileStore_directoryCached_ancestorsNotChecked");
+    testDirectory.toFile().deleteOnExit();
+
+    FileStore directoryStore = cache.getFileStore(testDirectory);
+
+    new Expectations(Files.class) {};
+
+    // Call the method under test.
+    FileStore cachedStore = cache.getFileStore(testDirectory);
+    FileStore notExistsStore = cache.getFileStore(testDirectory.resolve("notExists"));
+
+    // Perform assertions.
+    Assert.assertThat("The cached file store did not match the directory's.", cachedStore,
+        CoreMatchers.sameInstance(directoryStore));
+    Assert.assertThat("The non-existent path's file store did not match the directory's.",
+        notExistsStore, CoreMatchers.sameInstance(directoryStore));
+
+    // Verify expectations.
+    new Verifications() {
+      {
+        Files.notExists((Path) any, (LinkOption[]) any);
+        times = 0;
+
+        Files.getFileStore((Path) any);
+        times = 0;
+      }
+    };
+  }
+
+  /**
+   * Test that only the most recently used directories' file stores are kept.
+   */
+  @Test
+  public void testGetFileStore_manyDirectories_leastRecentlyUsedDiscarded() throws IOException {
+    // Set up test data.
+    Path testDirectory =
+        Files.createTempDirectory("testGetFileStore_manyDirectories_leastRecentlyUsedDiscarded");
+    testDirectory.toFile().deleteOnExit();
+
+    int maxDirectories = Deencapsulation.getField(FileStoreCache.class, "MAX_CACHED_DIRECTORIES");
+    Path firstDirectory = null;
+
+    // Call the method under test.
+    for (int i = 0; i <= maxDirectories; i++) {
+      Path directory = Files.createDirectory(testDirectory.resolve("directory" + i));
+      directory.toFile().deleteOnExit();
+      cache.getFileStore(directory);
+      firstDirectory = i == 0 ? directory : firstDirectory;
+    }
+
+    // Perform assertions.
+    Map<Path, FileStore> fileStores = Deencapsulation.getField(cache, "fileStores");
+    Assert.assertThat("The number of cached directories did not match the expected value.",
+        fileStores.size(), CoreMatchers.is(maxDirectories));
+    Assert.assertThat("The least recently used directory was not expected to be cached.",
+        fileStores.containsKey(firstDirectory), CoreMatchers.is(false));
+  }
+
+  /**
+   * Test that rename is supported without probing when both paths are on the same file store.
+   */
+  @Test
+  public void testIsRenameSupported_sameFileStore_true() throws IOException {
+    // Set up test data.
+    Path testDirectory = Files.createTempDirectory("testIsRenameSupported_sameFileStore_true");
+    testDirectory.toFile().deleteOnExit();
+
+    new Expectations(Files.class) {};
+
+    // Call the method under test.
+    boolean renameSupported =
+        cache.isRenameSupported(testDirectory.resolve("source"), testDirectory.resolve("target"));
+
+    // Perform assertions.
+    Assert.assertThat("Rename was expected to be supported.", renameSupported,
+        CoreMatchers.is(true));
+
+    // Verify expectations.
+    new Verifications() {
+      {
+        Files.createTempFile((Path) any, anyString, anyString);
+        times = 0;
+      }
+    };
+  }
+
+  /**
+   * Test that rename is not supported, and only probed once, when the paths are on different file
+   * stores and an atomic move between them fails.
+   */
+  @Test
+  public void testIsRenameSupported_differentFileStoreMoveFailed_falseAndCached(
+      @Mocked FileStore sourceStore, @Mocked FileStore destinationStore) throws IOException {
+    // Set up test data.
+    Path testDirectory = Files
+        .createTempDirectory("testIsRenameSupported_differentFileStoreMoveFailed_falseAndCached");
+    testDirectory.toFile().deleteOnExit();
+
+    Path sourceDirectory = Files.createDirectory(testDirectory.resolve("source"));
+    sourceDirectory.toFile().deleteOnExit();
+    Path destinationDirectory = Files.createDirectory(testDirectory.resolve("destination"));
+    destinationDirectory.toFile().deleteOnExit();
+
+    // Record expectations.
+    new Expectations(Files.class) {
+      {
+        Files.getFileStore(sourceDirectory);
+        result = sourceStore;
+
+        Files.getFileStore(destinationDirectory);
+        result = destinationStore;
+
+        Files.move((Path) any, (Path) any, (CopyOption[]) any);
+        result = new AtomicMoveNotSupportedException(null, null, "Expected exception.");
+      }
+    };
+
+    // Call the method under test.
+    boolean renameSupported = cache.isRenameSupported(sourceDirectory, destinationDirectory);
+    boolean cachedRenameSupported = cache.isRenameSupported(sourceDirectory, destinationDirectory);
+
+    // Perform assertions.
+    Assert.assertThat("Rename was not expected to be supported.", renameSupported,
+        CoreMatchers.is(false));
+    Assert.assertThat("Rename was not expected to be supported.", cachedRenameSupported,
+        CoreMatchers.is(false));
+
+    try (Stream<Path> entries = Files.list(sourceDirectory)) {
+      Assert.assertThat("The probe file was expected to be deleted.", entries.count(),
+          CoreMatchers.is(0L));
+    }
+
+    // Verify expectations.
+    new Verifications() {
+      {
+        Files.createTempFile((Path) any, anyString, anyString);
+        times = 1;
+      }
+    };
+  }
+
+  /**
+   * Test that rename is assumed not to be supported, and only probed once, when the paths are on
+   * different file stores and the probe file can not be created.
+   */
+  @Test
+  public void testIsRenameSupported_probeInconclusive_falseAndCached(
+      @Mocked FileStore sourceStore, @Mocked FileStore destinationStore) throws IOException {
+    // Set up test data.
+    Path testDirectory =
+        Files.createTempDirectory("testIsRenameSupported_probeInconclusive_falseAndCached");
+    testDirectory.toFile().deleteOnExit();
+
+    Path sourceDirectory = Files.createDirectory(testDirectory.resolve("source"));
+    sourceDirectory.toFile().deleteOnExit();
+    Path destinationDirectory = Files.createDirectory(testDirectory.resolve("destination"));
+    destinationDirectory.toFile().deleteOnExit();
+
+    // Record expectations.
+    new Expectations(Files.class) {
+      {
+        Files.getFileStore(sourceDirectory);
+        result = sourceStore;
+
+        Files.getFileStore(destinationDirectory);
+        result = destinationStore;
+
+        Files.createTempFile((Path) any, anyString, anyString);
+        result = new IOException("Expected exception.");
+      }
+    };
+
+    // Call the method under test.
+    boolean renameSupported = cache.isRenameSupported(sourceDirectory, destinationDirectory);
+    boolean cachedRenameSupported = cache.isRenameSupported(sourceDirectory, destinationDirectory);
+
+    // Perform assertions.
+    Assert.assertThat("Rename was not expected to be supported.", renameSupported,
+        CoreMatchers.is(false));
+    Assert.assertThat("Rename was not expected to be supported.", cachedRenameSupported,
+        CoreMatchers.is(false));
+
+    // Verify expectations.
+    new Verifications() {
+      {
+        Files.createTempFile((Path) any, anyString, anyString);
+        times = 1;
+      }
+    };
+  }
+
+  /**
+   * Test that the file store of a path which does not exist is found from its closest existing
+   * ancestor, and is then cached.
+   */
+  @Test
+  public void testFindFileStore_pathNotExists_ancestorStoreCached() throws IOException {
+    // Set up test data.
+    Path testDirectory =
+        Files.createTempDirectory("testFindFileStore_pathNotExists_ancestorStoreCached");
+    testDirectory.toFile().deleteOnExit();
+    Path file = testDirectory.resolve("directory").resolve("file");
+
+    // Call the method under test.
+    FileStore fileStore = cache.findFileStore(file);
+
+    // Perform assertions.
+    Assert.assertThat("The file store did not match the ancestor's.", fileStore,
+        CoreMatchers.is(Files.getFileStore(testDirectory)));
+
+    new Expectations(Files.class) {
+      {
+        Files.getFileStore((Path) any);
+        times = 0;
+      }
+    };
+
+    Assert.assertThat("The cached file store did not match the ancestor's.",
+        cache.findFileStore(file), CoreMatchers.sameInstance(fileStore));
+  }
+
+  /**
+   * Test that null is returned when the file store can not be found.
+   */
+  @Test
+  public void testFindFileStore_getFileStoreFails_null() throws IOException {
+    // Set up test data.
+    Path testDirectory = Files.createTempDirectory("testFindFileStore_getFileStoreFails_null");
+    testDirectory.toFile().deleteOnExit();
+
+    // Record expectations.
+    new Expectations(Files.class) {
+      {
+        Files.getFileStore((Path) any);
+        result = new IOException("Expected exception.");
+      }
+    };
+
+    // Call the method under test.
+    FileStore fileStore = cache.findFileStore(testDirectory);
+
+    // Perform assertions.
+    Assert.assertThat("No file store was expected.", fileStore, CoreMatchers.nullValue());
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import com.judge40.automaticsymlinkutility.SymlinkCreationResult.Reason;
+import com.judge40.automaticsymlinkutility.SymlinkCreationResult.Status;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * The unit tests for {@link JsonLinesResultSink}.
+ */
+public class JsonLinesResultSinkTest {
+
+  private ByteArrayOutputStream out;
+  private JsonLinesResultSink sink;
+
+  /**
+   * Create the sink under test with an in-memory stream.
+   * 
+   * @throws UnsupportedEncodingException If the stream's encoding is not supported.
+   */
+  @Before
+  public void setUp() throws UnsupportedEncodingException {
+    out = new ByteArrayOutputStream();
+    sink = new JsonLinesResultSink(new PrintStream(out, false, StandardCharsets.UTF_8.name()));
+  }
+
+  /**
+   * Test that a result is written as a single JSON object.
+   * 
+   * @throws UnsupportedEncodingException If the stream's encoding is not supported.
+   */
+  @Test
+  public void testResult_result_jsonLineWritten() throws UnsupportedEncodingException {
+    // Call the method under test.
+    sink.result("group1", new SymlinkCreationResult(Status.FAILED, "Failed."));
+    sink.close();
+
+    // Perform assertions.
+    Assert.assertThat("The output did not match the expected value.",
+        out.toString(StandardCharsets.UTF_8.name()),
+        CoreMatchers.is("{\"event\":\"result\",\"group\":\"group1\",\"status\":\"FAILED\","
+            + "\"reason\":null,\"link\":null,\"target\":null,\"paths\":[],\"durationNanos\":0,"
+            + "\"message\":\"Failed.\"}" + System.lineSeparator()));
+  }
+
+  /**
+   * Test that a result's reason and paths are written when it has them, without its message.
+   * 
+   * @throws UnsupportedEncodingException If the stream's encoding is not supported.
+   */
+  @Test
+  public void testResult_reason_reasonWrittenWithoutMessage() throws UnsupportedEncodingException {
+    // Set up test data.
+    SymlinkCreationResult result =
+        new SymlinkCreationResult(Reason.NEITHER_EXIST, Paths.get("link"), Paths.get("target"));
+    result.setDuration(5);
+
+    // Call the method under test.
+    sink.result(null, result);
+    sink.close();
+
+    // Perform assertions.
+    Assert.assertThat("The output did not match the expected value.",
+        out.toString(StandardCharsets.UTF_8.name()),
+        CoreMatchers.is("{\"event\":\"result\",\"group\":null,\"status\":\"SKIPPED\","
+            + "\"reason\":\"NEITHER_EXIST\",\"link\":\"link\",\"target\":\"target\","
+            + "\"paths\":[],\"durationNanos\":5}" + System.lineSeparator()));
+  }
+
+  /**
+   * Test that the affected paths and message of a result are written when messages are included.
+   * 
+   * @throws UnsupportedEncodingException If the stream's encoding is not supported.
+   */
+  @Test
+  public void testResult_affectedPathsAndMessages_pathsAndMessageWritten()
+      throws UnsupportedEncodingException {
+    // Set up test data.
+    sink =
+        new JsonLinesResultSink(new PrintStream(out, false, StandardCharsets.UTF_8.name()), true);
+    SymlinkCreationResult result = new SymlinkCreationResult(Reason.MERGE_CONFLICT,
+        Paths.get("link"), Paths.get("target"), Arrays.asList(Paths.get("a"), Paths.get("b")));
+
+    // Call the method under test.
+    sink.result("group1", result);
+    sink.close();
+
+    // Perform assertions.
+    Assert.assertThat("The output did not match the expected value.",
+        out.toString(StandardCharsets.UTF_8.name()),
+        CoreMatchers.is("{\"event\":\"result\",\"group\":\"group1\",\"status\":\"FAILED\","
+            + "\"reason\":\"MERGE_CONFLICT\",\"link\":\"link\",\"target\":\"target\","
+            + "\"paths\":[\"a\",\"b\"],\"durationNanos\":0,\"message\":\"A link was not "
+            + "created because 2 files in 'link' conflict with 'target': [a, b]\"}"
+            + System.lineSeparator()));
+  }
+
+  /**
+   * Test that the message of an I/O error is written even when messages are not included.
+   * 
+   * @throws UnsupportedEncodingException If the stream's encoding is not supported.
+   */
+  @Test
+  public void testResult_ioError_messageWritten() throws UnsupportedEncodingException {
+    // Set up test data.
+    SymlinkCreationResult result = new SymlinkCreationResult(Paths.get("link"),
+        Paths.get("target"), new IOException("Access denied."));
+
+    // Call the method under test.
+    sink.result("group1", result);
+    sink.close();
+
+    // Perform assertions.
+    Assert.assertThat("The output did not match the expected value.",
+        out.toString(StandardCharsets.UTF_8.name()),
+        CoreMatchers.is("{\"event\":\"result\",\"group\":\"group1\",\"status\":\"FAILED\","
+            + "\"reason\":\"IO_ERROR\",\"link\":\"link\",\"target\":\"target\","
+            + "\"paths\":[],\"durationNanos\":0,\"message\":\"Access denied.\"}"
+            + System.lineSeparator()));
+  }
+
+  /**
+   * Test that null values are written as JSON nulls.
+   * 
+   * @throws UnsupportedEncodingException If the stream's encoding is not supported.
+   */
+  @Test
+  public void testSymlinkSkipped_noGroup_nullWritten() throws UnsupportedEncodingException {
+    // Call the method under test.
+    sink.symlinkSkipped(null, "context");
+    sink.close();
+
+    // Perform assertions.
+    Assert.assertThat("The output did not match the expected value.",
+        out.toString(StandardCharsets.UTF_8.name()),
+        CoreMatchers.is("{\"event\":\"symlinkSkipped\",\"group\":null,\"contextPath\":\"context\"}"
+            + System.lineSeparator()));
+  }
+
+  /**
+   * Test that special characters in strings are escaped.
+   */
+  @Test
+  public void testJsonObject_specialCharacters_escaped() {
+    // Call the method under test.
+    String json = new JsonLinesResultSink.JsonObject("event").add("path", "C:\\a \"b\"\n\u0001")
+        .add("count", 2).toString();
+
+    // Perform assertions.
+    Assert.assertThat("The JSON did not match the expected value.", json, CoreMatchers
+        .is("{\"event\":\"event\",\"path\":\"C:\\\\a \\\"b\\\"\\n\\u0001\",\"count\":2}"));
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * The unit tests for {@link LatencyHistogram}.
+ */
+public class LatencyHistogramTest {
+
+  /**
+   * Test that zero is returned for a percentile when nothing has been recorded.
+   */
+  @Test
+  public void testGetPercentile_empty_zero() {
+    // Call the method under test.
+    long percentile = new LatencyHistogram().getPercentile(50);
+
+    // Perform assertions.
+    Assert.assertThat("The percentile did not match the expected value.", percentile,
+        CoreMatchers.is(0L));
+  }
+
+  /**
+   * Test that percentiles are within the histogram's precision of the recorded values and the
+   * maximum is exact.
+   */
+  @Test
+  public void testGetPercentile_recorded_withinPrecision() {
+    // Set up test data.
+    LatencyHistogram histogram = new LatencyHistogram();
+
+    for (int i = 1; i <= 100; i++) {
+      histogram.record(i * 1000L);
+    }
+
+    // Call the method under test.
+    long median = histogram.getPercentile(50);
+    long tail = histogram.getPercentile(99);
+
+    // Perform assertions.
+    Assert.assertThat("The median was not within the expected range.",
+        median >= 50000 && median <= 50000 * 1.07, CoreMatchers.is(true));
+    Assert.assertThat("The 99th percentile was not within the expected range.",
+        tail >= 99000 && tail <= 100000, CoreMatchers.is(true));
+    Assert.assertThat("The maximum did not match the expected value.", histogram.getMax(),
+        CoreMatchers.is(100000L));
+    Assert.assertThat("The count did not match the expected value.", histogram.getCount(),
+        CoreMatchers.is(100L));
+    Assert.assertThat("The sum did not match the expected value.", histogram.getSum(),
+        CoreMatchers.is(5050000L));
+  }
+
+  /**
+   * Test that small values are recorded exactly.
+   */
+  @Test
+  public void testGetPercentile_smallValues_exact() {
+    // Set up test data.
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(3);
+    histogram.record(7);
+
+    // Call the method under test.
+    long median = histogram.getPercentile(50);
+
+    // Perform assertions.
+    Assert.assertThat("The median did not match the expected value.", median,
+        CoreMatchers.is(3L));
+  }
+}
@@ -26,15 +26,20 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.nio.file.CopyOption;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
 
 /**
  * The unit tests for {@link MoveDirectoryVisitor}.
  */
 public class MoveDirectoryVisitorTest {
 
+  private final OperationContext context = new OperationContext();
+
   /**
    * Test that the destination directory is created when it does not already exist.
    */
@@ -143,6 +148,11 @@ public class MoveDirectoryVisitorTest {
         Files.isDirectory(destination), CoreMatchers.is(true));
     Assert.assertThat("The destination file path was expected to be a file.",
         Files.isRegularFile(destinationFile), CoreMatchers.is(true));
+
+    Assert.assertThat("No bytes were expected to be moved by renaming.",
+        visitor.getBytesMoved(), CoreMatchers.is(0L));
+    Assert.assertThat("The files moved did not match the expected value.",
+        visitor.getFilesMoved(), CoreMatchers.is(1L));
   }
 
   /**
@@ -230,4 +240,369 @@ public class MoveDirectoryVisitorTest {
     Assert.assertThat("The directory path was expected to be a directory.",
         Files.isDirectory(directory), CoreMatchers.is(true));
   }
+
+  /**
+   * Test that the source file is deleted when merging and the destination file has the same
+   * contents.
+   */
+  @Test
+  public void testVisitFile_mergeDestinationFileSameContents_fileDeleted() throws IOException {
+    // Set up test data.
+    Path testDirectory =
+        Files.createTempDirectory("testVisitFile_mergeDestinationFileSameContents_fileDeleted");
+    testDirectory.toFile().deleteOnExit();
+
+    Path source = Files.createTempDirectory(testDirectory, "source");
+    source.toFile().deleteOnExit();
+    Path sourceFile = Files.write(source.resolve("file"), new byte[] {1, 2, 3});
+    sourceFile.toFile().deleteOnExit();
+
+    Path destination = Files.createTempDirectory(testDirectory, "destination");
+    destination.toFile().deleteOnExit();
+    Path destinationFile = Files.write(destination.resolve("file"), new byte[] {1, 2, 3});
+    destinationFile.toFile().deleteOnExit();
+
+    // Call the method under test.
+    MoveDirectoryVisitor visitor = new MoveDirectoryVisitor(source, destination, true, context);
+    FileVisitResult result = visitor.visitFile(sourceFile, null);
+
+    // Perform assertions.
+    Assert.assertThat("The visitor result did not match the expected value.", result,
+        CoreMatchers.is(FileVisitResult.CONTINUE));
+
+    Assert.assertThat("The source file path was not expected to exist.", Files.exists(sourceFile),
+        CoreMatchers.is(false));
+    Assert.assertThat("The destination file path was expected to be a file.",
+        Files.isRegularFile(destinationFile), CoreMatchers.is(true));
+    Assert.assertThat("No conflicts were expected.", visitor.getConflicts().isEmpty(),
+        CoreMatchers.is(true));
+  }
+
+  /**
+   * Test that the source file is kept and recorded as a conflict when merging and the destination
+   * file has different contents.
+   */
+  @Test
+  public void testVisitFile_mergeDestinationFileDifferentContents_conflict() throws IOException {
+    // Set up test data.
+    Path testDirectory =
+        Files.createTempDirectory("testVisitFile_mergeDestinationFileDifferentContents_conflict");
+    testDirectory.toFile().deleteOnExit();
+
+    Path source = Files.createTempDirectory(testDirectory, "source");
+    source.toFile().deleteOnExit();
+    Path sourceDirectory = Files.createDirectory(source.resolve("directory"));
+    sourceDirectory.toFile().deleteOnExit();
+    Path sourceFile = Files.write(sourceDirectory.resolve("file"), new byte[] {1, 2, 3});
+    sourceFile.toFile().deleteOnExit();
+
+    Path destination = Files.createTempDirectory(testDirectory, "destination");
+    destination.toFile().deleteOnExit();
+    Path destinationDirectory = Files.createDirectory(destination.resolve("directory"));
+    destinationDirectory.toFile().deleteOnExit();
+    Path destinationFile = Files.write(destinationDirectory.resolve("file"), new byte[] {3, 2, 1});
+    destinationFile.toFile().deleteOnExit();
+
+    // Call the method under test.
+    MoveDirectoryVisitor visitor = new MoveDirectoryVisitor(source, destination, true, context);
+    FileVisitResult result = visitor.visitFile(sourceFile, null);
+    visitor.postVisitDirectory(sourceDirectory, null);
+    visitor.postVisitDirectory(source, null);
+
+    // Perform assertions.
+    Assert.assertThat("The visitor result did not match the expected value.", result,
+        CoreMatchers.is(FileVisitResult.CONTINUE));
+
+    Assert.assertThat("The source file path was expected to be a file.",
+        Files.isRegularFile(sourceFile), CoreMatchers.is(true));
+    Assert.assertThat("The conflicts did not match the expected value.", visitor.getConflicts(),
+        CoreMatchers.is(Collections.singletonList(sourceFile)));
+  }
+
+  /**
+   * Test that the source file is kept and recorded as a conflict when merging and the destination
+   * file is a symbolic link back to the source file.
+   */
+  @Test
+  public void testVisitFile_mergeDestinationLinksToSourceFile_conflict() throws IOException {
+    // Set up test data.
+    Path testDirectory =
+        Files.createTempDirectory("testVisitFile_mergeDestinationLinksToSourceFile_conflict");
+    testDirectory.toFile().deleteOnExit();
+
+    Path source = Files.createTempDirectory(testDirectory, "source");
+    source.toFile().deleteOnExit();
+    Path sourceFile = Files.write(source.resolve("file"), new byte[] {1, 2, 3});
+    sourceFile.toFile().deleteOnExit();
+
+    Path destination = Files.createTempDirectory(testDirectory, "destination");
+    destination.toFile().deleteOnExit();
+    Path destinationFile = Files.createSymbolicLink(destination.resolve("file"), sourceFile);
+    destinationFile.toFile().deleteOnExit();
+
+    // Call the method under test.
+    MoveDirectoryVisitor visitor = new MoveDirectoryVisitor(source, destination, true, context);
+    visitor.visitFile(sourceFile, null);
+
+    // Perform assertions.
+    Assert.assertThat("The source file's contents did not match the expected value.",
+        Files.readAllBytes(sourceFile), CoreMatchers.is(new byte[] {1, 2, 3}));
+    Assert.assertThat("The conflicts did not match the expected value.", visitor.getConflicts(),
+        CoreMatchers.is(Collections.singletonList(sourceFile)));
+  }
+
+  /**
+   * Test that the source file is kept and recorded as a conflict when merging and the destination
+   * file is a hard link to the source file.
+   */
+  @Test
+  public void testVisitFile_mergeDestinationIsSameFile_conflict() throws IOException {
+    // Set up test data.
+    Path testDirectory =
+        Files.createTempDirectory("testVisitFile_mergeDestinationIsSameFile_conflict");
+    testDirectory.toFile().deleteOnExit();
+
+    Path source = Files.createTempDirectory(testDirectory, "source");
+    source.toFile().deleteOnExit();
+    Path sourceFile = Files.write(source.resolve("file"), new byte[] {1, 2, 3});
+    sourceFile.toFile().deleteOnExit();
+
+    Path destination = Files.createTempDirectory(testDirectory, "destination");
+    destination.toFile().deleteOnExit();
+    Path destinationFile = Files.createLink(destination.resolve("file"), sourceFile);
+    destinationFile.toFile().deleteOnExit();
+
+    // Call the method under test.
+    MoveDirectoryVisitor visitor = new MoveDirectoryVisitor(source, destination, true, context);
+    visitor.visitFile(sourceFile, null);
+
+    // Perform assertions.
+    Assert.assertThat("The source file path was expected to be a file.",
+        Files.isRegularFile(sourceFile), CoreMatchers.is(true));
+    Assert.assertThat("The conflicts did not match the expected value.", visitor.getConflicts(),
+        CoreMatchers.is(Collections.singletonList(sourceFile)));
+  }
+
+  /**
+   * Test that the source file is kept when not merging and the destination file has the same
+   * contents.
+   */
+  @Test
+  public void testVisitFile_noMergeDestinationFileSameContents_fileNotDeleted()
+      throws IOException {
+    // Set up test data.
+    Path testDirectory = Files
+        .createTempDirectory("testVisitFile_noMergeDestinationFileSameContents_fileNotDeleted");
+    testDirectory.toFile().deleteOnExit();
+
+    Path source = Files.createTempDirectory(testDirectory, "source");
+    source.toFile().deleteOnExit();
+    Path sourceFile = Files.write(source.resolve("file"), new byte[] {1, 2, 3});
+    sourceFile.toFile().deleteOnExit();
+
+    Path destination = Files.createTempDirectory(testDirectory, "destination");
+    destination.toFile().deleteOnExit();
+    Path destinationFile = Files.write(destination.resolve("file"), new byte[] {1, 2, 3});
+    destinationFile.toFile().deleteOnExit();
+
+    // Call the method under test.
+    MoveDirectoryVisitor visitor = new MoveDirectoryVisitor(source, destination, context);
+    visitor.visitFile(sourceFile, null);
+
+    // Perform assertions.
+    Assert.assertThat("The source file path was expected to be a file.",
+        Files.isRegularFile(sourceFile), CoreMatchers.is(true));
+    Assert.assertThat("No conflicts were expected.", visitor.getConflicts().isEmpty(),
+        CoreMatchers.is(true));
+  }
+
+  /**
+   * Test that the directory tree is moved and the source directories deleted once verification is
+   * complete when verifying.
+   */
+  @Test
+  public void testAwaitVerification_verified_directoriesDeleted() throws IOException {
+    // Set up test data.
+    Path testDirectory =
+        Files.createTempDirectory("testAwaitVerification_verified_directoriesDeleted");
+    testDirectory.toFile().deleteOnExit();
+
+    Path source = Files.createDirectory(testDirectory.resolve("source"));
+    source.toFile().deleteOnExit();
+    Path sourceDirectory = Files.createDirectory(source.resolve("directory"));
+    sourceDirectory.toFile().deleteOnExit();
+    Path sourceFile = Files.write(sourceDirectory.resolve("file"), new byte[] {1, 2, 3});
+    sourceFile.toFile().deleteOnExit();
+
+    Path destination = testDirectory.resolve("destination");
+    Path destinationFile = destination.resolve("directory").resolve("file");
+
+    // Call the method under test.
+    MoveDirectoryVisitor visitor;
+
+    try (ChecksumVerifier verifier = new ChecksumVerifier(1, context.getFiles())) {
+      visitor = new MoveDirectoryVisitor(source, destination, false, verifier, context);
+      Files.walkFileTree(source, visitor);
+
+      Assert.assertThat("The source path was expected to exist until verification is complete.",
+          Files.isDirectory(source), CoreMatchers.is(true));
+
+      visitor.awaitVerification();
+    }
+
+    destination.toFile().deleteOnExit();
+    destinationFile.getParent().toFile().deleteOnExit();
+    destinationFile.toFile().deleteOnExit();
+
+    // Perform assertions.
+    Assert.assertThat("No verification failures were expected.",
+        visitor.getVerificationFailures().isEmpty(), CoreMatchers.is(true));
+
+    Assert.assertThat("The source path was not expected to exist.", Files.exists(source),
+        CoreMatchers.is(false));
+    Assert.assertThat("The destination file path was expected to be a file.",
+        Files.isRegularFile(destinationFile), CoreMatchers.is(true));
+  }
+
+  /**
+   * Test that the directories containing a file which failed verification are not deleted.
+   */
+  @Test
+  public void testAwaitVerification_notVerified_directoriesRetained() throws IOException {
+    // Set up test data.
+    Path testDirectory =
+        Files.createTempDirectory("testAwaitVerification_notVerified_directoriesRetained");
+    testDirectory.toFile().deleteOnExit();
+
+    Path source = Files.createDirectory(testDirectory.resolve("source"));
+    source.toFile().deleteOnExit();
+    Path sourceFile = Files.write(source.resolve("file"), new byte[] {1, 2, 3});
+    sourceFile.toFile().deleteOnExit();
+
+    Path destination = testDirectory.resolve("destination");
+
+    // Record expectations.
+    new Expectations(FileHasher.class) {
+      {
+        FileHasher.digest(sourceFile, context.getFiles());
+        result = new byte[] {1};
+      }
+    };
+
+    // Call the method under test.
+    MoveDirectoryVisitor visitor;
+
+    try (ChecksumVerifier verifier = new ChecksumVerifier(1, context.getFiles())) {
+      visitor = new MoveDirectoryVisitor(source, destination, false, verifier, context);
+      Files.walkFileTree(source, visitor);
+      visitor.awaitVerification();
+    }
+
+    destination.toFile().deleteOnExit();
+
+    // Perform assertions.
+    Assert.assertThat("The verification failures did not match the expected value.",
+        visitor.getVerificationFailures(), CoreMatchers.is(Collections.singletonList(sourceFile)));
+
+    Assert.assertThat("The source file path was expected to be a file.",
+        Files.isRegularFile(sourceFile), CoreMatchers.is(true));
+    Assert.assertThat("The destination file path was not expected to exist.",
+        Files.exists(destination.resolve("file")), CoreMatchers.is(false));
+  }
+
+  /**
+   * Test that the file is copied and deleted, without attempting a move, when files can not be
+   * renamed between the source and destination.
+   */
+  @Test
+  public void testVisitFile_renameNotSupported_fileCopiedAndDeleted() throws IOException {
+    // Set up test data.
+    Path testDirectory =
+        Files.createTempDirectory("testVisitFile_renameNotSupported_fileCopiedAndDeleted");
+    testDirectory.toFile().deleteOnExit();
+
+    Path source = Files.createTempDirectory(testDirectory, "source");
+    source.toFile().deleteOnExit();
+    Path sourceFile = Files.write(source.resolve("file"), new byte[] {1, 2, 3});
+    sourceFile.toFile().deleteOnExit();
+
+    Path destination = Files.createTempDirectory(testDirectory, "destination");
+    destination.toFile().deleteOnExit();
+    Path destinationFile = destination.resolve("file");
+
+    BasicFileAttributes attributes = Files.readAttributes(sourceFile, BasicFileAttributes.class);
+
+    // Record expectations.
+    FileStoreCache fileStoreCache = context.getFileStoreCache();
+
+    new Expectations(Files.class, fileStoreCache) {
+      {
+        fileStoreCache.isRenameSupported(source, destination);
+        result = false;
+      }
+    };
+
+    // Call the method under test.
+    MoveDirectoryVisitor visitor = new MoveDirectoryVisitor(source, destination, context);
+    visitor.visitFile(sourceFile, attributes);
+    destinationFile.toFile().deleteOnExit();
+
+    // Perform assertions.
+    Assert.assertThat("The source file path was not expected to exist.", Files.exists(sourceFile),
+        CoreMatchers.is(false));
+    Assert.assertThat("The destination file path's contents did not match the expected value.",
+        Files.readAllBytes(destinationFile), CoreMatchers.is(new byte[] {1, 2, 3}));
+    Assert.assertThat("The bytes moved did not match the expected value.",
+        visitor.getBytesMoved(), CoreMatchers.is(3L));
+
+    // Verify expectations.
+    new Verifications() {
+      {
+        Files.move((Path) any, (Path) any, (CopyOption[]) any);
+        times = 0;
+      }
+    };
+  }
+
+  /**
+   * Test that the size of a copied file is read from the file system when it is visited without
+   * attributes.
+   */
+  @Test
+  public void testVisitFile_renameNotSupportedNoAttributes_bytesMovedRead() throws IOException {
+    // Set up test data.
+    Path testDirectory =
+        Files.createTempDirectory("testVisitFile_renameNotSupportedNoAttributes_bytesMovedRead");
+    testDirectory.toFile().deleteOnExit();
+
+    Path source = Files.createTempDirectory(testDirectory, "source");
+    source.toFile().deleteOnExit();
+    Path sourceFile = Files.write(source.resolve("file"), new byte[] {1, 2, 3});
+    sourceFile.toFile().deleteOnExit();
+
+    Path destination = Files.createTempDirectory(testDirectory, "destination");
+    destination.toFile().deleteOnExit();
+    Path destinationFile = destination.resolve("file");
+
+    // Record expectations.
+    FileStoreCache fileStoreCache = context.getFileStoreCache();
+
+    new Expectations(fileStoreCache) {
+      {
+        fileStoreCache.isRenameSupported(source, destination);
+        result = false;
+      }
+    };
+
+    // Call the method under test.
+    MoveDirectoryVisitor visitor = new MoveDirectoryVisitor(source, destination, context);
+    visitor.visitFile(sourceFile, null);
+    destinationFile.toFile().deleteOnExit();
+
+    // Perform assertions.
+    Assert.assertThat("The destination file path's contents did not match the expected value.",
+        Files.readAllBytes(destinationFile), CoreMatchers.is(new byte[] {1, 2, 3}));
+    Assert.assertThat("The bytes moved did not match the expected value.",
+        visitor.getBytesMoved(), CoreMatchers.is(3L));
+  }
 }
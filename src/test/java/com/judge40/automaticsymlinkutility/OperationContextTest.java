@@ -0,0 +1,86 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * The unit tests for {@link OperationContext}.
+ */
+public class OperationContextTest {
+
+  /**
+   * Test that the same verification workers are returned each time they are requested.
+   */
+  @Test
+  public void testGetVerificationExecutor_twice_sameExecutor() {
+    try (OperationContext context = new OperationContext()) {
+      // Call the method under test.
+      ExecutorService first = context.getVerificationExecutor();
+      ExecutorService second = context.getVerificationExecutor();
+
+      // Perform assertions.
+      Assert.assertThat("The verification executor did not match the expected value.", second,
+          CoreMatchers.sameInstance(first));
+    }
+  }
+
+  /**
+   * Test that the verification workers are stopped when the context is closed.
+   */
+  @Test
+  public void testClose_verificationExecutorStarted_terminated() {
+    // Set up test data.
+    OperationContext context = new OperationContext();
+    ExecutorService executor = context.getVerificationExecutor();
+    executor.execute(() -> { });
+
+    // Call the method under test.
+    context.close();
+
+    // Perform assertions.
+    Assert.assertThat("The verification executor was not terminated.", executor.isTerminated(),
+        CoreMatchers.is(true));
+  }
+
+  /**
+   * Test that the default context is shared and that closing it does not stop its verification
+   * workers.
+   */
+  @Test
+  public void testClose_defaultContext_notTerminated() {
+    // Set up test data.
+    OperationContext context = OperationContext.getDefault();
+    ExecutorService executor = context.getVerificationExecutor();
+
+    // Call the method under test.
+    context.close();
+
+    // Perform assertions.
+    Assert.assertThat("The default context did not match the expected value.",
+        OperationContext.getDefault(), CoreMatchers.sameInstance(context));
+    Assert.assertThat("The verification executor was not expected to be shut down.",
+        executor.isShutdown(), CoreMatchers.is(false));
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import com.judge40.automaticsymlinkutility.PhaseTimings.Phase;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * The unit tests for {@link PhaseTimings}.
+ */
+public class PhaseTimingsTest {
+
+  private final PhaseTimings timings = new PhaseTimings();
+
+  @After
+  public void tearDown() {
+    timings.clear();
+  }
+
+  /**
+   * Test that recording a phase adds to its duration and count.
+   */
+  @Test
+  public void testRecord_twice_durationAndCountAdded() {
+    // Set up test data.
+    timings.clear();
+    long startTime = System.nanoTime() - 1000;
+
+    // Call the method under test.
+    timings.record(Phase.MOVE, startTime);
+    timings.record(Phase.MOVE, startTime);
+
+    // Perform assertions.
+    Assert.assertThat("The count did not match the expected value.",
+        timings.getCount(Phase.MOVE), CoreMatchers.is(2L));
+    Assert.assertThat("The duration was expected to include both records.",
+        timings.getDuration(Phase.MOVE) >= 2000, CoreMatchers.is(true));
+    Assert.assertThat("The count of another phase did not match the expected value.",
+        timings.getCount(Phase.PARSING), CoreMatchers.is(0L));
+  }
+
+  /**
+   * Test that recording a phase's duration adds to its duration and count.
+   */
+  @Test
+  public void testRecordDuration_duration_durationAndCountAdded() {
+    // Call the method under test.
+    timings.recordDuration(Phase.JVM_STARTUP, 5000);
+
+    // Perform assertions.
+    Assert.assertThat("The count did not match the expected value.",
+        timings.getCount(Phase.JVM_STARTUP), CoreMatchers.is(1L));
+    Assert.assertThat("The duration did not match the expected value.",
+        timings.getDuration(Phase.JVM_STARTUP), CoreMatchers.is(5000L));
+  }
+
+  /**
+   * Test that clearing the timings resets every phase to zero.
+   */
+  @Test
+  public void testClear_recorded_reset() {
+    // Set up test data.
+    timings.record(Phase.SCHEMA_LOADING, System.nanoTime());
+
+    // Call the method under test.
+    timings.clear();
+
+    // Perform assertions.
+    Assert.assertThat("The count did not match the expected value.",
+        timings.getCount(Phase.SCHEMA_LOADING), CoreMatchers.is(0L));
+    Assert.assertThat("The duration did not match the expected value.",
+        timings.getDuration(Phase.SCHEMA_LOADING), CoreMatchers.is(0L));
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import com.judge40.automaticsymlinkutility.SymlinkCreationResult.Reason;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The unit tests for {@link PrometheusMetrics}.
+ */
+public class PrometheusMetricsTest {
+
+  /**
+   * Test that results, latencies, moved files and phases are written in the exposition format.
+   * 
+   * @throws IOException If an error occurs writing the metrics.
+   */
+  @Test
+  public void testWrite_results_metricsWritten() throws IOException {
+    // Set up test data.
+    SymlinkCreationResult result =
+        new SymlinkCreationResult(Reason.MOVED_FILE, Paths.get("link"), Paths.get("target"));
+    result.setDuration(TimeUnit.MILLISECONDS.toNanos(3));
+    result.setBytesMoved(1024);
+    result.setFilesMoved(1);
+
+    PrometheusMetrics metrics = new PrometheusMetrics();
+    metrics.result(null, result);
+    metrics.result(null, new SymlinkCreationResult(Reason.BOTH_EXIST, null, null));
+    metrics.recordPhase("total", TimeUnit.MILLISECONDS.toNanos(500));
+
+    // Call the method under test.
+    StringWriter writer = new StringWriter();
+    metrics.write(writer);
+
+    // Perform assertions.
+    String output = writer.toString();
+    Assert.assertThat("The created count did not match the expected value.", output,
+        CoreMatchers.containsString(
+            "automatic_symlink_utility_results_total{status=\"created\"} 1\n"));
+    Assert.assertThat("The failed count did not match the expected value.", output,
+        CoreMatchers.containsString(
+            "automatic_symlink_utility_results_total{status=\"failed\"} 0\n"));
+    Assert.assertThat("The first latency bucket did not match the expected value.", output,
+        CoreMatchers.containsString(
+            "automatic_symlink_utility_operation_duration_seconds_bucket{le=\"0.001\"} 1\n"));
+    Assert.assertThat("The second latency bucket did not match the expected value.", output,
+        CoreMatchers.containsString(
+            "automatic_symlink_utility_operation_duration_seconds_bucket{le=\"0.005\"} 2\n"));
+    Assert.assertThat("The latency count did not match the expected value.", output,
+        CoreMatchers.containsString(
+            "automatic_symlink_utility_operation_duration_seconds_count 2\n"));
+    Assert.assertThat("The bytes moved did not match the expected value.", output,
+        CoreMatchers.containsString("automatic_symlink_utility_moved_bytes_total 1024\n"));
+    Assert.assertThat("The files moved did not match the expected value.", output,
+        CoreMatchers.containsString("automatic_symlink_utility_moved_files_total 1\n"));
+    Assert.assertThat("The phase duration did not match the expected value.", output,
+        CoreMatchers.containsString(
+            "automatic_symlink_utility_phase_duration_seconds{phase=\"total\"} 0.5\n"));
+    Assert.assertThat("The run completed gauge did not match the expected value.", output,
+        CoreMatchers.containsString("automatic_symlink_utility_run_completed 1\n"));
+  }
+
+  /**
+   * Test that the metrics file is replaced and no temporary file is left behind.
+   * 
+   * @throws IOException If an error occurs writing the metrics.
+   */
+  @Test
+  public void testWriteTo_existingFile_fileReplaced() throws IOException {
+    // Set up test data.
+    Path testDirectory = Files.createTempDirectory("testWriteTo_existingFile_fileReplaced");
+    testDirectory.toFile().deleteOnExit();
+    Path metricsFile = testDirectory.resolve("metrics.prom");
+    Files.write(metricsFile, "old".getBytes(StandardCharsets.UTF_8));
+    metricsFile.toFile().deleteOnExit();
+
+    // Call the method under test.
+    new PrometheusMetrics().writeTo(metricsFile);
+
+    // Perform assertions.
+    String contents = new String(Files.readAllBytes(metricsFile), StandardCharsets.UTF_8);
+    Assert.assertThat("The metrics file did not match the expected value.", contents,
+        CoreMatchers.startsWith("# HELP automatic_symlink_utility_results_total"));
+    Assert.assertThat("The number of files in the directory did not match the expected value.",
+        testDirectory.toFile().list().length, CoreMatchers.is(1));
+    Assert.assertThat("The metrics file permissions did not match the expected value.",
+        PosixFilePermissions.toString(Files.getPosixFilePermissions(metricsFile)),
+        CoreMatchers.is("rw-r--r--"));
+  }
+
+  /**
+   * Test that a run which did not complete is written as incomplete.
+   * 
+   * @throws IOException If an error occurs writing the metrics.
+   */
+  @Test
+  public void testWrite_notCompleted_runNotCompletedWritten() throws IOException {
+    // Set up test data.
+    PrometheusMetrics metrics = new PrometheusMetrics();
+    metrics.setCompleted(false);
+
+    // Call the method under test.
+    StringWriter writer = new StringWriter();
+    metrics.write(writer);
+
+    // Perform assertions.
+    Assert.assertThat("The run completed gauge did not match the expected value.",
+        writer.toString(),
+        CoreMatchers.containsString("automatic_symlink_utility_run_completed 0\n"));
+  }
+}
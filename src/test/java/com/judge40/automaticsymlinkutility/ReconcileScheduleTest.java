@@ -0,0 +1,159 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import com.judge40.automaticsymlinkutility.SymlinkCreationResult.Reason;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The unit tests for {@link ReconcileSchedule}.
+ */
+public class ReconcileScheduleTest {
+
+  /**
+   * Test that the interval doubles after each run which only skipped, up to the maximum.
+   */
+  @Test
+  public void testRecordRun_onlySkipped_intervalDoubledToMaximum() {
+    // Set up test data.
+    ReconcileSchedule schedule = new ReconcileSchedule(1, 5, TimeUnit.SECONDS);
+
+    // Call the method under test.
+    schedule.recordRun(createSummary(Reason.ALREADY_LINK));
+    long doubled = schedule.getInterval();
+    schedule.recordRun(createSummary(Reason.ALREADY_LINK));
+    schedule.recordRun(createSummary(Reason.ALREADY_LINK));
+
+    // Perform assertions.
+    Assert.assertThat("The doubled interval did not match the expected value.", doubled,
+        CoreMatchers.is(2000L));
+    Assert.assertThat("The interval did not match the expected value.", schedule.getInterval(),
+        CoreMatchers.is(5000L));
+  }
+
+  /**
+   * Test that the interval returns to the minimum after a run which created a link.
+   */
+  @Test
+  public void testRecordRun_created_intervalReset() {
+    // Set up test data.
+    ReconcileSchedule schedule = new ReconcileSchedule(1, 5, TimeUnit.SECONDS);
+    schedule.recordRun(createSummary(Reason.ALREADY_LINK));
+
+    // Call the method under test.
+    schedule.recordRun(createSummary(Reason.LINKED));
+
+    // Perform assertions.
+    Assert.assertThat("The interval did not match the expected value.", schedule.getInterval(),
+        CoreMatchers.is(1000L));
+  }
+
+  /**
+   * Test that the interval returns to the minimum after a run which had a failure.
+   */
+  @Test
+  public void testRecordRun_failed_intervalReset() {
+    // Set up test data.
+    ReconcileSchedule schedule = new ReconcileSchedule(1, 5, TimeUnit.SECONDS);
+    schedule.recordRun(createSummary(Reason.ALREADY_LINK));
+
+    // Call the method under test.
+    schedule.recordRun(createSummary(Reason.IO_ERROR));
+
+    // Perform assertions.
+    Assert.assertThat("The interval did not match the expected value.", schedule.getInterval(),
+        CoreMatchers.is(1000L));
+  }
+
+  /**
+   * Test that the interval returns to the minimum after a run which could not be completed.
+   */
+  @Test
+  public void testRecordFailure_intervalReset() {
+    // Set up test data.
+    ReconcileSchedule schedule = new ReconcileSchedule(1, 5, TimeUnit.SECONDS);
+    schedule.recordRun(createSummary(Reason.ALREADY_LINK));
+
+    // Call the method under test.
+    schedule.recordFailure();
+
+    // Perform assertions.
+    Assert.assertThat("The interval did not match the expected value.", schedule.getInterval(),
+        CoreMatchers.is(1000L));
+  }
+
+  /**
+   * Test that the delay is jittered by at most the jitter fraction in either direction.
+   */
+  @Test
+  public void testNextDelay_extremeRandoms_jitterBounds() {
+    // Set up test data.
+    Random low = new Random() {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      public double nextDouble() {
+        return 0;
+      }
+    };
+    Random high = new Random() {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      public double nextDouble() {
+        return 1;
+      }
+    };
+
+    // Call the method under test.
+    long lowDelay = new ReconcileSchedule(10, 10, TimeUnit.SECONDS, low).nextDelay();
+    long highDelay = new ReconcileSchedule(10, 10, TimeUnit.SECONDS, high).nextDelay();
+
+    // Perform assertions.
+    Assert.assertThat("The lowest delay did not match the expected value.", lowDelay,
+        CoreMatchers.is(8000L));
+    Assert.assertThat("The highest delay did not match the expected value.", highDelay,
+        CoreMatchers.is(12000L));
+  }
+
+  /**
+   * Test that an IllegalArgumentException is thrown when the minimum exceeds the maximum.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructor_minimumExceedsMaximum_exception() {
+    // Call the method under test.
+    new ReconcileSchedule(10, 5, TimeUnit.SECONDS);
+  }
+
+  private static RunSummary createSummary(Reason reason) {
+    RunSummary summary = new RunSummary();
+    summary.started();
+    summary.record(null, new SymlinkCreationResult(reason, Paths.get("link"), Paths.get("target")));
+    summary.finished();
+    return summary;
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import com.judge40.automaticsymlinkutility.RunSummary.GroupSummary;
+import com.judge40.automaticsymlinkutility.SymlinkCreationResult.Reason;
+import com.judge40.automaticsymlinkutility.SymlinkCreationResult.Status;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The unit tests for {@link RunSummary}.
+ */
+public class RunSummaryTest {
+
+  /**
+   * Test that results are counted by status for their group and the total.
+   */
+  @Test
+  public void testRecord_groupedAndUngrouped_countsPerGroup() {
+    // Set up test data.
+    SymlinkCreationResult created = createResult(Reason.MOVED_FILE, 10, 100);
+    SymlinkCreationResult skipped = createResult(Reason.ALREADY_LINK, 20, 0);
+    SymlinkCreationResult failed = createResult(Reason.IO_ERROR, 30, 0);
+
+    // Call the method under test.
+    RunSummary summary = new RunSummary();
+    summary.started();
+    summary.groupStarted("group1");
+    summary.record("group1", created);
+    summary.record("group1", skipped);
+    summary.groupFinished("group1");
+    summary.record(null, failed);
+    summary.finished();
+
+    // Perform assertions.
+    List<GroupSummary> groups = summary.getGroups();
+    Assert.assertThat("The number of groups did not match the expected value.", groups.size(),
+        CoreMatchers.is(2));
+
+    GroupSummary group = groups.get(0);
+    Assert.assertThat("The group name did not match the expected value.", group.getName(),
+        CoreMatchers.is("group1"));
+    Assert.assertThat("The created count did not match the expected value.",
+        group.getCount(Status.CREATED), CoreMatchers.is(1));
+    Assert.assertThat("The skipped count did not match the expected value.",
+        group.getCount(Status.SKIPPED), CoreMatchers.is(1));
+    Assert.assertThat("The failed count did not match the expected value.",
+        group.getCount(Status.FAILED), CoreMatchers.is(0));
+    Assert.assertThat("The bytes moved did not match the expected value.", group.getBytesMoved(),
+        CoreMatchers.is(100L));
+
+    GroupSummary ungrouped = groups.get(1);
+    Assert.assertThat("The group name did not match the expected value.", ungrouped.getName(),
+        CoreMatchers.nullValue());
+    Assert.assertThat("The failed count did not match the expected value.",
+        ungrouped.getCount(Status.FAILED), CoreMatchers.is(1));
+    Assert.assertThat("The ungrouped duration did not match the expected value.",
+        ungrouped.getDuration(), CoreMatchers.is(30L));
+
+    GroupSummary total = summary.getTotal();
+    Assert.assertThat("The total created count did not match the expected value.",
+        total.getCount(Status.CREATED), CoreMatchers.is(1));
+    Assert.assertThat("The total skipped count did not match the expected value.",
+        total.getCount(Status.SKIPPED), CoreMatchers.is(1));
+    Assert.assertThat("The total failed count did not match the expected value.",
+        total.getCount(Status.FAILED), CoreMatchers.is(1));
+  }
+
+  /**
+   * Test that only the slowest results are kept, slowest first.
+   */
+  @Test
+  public void testGetSlowest_moreThanCount_slowestKept() {
+    // Set up test data.
+    SymlinkCreationResult fast = createResult(Reason.LINKED, 10, 0);
+    SymlinkCreationResult slow = createResult(Reason.LINKED, 30, 0);
+    SymlinkCreationResult medium = createResult(Reason.LINKED, 20, 0);
+
+    RunSummary summary = new RunSummary(2);
+    summary.record(null, fast);
+    summary.record(null, slow);
+    summary.record(null, medium);
+
+    // Call the method under test.
+    List<SymlinkCreationResult> slowest = summary.getSlowest();
+
+    // Perform assertions.
+    Assert.assertThat("The slowest results did not match the expected value.", slowest,
+        CoreMatchers.is(Arrays.asList(slow, medium)));
+  }
+
+  private static SymlinkCreationResult createResult(Reason reason, long duration,
+      long bytesMoved) {
+    SymlinkCreationResult result =
+        new SymlinkCreationResult(reason, Paths.get("link"), Paths.get("target"));
+    result.setDuration(duration);
+    result.setBytesMoved(bytesMoved);
+    return result;
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The unit tests for {@link SlowOperationLog}.
+ */
+public class SlowOperationLogTest {
+
+  private final SlowOperationLog log = new SlowOperationLog();
+  private ByteArrayOutputStream out;
+
+  /**
+   * Write the log to an in-memory stream.
+   * 
+   * @throws UnsupportedEncodingException If the stream's encoding is not supported.
+   */
+  @Before
+  public void setUp() throws UnsupportedEncodingException {
+    out = new ByteArrayOutputStream();
+    log.setOut(new PrintStream(out, true, StandardCharsets.UTF_8.name()));
+    log.setThreshold(TimeUnit.MILLISECONDS.toNanos(100));
+  }
+
+  @After
+  public void tearDown() {
+    log.setThreshold(Long.MAX_VALUE);
+    log.setOut(System.err);
+  }
+
+  /**
+   * Test that an operation longer than the threshold is logged with its path, duration and thread.
+   * 
+   * @throws UnsupportedEncodingException If the stream's encoding is not supported.
+   */
+  @Test
+  public void testRecord_aboveThreshold_logged() throws UnsupportedEncodingException {
+    // Set up test data.
+    Path path = Paths.get("slow");
+
+    // Call the method under test.
+    log.record("move", path, TimeUnit.MILLISECONDS.toNanos(250));
+
+    // Perform assertions.
+    String expected =
+        String.format("Slow operation: move of '%s' took 250.000 ms on thread '%s'.%s",
+            path.toAbsolutePath(), Thread.currentThread().getName(), System.lineSeparator());
+    Assert.assertThat("The log did not match the expected value.",
+        out.toString(StandardCharsets.UTF_8.name()), CoreMatchers.is(expected));
+  }
+
+  /**
+   * Test that an operation within the threshold is not logged.
+   * 
+   * @throws UnsupportedEncodingException If the stream's encoding is not supported.
+   */
+  @Test
+  public void testRecord_belowThreshold_notLogged() throws UnsupportedEncodingException {
+    // Call the method under test.
+    log.record("move", Paths.get("fast"), TimeUnit.MILLISECONDS.toNanos(100));
+
+    // Perform assertions.
+    Assert.assertThat("The log did not match the expected value.",
+        out.toString(StandardCharsets.UTF_8.name()), CoreMatchers.is(""));
+  }
+}
@@ -0,0 +1,190 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import com.judge40.automaticsymlinkutility.SymlinkCreationResult.Reason;
+import com.judge40.automaticsymlinkutility.SymlinkCreationResult.Status;
+
+import mockit.Expectations;
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The unit tests for {@link StaleLinkScanner}.
+ */
+public class StaleLinkScannerTest {
+
+  private final TimedFiles files = new OperationContext().getFiles();
+
+  /**
+   * Test that only the links whose targets do not exist are reported, including within
+   * sub-directories.
+   */
+  @Test
+  public void testScan_nestedLinks_danglingLinksReported() throws IOException {
+    // Set up test data.
+    Path testDirectory = Files.createTempDirectory("testScan_nestedLinks_danglingLinksReported");
+    testDirectory.toFile().deleteOnExit();
+
+    Path file = Files.createTempFile(testDirectory, "file", null);
+    file.toFile().deleteOnExit();
+    Path liveLink = Files.createSymbolicLink(testDirectory.resolve("liveLink"), file);
+    liveLink.toFile().deleteOnExit();
+
+    Path subDirectory = Files.createTempDirectory(testDirectory, "subDirectory");
+    subDirectory.toFile().deleteOnExit();
+    Path missing = testDirectory.resolve("missing");
+    Path danglingLink = Files.createSymbolicLink(subDirectory.resolve("danglingLink"), missing);
+    danglingLink.toFile().deleteOnExit();
+
+    // Call the method under test.
+    List<SymlinkCreationResult> results =
+        StaleLinkScanner.scan(testDirectory, Collections.emptySet(), false, files);
+
+    // Perform assertions.
+    Assert.assertThat("The number of results did not match the expected value.", results.size(),
+        CoreMatchers.is(1));
+    Assert.assertThat("The result's reason did not match the expected value.",
+        results.get(0).getReason(), CoreMatchers.is(Reason.DANGLING_LINK));
+    Assert.assertThat("The result's link did not match the expected value.",
+        results.get(0).getLink(), CoreMatchers.is(danglingLink));
+    Assert.assertThat("The result's target did not match the expected value.",
+        results.get(0).getTarget(), CoreMatchers.is(missing));
+    Assert.assertThat("The dangling link was not expected to be removed.",
+        Files.isSymbolicLink(danglingLink), CoreMatchers.is(true));
+  }
+
+  /**
+   * Test that links whose targets do not exist are removed when removal is enabled.
+   */
+  @Test
+  public void testScan_remove_danglingLinksRemoved() throws IOException {
+    // Set up test data.
+    Path testDirectory = Files.createTempDirectory("testScan_remove_danglingLinksRemoved");
+    testDirectory.toFile().deleteOnExit();
+
+    Path danglingLink = Files.createSymbolicLink(testDirectory.resolve("danglingLink"),
+        testDirectory.resolve("missing"));
+    danglingLink.toFile().deleteOnExit();
+
+    // Call the method under test.
+    List<SymlinkCreationResult> results =
+        StaleLinkScanner.scan(testDirectory, Collections.emptySet(), true, files);
+
+    // Perform assertions.
+    Assert.assertThat("The result's reason did not match the expected value.",
+        results.get(0).getReason(), CoreMatchers.is(Reason.REMOVED_LINK));
+    Assert.assertThat("The dangling link was expected to be removed.",
+        Files.notExists(danglingLink, LinkOption.NOFOLLOW_LINKS), CoreMatchers.is(true));
+  }
+
+  /**
+   * Test that excluded links are not reported.
+   */
+  @Test
+  public void testScan_excludedLink_notReported() throws IOException {
+    // Set up test data.
+    Path testDirectory = Files.createTempDirectory("testScan_excludedLink_notReported");
+    testDirectory.toFile().deleteOnExit();
+
+    Path danglingLink = Files.createSymbolicLink(testDirectory.resolve("danglingLink"),
+        testDirectory.resolve("missing"));
+    danglingLink.toFile().deleteOnExit();
+
+    // Call the method under test.
+    List<SymlinkCreationResult> results = StaleLinkScanner.scan(testDirectory,
+        Collections.singleton(danglingLink.toAbsolutePath().normalize()), false, files);
+
+    // Perform assertions.
+    Assert.assertThat("The number of results did not match the expected value.", results.size(),
+        CoreMatchers.is(0));
+  }
+
+  /**
+   * Test that a NoSuchFileException is thrown when the root does not exist.
+   */
+  @Test(expected = NoSuchFileException.class)
+  public void testScan_rootNotExists_exception() throws IOException {
+    // Set up test data.
+    Path testDirectory = Files.createTempDirectory("testScan_rootNotExists_exception");
+    testDirectory.toFile().deleteOnExit();
+
+    // Call the method under test.
+    StaleLinkScanner.scan(testDirectory.resolve("missing"), Collections.emptySet(), false, files);
+  }
+
+  /**
+   * Test that a sub-directory which cannot be read is reported as a failure and that the rest of
+   * the tree is still scanned, with its stale links removed.
+   */
+  @Test
+  public void testScan_unreadableSubDirectory_failureReportedAndScanContinued()
+      throws IOException {
+    // Set up test data.
+    Path testDirectory = Files.createTempDirectory(
+        "testScan_unreadableSubDirectory_failureReportedAndScanContinued");
+    testDirectory.toFile().deleteOnExit();
+
+    Path unreadableDirectory = Files.createDirectory(testDirectory.resolve("unreadable"));
+    unreadableDirectory.toFile().deleteOnExit();
+    Path readableDirectory = Files.createDirectory(testDirectory.resolve("readable"));
+    readableDirectory.toFile().deleteOnExit();
+    Path danglingLink = Files.createSymbolicLink(readableDirectory.resolve("danglingLink"),
+        testDirectory.resolve("missing"));
+    danglingLink.toFile().deleteOnExit();
+
+    // Record expectations.
+    new Expectations(Files.class) {
+      {
+        Files.newDirectoryStream(unreadableDirectory);
+        result = new AccessDeniedException(unreadableDirectory.toString());
+      }
+    };
+
+    // Call the method under test.
+    List<SymlinkCreationResult> results =
+        StaleLinkScanner.scan(testDirectory, Collections.emptySet(), true, files);
+
+    // Perform assertions.
+    Assert.assertThat("The number of results did not match the expected value.", results.size(),
+        CoreMatchers.is(2));
+
+    SymlinkCreationResult failedResult =
+        results.get(0).getStatus() == Status.FAILED ? results.get(0) : results.get(1);
+    SymlinkCreationResult removedResult =
+        results.get(0).getStatus() == Status.FAILED ? results.get(1) : results.get(0);
+    Assert.assertThat("The failed result's link did not match the expected value.",
+        failedResult.getLink(), CoreMatchers.is(unreadableDirectory));
+    Assert.assertThat("The removed result's reason did not match the expected value.",
+        removedResult.getReason(), CoreMatchers.is(Reason.REMOVED_LINK));
+    Assert.assertThat("The dangling link was expected to be removed.",
+        Files.notExists(danglingLink, LinkOption.NOFOLLOW_LINKS), CoreMatchers.is(true));
+  }
+}
@@ -0,0 +1,180 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import com.judge40.automaticsymlinkutility.StreamingTreeWalker.Entry;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The unit tests for {@link StreamingTreeWalker}.
+ */
+public class StreamingTreeWalkerTest {
+
+  private final TimedFiles files = new OperationContext().getFiles();
+
+  /**
+   * Test that the entries are produced depth-first followed by an end entry.
+   */
+  @Test
+  public void testTake_nestedDirectories_depthFirstEntries() throws IOException {
+    // Set up test data.
+    Path testDirectory =
+        Files.createTempDirectory("testTake_nestedDirectories_depthFirstEntries");
+    testDirectory.toFile().deleteOnExit();
+
+    Path subDirectory = Files.createDirectory(testDirectory.resolve("subDirectory"));
+    subDirectory.toFile().deleteOnExit();
+    Path subFile = Files.createFile(subDirectory.resolve("subFile"));
+    subFile.toFile().deleteOnExit();
+
+    // Call the method under test.
+    List<String> entries = new ArrayList<>();
+
+    try (StreamingTreeWalker walker = new StreamingTreeWalker(testDirectory, 1, files).start()) {
+      for (Entry entry = walker.take(); entry.getType() != Entry.Type.END;
+          entry = walker.take()) {
+        entries.add(entry.getType() + " " + entry.getPath());
+      }
+    }
+
+    // Perform assertions.
+    List<String> expectedEntries = Arrays.asList("DIRECTORY_START " + testDirectory,
+        "DIRECTORY_START " + subDirectory, "FILE " + subFile, "DIRECTORY_END " + subDirectory,
+        "DIRECTORY_END " + testDirectory);
+    Assert.assertThat("The entries did not match the expected value.", entries,
+        CoreMatchers.is(expectedEntries));
+  }
+
+  /**
+   * Test that the visitor is invoked in the same order as {@link Files#walkFileTree} when the tree
+   * has more entries than the queue's capacity.
+   */
+  @Test
+  public void testWalk_moreEntriesThanCapacity_sameAsWalkFileTree() throws IOException {
+    // Set up test data.
+    Path testDirectory =
+        Files.createTempDirectory("testWalk_moreEntriesThanCapacity_sameAsWalkFileTree");
+    testDirectory.toFile().deleteOnExit();
+
+    for (int i = 0; i < 5; i++) {
+      Path subDirectory = Files.createDirectory(testDirectory.resolve("subDirectory" + i));
+      subDirectory.toFile().deleteOnExit();
+
+      for (int j = 0; j < 5; j++) {
+        Path file = Files.createFile(subDirectory.resolve("file" + j));
+        file.toFile().deleteOnExit();
+      }
+    }
+
+    RecordingVisitor expectedVisitor = new RecordingVisitor(null);
+    Files.walkFileTree(testDirectory, expectedVisitor);
+
+    // Call the method under test.
+    RecordingVisitor visitor = new RecordingVisitor(null);
+    StreamingTreeWalker.walk(testDirectory, visitor, 2, files);
+
+    // Perform assertions.
+    Assert.assertThat("The visits did not match the expected value.", visitor.visits,
+        CoreMatchers.is(expectedVisitor.visits));
+  }
+
+  /**
+   * Test that the directory's entries are not visited when the visitor skips its subtree.
+   */
+  @Test
+  public void testWalk_skipSubtree_entriesNotVisited() throws IOException {
+    // Set up test data.
+    Path testDirectory = Files.createTempDirectory("testWalk_skipSubtree_entriesNotVisited");
+    testDirectory.toFile().deleteOnExit();
+
+    Path skippedDirectory = Files.createDirectory(testDirectory.resolve("skipped"));
+    skippedDirectory.toFile().deleteOnExit();
+    Path skippedFile = Files.createFile(skippedDirectory.resolve("skippedFile"));
+    skippedFile.toFile().deleteOnExit();
+
+    // Call the method under test.
+    RecordingVisitor visitor = new RecordingVisitor(skippedDirectory);
+    StreamingTreeWalker.walk(testDirectory, visitor, files);
+
+    // Perform assertions.
+    List<String> expectedVisits = Arrays.asList("preVisitDirectory " + testDirectory,
+        "preVisitDirectory " + skippedDirectory, "postVisitDirectory " + testDirectory);
+    Assert.assertThat("The visits did not match the expected value.", visitor.visits,
+        CoreMatchers.is(expectedVisits));
+  }
+
+  /**
+   * Test that an exception is thrown when the root does not exist.
+   */
+  @Test(expected = NoSuchFileException.class)
+  public void testWalk_rootNotExists_exception() throws IOException {
+    // Set up test data.
+    Path testDirectory = Files.createTempDirectory("testWalk_rootNotExists_exception");
+    testDirectory.toFile().deleteOnExit();
+
+    // Call the method under test.
+    StreamingTreeWalker.walk(testDirectory.resolve("notExists"), new RecordingVisitor(null), files);
+  }
+
+  /**
+   * A visitor which records each visit, optionally skipping the subtree of a directory.
+   */
+  private static class RecordingVisitor extends SimpleFileVisitor<Path> {
+
+    private final Path skipDirectory;
+    private final List<String> visits = new ArrayList<>();
+
+    private RecordingVisitor(Path skipDirectory) {
+      this.skipDirectory = skipDirectory;
+    }
+
+    @Override
+    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+      visits.add("preVisitDirectory " + dir);
+      return dir.equals(skipDirectory) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+    }
+
+    @Override
+    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+      visits.add("visitFile " + file);
+      return FileVisitResult.CONTINUE;
+    }
+
+    @Override
+    public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+      visits.add("postVisitDirectory " + dir);
+      return FileVisitResult.CONTINUE;
+    }
+  }
+}
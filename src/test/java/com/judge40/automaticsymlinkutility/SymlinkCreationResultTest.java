@@ -19,12 +19,18 @@
 
 package com.judge40.automaticsymlinkutility;
 
+import com.judge40.automaticsymlinkutility.SymlinkCreationResult.Reason;
 import com.judge40.automaticsymlinkutility.SymlinkCreationResult.Status;
 
 import org.hamcrest.CoreMatchers;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+
 /**
  * The units tests for {@link SymlinkCreationResult}.
  */
@@ -93,4 +99,84 @@ public class SymlinkCreationResultTest {
     Assert.assertThat("The result's message did not match the expected value.", message,
         CoreMatchers.is("Initialized message."));
   }
+
+  /**
+   * Test that the reason's status is returned when the result is initialised with a reason.
+   */
+  @Test
+  public void testGetStatus_reason_reasonStatus() {
+    // Set up test data.
+    SymlinkCreationResult result =
+        new SymlinkCreationResult(Reason.ALREADY_LINK, Paths.get("link"), Paths.get("target"));
+
+    // Call the method under test.
+    Status status = result.getStatus();
+
+    // Perform assertions.
+    Assert.assertThat("The result's status did not match the expected value.", status,
+        CoreMatchers.is(Status.SKIPPED));
+    Assert.assertThat("The result's reason did not match the expected value.", result.getReason(),
+        CoreMatchers.is(Reason.ALREADY_LINK));
+  }
+
+  /**
+   * Test that the message is formatted from the reason, paths and affected files when the result is
+   * initialised with a reason.
+   */
+  @Test
+  public void testGetMessage_reasonWithPaths_formattedMessage() {
+    // Set up test data.
+    Path conflict = Paths.get("link", "file");
+    SymlinkCreationResult result = new SymlinkCreationResult(Reason.MERGE_CONFLICT,
+        Paths.get("link"), Paths.get("target"), Collections.singletonList(conflict));
+
+    // Call the method under test.
+    String message = result.getMessage();
+
+    // Perform assertions.
+    Assert.assertThat("The result's message did not match the expected value.", message,
+        CoreMatchers.is(String.format(
+            "A link was not created because 1 files in 'link' conflict with 'target': [%s]",
+            conflict)));
+  }
+
+  /**
+   * Test that the error's message is returned when the result is initialised with an error.
+   */
+  @Test
+  public void testGetMessage_ioException_exceptionMessage() {
+    // Set up test data.
+    IOException ioe = new IOException("Error message.");
+    SymlinkCreationResult result =
+        new SymlinkCreationResult(Paths.get("link"), Paths.get("target"), ioe);
+
+    // Call the method under test.
+    String message = result.getMessage();
+
+    // Perform assertions.
+    Assert.assertThat("The result's message did not match the expected value.", message,
+        CoreMatchers.is("Error message."));
+    Assert.assertThat("The result's reason did not match the expected value.", result.getReason(),
+        CoreMatchers.is(Reason.IO_ERROR));
+    Assert.assertThat("The result's status did not match the expected value.", result.getStatus(),
+        CoreMatchers.is(Status.FAILED));
+  }
+
+  /**
+   * Test that the single affected path is formatted as a path rather than a list when the reason
+   * refers to it.
+   */
+  @Test
+  public void testGetMessage_drifted_actualTargetFormatted() {
+    // Set up test data.
+    SymlinkCreationResult result = new SymlinkCreationResult(Reason.DRIFTED, Paths.get("link"),
+        Paths.get("target"), Collections.singletonList(Paths.get("other")));
+
+    // Call the method under test.
+    String message = result.getMessage();
+
+    // Perform assertions.
+    Assert.assertThat("The result's message did not match the expected value.", message,
+        CoreMatchers.is("The link 'link' has drifted, it points to 'other' rather than 'target'."));
+  }
 }
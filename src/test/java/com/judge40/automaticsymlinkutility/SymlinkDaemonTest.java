@@ -0,0 +1,333 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import com.judge40.automaticsymlinkutility.SymlinkOptions.OutputFormat;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The unit tests for {@link SymlinkDaemon}.
+ */
+public class SymlinkDaemonTest {
+
+  private SymlinkDaemon daemon;
+  private ExecutorService executor;
+  private Future<?> running;
+  private Path definitionFile;
+
+  /**
+   * Starts a daemon on a free port with JSON output and writes a definition file with one group
+   * and one ungrouped symlink, neither of which exist.
+   */
+  @Before
+  public void setUp() throws Exception {
+    Path testDirectory = Files.createTempDirectory("SymlinkDaemonTest");
+    testDirectory.toFile().deleteOnExit();
+
+    SymlinkOptions options = new SymlinkOptions();
+    options.setFormat(OutputFormat.JSON);
+    daemon = new SymlinkDaemon(new SymlinkManager(FileSystems.getDefault(), options), 0,
+        testDirectory);
+    executor = Executors.newSingleThreadExecutor();
+    running = executor.submit(() -> {
+      daemon.run();
+      return null;
+    });
+
+    definitionFile = Files.createTempFile(testDirectory, "definitions", ".xml");
+    definitionFile.toFile().deleteOnExit();
+    String symlink = "<symlink><linkPath>" + testDirectory.resolve("missingLink")
+        + "</linkPath><targetPath>" + testDirectory.resolve("missingTarget")
+        + "</targetPath></symlink>";
+    Files.write(definitionFile, ("<symlinks><group name=\"group1\">" + symlink + "</group>"
+        + symlink + "</symlinks>").getBytes(StandardCharsets.UTF_8));
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    daemon.close();
+    executor.shutdownNow();
+  }
+
+  /**
+   * Test that every symlink's result is returned when a whole definition file is applied.
+   */
+  @Test
+  public void testRun_applyRequest_allResultsReturned() throws IOException {
+    // Call the method under test.
+    List<String> response = request("apply\t" + definitionFile);
+
+    // Perform assertions.
+    Assert.assertThat("The number of results did not match the expected value.",
+        countResults(response), CoreMatchers.is(2));
+  }
+
+  /**
+   * Test that only the group's results are returned when a single group is applied.
+   */
+  @Test
+  public void testRun_applyGroupRequest_groupResultsReturned() throws IOException {
+    // Call the method under test.
+    List<String> response = request("apply\t" + definitionFile + "\tgroup1");
+
+    // Perform assertions.
+    Assert.assertThat("The number of results did not match the expected value.",
+        countResults(response), CoreMatchers.is(1));
+    Assert.assertThat("The result's group did not match the expected value.",
+        response.toString(), CoreMatchers.containsString("\"group\":\"group1\""));
+  }
+
+  /**
+   * Test that an error is returned when the request is not recognised.
+   */
+  @Test
+  public void testRun_unknownRequest_errorReturned() throws IOException {
+    // Call the method under test.
+    List<String> response = request("unknown");
+
+    // Perform assertions.
+    Assert.assertThat("The response did not match the expected value.", response.get(0),
+        CoreMatchers.is("{\"event\":\"error\",\"message\":\"Unknown request 'unknown'.\"}"));
+  }
+
+  /**
+   * Test that an error is returned and the daemon keeps running when the definition file does not
+   * exist.
+   */
+  @Test
+  public void testRun_missingDefinitionFile_errorReturned() throws IOException {
+    // Call the method under test.
+    List<String> errorResponse = request("apply\tmissing.xml");
+    List<String> response = request("apply\t" + definitionFile);
+
+    // Perform assertions.
+    Assert.assertThat("The response did not match the expected value.", errorResponse.get(0),
+        CoreMatchers.containsString("\"event\":\"error\""));
+    Assert.assertThat("The number of results did not match the expected value.",
+        countResults(response), CoreMatchers.is(2));
+  }
+
+  /**
+   * Test that the daemon stops running when a stop request is received.
+   */
+  @Test
+  public void testRun_stopRequest_stopped() throws Exception {
+    // Call the method under test.
+    request("stop");
+
+    // Perform assertions.
+    running.get(10, TimeUnit.SECONDS);
+    Assert.assertThat("The daemon did not stop.", running.isDone(), CoreMatchers.is(true));
+  }
+
+  /**
+   * Test that a request with the wrong token is rejected without being handled.
+   */
+  @Test
+  public void testRun_wrongToken_errorReturned() throws IOException {
+    // Call the method under test.
+    List<String> response = request("wrong", "apply\t" + definitionFile);
+
+    // Perform assertions.
+    Assert.assertThat("The response did not match the expected value.", response,
+        CoreMatchers.is(Collections.singletonList(
+            "{\"event\":\"error\",\"message\":\"The request was not authenticated.\"}")));
+  }
+
+  /**
+   * Test that the token file can only be read by its owner and is deleted when the daemon is
+   * closed.
+   */
+  @Test
+  public void testClose_tokenFile_ownerOnlyAndDeleted() throws IOException {
+    // Set up test data.
+    Path tokenFile = daemon.getTokenFile();
+    Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(tokenFile);
+
+    // Call the method under test.
+    daemon.close();
+
+    // Perform assertions.
+    Assert.assertThat("The token file's permissions did not match the expected value.",
+        PosixFilePermissions.toString(permissions), CoreMatchers.is("rw-------"));
+    Assert.assertThat("The token file was not deleted.", Files.exists(tokenFile),
+        CoreMatchers.is(false));
+  }
+
+  /**
+   * Test that the daemon keeps handling requests after a client times out and a client resets its
+   * connection.
+   */
+  @Test
+  public void testRun_failedConnections_daemonKeepsRunning() throws IOException {
+    // Set up test data.
+    daemon.setRequestTimeout(100);
+
+    // Call the method under test.
+    try (Socket idleSocket = new Socket(InetAddress.getLoopbackAddress(), daemon.getPort())) {
+      Assert.assertThat("The idle connection was not closed.",
+          idleSocket.getInputStream().read(), CoreMatchers.is(-1));
+    }
+
+    try (Socket resetSocket = new Socket(InetAddress.getLoopbackAddress(), daemon.getPort())) {
+      resetSocket.setSoLinger(true, 0);
+      resetSocket.getOutputStream().write("apply".getBytes(StandardCharsets.UTF_8));
+    }
+
+    List<String> response = request("apply\t" + definitionFile);
+
+    // Perform assertions.
+    Assert.assertThat("The number of results did not match the expected value.",
+        countResults(response), CoreMatchers.is(2));
+  }
+
+  /**
+   * Test that the definition file is rerun and its results written when reconciling.
+   */
+  @Test
+  public void testReconcile_definitionFile_resultsWritten() throws Exception {
+    // Set up test data.
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ReconcileSchedule schedule = new ReconcileSchedule(10, 10, TimeUnit.MILLISECONDS);
+
+    // Call the method under test.
+    daemon.reconcile(definitionFile, schedule, new PrintStream(out, true, "UTF-8"));
+
+    // Perform assertions.
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    List<String> output = Collections.emptyList();
+
+    while (countResults(output) < 4 && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+      output = Arrays.asList(new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n"));
+    }
+
+    Assert.assertThat("The definition file was not rerun.", countResults(output) >= 4,
+        CoreMatchers.is(true));
+  }
+
+  /**
+   * Test that closing the daemon lets a reconcile run in progress complete and starts no more.
+   */
+  @Test
+  public void testClose_reconciling_runCompletedAndStopped() throws Exception {
+    // Set up test data.
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ReconcileSchedule schedule = new ReconcileSchedule(10, 10, TimeUnit.MILLISECONDS);
+    daemon.reconcile(definitionFile, schedule, new PrintStream(out, true, "UTF-8"));
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+
+    while (out.size() == 0 && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+
+    // Call the method under test.
+    daemon.close();
+    String closedOutput = new String(out.toByteArray(), StandardCharsets.UTF_8);
+    Thread.sleep(100);
+
+    // Perform assertions.
+    Assert.assertThat("The run in progress was not completed.", closedOutput,
+        CoreMatchers.endsWith("{\"event\":\"finished\"}" + System.lineSeparator()));
+    Assert.assertThat("A run was started after the daemon was closed.",
+        new String(out.toByteArray(), StandardCharsets.UTF_8), CoreMatchers.is(closedOutput));
+  }
+
+  /**
+   * Sends a request to the daemon, authenticated with the daemon's token, and reads the response.
+   * 
+   * @param request The request line.
+   * @return The lines of the response.
+   * @throws IOException If an error occurs sending the request or reading the response.
+   */
+  private List<String> request(String request) throws IOException {
+    String token = new String(Files.readAllBytes(daemon.getTokenFile()), StandardCharsets.UTF_8);
+    return request(token, request);
+  }
+
+  /**
+   * Sends a token and request to the daemon and reads the response.
+   * 
+   * @param token The token line.
+   * @param request The request line.
+   * @return The lines of the response.
+   * @throws IOException If an error occurs sending the request or reading the response.
+   */
+  private List<String> request(String token, String request) throws IOException {
+    List<String> response = new ArrayList<>();
+
+    try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), daemon.getPort())) {
+      OutputStream out = socket.getOutputStream();
+      out.write((token + "\n" + request + "\n").getBytes(StandardCharsets.UTF_8));
+      out.flush();
+
+      BufferedReader in = new BufferedReader(
+          new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+      String line;
+
+      while ((line = in.readLine()) != null) {
+        response.add(line);
+      }
+    }
+
+    return response;
+  }
+
+  private int countResults(List<String> response) {
+    int count = 0;
+
+    for (String line : response) {
+      if (line.startsWith("{\"event\":\"result\"")) {
+        count++;
+      }
+    }
+
+    return count;
+  }
+}
@@ -0,0 +1,236 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import com.judge40.automaticsymlinkutility.SymlinkCreationResult.Reason;
+
+import mockit.Deencapsulation;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+import org.xml.sax.SAXParseException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * The unit tests for {@link SymlinkManager}.
+ */
+public class SymlinkManagerTest {
+
+  /**
+   * Test that the default file system and options are used when none are given.
+   */
+  @Test
+  public void testConstructor_noArgs_defaults() throws Exception {
+    // Call the method under test.
+    SymlinkManager manager = new SymlinkManager();
+
+    // Perform assertions.
+    Assert.assertThat("The file system did not match the expected value.",
+        manager.getFileSystem(), CoreMatchers.is(FileSystems.getDefault()));
+    Assert.assertThat("The merge option did not match the expected value.",
+        manager.getOptions().isMerge(), CoreMatchers.is(false));
+  }
+
+  /**
+   * Test that a symbolic link is created when the paths are given as strings.
+   */
+  @Test
+  public void testCreateSymbolicLink_stringPaths_created() throws Exception {
+    // Set up test data.
+    Path testDirectory = Files.createTempDirectory("testCreateSymbolicLink_stringPaths_created");
+    testDirectory.toFile().deleteOnExit();
+
+    Path link = testDirectory.resolve("linkNotExists");
+    link.toFile().deleteOnExit();
+    Path target = Files.createTempFile(testDirectory, "targetFile", null);
+    target.toFile().deleteOnExit();
+
+    SymlinkManager manager = new SymlinkManager();
+
+    // Call the method under test.
+    SymlinkCreationResult result = manager.createSymbolicLink(link.toString(), target.toString());
+
+    // Perform assertions.
+    Assert.assertThat("The result reason did not match the expected value.", result.getReason(),
+        CoreMatchers.is(Reason.LINKED));
+    Assert.assertThat("The link was not created.", Files.isSymbolicLink(link),
+        CoreMatchers.is(true));
+  }
+
+  /**
+   * Test that an IllegalArgumentException is thrown when the paths are from a different file
+   * system to the manager's.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testCreateSymbolicLink_otherFileSystem_exception() throws Exception {
+    // Set up test data.
+    Path zipFile = Files.createTempFile(null, ".zip");
+    zipFile.toFile().deleteOnExit();
+    Files.delete(zipFile);
+    URI zipUri = URI.create("jar:" + zipFile.toUri());
+
+    try (FileSystem zipFileSystem =
+        FileSystems.newFileSystem(zipUri, Collections.singletonMap("create", "true"))) {
+      SymlinkManager manager = new SymlinkManager();
+
+      // Call the method under test.
+      manager.createSymbolicLink(zipFileSystem.getPath("/link"), zipFileSystem.getPath("/target"));
+    }
+  }
+
+  /**
+   * Test that the result of each symlink is returned when a definition file is applied.
+   */
+  @Test
+  public void testApply_definitionFile_resultsReturned() throws Exception {
+    // Set up test data.
+    Path testDirectory = Files.createTempDirectory("testApply_definitionFile_resultsReturned");
+    testDirectory.toFile().deleteOnExit();
+
+    Path link = testDirectory.resolve("linkNotExists");
+    link.toFile().deleteOnExit();
+    Path target = Files.createTempFile(testDirectory, "targetFile", null);
+    target.toFile().deleteOnExit();
+
+    Path definitionFile = writeDefinitionFile(testDirectory,
+        "<symlinks><symlink><linkPath>" + link + "</linkPath><targetPath>" + target
+            + "</targetPath></symlink><symlink><linkPath>" + testDirectory.resolve("missingLink")
+            + "</linkPath><targetPath>" + testDirectory.resolve("missingTarget")
+            + "</targetPath></symlink></symlinks>");
+
+    SymlinkManager manager = new SymlinkManager();
+
+    // Call the method under test.
+    List<SymlinkCreationResult> results = manager.apply(definitionFile);
+
+    // Perform assertions.
+    Assert.assertThat("The number of results did not match the expected value.", results.size(),
+        CoreMatchers.is(2));
+    Assert.assertThat("The first result reason did not match the expected value.",
+        results.get(0).getReason(), CoreMatchers.is(Reason.LINKED));
+    Assert.assertThat("The second result reason did not match the expected value.",
+        results.get(1).getReason(), CoreMatchers.is(Reason.NEITHER_EXIST));
+  }
+
+  /**
+   * Test that the schema is reused when a manager applies multiple definition files.
+   */
+  @Test
+  public void testApply_multipleDefinitionFiles_allApplied() throws Exception {
+    // Set up test data.
+    Path testDirectory = Files.createTempDirectory("testApply_multipleDefinitionFiles_allApplied");
+    testDirectory.toFile().deleteOnExit();
+
+    Path definitionFile = writeDefinitionFile(testDirectory, "<symlinks><symlink><linkPath>"
+        + testDirectory.resolve("missingLink") + "</linkPath><targetPath>"
+        + testDirectory.resolve("missingTarget") + "</targetPath></symlink></symlinks>");
+
+    SymlinkManager manager = new SymlinkManager();
+
+    // Call the method under test.
+    List<SymlinkCreationResult> firstResults = manager.apply(definitionFile);
+    List<SymlinkCreationResult> secondResults = manager.apply(definitionFile);
+
+    // Perform assertions.
+    Assert.assertThat("The number of first results did not match the expected value.",
+        firstResults.size(), CoreMatchers.is(1));
+    Assert.assertThat("The number of second results did not match the expected value.",
+        secondResults.size(), CoreMatchers.is(1));
+  }
+
+  /**
+   * Test that a SAXParseException is thrown when the definition file is not valid.
+   */
+  @Test(expected = SAXParseException.class)
+  public void testApply_invalidDefinitionFile_exception() throws Exception {
+    // Set up test data.
+    Path testDirectory =
+        Files.createTempDirectory("testApply_invalidDefinitionFile_exception");
+    testDirectory.toFile().deleteOnExit();
+
+    Path definitionFile = writeDefinitionFile(testDirectory, "<symlinks><group/></symlinks>");
+
+    // Call the method under test.
+    new SymlinkManager().apply(definitionFile);
+  }
+
+  /**
+   * Test that the manager's threads are stopped when it is closed.
+   */
+  @Test
+  public void testClose_parallel_threadsStopped() throws Exception {
+    // Set up test data.
+    SymlinkOptions options = new SymlinkOptions();
+    options.setParallelism(2);
+    SymlinkManager manager = new SymlinkManager(FileSystems.getDefault(), options);
+    ExecutorService executor = Deencapsulation.getField(manager, "executor");
+
+    // Call the method under test.
+    manager.close();
+
+    // Perform assertions.
+    Assert.assertThat("The executor was not terminated.", executor.isTerminated(),
+        CoreMatchers.is(true));
+  }
+
+  /**
+   * Test that an IllegalStateException is thrown when a closed manager is used.
+   */
+  @Test(expected = IllegalStateException.class)
+  public void testApply_closed_exception() throws Exception {
+    // Set up test data.
+    Path testDirectory = Files.createTempDirectory("testApply_closed_exception");
+    testDirectory.toFile().deleteOnExit();
+
+    Path definitionFile = writeDefinitionFile(testDirectory, "<symlinks/>");
+
+    SymlinkManager manager = new SymlinkManager();
+    manager.close();
+
+    // Call the method under test.
+    manager.apply(definitionFile);
+  }
+
+  /**
+   * Writes a definition file to a directory.
+   * 
+   * @param directory The directory to write the file to.
+   * @param definitions The definitions to write.
+   * @return The definition file.
+   * @throws IOException If an error occurs writing the file.
+   */
+  private Path writeDefinitionFile(Path directory, String definitions) throws IOException {
+    Path definitionFile = Files.createTempFile(directory, "definitions", ".xml");
+    definitionFile.toFile().deleteOnExit();
+    Files.write(definitionFile, definitions.getBytes(StandardCharsets.UTF_8));
+    return definitionFile;
+  }
+}
@@ -0,0 +1,334 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import com.judge40.automaticsymlinkutility.SymlinkOptions.Mode;
+import com.judge40.automaticsymlinkutility.SymlinkOptions.OutputFormat;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * The unit tests for {@link SymlinkOptions}.
+ */
+public class SymlinkOptionsTest {
+
+  /**
+   * Test that the default options are used when there are no arguments.
+   */
+  @Test
+  public void testParse_noArgs_defaultOptions() {
+    // Call the method under test.
+    SymlinkOptions options = SymlinkOptions.parse(new String[0]);
+
+    // Perform assertions.
+    Assert.assertThat("The merge option did not match the expected value.", options.isMerge(),
+        CoreMatchers.is(false));
+    Assert.assertThat("The arguments did not match the expected value.", options.getArguments(),
+        CoreMatchers.is(Collections.emptyList()));
+  }
+
+  /**
+   * Test that non-option arguments are kept in order.
+   */
+  @Test
+  public void testParse_nonOptionArgs_argumentsKept() {
+    // Call the method under test.
+    SymlinkOptions options = SymlinkOptions.parse(new String[] {"first", "second"});
+
+    // Perform assertions.
+    Assert.assertThat("The arguments did not match the expected value.", options.getArguments(),
+        CoreMatchers.is(Arrays.asList("first", "second")));
+  }
+
+  /**
+   * Test that merge is enabled when the merge option is given.
+   */
+  @Test
+  public void testParse_mergeOption_mergeTrue() {
+    // Call the method under test.
+    SymlinkOptions options = SymlinkOptions.parse(new String[] {"--merge", "definition.xml"});
+
+    // Perform assertions.
+    Assert.assertThat("The merge option did not match the expected value.", options.isMerge(),
+        CoreMatchers.is(true));
+    Assert.assertThat("The arguments did not match the expected value.", options.getArguments(),
+        CoreMatchers.is(Collections.singletonList("definition.xml")));
+  }
+
+  /**
+   * Test that an IllegalArgumentException is thrown when an option is not recognised.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testParse_unknownOption_exception() {
+    // Call the method under test.
+    SymlinkOptions.parse(new String[] {"--unknown"});
+  }
+
+  /**
+   * Test that verify is enabled when the verify option is given.
+   */
+  @Test
+  public void testParse_verifyOption_verifyTrue() {
+    // Call the method under test.
+    SymlinkOptions options = SymlinkOptions.parse(new String[] {"--verify", "definition.xml"});
+
+    // Perform assertions.
+    Assert.assertThat("The verify option did not match the expected value.", options.isVerify(),
+        CoreMatchers.is(true));
+  }
+
+  /**
+   * Test that the output format is set when the format option is given.
+   */
+  @Test
+  public void testParse_formatOption_formatSet() {
+    // Call the method under test.
+    SymlinkOptions options = SymlinkOptions.parse(new String[] {"--format=json", "definition.xml"});
+
+    // Perform assertions.
+    Assert.assertThat("The format option did not match the expected value.", options.getFormat(),
+        CoreMatchers.is(OutputFormat.JSON));
+    Assert.assertThat("The arguments did not match the expected value.", options.getArguments(),
+        CoreMatchers.is(Collections.singletonList("definition.xml")));
+  }
+
+  /**
+   * Test that an IllegalArgumentException is thrown when the format option's value is not
+   * recognised.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testParse_unknownFormat_exception() {
+    // Call the method under test.
+    SymlinkOptions.parse(new String[] {"--format=xml"});
+  }
+
+  /**
+   * Test that the summary is enabled without a file when the summary option has no value.
+   */
+  @Test
+  public void testParse_summaryOption_summaryWithoutFile() {
+    // Call the method under test.
+    SymlinkOptions options = SymlinkOptions.parse(new String[] {"--summary"});
+
+    // Perform assertions.
+    Assert.assertThat("The summary option did not match the expected value.", options.isSummary(),
+        CoreMatchers.is(true));
+    Assert.assertThat("The summary file did not match the expected value.",
+        options.getSummaryFile(), CoreMatchers.nullValue());
+  }
+
+  /**
+   * Test that the summary file is set when the summary option has a value.
+   */
+  @Test
+  public void testParse_summaryOptionWithFile_summaryFileSet() {
+    // Call the method under test.
+    SymlinkOptions options = SymlinkOptions.parse(new String[] {"--summary=summary.txt"});
+
+    // Perform assertions.
+    Assert.assertThat("The summary option did not match the expected value.", options.isSummary(),
+        CoreMatchers.is(true));
+    Assert.assertThat("The summary file did not match the expected value.",
+        options.getSummaryFile(), CoreMatchers.is(Paths.get("summary.txt")));
+  }
+
+  /**
+   * Test that the metrics file is set when the metrics file option is given.
+   */
+  @Test
+  public void testParse_metricsFileOption_metricsFileSet() {
+    // Call the method under test.
+    SymlinkOptions options = SymlinkOptions.parse(new String[] {"--metrics-file=metrics.prom"});
+
+    // Perform assertions.
+    Assert.assertThat("The metrics file did not match the expected value.",
+        options.getMetricsFile(), CoreMatchers.is(Paths.get("metrics.prom")));
+  }
+
+  /**
+   * Test that messages are enabled when the messages option is given.
+   */
+  @Test
+  public void testParse_messagesOption_messagesTrue() {
+    // Call the method under test.
+    SymlinkOptions options = SymlinkOptions.parse(new String[] {"--format=json", "--messages"});
+
+    // Perform assertions.
+    Assert.assertThat("The messages option did not match the expected value.",
+        options.isMessages(), CoreMatchers.is(true));
+  }
+
+  /**
+   * Test that timings are enabled when the timings option is given.
+   */
+  @Test
+  public void testParse_timingsOption_timingsTrue() {
+    // Call the method under test.
+    SymlinkOptions options = SymlinkOptions.parse(new String[] {"--timings"});
+
+    // Perform assertions.
+    Assert.assertThat("The timings option did not match the expected value.", options.isTimings(),
+        CoreMatchers.is(true));
+  }
+
+  /**
+   * Test that the slow threshold is set when the slow threshold option is given.
+   */
+  @Test
+  public void testParse_slowThresholdOption_slowThresholdSet() {
+    // Call the method under test.
+    SymlinkOptions options = SymlinkOptions.parse(new String[] {"--slow-threshold=250"});
+
+    // Perform assertions.
+    Assert.assertThat("The slow threshold did not match the expected value.",
+        options.getSlowThreshold(), CoreMatchers.is(250L));
+  }
+
+  /**
+   * Test that an IllegalArgumentException is thrown when the slow threshold is not a number.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testParse_invalidSlowThreshold_exception() {
+    // Call the method under test.
+    SymlinkOptions.parse(new String[] {"--slow-threshold=slow"});
+  }
+
+  /**
+   * Test that the daemon port is set when the daemon option is given.
+   */
+  @Test
+  public void testParse_daemonOption_daemonPortSet() {
+    // Call the method under test.
+    SymlinkOptions options = SymlinkOptions.parse(new String[] {"--daemon=9240"});
+
+    // Perform assertions.
+    Assert.assertThat("The daemon port did not match the expected value.",
+        options.getDaemonPort(), CoreMatchers.is(9240));
+  }
+
+  /**
+   * Test that an IllegalArgumentException is thrown when the daemon port is out of range.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testParse_invalidDaemonPort_exception() {
+    // Call the method under test.
+    SymlinkOptions.parse(new String[] {"--daemon=65536"});
+  }
+
+  /**
+   * Test that the reconcile file and intervals are set when the reconcile options are given.
+   */
+  @Test
+  public void testParse_reconcileOptions_reconcileSet() {
+    // Call the method under test.
+    SymlinkOptions options = SymlinkOptions
+        .parse(new String[] {"--reconcile=symlinks.xml", "--reconcile-interval=30:600"});
+
+    // Perform assertions.
+    Assert.assertThat("The reconcile file did not match the expected value.",
+        options.getReconcileFile(), CoreMatchers.is(Paths.get("symlinks.xml")));
+    Assert.assertThat("The minimum interval did not match the expected value.",
+        options.getMinReconcileInterval(), CoreMatchers.is(30L));
+    Assert.assertThat("The maximum interval did not match the expected value.",
+        options.getMaxReconcileInterval(), CoreMatchers.is(600L));
+  }
+
+  /**
+   * Test that an IllegalArgumentException is thrown when the reconcile interval is malformed.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testParse_invalidReconcileInterval_exception() {
+    // Call the method under test.
+    SymlinkOptions.parse(new String[] {"--reconcile-interval=600:30"});
+  }
+
+  /**
+   * Test that the mode and parallelism are set when the mode and parallel options are given.
+   */
+  @Test
+  public void testParse_modeAndParallelOptions_modeAndParallelismSet() {
+    // Call the method under test.
+    SymlinkOptions options =
+        SymlinkOptions.parse(new String[] {"--mode=restore", "--parallel=8"});
+
+    // Perform assertions.
+    Assert.assertThat("The mode did not match the expected value.", options.getMode(),
+        CoreMatchers.is(Mode.RESTORE));
+    Assert.assertThat("The parallelism did not match the expected value.",
+        options.getParallelism(), CoreMatchers.is(8));
+  }
+
+  /**
+   * Test that an IllegalArgumentException is thrown when the mode is not recognised.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testParse_unknownMode_exception() {
+    // Call the method under test.
+    SymlinkOptions.parse(new String[] {"--mode=unknown"});
+  }
+
+  /**
+   * Test that an IllegalArgumentException is thrown when the parallelism is less than one.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testParse_invalidParallelism_exception() {
+    // Call the method under test.
+    SymlinkOptions.parse(new String[] {"--parallel=0"});
+  }
+
+  /**
+   * Test that the gc roots and removal are set when the gc options are given.
+   */
+  @Test
+  public void testParse_gcOptions_gcRootsAndRemoveSet() {
+    // Call the method under test.
+    SymlinkOptions options = SymlinkOptions.parse(
+        new String[] {"--mode=gc", "--gc-root=/opt", "--gc-root=/srv", "--remove"});
+
+    // Perform assertions.
+    Assert.assertThat("The mode did not match the expected value.", options.getMode(),
+        CoreMatchers.is(Mode.GC));
+    Assert.assertThat("The gc roots did not match the expected value.", options.getGcRoots(),
+        CoreMatchers.is(Arrays.asList(Paths.get("/opt"), Paths.get("/srv"))));
+    Assert.assertThat("The remove flag did not match the expected value.", options.isRemove(),
+        CoreMatchers.is(true));
+  }
+
+  /**
+   * Test that repairs are enabled when the audit options are given.
+   */
+  @Test
+  public void testParse_auditOptions_repairSet() {
+    // Call the method under test.
+    SymlinkOptions options = SymlinkOptions.parse(new String[] {"--mode=audit", "--repair"});
+
+    // Perform assertions.
+    Assert.assertThat("The mode did not match the expected value.", options.getMode(),
+        CoreMatchers.is(Mode.AUDIT));
+    Assert.assertThat("The repair flag did not match the expected value.", options.isRepair(),
+        CoreMatchers.is(true));
+  }
+}
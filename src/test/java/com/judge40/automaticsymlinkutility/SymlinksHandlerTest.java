@@ -19,7 +19,9 @@
 
 package com.judge40.automaticsymlinkutility;
 
+import com.judge40.automaticsymlinkutility.RunSummary.GroupSummary;
 import com.judge40.automaticsymlinkutility.SymlinkCreationResult.Status;
+import com.judge40.automaticsymlinkutility.SymlinkOptions.Mode;
 
 import mockit.Deencapsulation;
 import mockit.Expectations;
@@ -37,10 +39,18 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.io.UnsupportedEncodingException;
+import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * The unit tests for {@link SymlinksHandler}.
@@ -53,8 +63,8 @@ public class SymlinksHandlerTest {
 
   @Before
   public void setUp() throws UnsupportedEncodingException {
-    handler = new SymlinksHandler();
     System.setOut(new PrintStream(out, false, StandardCharsets.UTF_8.name()));
+    handler = new SymlinksHandler();
   }
 
   @After
@@ -710,7 +720,8 @@ public class SymlinksHandlerTest {
     // Record expectations.
     new Expectations() {
       {
-        AutomaticSymlinkUtility.createSymbolicLink(initialLink, initialTarget);
+        AutomaticSymlinkUtility.createSymbolicLink(initialLink, initialTarget,
+            (SymlinkOptions) any, (OperationContext) any);
         result = new SymlinkCreationResult(Status.CREATED, "Creation message.");
       }
     };
@@ -850,6 +861,35 @@ public class SymlinksHandlerTest {
         CoreMatchers.nullValue());
   }
 
+  /**
+   * Test that the link path is got from the handler's file system when one is given.
+   */
+  @Test
+  public void testEndElement_linkPathFileSystem_linkFromFileSystem() throws IOException {
+    // Set up test data.
+    Path zipFile = Files.createTempFile(null, ".zip");
+    zipFile.toFile().deleteOnExit();
+    Files.delete(zipFile);
+    URI zipUri = URI.create("jar:" + zipFile.toUri());
+
+    try (FileSystem zipFileSystem =
+        FileSystems.newFileSystem(zipUri, Collections.singletonMap("create", "true"))) {
+      handler = new SymlinksHandler(new SymlinkOptions(), new TextResultSink(System.out),
+          zipFileSystem);
+      Deencapsulation.setField(handler, "characters", new StringBuilder("/linkCharacters"));
+
+      // Call the method under test.
+      handler.endElement(null, null, "linkPath");
+
+      // Perform assertions.
+      Path link = Deencapsulation.getField(handler, "link");
+      Assert.assertThat("The link path did not match the expected value.", link,
+          CoreMatchers.is(zipFileSystem.getPath("/linkCharacters")));
+      Assert.assertThat("The link path's file system did not match the expected value.",
+          link.getFileSystem(), CoreMatchers.sameInstance(zipFileSystem));
+    }
+  }
+
   /**
    * Test that characters is set to null when the element is linkPath and skipElements is true.
    */
@@ -966,6 +1006,253 @@ public class SymlinksHandlerTest {
             + "Automatic Symlink Utility finished." + System.lineSeparator()));
   }
 
+  /**
+   * Test that an overriding handler's context check and symbolic link creation are used.
+   */
+  @Test
+  public void testEndElement_overriddenHooks_overridesUsed() {
+    // Set up test data.
+    SymlinksHandler overridingHandler = new SymlinksHandler(new SymlinkOptions()) {
+      @Override
+      protected boolean contextExists(Path context) {
+        return context.endsWith("exists");
+      }
+
+      @Override
+      protected SymlinkCreationResult createSymbolicLink(Path link, Path target) {
+        return new SymlinkCreationResult(Status.SKIPPED, "Stubbed.");
+      }
+    };
+
+    AttributesImpl attributes = new AttributesImpl();
+    attributes.addAttribute(null, null, "contextPath", null, "/missing");
+
+    AttributesImpl existingAttributes = new AttributesImpl();
+    existingAttributes.addAttribute(null, null, "contextPath", null, "/exists");
+
+    // Call the method under test.
+    overridingHandler.startElement(null, null, "symlink", attributes);
+    overridingHandler.endElement(null, null, "symlink");
+    overridingHandler.startElement(null, null, "symlink", existingAttributes);
+    Deencapsulation.setField(overridingHandler, "link", Paths.get("link"));
+    Deencapsulation.setField(overridingHandler, "target", Paths.get("target"));
+    overridingHandler.endElement(null, null, "symlink");
+
+    // Perform assertions.
+    Assert.assertThat("The number of skipped results did not match the expected value.",
+        overridingHandler.getSummary().getTotal().getCount(Status.SKIPPED), CoreMatchers.is(1));
+  }
+
+  /**
+   * Test that other groups and ungrouped symlinks are skipped without being reported when a group
+   * filter is given.
+   */
+  @Test
+  public void testStartElement_groupFilter_otherElementsSkipped()
+      throws UnsupportedEncodingException {
+    // Set up test data.
+    handler = new SymlinksHandler(new SymlinkOptions(), new TextResultSink(System.out),
+        FileSystems.getDefault(), "group1");
+
+    AttributesImpl attributes = new AttributesImpl();
+    attributes.addAttribute(null, null, "name", null, "group2");
+
+    // Call the method under test.
+    handler.startElement(null, null, "group", attributes);
+    handler.startElement(null, null, "symlink", new AttributesImpl());
+    handler.endElement(null, null, "symlink");
+    handler.endElement(null, null, "group");
+    handler.startElement(null, null, "symlink", new AttributesImpl());
+
+    // Perform assertions.
+    boolean skipElements = Deencapsulation.getField(handler, "skipElements");
+    Assert.assertThat("The skipElements flag did not match the expected value.", skipElements,
+        CoreMatchers.is(true));
+
+    boolean resetSkipAfterLink = Deencapsulation.getField(handler, "resetSkipAfterLink");
+    Assert.assertThat("The resetSkipAfterLink flag did not match the expected value.",
+        resetSkipAfterLink, CoreMatchers.is(true));
+
+    Assert.assertThat("The expected message was not output.",
+        out.toString(StandardCharsets.UTF_8.name()), CoreMatchers.is(""));
+  }
+
+  /**
+   * Test that results are reported in definition order when symlinks are processed concurrently
+   * and complete out of order.
+   */
+  @Test
+  public void testEndDocument_executor_resultsInDefinitionOrder() throws Exception {
+    // Set up test data.
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    CountDownLatch lastStarted = new CountDownLatch(1);
+    handler = new SymlinksHandler(new SymlinkOptions(), new TextResultSink(System.out),
+        FileSystems.getDefault(), null, executor) {
+      @Override
+      protected SymlinkCreationResult createSymbolicLink(Path link, Path target) {
+        try {
+          // Earlier symlinks wait for the last one, so they complete after it.
+          if (link.endsWith("link3")) {
+            lastStarted.countDown();
+          } else {
+            lastStarted.await();
+          }
+        } catch (InterruptedException ie) {
+          Thread.currentThread().interrupt();
+        }
+
+        return new SymlinkCreationResult(Status.CREATED, link.toString());
+      }
+    };
+
+    // Call the method under test.
+    try {
+      handler.startDocument();
+
+      for (int i = 1; i <= 3; i++) {
+        handler.startElement(null, null, "symlink", new AttributesImpl());
+        Deencapsulation.setField(handler, "link", Paths.get("link" + i));
+        Deencapsulation.setField(handler, "target", Paths.get("target"));
+        handler.endElement(null, null, "symlink");
+      }
+
+      handler.endDocument();
+    } finally {
+      executor.shutdown();
+    }
+
+    // Perform assertions.
+    String newLine = System.lineSeparator();
+    Assert.assertThat("The expected message was not output.",
+        out.toString(StandardCharsets.UTF_8.name()),
+        CoreMatchers.is("Automatic Symlink Utility started..." + newLine + newLine + "link1"
+            + newLine + newLine + "link2" + newLine + newLine + "link3" + newLine + newLine
+            + "Automatic Symlink Utility finished." + newLine));
+    Assert.assertThat("The number of created results did not match the expected value.",
+        handler.getSummary().getTotal().getCount(Status.CREATED), CoreMatchers.is(3));
+  }
+
+  /**
+   * Test that a group's context path is checked once the earlier symlinks have completed when
+   * symlinks are processed concurrently, so a context created by an earlier symlink is found.
+   */
+  @Test
+  public void testStartElement_executorContextCreatedByEarlierSymlink_groupStarted()
+      throws Exception {
+    // Set up test data.
+    Path testDirectory = Files.createTempDirectory(
+        "testStartElement_executorContextCreatedByEarlierSymlink_groupStarted");
+    testDirectory.toFile().deleteOnExit();
+    Path contextPath = testDirectory.resolve("context");
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    handler = new SymlinksHandler(new SymlinkOptions(), new TextResultSink(System.out),
+        FileSystems.getDefault(), null, executor) {
+      @Override
+      protected SymlinkCreationResult createSymbolicLink(Path link, Path target) {
+        try {
+          // Create the context only after the group would have been started without waiting.
+          Thread.sleep(100);
+          Files.createDirectory(target).toFile().deleteOnExit();
+        } catch (InterruptedException ie) {
+          Thread.currentThread().interrupt();
+        } catch (IOException ioe) {
+          return new SymlinkCreationResult(link, target, ioe);
+        }
+
+        return new SymlinkCreationResult(Status.CREATED, link.toString());
+      }
+    };
+
+    AttributesImpl groupAttributes = new AttributesImpl();
+    groupAttributes.addAttribute(null, null, "name", null, "group1");
+    groupAttributes.addAttribute(null, null, "contextPath", null, contextPath.toString());
+
+    // Call the method under test.
+    try {
+      handler.startElement(null, null, "symlink", new AttributesImpl());
+      Deencapsulation.setField(handler, "link", Paths.get("link1"));
+      Deencapsulation.setField(handler, "target", contextPath);
+      handler.endElement(null, null, "symlink");
+      handler.startElement(null, null, "group", groupAttributes);
+    } finally {
+      executor.shutdown();
+    }
+
+    // Perform assertions.
+    boolean skipElements = Deencapsulation.getField(handler, "skipElements");
+    Assert.assertThat("The group was not expected to be skipped.", skipElements,
+        CoreMatchers.is(false));
+  }
+
+  /**
+   * Test that symbolic links are restored rather than created in restore mode.
+   */
+  @Test
+  public void testEndElement_restoreMode_linkRestored() throws IOException {
+    // Set up test data.
+    Path testDirectory = Files.createTempDirectory("testEndElement_restoreMode_linkRestored");
+    testDirectory.toFile().deleteOnExit();
+    Path link = Files.createTempFile(testDirectory, "linkFile", null);
+    link.toFile().deleteOnExit();
+
+    SymlinkOptions options = new SymlinkOptions();
+    options.setMode(Mode.RESTORE);
+    handler = new SymlinksHandler(options, new TextResultSink(System.out));
+
+    // Call the method under test.
+    handler.startElement(null, null, "symlink", new AttributesImpl());
+    Deencapsulation.setField(handler, "link", link);
+    Deencapsulation.setField(handler, "target", testDirectory.resolve("target"));
+    handler.endElement(null, null, "symlink");
+
+    // Perform assertions.
+    Assert.assertThat("The expected message was not output.",
+        out.toString(StandardCharsets.UTF_8.name()), CoreMatchers.containsString(
+            String.format("A link was not restored because '%s' is not a symbolic link.", link)));
+  }
+
+  /**
+   * Test that each gc root is scanned and reported as a group in gc mode, without reporting the
+   * defined links again.
+   */
+  @Test
+  public void testEndDocument_gcRoot_rootScanned() throws IOException {
+    // Set up test data.
+    Path testDirectory = Files.createTempDirectory("testEndDocument_gcRoot_rootScanned");
+    testDirectory.toFile().deleteOnExit();
+    Path target = testDirectory.resolve("missing");
+    Path definedLink = Files.createSymbolicLink(testDirectory.resolve("definedLink"), target);
+    definedLink.toFile().deleteOnExit();
+    Path undefinedLink = Files.createSymbolicLink(testDirectory.resolve("undefinedLink"), target);
+    undefinedLink.toFile().deleteOnExit();
+
+    SymlinkOptions options = new SymlinkOptions();
+    options.setMode(Mode.GC);
+    options.addGcRoot(testDirectory);
+    handler = new SymlinksHandler(options, new TextResultSink(System.out));
+
+    // Call the method under test.
+    handler.startDocument();
+    handler.startElement(null, null, "symlink", new AttributesImpl());
+    Deencapsulation.setField(handler, "link", definedLink);
+    Deencapsulation.setField(handler, "target", target);
+    handler.endElement(null, null, "symlink");
+    handler.endDocument();
+
+    // Perform assertions.
+    Assert.assertThat("The number of failed results did not match the expected value.",
+        handler.getSummary().getTotal().getCount(Status.FAILED), CoreMatchers.is(2));
+    List<GroupSummary> groups = handler.getSummary().getGroups();
+    Assert.assertThat("The root's group did not match the expected value.",
+        groups.get(groups.size() - 1).getName(),
+        CoreMatchers.is(testDirectory.toString()));
+    Assert.assertThat("The undefined link was not reported.",
+        out.toString(StandardCharsets.UTF_8.name()), CoreMatchers.containsString(String.format(
+            "The link '%s' is stale because its target '%s' does not exist.", undefinedLink,
+            target)));
+  }
+
   /**
    * Test that the SAXParseException is re-thrown.
    */
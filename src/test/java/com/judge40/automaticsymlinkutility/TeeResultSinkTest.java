@@ -0,0 +1,61 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import com.judge40.automaticsymlinkutility.SymlinkCreationResult.Status;
+
+import mockit.FullVerifications;
+import mockit.Injectable;
+
+import org.junit.Test;
+
+/**
+ * The unit tests for {@link TeeResultSink}.
+ */
+public class TeeResultSinkTest {
+
+  /**
+   * Test that events are passed to every sink.
+   * 
+   * @param first The first mocked sink.
+   * @param second The second mocked sink.
+   */
+  @Test
+  public void testResult_twoSinks_bothCalled(@Injectable ResultSink first,
+      @Injectable ResultSink second) {
+    // Set up test data.
+    SymlinkCreationResult result = new SymlinkCreationResult(Status.CREATED, "Link created.");
+
+    // Call the method under test.
+    TeeResultSink sink = new TeeResultSink(first, second);
+    sink.result("group1", result);
+    sink.close();
+
+    // Verify expectations.
+    new FullVerifications() {
+      {
+        first.result("group1", result);
+        second.result("group1", result);
+        first.close();
+        second.close();
+      }
+    };
+  }
+}
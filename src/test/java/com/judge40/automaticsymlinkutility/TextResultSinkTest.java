@@ -0,0 +1,129 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import com.judge40.automaticsymlinkutility.SymlinkCreationResult.Reason;
+import com.judge40.automaticsymlinkutility.SymlinkCreationResult.Status;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The unit tests for {@link TextResultSink}.
+ */
+public class TextResultSinkTest {
+
+  private ByteArrayOutputStream out;
+  private TextResultSink sink;
+
+  /**
+   * Create the sink under test with an in-memory stream.
+   * 
+   * @throws UnsupportedEncodingException If the stream's encoding is not supported.
+   */
+  @Before
+  public void setUp() throws UnsupportedEncodingException {
+    out = new ByteArrayOutputStream();
+    sink = new TextResultSink(new PrintStream(out, false, StandardCharsets.UTF_8.name()));
+  }
+
+  /**
+   * Test that a group's events are written in the original text format.
+   * 
+   * @throws UnsupportedEncodingException If the stream's encoding is not supported.
+   */
+  @Test
+  public void testEvents_group_textWritten() throws UnsupportedEncodingException {
+    // Call the method under test.
+    sink.started();
+    sink.groupStarted("group1");
+    sink.symlinkStarted("group1");
+    sink.result("group1", new SymlinkCreationResult(Status.CREATED, "Link created."));
+    sink.groupFinished("group1");
+    sink.finished();
+
+    // Perform assertions.
+    String lineSeparator = System.lineSeparator();
+    String expected = String.join(lineSeparator, "Automatic Symlink Utility started...", "",
+        "Managing symlinks for 'group1' group...", "Link created.", "Group 'group1' finished.", "",
+        "Automatic Symlink Utility finished.", "");
+    Assert.assertThat("The output did not match the expected value.",
+        out.toString(StandardCharsets.UTF_8.name()), CoreMatchers.is(expected));
+  }
+
+  /**
+   * Test that a blank line is written before each symlink which is not in a group.
+   * 
+   * @throws UnsupportedEncodingException If the stream's encoding is not supported.
+   */
+  @Test
+  public void testSymlinkStarted_noGroup_blankLineWritten() throws UnsupportedEncodingException {
+    // Call the method under test.
+    sink.symlinkStarted(null);
+    sink.symlinkSkipped(null, "context");
+    sink.close();
+
+    // Perform assertions.
+    String lineSeparator = System.lineSeparator();
+    String expected = String.join(lineSeparator, "",
+        "Skipping a symlink because its context 'context' did not exist.", "");
+    Assert.assertThat("The output did not match the expected value.",
+        out.toString(StandardCharsets.UTF_8.name()), CoreMatchers.is(expected));
+  }
+
+  /**
+   * Test that the summary is written with a line per group, the total and the slowest operations.
+   * 
+   * @throws UnsupportedEncodingException If the stream's encoding is not supported.
+   */
+  @Test
+  public void testSummary_summary_summaryWritten() throws UnsupportedEncodingException {
+    // Set up test data.
+    SymlinkCreationResult result =
+        new SymlinkCreationResult(Reason.MOVED_FILE, Paths.get("link"), Paths.get("target"));
+    result.setDuration(TimeUnit.MILLISECONDS.toNanos(7));
+    result.setBytesMoved(1024);
+
+    RunSummary summary = new RunSummary();
+    summary.record("group1", result);
+
+    // Call the method under test.
+    sink.summary(summary);
+    sink.close();
+
+    // Perform assertions.
+    String lineSeparator = System.lineSeparator();
+    String expected = String.join(lineSeparator, "", "Summary:",
+        "Group 'group1': 1 created, 0 skipped, 0 failed in 0 ms, 1024 bytes moved.",
+        "Total: 1 created, 0 skipped, 0 failed in 0 ms, 1024 bytes moved.", "Slowest operations:",
+        "  7 ms: 'link' (MOVED_FILE)", "");
+    Assert.assertThat("The output did not match the expected value.",
+        out.toString(StandardCharsets.UTF_8.name()), CoreMatchers.is(expected));
+  }
+}
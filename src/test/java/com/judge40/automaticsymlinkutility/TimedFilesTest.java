@@ -0,0 +1,195 @@
+/*
+ * Automatic Symlink Utility Copyright (c) 2018 Judge40
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and
+ * associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute,
+ * sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT
+ * NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.judge40.automaticsymlinkutility;
+
+import com.judge40.automaticsymlinkutility.FileOperationStats.Primitive;
+
+import mockit.Expectations;
+import mockit.Verifications;
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * The unit tests for {@link TimedFiles}.
+ */
+public class TimedFilesTest {
+
+  private final OperationContext context = new OperationContext();
+
+  /**
+   * Test that operations are recorded against the file store of the path, without it having been
+   * cached beforehand.
+   */
+  @Test
+  public void testCreateDirectory_fileStoreNotCached_recordedAgainstFileStore()
+      throws IOException {
+    // Set up test data.
+    Path testDirectory = Files.createTempDirectory(
+        "testCreateDirectory_fileStoreNotCached_recordedAgainstFileStore");
+    testDirectory.toFile().deleteOnExit();
+    final String fileStoreName = Files.getFileStore(testDirectory).toString();
+    context.getOperationStats().clear();
+
+    Path directory = testDirectory.resolve("directory");
+
+    // Call the method under test.
+    context.getFiles().createDirectory(directory);
+    directory.toFile().deleteOnExit();
+    boolean exists = context.getFiles().exists(directory);
+
+    // Perform assertions.
+    Assert.assertThat("The directory was expected to exist.", exists, CoreMatchers.is(true));
+
+    Map<Primitive, LatencyHistogram> histograms =
+        context.getOperationStats().getHistograms().get(fileStoreName);
+    Assert.assertThat("The create directory count did not match the expected value.",
+        histograms.get(Primitive.CREATE_DIRECTORY).getCount(), CoreMatchers.is(1L));
+    Assert.assertThat("The stat count did not match the expected value.",
+        histograms.get(Primitive.STAT).getCount(), CoreMatchers.is(1L));
+  }
+
+  /**
+   * Test that failed operations are still recorded, against the file store of the path's closest
+   * existing ancestor when the path does not exist.
+   */
+  @Test
+  public void testDelete_notExists_recordedAgainstAncestorFileStore() throws IOException {
+    // Set up test data.
+    Path testDirectory =
+        Files.createTempDirectory("testDelete_notExists_recordedAgainstAncestorFileStore");
+    testDirectory.toFile().deleteOnExit();
+    final String fileStoreName = Files.getFileStore(testDirectory).toString();
+
+    // Call the method under test.
+    try {
+      context.getFiles().delete(testDirectory.resolve("notExists"));
+      Assert.fail("An IOException was expected.");
+    } catch (IOException ioe) {
+      // Perform assertions.
+      Map<Primitive, LatencyHistogram> histograms = context.getOperationStats()
+          .getHistograms().get(fileStoreName);
+      Assert.assertThat("The delete count did not match the expected value.",
+          histograms.get(Primitive.DELETE).getCount(), CoreMatchers.is(1L));
+    }
+  }
+
+  /**
+   * Test that reading a file is recorded once, when its stream is closed, and that opening a
+   * directory is recorded.
+   */
+  @Test
+  public void testNewInputStream_closed_readRecorded() throws IOException {
+    // Set up test data.
+    Path testDirectory = Files.createTempDirectory("testNewInputStream_closed_readRecorded");
+    testDirectory.toFile().deleteOnExit();
+    Path file = Files.write(testDirectory.resolve("file"), new byte[] {1, 2, 3});
+    file.toFile().deleteOnExit();
+    final String fileStoreName = Files.getFileStore(testDirectory).toString();
+    context.getOperationStats().clear();
+
+    // Call the method under test.
+    try (InputStream input = context.getFiles().newInputStream(file)) {
+      Assert.assertThat("The first byte did not match the expected value.", input.read(),
+          CoreMatchers.is(1));
+    }
+
+    try (DirectoryStream<Path> entries = context.getFiles().newDirectoryStream(testDirectory)) {
+      Assert.assertThat("The directory entry did not match the expected value.",
+          entries.iterator().next(), CoreMatchers.is(file));
+    }
+
+    // Perform assertions.
+    Map<Primitive, LatencyHistogram> histograms =
+        context.getOperationStats().getHistograms().get(fileStoreName);
+    Assert.assertThat("The read count did not match the expected value.",
+        histograms.get(Primitive.READ).getCount(), CoreMatchers.is(1L));
+    Assert.assertThat("The open directory count did not match the expected value.",
+        histograms.get(Primitive.OPEN_DIRECTORY).getCount(), CoreMatchers.is(1L));
+  }
+
+  /**
+   * Test that operations on paths below a cached directory are recorded against its file store
+   * without looking the file store up again.
+   */
+  @Test
+  public void testExists_ancestorCached_fileStoreNotLookedUp() throws IOException {
+    // Set up test data.
+    Path testDirectory =
+        Files.createTempDirectory("testExists_ancestorCached_fileStoreNotLookedUp");
+    testDirectory.toFile().deleteOnExit();
+    final String fileStoreName = Files.getFileStore(testDirectory).toString();
+    context.getFileStoreCache().getFileStore(testDirectory);
+    context.getOperationStats().clear();
+
+    new Expectations(Files.class) {};
+
+    // Call the method under test.
+    context.getFiles().exists(testDirectory.resolve("directory").resolve("file"));
+
+    // Perform assertions.
+    Map<Primitive, LatencyHistogram> histograms =
+        context.getOperationStats().getHistograms().get(fileStoreName);
+    Assert.assertThat("The stat count did not match the expected value.",
+        histograms.get(Primitive.STAT).getCount(), CoreMatchers.is(1L));
+
+    // Verify expectations.
+    new Verifications() {
+      {
+        Files.notExists((Path) any, (LinkOption[]) any);
+        times = 0;
+
+        Files.isDirectory((Path) any, (LinkOption[]) any);
+        times = 0;
+
+        Files.getFileStore((Path) any);
+        times = 0;
+      }
+    };
+  }
+
+  /**
+   * Test that operations are not recorded when the statistics are disabled.
+   */
+  @Test
+  public void testExists_statsDisabled_notRecorded() throws IOException {
+    // Set up test data.
+    Path testDirectory = Files.createTempDirectory("testExists_statsDisabled_notRecorded");
+    testDirectory.toFile().deleteOnExit();
+    context.getOperationStats().clear();
+    context.getOperationStats().setEnabled(false);
+
+    // Call the method under test.
+    boolean exists = context.getFiles().exists(testDirectory);
+
+    // Perform assertions.
+    Assert.assertThat("The directory was expected to exist.", exists, CoreMatchers.is(true));
+    Assert.assertThat("No operations were expected to be recorded.",
+        context.getOperationStats().getHistograms().isEmpty(), CoreMatchers.is(true));
+  }
+}